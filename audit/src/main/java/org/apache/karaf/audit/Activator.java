@@ -68,6 +68,7 @@ public class Activator extends BaseActivator implements ManagedService {
     public static final String QUEUE_SIZE = "queue.size";
     public static final String RUNNER_IDLE_TIMEOUT = "runner.idle-timeout";
     public static final String RUNNER_FLUSH_TIMEOUT = "runner.flush-timeout";
+    public static final String RUNNER_BATCH_SIZE = "runner.batch-size";
     public static final String FILE_PREFIX = "file.";
     public static final String FILE_LAYOUT = FILE_PREFIX + "layout";
     public static final String FILE_ENABLED = FILE_PREFIX + "enabled";
@@ -76,6 +77,8 @@ public class Activator extends BaseActivator implements ManagedService {
     public static final String FILE_POLICY = FILE_PREFIX + "policy";
     public static final String FILE_FILES = FILE_PREFIX + "files";
     public static final String FILE_COMPRESS = FILE_PREFIX + "compress";
+    public static final String FILE_SYNC = FILE_PREFIX + "sync";
+    public static final String FILE_BUFFER_SIZE = FILE_PREFIX + "buffer-size";
     public static final String UDP_PREFIX = "udp.";
     public static final String UDP_LAYOUT = UDP_PREFIX + "layout";
     public static final String UDP_ENABLED = UDP_PREFIX + "enabled";
@@ -153,8 +156,10 @@ public class Activator extends BaseActivator implements ManagedService {
                 String policy = getString(FILE_POLICY, "size(8mb)");
                 int files = getInt(FILE_FILES, 32);
                 boolean compress = getBoolean(FILE_COMPRESS, true);
+                boolean sync = getBoolean(FILE_SYNC, false);
+                int bufferSize = getInt(FILE_BUFFER_SIZE, FileEventLogger.DEFAULT_BUFFER_SIZE);
                 EventLayout layout = createLayout(getString(FILE_LAYOUT, FILE_LAYOUT));
-                loggers.add(new FileEventLogger(path, encoding, policy, files, compress, this, layout, TimeZone.getDefault()));
+                loggers.add(new FileEventLogger(path, encoding, policy, files, compress, sync, bufferSize, this, layout, TimeZone.getDefault()));
             }
             if (getBoolean(UDP_ENABLED, false)) {
                 String host = getString(UDP_HOST, "localhost");
@@ -299,27 +304,24 @@ public class Activator extends BaseActivator implements ManagedService {
     private void consume() {
         long maxIdle = getLong(RUNNER_IDLE_TIMEOUT, TimeUnit.MINUTES.toMillis(1));
         long flushDelay = getLong(RUNNER_FLUSH_TIMEOUT, TimeUnit.MILLISECONDS.toMillis(100));
+        int batchSize = Math.max(getInt(RUNNER_BATCH_SIZE, 256), 1);
         try {
             List<EventLogger> eventLoggers = this.eventLoggers;
             BlockingQueue<EventImpl> queue = this.queue;
+            List<EventImpl> batch = new ArrayList<>(batchSize);
             EventImpl event;
             while ((event = queue.poll(maxIdle, TimeUnit.MILLISECONDS)) != null) {
-                if (event == STOP_EVENT) {
+                if (!write(eventLoggers, queue, batch, batchSize, event)) {
                     return;
                 }
-                for (EventLogger eventLogger : eventLoggers) {
-                    eventLogger.write(event);
-                }
                 if (flushDelay > 0) {
                     while ((event = queue.poll(flushDelay, TimeUnit.MILLISECONDS)) != null) {
-                        if (event == STOP_EVENT) {
+                        if (!write(eventLoggers, queue, batch, batchSize, event)) {
                             return;
                         }
-                        for (EventLogger eventLogger : eventLoggers) {
-                            eventLogger.write(event);
-                        }
                     }
                 }
+                // all the events written since the last flush are committed at once
                 for (EventLogger eventLogger : eventLoggers) {
                     eventLogger.flush();
                 }
@@ -331,6 +333,25 @@ public class Activator extends BaseActivator implements ManagedService {
         }
     }
 
+    /**
+     * Drain the queue into a batch starting with the given event and write it.
+     * @return <code>false</code> if the stop event has been found
+     */
+    private boolean write(List<EventLogger> eventLoggers, BlockingQueue<EventImpl> queue,
+                          List<EventImpl> batch, int batchSize, EventImpl first) throws IOException {
+        batch.clear();
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        int stop = batch.indexOf(STOP_EVENT);
+        List<EventImpl> events = stop >= 0 ? batch.subList(0, stop) : batch;
+        if (!events.isEmpty()) {
+            for (EventLogger eventLogger : eventLoggers) {
+                eventLogger.write(events);
+            }
+        }
+        return stop < 0;
+    }
+
     static class EventImpl implements org.apache.karaf.audit.Event {
         private final Event event;
         private final long timestamp;
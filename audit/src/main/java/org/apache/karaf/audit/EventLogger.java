@@ -19,6 +19,7 @@ package org.apache.karaf.audit;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
+import java.util.List;
 
 public interface EventLogger extends Flushable, Closeable {
 
@@ -27,4 +28,13 @@ public interface EventLogger extends Flushable, Closeable {
      */
     void write(Event event) throws IOException;
 
+    /**
+     * Write a batch of events.
+     */
+    default void write(List<? extends Event> events) throws IOException {
+        for (Event event : events) {
+            write(event);
+        }
+    }
+
 }
@@ -21,12 +21,15 @@ import org.apache.karaf.audit.EventLayout;
 import org.apache.karaf.audit.EventLogger;
 import org.apache.karaf.audit.util.FastDateFormat;
 
-import java.io.BufferedWriter;
-import java.io.Closeable;
-import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -44,7 +47,10 @@ import java.util.zip.GZIPOutputStream;
 
 public class FileEventLogger implements EventLogger {
 
-    private final Charset encoding;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] NEW_LINE = { '\n' };
+
     private final String policy;
     private final int files;
     private final boolean compress;
@@ -54,15 +60,34 @@ public class FileEventLogger implements EventLogger {
     private long maxSize;
     private long size;
     private Path path;
-    private Writer writer;
+    private final boolean sync;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private FileChannel channel;
     private FastDateFormat fastDateFormat;
     private TimeZone timeZone;
 
     public FileEventLogger(String path, String encoding, String policy, int files, boolean compress, ThreadFactory factory, EventLayout layout, TimeZone timeZone) throws IOException {
+        this(path, encoding, policy, files, compress, false, DEFAULT_BUFFER_SIZE, factory, layout, timeZone);
+    }
+
+    /**
+     * Creates a file logger which encodes the events into a direct buffer and writes it
+     * to the file when full or on {@link #flush()}, so that a batch of events usually
+     * ends up in a single write.
+     *
+     * @param sync if the file should also be synced to the storage device on {@link #flush()}
+     * @param bufferSize the size in bytes of the write buffer
+     */
+    public FileEventLogger(String path, String encoding, String policy, int files, boolean compress, boolean sync, int bufferSize, ThreadFactory factory, EventLayout layout, TimeZone timeZone) throws IOException {
         this.fastDateFormat = new FastDateFormat(timeZone, Locale.ENGLISH);
         this.timeZone = timeZone;
         this.path = Paths.get(path);
-        this.encoding = Charset.forName(encoding);
+        this.encoder = Charset.forName(encoding).newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.sync = sync;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
         this.policy = policy;
         this.files = files;
         this.compress = compress;
@@ -105,13 +130,13 @@ public class FileEventLogger implements EventLogger {
     @Override
     public void write(Event event) throws IOException {
         long timestamp = event.timestamp();
-        if (writer == null) {
+        if (channel == null) {
             init();
         } else {
             check(timestamp);
         }
-        layout.format(event, writer);
-        writer.append("\n");
+        encode(layout.format(event));
+        encode(CharBuffer.wrap(NEW_LINE));
     }
 
     private void init() throws IOException {
@@ -126,29 +151,69 @@ public class FileEventLogger implements EventLogger {
             }
         }
         fastDateFormat.sameDay(timestamp);
-        writer = new Writer(Files.newBufferedWriter(path, encoding, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        channel = open();
         size = 0;
     }
 
 
     private void check(long timestamp) throws IOException {
         if (trigger(timestamp)) {
-            if (writer != null) {
-                writer.flush();
-                if (Files.size(path) == 0) {
+            if (channel != null) {
+                drain();
+                if (channel.size() == 0) {
                     return;
                 }
-                writer.close();
+                channel.close();
             }
             Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString() + ".", ".tmp");
             Files.delete(temp);
             Files.move(path, temp, StandardCopyOption.ATOMIC_MOVE);
             executor.execute(() -> rotate(temp, timestamp));
-            writer = new Writer(Files.newBufferedWriter(path, encoding, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            channel = open();
             size = 0;
         }
     }
 
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Encode the characters into the byte buffer, writing it to the file channel when it is full.
+     */
+    private void encode(CharBuffer chars) throws IOException {
+        int start = buffer.position();
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                size += buffer.position() - start;
+                drain();
+                start = 0;
+            } else if (result.isError()) {
+                result.throwException();
+            }
+        } while (!result.isUnderflow());
+        do {
+            result = encoder.flush(buffer);
+            if (result.isOverflow()) {
+                size += buffer.position() - start;
+                drain();
+                start = 0;
+            }
+        } while (!result.isUnderflow());
+        size += buffer.position() - start;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
     private boolean trigger(long timestamp) {
         return maxSize > 0 && size > maxSize
                 || daily && !fastDateFormat.sameDay(timestamp);
@@ -212,84 +277,21 @@ public class FileEventLogger implements EventLogger {
 
     @Override
     public void flush() throws IOException {
-        if (writer != null) {
-            writer.flush();
+        if (channel != null) {
+            drain();
+            if (sync) {
+                channel.force(false);
+            }
         }
     }
 
     @Override
     public void close() throws IOException {
-        if (writer != null) {
-            writer.close();
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
         }
     }
 
-    class Writer extends java.io.Writer implements Appendable, Closeable, Flushable {
-        private final BufferedWriter writer;
-
-        public Writer(BufferedWriter writer) {
-            this.writer = writer;
-        }
-
-        @Override
-        public void flush() throws IOException {
-            writer.flush();
-        }
-
-        @Override
-        public void close() throws IOException {
-            writer.close();
-        }
-
-        @Override
-        public void write(int c) throws IOException {
-            size += 1;
-            writer.write(c);
-        }
-
-        @Override
-        public void write(char[] cbuf, int off, int len) throws IOException {
-            size += len;
-            writer.write(cbuf, off, len);
-        }
-
-        @Override
-        public void write(String s, int off, int len) throws IOException {
-            size += len;
-            writer.write(s, off, len);
-        }
-
-        @Override
-        public void write(char[] cbuf) throws IOException {
-            size += cbuf.length;
-            writer.write(cbuf);
-        }
-
-        @Override
-        public void write(String str) throws IOException {
-            size += str.length();
-            writer.write(str);
-        }
-
-        @Override
-        public java.io.Writer append(CharSequence csq) throws IOException {
-            size += csq.length();
-            writer.append(csq);
-            return this;
-        }
-
-        @Override
-        public java.io.Writer append(CharSequence csq, int start, int end) throws IOException {
-            size += end - start;
-            writer.append(csq, start, end);
-            return this;
-        }
-
-        @Override
-        public java.io.Writer append(char c) throws IOException {
-            size += 1;
-            writer.append(c);
-            return this;
-        }
-    }
 }
@@ -258,6 +258,37 @@ public class EventLoggerTest {
         assertEquals(Arrays.asList("file-2017-11-17-2.log.gz", "file-2017-11-17.log.gz", "file.log"), paths);
     }
 
+    @Test
+    public void testFileBatch() throws Exception {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            script.append("r\u00e9sum\u00e9-\u4e2d-");
+        }
+        long now = System.currentTimeMillis();
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("type", Event.TYPE_SHELL);
+            map.put("subtype", "executed");
+            map.put("script", script.toString() + i);
+            events.add(new MapEvent(map, now));
+        }
+
+        EventLayout layout = new GelfLayout();
+        Path path = Files.createTempDirectory("file-logger");
+        String file = path.resolve("file.log").toString();
+        EventLogger logger = new FileEventLogger(file, "UTF-8", "daily", 2, false, true, 1024, Executors.defaultThreadFactory(), layout, TimeZone.getDefault());
+        logger.write(events);
+        logger.flush();
+
+        List<String> lines = Files.readAllLines(path.resolve("file.log"), StandardCharsets.UTF_8);
+        assertEquals(100, lines.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(lines.get(i).contains("_script=\"" + script + i + "\""));
+        }
+        logger.close();
+    }
+
     private int getNewPort() throws IOException {
         try (ServerSocket socket = new ServerSocket()) {
             socket.setReuseAddress(true);
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.config.command;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.felix.utils.properties.TypedProperties;
+import org.apache.karaf.config.command.completers.ConfigurationCompleter;
+import org.apache.karaf.config.core.ConfigBatch;
+import org.apache.karaf.config.core.ConfigRepository;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Argument;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Completion;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+
+@Command(scope = "config", name = "batch", description = "Updates several configurations at once from cfg files, only changing the configurations whose properties differ.")
+@Service
+public class BatchCommand implements Action {
+
+    private static final String CFG_EXTENSION = ".cfg";
+
+    @Argument(index = 0, name = "cfgs", description = "The cfg files or URLs, or the folders containing the cfg files. The PID of a configuration is the name of its cfg file.", required = false, multiValued = true)
+    List<String> cfgs;
+
+    @Option(name = "-a", aliases = { "--append" }, description = "Add the properties to the existing ones instead of replacing all the properties", required = false, multiValued = false)
+    boolean append;
+
+    @Option(name = "-d", aliases = { "--delete" }, description = "PID of a configuration to delete", required = false, multiValued = true)
+    @Completion(ConfigurationCompleter.class)
+    List<String> deletions;
+
+    @Reference
+    ConfigRepository configRepository;
+
+    @Override
+    public Object execute() throws Exception {
+        ConfigBatch batch = new ConfigBatch();
+        if (cfgs != null) {
+            for (String cfg : cfgs) {
+                File file = new File(cfg);
+                if (file.isDirectory()) {
+                    File[] files = file.listFiles((dir, name) -> name.endsWith(CFG_EXTENSION));
+                    if (files != null) {
+                        Arrays.sort(files);
+                        for (File f : files) {
+                            add(batch, f.toURI().toURL());
+                        }
+                    }
+                } else if (file.isFile()) {
+                    add(batch, file.toURI().toURL());
+                } else {
+                    add(batch, toUrl(cfg));
+                }
+            }
+        }
+        if (deletions != null) {
+            for (String pid : deletions) {
+                batch.delete(pid);
+            }
+        }
+        if (batch.isEmpty()) {
+            System.err.println("No configuration to update.");
+            return null;
+        }
+
+        Set<String> updated = configRepository.update(batch);
+        for (String pid : batch.getPids()) {
+            if (updated.contains(pid)) {
+                System.out.println((batch.isDeleted(pid) ? "Deleted " : "Updated ") + pid);
+            }
+        }
+        System.out.println(updated.size() + " configuration(s) changed, " + (batch.getPids().size() - updated.size()) + " unchanged");
+        return null;
+    }
+
+    private void add(ConfigBatch batch, URL url) throws Exception {
+        String name = url.getPath().substring(url.getPath().lastIndexOf('/') + 1);
+        if (!name.endsWith(CFG_EXTENSION)) {
+            throw new IllegalArgumentException("Not a cfg file: " + url);
+        }
+        String pid = name.substring(0, name.length() - CFG_EXTENSION.length());
+        TypedProperties props = new TypedProperties();
+        try (InputStream is = url.openStream()) {
+            props.load(is);
+        }
+        if (append) {
+            batch.append(pid, props);
+        } else {
+            batch.update(pid, props);
+        }
+    }
+
+    private static URL toUrl(String cfg) {
+        try {
+            return new URL(cfg);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("File or URL not found: " + cfg);
+        }
+    }
+
+    public void setConfigRepository(ConfigRepository configRepository) {
+        this.configRepository = configRepository;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.config.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of configuration changes applied at once by {@link ConfigRepository#update(ConfigBatch)}.
+ * <p>
+ * The changes of a PID are applied in the order they are added, and result in at most one update
+ * of the configuration.
+ */
+public class ConfigBatch {
+
+    private final Map<String, PidChanges> changes = new LinkedHashMap<>();
+
+    /**
+     * Replace all the properties of a configuration, creating it if needed.
+     */
+    public ConfigBatch update(String pid, Map<String, ?> properties) {
+        PidChanges pidChanges = get(pid);
+        pidChanges.delete = false;
+        pidChanges.operations.clear();
+        Map<String, Object> copy = new HashMap<>(properties);
+        pidChanges.operations.add(props -> {
+            props.clear();
+            props.putAll(copy);
+        });
+        return this;
+    }
+
+    /**
+     * Add or replace some properties of a configuration, keeping the other ones.
+     */
+    public ConfigBatch append(String pid, Map<String, ?> properties) {
+        PidChanges pidChanges = modify(pid);
+        Map<String, Object> copy = new HashMap<>(properties);
+        pidChanges.operations.add(props -> props.putAll(copy));
+        return this;
+    }
+
+    /**
+     * Remove some properties of a configuration.
+     */
+    public ConfigBatch delete(String pid, Collection<String> keys) {
+        PidChanges pidChanges = modify(pid);
+        List<String> copy = new ArrayList<>(keys);
+        pidChanges.operations.add(props -> props.keySet().removeAll(copy));
+        return this;
+    }
+
+    /**
+     * Delete a configuration.
+     */
+    public ConfigBatch delete(String pid) {
+        PidChanges pidChanges = get(pid);
+        pidChanges.delete = true;
+        pidChanges.operations.clear();
+        return this;
+    }
+
+    /**
+     * @return The PIDs changed by this batch, in the order of their first change.
+     */
+    public Set<String> getPids() {
+        return Collections.unmodifiableSet(changes.keySet());
+    }
+
+    /**
+     * @return <code>true</code> if the batch deletes the configuration.
+     */
+    public boolean isDeleted(String pid) {
+        PidChanges pidChanges = changes.get(pid);
+        return pidChanges != null && pidChanges.delete;
+    }
+
+    /**
+     * Apply the changes of a PID to its current properties.
+     */
+    public void apply(String pid, Map<String, Object> properties) {
+        PidChanges pidChanges = changes.get(pid);
+        if (pidChanges != null) {
+            for (Operation operation : pidChanges.operations) {
+                operation.apply(properties);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    private PidChanges get(String pid) {
+        if (pid == null) {
+            throw new IllegalArgumentException("The configuration PID is required");
+        }
+        return changes.computeIfAbsent(pid, p -> new PidChanges());
+    }
+
+    private PidChanges modify(String pid) {
+        PidChanges pidChanges = get(pid);
+        if (pidChanges.delete) {
+            // the configuration deleted earlier in the batch is created again
+            pidChanges.delete = false;
+            pidChanges.operations.add(Map::clear);
+        }
+        return pidChanges;
+    }
+
+    private interface Operation {
+        void apply(Map<String, Object> properties);
+    }
+
+    private static class PidChanges {
+        final List<Operation> operations = new ArrayList<>();
+        boolean delete;
+    }
+
+}
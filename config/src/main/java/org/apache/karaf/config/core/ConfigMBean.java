@@ -139,6 +139,17 @@ public interface ConfigMBean {
      */
     void delete(String pid, List<String> properties) throws MBeanException;
 
+    /**
+     * Update several configurations at once. The configurations whose properties don't change are left untouched,
+     * and each changed configuration is updated only once.
+     *
+     * @param configurations the properties of the configurations, by PID.
+     * @param append true to add the properties to the existing ones, false to replace all the properties.
+     * @return the PIDs of the configurations actually changed.
+     * @throws MBeanException in case of MBean failure.
+     */
+    List<String> batch(Map<String, Map<String, String>> configurations, boolean append) throws MBeanException;
+
     String createFactoryConfiguration(String factoryPid) throws MBeanException;
 
     String createFactoryConfiguration(String factoryPid, String alias) throws MBeanException;
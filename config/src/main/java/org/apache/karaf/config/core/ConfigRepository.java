@@ -18,6 +18,7 @@ package org.apache.karaf.config.core;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.felix.utils.properties.TypedProperties;
 import org.osgi.framework.InvalidSyntaxException;
@@ -35,6 +36,19 @@ public interface ConfigRepository {
 
     void update(String pid, Map<String, Object> properties) throws IOException;
 
+    /**
+     * Apply a batch of configuration changes.
+     * <p>
+     * The new properties of all the configurations are computed first, and the configurations whose properties
+     * don't change are left untouched. The cfg files of the other ones are then written, all being restored if
+     * one of them can't be written, and finally each changed configuration is updated once.
+     *
+     * @param batch The changes to apply.
+     * @return The PIDs of the configurations actually updated or deleted.
+     * @throws IOException If the configurations can't be read or written.
+     */
+    Set<String> update(ConfigBatch batch) throws IOException;
+
     String createFactoryConfiguration(String factoryPid, Map<String, Object> properties) throws IOException;
 
     String createFactoryConfiguration(String factoryPid, String alias, Map<String, Object> properties) throws IOException;
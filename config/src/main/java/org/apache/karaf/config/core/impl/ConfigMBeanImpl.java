@@ -16,6 +16,7 @@ package org.apache.karaf.config.core.impl;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.HashMap;
@@ -29,6 +30,7 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
 
 import org.apache.felix.utils.properties.TypedProperties;
+import org.apache.karaf.config.core.ConfigBatch;
 import org.apache.karaf.config.core.ConfigMBean;
 import org.apache.karaf.config.core.ConfigRepository;
 import org.apache.karaf.util.StreamUtils;
@@ -247,6 +249,23 @@ public class ConfigMBeanImpl extends StandardMBean implements ConfigMBean {
         }
     }
 
+    @Override
+    public List<String> batch(Map<String, Map<String, String>> configurations, boolean append) throws MBeanException {
+        try {
+            ConfigBatch batch = new ConfigBatch();
+            for (Map.Entry<String, Map<String, String>> entry : configurations.entrySet()) {
+                if (append) {
+                    batch.append(entry.getKey(), entry.getValue());
+                } else {
+                    batch.update(entry.getKey(), entry.getValue());
+                }
+            }
+            return new ArrayList<>(configRepo.update(batch));
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
 	private Dictionary<String, Object> toDictionary(
 			Map<String, String> properties) {
 		Dictionary<String, Object> dictionary = new Hashtable<>();
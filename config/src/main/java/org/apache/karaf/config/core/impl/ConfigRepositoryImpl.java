@@ -22,13 +22,22 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.apache.felix.utils.properties.TypedProperties;
+import org.apache.karaf.config.core.ConfigBatch;
 import org.apache.karaf.config.core.ConfigRepository;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
@@ -86,6 +95,165 @@ public class ConfigRepositoryImpl implements ConfigRepository {
         }
     }
 
+    @Override
+    public Set<String> update(ConfigBatch batch) throws IOException {
+        // compute all the changes first, so that nothing is modified if one of them is invalid
+        List<PendingChange> changes = new ArrayList<>();
+        try {
+            for (String pid : batch.getPids()) {
+                PendingChange change = prepare(pid, batch);
+                if (change != null) {
+                    changes.add(change);
+                } else {
+                    LOGGER.trace("Configuration {} is unchanged", pid);
+                }
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException("Error updating configs", e);
+        }
+
+        write(changes);
+
+        // the files are all written, so fileinstall sees them in a single scan, and each configuration is updated once
+        Set<String> updated = new LinkedHashSet<>();
+        IOException error = null;
+        for (PendingChange change : changes) {
+            try {
+                if (change.file == null) {
+                    LOGGER.trace("Deleting configuration {}", change.pid);
+                    change.configuration.delete();
+                } else {
+                    LOGGER.trace("Updating configuration {}", change.pid);
+                    TypedProperties props = new TypedProperties();
+                    props.load(change.file);
+                    props.put(FILEINSTALL_FILE_NAME, change.file.toURI().toString());
+                    change.configuration.update(new Hashtable<>(props));
+                }
+                updated.add(change.pid);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Error updating configuration {}", change.pid, e);
+                if (error == null) {
+                    error = new IOException("Error updating config " + change.pid, e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return updated;
+    }
+
+    /**
+     * Compute the change of a configuration.
+     *
+     * @return The change, or <code>null</code> if the configuration is unchanged.
+     */
+    private PendingChange prepare(String pid, ConfigBatch batch) throws IOException, URISyntaxException {
+        if (batch.isDeleted(pid)) {
+            Configuration[] configurations;
+            try {
+                configurations = configAdmin.listConfigurations("(" + Constants.SERVICE_PID + "=" + pid + ")");
+            } catch (InvalidSyntaxException e) {
+                throw new IllegalArgumentException("Invalid configuration PID " + pid, e);
+            }
+            if (configurations == null || configurations.length == 0) {
+                return null;
+            }
+            return new PendingChange(pid, configurations[0], null, null);
+        }
+
+        Configuration cfg = configAdmin.getConfiguration(pid, "?");
+        Dictionary<String, Object> dict = cfg.getProperties();
+        File file = getCfgFileFromProperties(dict);
+        Map<String, Object> current = new LinkedHashMap<>();
+        if (file != null && file.exists()) {
+            TypedProperties props = new TypedProperties();
+            props.load(file);
+            current.putAll(props);
+        } else if (dict != null) {
+            for (Enumeration<String> e = dict.keys(); e.hasMoreElements();) {
+                String key = e.nextElement();
+                current.put(key, dict.get(key));
+            }
+            current.remove(Constants.SERVICE_PID);
+            current.remove(ConfigurationAdmin.SERVICE_FACTORYPID);
+            current.remove(FILEINSTALL_FILE_NAME);
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>(current);
+        batch.apply(pid, properties);
+        Object location = properties.remove(FILEINSTALL_FILE_NAME);
+        if (dict != null && equals(current, properties)) {
+            return null;
+        }
+        if (file == null && location != null) {
+            file = getCfgFileFromProperty(location);
+        }
+        if (file == null) {
+            file = new File(System.getProperty("karaf.etc"), pid + ".cfg");
+        }
+        return new PendingChange(pid, cfg, file, properties);
+    }
+
+    /**
+     * Write the cfg files of the changed configurations, restoring the previous files if one of them can't be written.
+     */
+    private void write(List<PendingChange> changes) throws IOException {
+        Map<File, byte[]> previous = new LinkedHashMap<>();
+        try {
+            for (PendingChange change : changes) {
+                if (change.file == null) {
+                    continue;
+                }
+                File file = change.file;
+                previous.put(file, file.exists() ? Files.readAllBytes(file.toPath()) : null);
+                TypedProperties props = new TypedProperties();
+                if (file.exists()) {
+                    props.load(file);
+                }
+                props.putAll(change.properties);
+                props.keySet().retainAll(change.properties.keySet());
+                // the temporary file doesn't match the cfg files watched by fileinstall
+                File tmp = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+                try {
+                    props.save(tmp);
+                    try {
+                        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(tmp.toPath());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Map.Entry<File, byte[]> entry : previous.entrySet()) {
+                try {
+                    if (entry.getValue() != null) {
+                        Files.write(entry.getKey().toPath(), entry.getValue());
+                    } else {
+                        Files.deleteIfExists(entry.getKey().toPath());
+                    }
+                } catch (IOException e2) {
+                    e.addSuppressed(e2);
+                }
+            }
+            throw new IOException("Error writing configs, no configuration has been changed", e);
+        }
+    }
+
+    private static boolean equals(Map<String, Object> current, Map<String, Object> properties) {
+        if (current.size() != properties.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            if (!current.containsKey(entry.getKey()) || !Objects.deepEquals(current.get(entry.getKey()), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see org.apache.karaf.shell.config.impl.ConfigRepository#delete(java.lang.String)
      */
@@ -185,4 +353,19 @@ public class ConfigRepositoryImpl implements ConfigRepository {
         return configAdmin;
     }
 
+    private static class PendingChange {
+        final String pid;
+        final Configuration configuration;
+        /** The cfg file, <code>null</code> when the configuration is deleted. */
+        final File file;
+        final Map<String, Object> properties;
+
+        PendingChange(String pid, Configuration configuration, File file, Map<String, Object> properties) {
+            this.pid = pid;
+            this.configuration = configuration;
+            this.file = file;
+            this.properties = properties;
+        }
+    }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.config.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.karaf.config.core.ConfigBatch;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigRepositoryImplTest {
+
+    private File etc;
+    private Map<String, Dictionary<String, Object>> configurations;
+    private Map<String, Integer> updates;
+    private ConfigRepositoryImpl repository;
+    private String previousEtc;
+
+    @Before
+    public void setUp() throws Exception {
+        etc = Files.createTempDirectory("etc").toFile();
+        previousEtc = System.getProperty("karaf.etc");
+        System.setProperty("karaf.etc", etc.getPath());
+        configurations = new HashMap<>();
+        updates = new HashMap<>();
+        repository = new ConfigRepositoryImpl(configAdmin());
+    }
+
+    @After
+    public void tearDown() {
+        if (previousEtc != null) {
+            System.setProperty("karaf.etc", previousEtc);
+        } else {
+            System.clearProperty("karaf.etc");
+        }
+        delete(etc);
+    }
+
+    @Test
+    public void testBatchUpdate() throws Exception {
+        repository.update(new ConfigBatch()
+                .update("a", Collections.singletonMap("key", "1"))
+                .update("b", Collections.singletonMap("key", "2")));
+        assertEquals(1, (int) updates.get("a"));
+        assertEquals(1, (int) updates.get("b"));
+        assertTrue(read("a").matches("(?s).*key\\s*=\\s*1.*"));
+
+        // only the changed configuration is updated, once even if it's changed several times
+        Set<String> updated = repository.update(new ConfigBatch()
+                .update("a", Collections.singletonMap("key", "1"))
+                .update("b", Collections.singletonMap("key", "3"))
+                .append("b", Collections.singletonMap("other", "4")));
+        assertEquals(Collections.singleton("b"), updated);
+        assertEquals(1, (int) updates.get("a"));
+        assertEquals(2, (int) updates.get("b"));
+        assertEquals("3", configurations.get("b").get("key"));
+        assertEquals("4", configurations.get("b").get("other"));
+
+        updated = repository.update(new ConfigBatch()
+                .delete("a")
+                .delete("b", Collections.singletonList("other"))
+                .delete("c"));
+        assertEquals(2, updated.size());
+        assertNull(configurations.get("a"));
+        assertNull(configurations.get("b").get("other"));
+        assertFalse(read("b").contains("other"));
+    }
+
+    @Test
+    public void testBatchRollback() throws Exception {
+        repository.update(new ConfigBatch().update("a", Collections.singletonMap("key", "1")));
+        String content = read("a");
+
+        // the file of the second configuration can't be written
+        File invalid = new File(etc, "missing/b.cfg");
+        Map<String, Object> props = new HashMap<>();
+        props.put("key", "2");
+        props.put("felix.fileinstall.filename", invalid.toURI().toString());
+        try {
+            repository.update(new ConfigBatch()
+                    .update("a", Collections.singletonMap("key", "2"))
+                    .update("b", props));
+            fail("The batch should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(content, read("a"));
+        assertEquals(1, (int) updates.get("a"));
+        assertNull(updates.get("b"));
+    }
+
+    private String read(String pid) throws IOException {
+        return new String(Files.readAllBytes(new File(etc, pid + ".cfg").toPath()), StandardCharsets.UTF_8);
+    }
+
+    private ConfigurationAdmin configAdmin() {
+        return (ConfigurationAdmin) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { ConfigurationAdmin.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getConfiguration":
+                        return configuration((String) args[0]);
+                    case "listConfigurations":
+                        String pid = ((String) args[0]).replaceAll("\\(service\\.pid=(.*)\\)", "$1");
+                        return configurations.containsKey(pid) ? new Configuration[] { configuration(pid) } : null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private Configuration configuration(String pid) {
+        return (Configuration) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { Configuration.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getPid":
+                        return pid;
+                    case "getProperties":
+                        return configurations.get(pid);
+                    case "update":
+                        @SuppressWarnings("unchecked")
+                        Dictionary<String, Object> props = new Hashtable<>((Map<String, Object>) args[0]);
+                        configurations.put(pid, props);
+                        updates.merge(pid, 1, Integer::sum);
+                        return null;
+                    case "delete":
+                        configurations.remove(pid);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -17,44 +17,52 @@
  */
 package org.apache.karaf.deployer.blueprint;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.Enumeration;
-import java.util.Properties;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
-import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
 import org.apache.karaf.util.DeployerUtils;
-
+import org.apache.karaf.util.DescriptorFilter;
 import org.apache.karaf.util.XmlUtils;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
 
 import org.osgi.framework.Constants;
 
 public class BlueprintTransformer {
 
+    private static final String BLUEPRINT_NAMESPACE = "http://www.osgi.org/xmlns/blueprint/v1.0.0";
+
     public static void transform(URL url, OutputStream os) throws Exception {
-        // Build dom document
-        Document doc = parse(url);
+        URLConnection urlConnection = url.openConnection();
+        try (InputStream is = urlConnection.getInputStream()) {
+            transform(url, is, urlConnection.getLastModified(), os);
+        }
+    }
+
+    /**
+     * Transform the blueprint descriptor read from the given stream in a single pass: the descriptor is
+     * analyzed while it is copied without its <code>manifest</code> elements, then the bundle is written.
+     *
+     * @param url The descriptor URL, used to compute the bundle name and version.
+     * @param is The descriptor content.
+     * @param lastModified The descriptor last modification date.
+     * @param os The stream receiving the bundle.
+     */
+    public static void transform(URL url, InputStream is, long lastModified, OutputStream os) throws Exception {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        Analyzer analyzer = new Analyzer();
+        analyzer.parse(is, xml);
         // Heuristicly retrieve name and version
         String name = getPath(url);
         int idx = name.lastIndexOf('/');
@@ -68,32 +76,16 @@ public class BlueprintTransformer {
         m.getMainAttributes().putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
         m.getMainAttributes().putValue(Constants.BUNDLE_SYMBOLICNAME, str[0]);
         m.getMainAttributes().putValue(Constants.BUNDLE_VERSION, str[1]);
-        String importPkgs = getImportPackages(analyze(new DOMSource(doc)));
+        String importPkgs = getImportPackages(analyzer.getPackages());
         if (importPkgs != null && importPkgs.length() > 0) {
             m.getMainAttributes().putValue(Constants.IMPORT_PACKAGE, importPkgs);
         }
         m.getMainAttributes().putValue(Constants.DYNAMICIMPORT_PACKAGE, "*");
-        // Extract manifest entries from the DOM
-        NodeList l = doc.getElementsByTagName("manifest");
-        if (l != null) {
-            for (int i = 0; i < l.getLength(); i++) {
-                Element e = (Element) l.item(i);
-                String text = e.getTextContent();
-                Properties props = new Properties();
-                props.load(new ByteArrayInputStream(text.trim().getBytes()));
-                Enumeration en = props.propertyNames();
-                while (en.hasMoreElements()) {
-                    String k = (String) en.nextElement();
-                    String v = props.getProperty(k);
-                    m.getMainAttributes().putValue(k, v);
-                }
-                e.getParentNode().removeChild(e);
-            }
+        // Add the manifest entries defined in the descriptor
+        for (Map.Entry<String, String> header : analyzer.getHeaders().entrySet()) {
+            m.getMainAttributes().putValue(header.getKey(), header.getValue());
         }
 
-        // get original last modification date
-        long lastModified = getLastModified(url);
-
         JarOutputStream out = new JarOutputStream(os);
         ZipEntry e = new ZipEntry(JarFile.MANIFEST_NAME);
         e.setTime(lastModified);
@@ -114,44 +106,16 @@ public class BlueprintTransformer {
         e = new ZipEntry("OSGI-INF/blueprint/" + name);
         e.setTime(lastModified);
         out.putNextEntry(e);
-        // Copy the new DOM
-        XmlUtils.transform(new DOMSource(doc), new StreamResult(out));
+        // Copy the filtered descriptor
+        xml.writeTo(out);
         out.closeEntry();
         out.close();
     }
 
     public static Set<String> analyze(Source source) throws Exception {
-
-        Set<String> refers = new TreeSet<>();
-
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        Result r = new StreamResult(bout);
-        XmlUtils.transform(new StreamSource(BlueprintTransformer.class.getResourceAsStream("extract.xsl")), source, r);
-
-        ByteArrayInputStream bin = new ByteArrayInputStream(bout.toByteArray());
-        bout.close();
-
-        BufferedReader br = new BufferedReader(new InputStreamReader(bin));
-
-        String line = br.readLine();
-        while (line != null) {
-            line = line.trim();
-            if (line.length() > 0) {
-                String parts[] = line.split("\\s*,\\s*");
-                for (String part : parts) {
-                    int n = part.lastIndexOf('.');
-                    if (n > 0) {
-                        String pkg = part.substring(0, n);
-                        if (!pkg.startsWith("java.")) {
-                            refers.add(pkg);
-                        }
-                    }
-                }
-            }
-            line = br.readLine();
-        }
-        br.close();
-        return refers;
+        Analyzer analyzer = new Analyzer();
+        analyzer.analyze(source);
+        return analyzer.getPackages();
     }
 
     protected static String getImportPackages(Set<String> packages) {
@@ -171,13 +135,6 @@ public class BlueprintTransformer {
         }
     }
 
-    protected static long getLastModified(URL url) throws IOException {
-        URLConnection urlConnection = url.openConnection();
-        try(InputStream is = urlConnection.getInputStream()) {
-            return urlConnection.getLastModified();
-        }
-    }
-
     protected static String getPath(URL url) {
         if (url.getProtocol().equals("mvn")) {
             String[] parts = url.toExternalForm().substring(4).split("/");
@@ -200,4 +157,62 @@ public class BlueprintTransformer {
         return url.getPath();
     }
 
+    /**
+     * Collects the classes referenced by the blueprint elements.
+     */
+    private static class Analyzer extends DescriptorFilter {
+
+        @Override
+        protected boolean startElement(Element element, Attributes attributes) {
+            if (!BLUEPRINT_NAMESPACE.equals(element.getNamespace())) {
+                return false;
+            }
+            Element parent = element.getParent();
+            switch (element.getName()) {
+            case "bean":
+                addClasses(attributes.getValue("class"));
+                break;
+            case "service":
+            case "reference":
+            case "reference-list":
+                addClasses(attributes.getValue("interface"));
+                break;
+            case "argument":
+                if (parent != null && parent.is(BLUEPRINT_NAMESPACE, "bean")) {
+                    addType(attributes.getValue("type"));
+                }
+                break;
+            case "list":
+            case "set":
+            case "array":
+                addType(attributes.getValue("value-type"));
+                break;
+            case "map":
+                addType(attributes.getValue("key-type"));
+                addType(attributes.getValue("value-type"));
+                break;
+            case "value":
+                // service/interfaces/value
+                return parent != null && parent.is(BLUEPRINT_NAMESPACE, "interfaces")
+                        && parent.getParent() != null && parent.getParent().is(BLUEPRINT_NAMESPACE, "service");
+            default:
+                break;
+            }
+            return false;
+        }
+
+        @Override
+        protected void text(Element element, String text) {
+            addClasses(text);
+        }
+
+        private void addType(String type) {
+            // remove the array dimensions
+            if (type != null && type.contains("[")) {
+                type = type.substring(0, type.indexOf('['));
+            }
+            addClasses(type);
+        }
+    }
+
 }
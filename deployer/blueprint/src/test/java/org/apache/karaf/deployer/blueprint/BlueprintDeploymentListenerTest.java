@@ -17,13 +17,18 @@
  */
 package org.apache.karaf.deployer.blueprint;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
 
@@ -45,6 +50,39 @@ public class BlueprintDeploymentListenerTest extends TestCase {
         assertEquals("org.apache.aries.blueprint.sample", it.next());
     }
 
+    public void testStreamingTransform() throws Exception {
+        String xml = "<blueprint xmlns=\"http://www.osgi.org/xmlns/blueprint/v1.0.0\">"
+                + "<manifest xmlns=\"http://karaf.apache.org/xmlns/deployer/blueprint/v1.0.0\">Require-Bundle=org.foo</manifest>"
+                + "<bean id=\"a\" class=\"org.foo.A\"><argument type=\"org.foo.arg.B[]\"/></bean>"
+                + "<service ref=\"a\"><interfaces><value>org.foo.api.C</value><value>java.lang.Runnable</value></interfaces></service>"
+                + "<reference id=\"b\" interface=\"org.foo.ref.D\"/>"
+                + "</blueprint>";
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        BlueprintTransformer.transform(new URL("file:/deploy/foo-1.2.xml"),
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 0L, os);
+
+        JarInputStream jar = new JarInputStream(new ByteArrayInputStream(os.toByteArray()));
+        Attributes attributes = jar.getManifest().getMainAttributes();
+        assertEquals("foo", attributes.getValue("Bundle-SymbolicName"));
+        assertEquals("1.2", attributes.getValue("Bundle-Version"));
+        assertEquals("org.foo,org.foo.api,org.foo.arg,org.foo.ref", attributes.getValue("Import-Package"));
+        assertEquals("org.foo", attributes.getValue("Require-Bundle"));
+        ZipEntry entry;
+        while ((entry = jar.getNextEntry()) != null && !entry.getName().equals(BLUEPRINT_ENTRY + "foo-1.2.xml")) {
+        }
+        assertNotNull(entry);
+        ByteArrayOutputStream descriptor = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = jar.read(buffer)) > 0) {
+            descriptor.write(buffer, 0, n);
+        }
+        String content = new String(descriptor.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse(content.contains("manifest"));
+        assertFalse(content.contains("http://karaf.apache.org/xmlns/deployer"));
+        assertTrue(content.contains("<value>org.foo.api.C</value>"));
+    }
+
     public void testCustomManifest() throws Exception {
         File f = File.createTempFile("smx", ".jar");
         try {
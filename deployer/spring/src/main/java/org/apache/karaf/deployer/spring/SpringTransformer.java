@@ -17,42 +17,53 @@
  */
 package org.apache.karaf.deployer.spring;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.Enumeration;
-import java.util.Properties;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
-import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
 import org.apache.karaf.util.DeployerUtils;
+import org.apache.karaf.util.DescriptorFilter;
 import org.apache.karaf.util.XmlUtils;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+
 import org.osgi.framework.Constants;
 
 public class SpringTransformer {
 
+    private static final String SPRING_NAMESPACE = "http://www.springframework.org/schema/";
+    private static final String BEANS_NAMESPACE = SPRING_NAMESPACE + "beans";
+
     public static void transform(URL url, OutputStream os) throws Exception {
-        // Build dom document
-        Document doc = parse(url);
+        URLConnection urlConnection = url.openConnection();
+        try (InputStream is = urlConnection.getInputStream()) {
+            transform(url, is, urlConnection.getLastModified(), os);
+        }
+    }
+
+    /**
+     * Transform the spring descriptor read from the given stream in a single pass: the descriptor is
+     * analyzed while it is copied without its <code>manifest</code> elements, then the bundle is written.
+     *
+     * @param url The descriptor URL, used to compute the bundle name and version.
+     * @param is The descriptor content.
+     * @param lastModified The descriptor last modification date.
+     * @param os The stream receiving the bundle.
+     */
+    public static void transform(URL url, InputStream is, long lastModified, OutputStream os) throws Exception {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        Analyzer analyzer = new Analyzer();
+        analyzer.parse(is, xml);
         // Heuristicly retrieve name and version
         String name = getPath(url);
         int idx = name.lastIndexOf('/');
@@ -67,32 +78,16 @@ public class SpringTransformer {
         m.getMainAttributes().putValue(Constants.BUNDLE_SYMBOLICNAME, str[0]);
         m.getMainAttributes().putValue(Constants.BUNDLE_VERSION, str[1]);
         m.getMainAttributes().putValue("Spring-Context", "*;publish-context:=false;create-asynchronously:=true");
-        String importPkgs = getImportPackages(analyze(new DOMSource(doc)));
+        String importPkgs = getImportPackages(analyzer.getPackages());
         if (importPkgs != null && importPkgs.length() > 0) {
             m.getMainAttributes().putValue(Constants.IMPORT_PACKAGE, importPkgs);
         }
         m.getMainAttributes().putValue(Constants.DYNAMICIMPORT_PACKAGE, "*");
-        // Extract manifest entries from the DOM
-        NodeList l = doc.getElementsByTagName("manifest");
-        if (l != null) {
-            for (int i = 0; i < l.getLength(); i++) {
-                Element e = (Element) l.item(i);
-                String text = e.getTextContent();
-                Properties props = new Properties();
-                props.load(new ByteArrayInputStream(text.trim().getBytes()));
-                Enumeration<?> en = props.propertyNames();
-                while (en.hasMoreElements()) {
-                    String k = (String) en.nextElement();
-                    String v = props.getProperty(k);
-                    m.getMainAttributes().putValue(k, v);
-                }
-                e.getParentNode().removeChild(e);
-            }
+        // Add the manifest entries defined in the descriptor
+        for (Map.Entry<String, String> header : analyzer.getHeaders().entrySet()) {
+            m.getMainAttributes().putValue(header.getKey(), header.getValue());
         }
 
-        // get original last modification date
-        long lastModified = getLastModified(url);
-
         JarOutputStream out = new JarOutputStream(os);
         ZipEntry e = new ZipEntry(JarFile.MANIFEST_NAME);
         e.setTime(lastModified);
@@ -109,44 +104,16 @@ public class SpringTransformer {
         e = new ZipEntry("META-INF/spring/" + name);
         e.setTime(lastModified);
         out.putNextEntry(e);
-        // Copy the new DOM
-        XmlUtils.transform(new DOMSource(doc), new StreamResult(out));
+        // Copy the filtered descriptor
+        xml.writeTo(out);
         out.closeEntry();
         out.close();
     }
 
     public static Set<String> analyze(Source source) throws Exception {
-
-        Set<String> refers = new TreeSet<>();
-
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        Result r = new StreamResult(bout);
-        XmlUtils.transform(new StreamSource(SpringTransformer.class.getResourceAsStream("extract.xsl")), source, r);
-
-        ByteArrayInputStream bin = new ByteArrayInputStream(bout.toByteArray());
-        bout.close();
-
-        BufferedReader br = new BufferedReader(new InputStreamReader(bin));
-
-        String line = br.readLine();
-        while (line != null) {
-            line = line.trim();
-            if (line.length() > 0) {
-                String parts[] = line.split("\\s*,\\s*");
-                for (String part : parts) {
-                    int n = part.lastIndexOf('.');
-                    if (n > 0) {
-                        String pkg = part.substring(0, n);
-                        if (!pkg.startsWith("java.")) {
-                            refers.add(part.substring(0, n));
-                        }
-                    }
-                }
-            }
-            line = br.readLine();
-        }
-        br.close();
-        return refers;
+        Analyzer analyzer = new Analyzer();
+        analyzer.analyze(source);
+        return analyzer.getPackages();
     }
 
     protected static String getImportPackages(Set<String> packages) {
@@ -166,13 +133,6 @@ public class SpringTransformer {
         }
     }
 
-    protected static long getLastModified(URL url) throws IOException {
-        URLConnection urlConnection = url.openConnection();
-        try(InputStream is = urlConnection.getInputStream()) {
-            return urlConnection.getLastModified();
-        }
-    }
-
     protected static String getPath(URL url) {
         if (url.getProtocol().equals("mvn")) {
             String[] parts = url.toExternalForm().substring(4).split("/");
@@ -195,4 +155,76 @@ public class SpringTransformer {
         return url.getPath();
     }
 
+    /**
+     * Collects the classes referenced by the spring elements.
+     */
+    private static class Analyzer extends DescriptorFilter {
+
+        @Override
+        protected boolean startElement(Element element, Attributes attributes) {
+            String namespace = element.getNamespace();
+            if (!namespace.startsWith(SPRING_NAMESPACE)) {
+                return false;
+            }
+            String name = element.getName();
+            switch (namespace.substring(SPRING_NAMESPACE.length())) {
+            case "beans":
+                if ("bean".equals(name)) {
+                    addClasses(attributes.getValue("class"));
+                } else if ("property".equals(name) && "interfaces".equals(attributes.getValue("name"))
+                        && isServiceFactoryBean(element.getParent())) {
+                    addClasses(attributes.getValue("value"));
+                }
+                addClasses(attributes.getValue("value-type"));
+                break;
+            case "aop":
+                addClasses(attributes.getValue("implement-interface"));
+                addClasses(attributes.getValue("default-impl"));
+                break;
+            case "context":
+                if ("load-time-weaver".equals(name)) {
+                    addClasses(attributes.getValue("weaver-class"));
+                }
+                break;
+            case "jee":
+                if ("jndi-lookup".equals(name)) {
+                    addClasses(attributes.getValue("expected-type"));
+                    addClasses(attributes.getValue("proxy-interface"));
+                } else if ("remote-slsb".equals(name)) {
+                    addClasses(attributes.getValue("ejbType"));
+                }
+                addClasses(attributes.getValue("business-interface"));
+                break;
+            case "lang":
+                addClasses(attributes.getValue("script-interfaces"));
+                break;
+            case "osgi":
+                addClasses(attributes.getValue("interface"));
+                break;
+            case "util":
+                if ("list".equals(name)) {
+                    addClasses(attributes.getValue("list-class"));
+                } else if ("set".equals(name)) {
+                    addClasses(attributes.getValue("set-class"));
+                } else if ("map".equals(name)) {
+                    addClasses(attributes.getValue("map-class"));
+                }
+                break;
+            case "webflow-config":
+                addClasses(attributes.getValue("class"));
+                break;
+            default:
+                break;
+            }
+            return false;
+        }
+
+        private static boolean isServiceFactoryBean(Element element) {
+            // the interfaces of the beans exporting or importing services
+            return element != null && element.is(BEANS_NAMESPACE, "bean")
+                    && ("org.springframework.osgi.service.exporter.support.OsgiServiceFactoryBean".equals(element.getClassAttribute())
+                        || "org.springframework.osgi.service.importer.support.OsgiServiceProxyFactoryBean".equals(element.getClassAttribute()));
+        }
+    }
+
 }
@@ -17,14 +17,14 @@
  */
 package org.apache.karaf.deployer.spring;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 
+import org.apache.karaf.util.DeployerCache;
 import org.osgi.service.url.AbstractURLStreamHandlerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +39,20 @@ public class SpringURLHandler extends AbstractURLStreamHandlerService {
 
 	private static String SYNTAX = "spring: spring-xml-uri";
 
+    private final DeployerCache cache;
+
+    public SpringURLHandler() {
+        this(null, null);
+    }
+
+    /**
+     * @param cacheDirectory The directory where the generated bundles are cached, or <code>null</code> to disable the cache.
+     * @param version The version of the deployer, the bundles cached by other versions are not reused.
+     */
+    public SpringURLHandler(File cacheDirectory, String version) {
+        this.cache = new DeployerCache(cacheDirectory, version, SpringTransformer::transform);
+    }
+
     /**
      * Open the connection for the given URL.
      *
@@ -69,10 +83,7 @@ public class SpringURLHandler extends AbstractURLStreamHandlerService {
         @Override
         public InputStream getInputStream() throws IOException {
             try {
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
-                SpringTransformer.transform(new URL(url.getPath()), os);
-                os.close();
-                return new ByteArrayInputStream(os.toByteArray());
+                return cache.open(new URL(url.getPath()));
             } catch (Exception e) {
                 logger.error("Error opening Spring xml url", e);
                 throw new IOException("Error opening Spring xml url", e);
@@ -34,7 +34,9 @@ public class Activator extends BaseActivator {
     protected void doStart() throws Exception {
         Hashtable<String, Object> props = new Hashtable<>();
         props.put("url.handler.protocol", "spring");
-        register(URLStreamHandlerService.class, new SpringURLHandler(), props);
+        // the generated bundles are cached, so the unchanged descriptors are not transformed again on restart
+        String version = bundleContext.getBundle().getVersion() + "-" + bundleContext.getBundle().getLastModified();
+        register(URLStreamHandlerService.class, new SpringURLHandler(bundleContext.getDataFile("cache"), version), props);
         register(new Class[] { ArtifactUrlTransformer.class, ArtifactListener.class },
                  new SpringDeploymentListener());
     }
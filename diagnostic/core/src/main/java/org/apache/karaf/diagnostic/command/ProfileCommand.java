@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.diagnostic.command;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.karaf.diagnostic.common.ProfileDumpProvider;
+import org.apache.karaf.diagnostic.core.Dump;
+import org.apache.karaf.diagnostic.core.DumpDestination;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Argument;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Completion;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.support.completers.StringsCompleter;
+
+/**
+ * Command to manage the continuous profiling from shell.
+ */
+@Command(scope = "dev", name = "profile", description = "Manages the continuous profiling (Flight Recorder recording and sampling of the threads running on the CPU), whose data is added to the dumps.")
+@Service
+public class ProfileCommand implements Action {
+
+    private SimpleDateFormat dumpFormat = new SimpleDateFormat("yyyy-MM-dd_HHmmss");
+
+    @Argument(index = 0, name = "action", description = "The action to perform: start, stop, dump or status", required = true)
+    @Completion(value = StringsCompleter.class, values = { "start", "stop", "dump", "status" })
+    String action;
+
+    @Argument(index = 1, name = "name", description = "Name of the zip or directory created by the dump action", required = false)
+    String fileName;
+
+    @Option(name = "-d", aliases = "--directory", description = "Creates the dump in a directory in place of a ZIP archive")
+    boolean directory;
+
+    @Option(name = "--max-age", description = "Maximum age of the profiling data in seconds")
+    long maxAge = ProfileDumpProvider.DEFAULT_MAX_AGE;
+
+    @Option(name = "--max-size", description = "Maximum size of the Flight Recorder data in megabytes")
+    long maxSize = ProfileDumpProvider.DEFAULT_MAX_SIZE;
+
+    @Option(name = "--interval", description = "Interval between the stack samples in milliseconds")
+    long interval = ProfileDumpProvider.DEFAULT_INTERVAL;
+
+    @Reference
+    ProfileDumpProvider profiler;
+
+    @Override
+    public Object execute() throws Exception {
+        switch (action) {
+        case "start":
+            profiler.start(maxAge, maxSize, interval);
+            System.out.println(status());
+            break;
+        case "stop":
+            profiler.stop();
+            System.out.println("Profiling stopped");
+            break;
+        case "dump":
+            if (!profiler.isStarted()) {
+                System.err.println("Profiling is not started");
+                return null;
+            }
+            if (fileName == null || fileName.trim().length() == 0) {
+                fileName = "profile-" + dumpFormat.format(new Date());
+                if (!directory) {
+                    fileName += ".zip";
+                }
+            }
+            File target = new File(fileName);
+            DumpDestination destination = directory ? Dump.directory(target) : Dump.zip(target);
+            profiler.createDump(destination);
+            destination.save();
+            System.out.println("Created dump " + destination.toString());
+            break;
+        case "status":
+            System.out.println(profiler.isStarted() ? status() : "Profiling stopped");
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        return null;
+    }
+
+    private String status() {
+        return profiler.isRecording() ? "Profiling started" : "Profiling started without Flight Recorder recording";
+    }
+
+}
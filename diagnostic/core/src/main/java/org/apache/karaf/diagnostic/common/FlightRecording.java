@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.diagnostic.common;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Continuous JDK Flight Recorder recording, kept in a ring buffer on disk limited in age and size.
+ * <p>
+ * The recording is managed with the diagnostic commands of the JVM, so it works on any JVM providing them
+ * without compile time dependency on the JFR API.
+ */
+public class FlightRecording {
+
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+    private final MBeanServer mBeanServer;
+    private final String name;
+
+    /**
+     * Start a new recording.
+     *
+     * @param name Name of the recording.
+     * @param settings JFR settings, <code>default</code> for a low overhead or <code>profile</code>.
+     * @param maxAge Maximum age of the recorded data in seconds.
+     * @param maxSize Maximum size of the recorded data in megabytes.
+     * @throws Exception If the JVM doesn't support Flight Recorder.
+     */
+    public FlightRecording(String name, String settings, long maxAge, long maxSize) throws Exception {
+        this(ManagementFactory.getPlatformMBeanServer(), name, settings, maxAge, maxSize);
+    }
+
+    FlightRecording(MBeanServer mBeanServer, String name, String settings, long maxAge, long maxSize) throws Exception {
+        this.mBeanServer = mBeanServer;
+        this.name = name;
+        execute("jfrStart", "name=" + name, "settings=" + settings, "disk=true", "maxage=" + maxAge + "s",
+                "maxsize=" + maxSize + "M");
+    }
+
+    /**
+     * Write the data currently recorded to a file.
+     */
+    public void dump(File file) throws Exception {
+        execute("jfrDump", "name=" + name, "filename=" + file.getAbsolutePath());
+    }
+
+    /**
+     * Stop the recording and discard its data.
+     */
+    public void stop() throws Exception {
+        execute("jfrStop", "name=" + name);
+    }
+
+    private String execute(String operation, String... arguments) throws Exception {
+        return (String) mBeanServer.invoke(new ObjectName(DIAGNOSTIC_COMMAND), operation,
+                new Object[] { arguments }, new String[] { String[].class.getName() });
+    }
+
+}
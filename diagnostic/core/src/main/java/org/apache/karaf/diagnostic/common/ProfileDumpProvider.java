@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.diagnostic.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import javax.management.MBeanServer;
+
+import org.apache.karaf.diagnostic.core.DumpDestination;
+import org.apache.karaf.diagnostic.core.DumpProvider;
+import org.apache.karaf.util.StreamUtils;
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dump provider which adds the continuous profiling data to the dump: the Flight Recorder recording
+ * in profile.jfr and the stacks sampled by bundle in profile.txt.
+ * <p>
+ * Nothing is added to the dump when the profiling is not started.
+ */
+public class ProfileDumpProvider implements DumpProvider {
+
+    public static final String RECORDING_NAME = "karaf-profile";
+
+    /**
+     * Framework properties of the profiling.
+     */
+    public static final String PROFILE = "karaf.diagnostic.profile";
+    public static final String MAX_AGE = "karaf.diagnostic.profile.maxAge";
+    public static final String MAX_SIZE = "karaf.diagnostic.profile.maxSize";
+    public static final String INTERVAL = "karaf.diagnostic.profile.interval";
+    public static final String SETTINGS = "karaf.diagnostic.profile.settings";
+
+    public static final long DEFAULT_MAX_AGE = 600;
+    public static final long DEFAULT_MAX_SIZE = 100;
+    public static final long DEFAULT_INTERVAL = 20;
+    public static final String DEFAULT_SETTINGS = "default";
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileDumpProvider.class);
+
+    private final BundleContext bundleContext;
+    private final MBeanServer mBeanServer;
+    private FlightRecording recording;
+    private StackSampler sampler;
+
+    public ProfileDumpProvider(BundleContext bundleContext) {
+        this(bundleContext, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    ProfileDumpProvider(BundleContext bundleContext, MBeanServer mBeanServer) {
+        this.bundleContext = bundleContext;
+        this.mBeanServer = mBeanServer;
+    }
+
+    /**
+     * Start the profiling with the settings of the framework properties, if it is enabled by the
+     * <code>karaf.diagnostic.profile</code> property.
+     */
+    public void init() {
+        if (Boolean.parseBoolean(bundleContext.getProperty(PROFILE))) {
+            start(getProperty(MAX_AGE, DEFAULT_MAX_AGE), getProperty(MAX_SIZE, DEFAULT_MAX_SIZE),
+                    getProperty(INTERVAL, DEFAULT_INTERVAL));
+        }
+    }
+
+    /**
+     * Start the profiling, restarting it if it is already started.
+     *
+     * @param maxAge Maximum age of the profiling data in seconds.
+     * @param maxSize Maximum size of the Flight Recorder data in megabytes.
+     * @param interval Interval between the stack samples in milliseconds.
+     */
+    public synchronized void start(long maxAge, long maxSize, long interval) {
+        if (maxAge <= 0 || maxSize <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("The maximum age, maximum size and interval must be positive");
+        }
+        stop();
+        String settings = bundleContext.getProperty(SETTINGS);
+        try {
+            recording = new FlightRecording(mBeanServer, RECORDING_NAME, settings != null ? settings : DEFAULT_SETTINGS, maxAge, maxSize);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to start the Flight Recorder recording, only the stacks will be sampled", e);
+        }
+        sampler = new StackSampler(bundleContext, interval, maxAge * 1000, MAX_DEPTH);
+        sampler.start();
+    }
+
+    public synchronized boolean isStarted() {
+        return sampler != null;
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Stop the profiling and discard the profiling data.
+     */
+    public synchronized void stop() {
+        if (recording != null) {
+            try {
+                recording.stop();
+            } catch (Exception e) {
+                LOGGER.warn("Unable to stop the Flight Recorder recording", e);
+            }
+            recording = null;
+        }
+        if (sampler != null) {
+            try {
+                sampler.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sampler = null;
+        }
+    }
+
+    /**
+     * Add the profiling data to the dump.
+     */
+    public synchronized void createDump(DumpDestination destination) throws Exception {
+        if (recording != null) {
+            File recordingFile = Files.createTempFile("profile", ".jfr").toFile();
+            try {
+                recordingFile.delete();
+                recording.dump(recordingFile);
+                try (FileInputStream in = new FileInputStream(recordingFile);
+                     OutputStream out = destination.add("profile.jfr")) {
+                    StreamUtils.copy(in, out);
+                }
+            } finally {
+                recordingFile.delete();
+            }
+        }
+        if (sampler != null) {
+            try (OutputStreamWriter writer = new OutputStreamWriter(destination.add("profile.txt"))) {
+                sampler.write(writer);
+            }
+        }
+    }
+
+    private long getProperty(String name, long defaultValue) {
+        String value = bundleContext.getProperty(name);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
+}
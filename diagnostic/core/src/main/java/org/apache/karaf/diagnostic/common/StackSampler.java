@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.diagnostic.common;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
+
+/**
+ * Sampling profiler of the threads running on the CPU.
+ * <p>
+ * The stacks of the runnable threads which consumed CPU since the previous sample are periodically captured
+ * and aggregated in time slices, the slices older than the maximum age are discarded. When the samples are written,
+ * the stacks are attributed to the bundle of their topmost frame which doesn't belong to the system bundle, so
+ * the sampling thread never looks up the bundles. The owners of the packages are cached until a bundle is
+ * resolved, unresolved or uninstalled.
+ */
+public class StackSampler implements Runnable, BundleListener {
+
+    private static final int SLICES = 10;
+    private static final int MAX_STACKS_PER_BUNDLE = 20;
+    private static final String SYSTEM = "system";
+
+    private final BundleContext bundleContext;
+    private final long interval;
+    private final long maxAge;
+    private final int maxDepth;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Deque<Slice> slices = new ArrayDeque<>();
+    private final Map<Long, Long> cpuTimes = new HashMap<>();
+    private final Map<String, String> packageOwners = new ConcurrentHashMap<>();
+    private volatile Thread thread;
+
+    /**
+     * @param bundleContext The bundle context used to find the bundles of the frames.
+     * @param interval The sampling interval in milliseconds.
+     * @param maxAge The maximum age of the samples in milliseconds.
+     * @param maxDepth The maximum depth of the captured stacks.
+     */
+    public StackSampler(BundleContext bundleContext, long interval, long maxAge, int maxDepth) {
+        this.bundleContext = bundleContext;
+        this.interval = interval;
+        this.maxAge = maxAge;
+        this.maxDepth = maxDepth;
+    }
+
+    public void start() {
+        bundleContext.addBundleListener(this);
+        thread = new Thread(this, "Karaf Profiler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        bundleContext.removeBundleListener(this);
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            t.interrupt();
+            t.join();
+        }
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        // the owners of the packages change with the wirings
+        if ((event.getType() & (BundleEvent.RESOLVED | BundleEvent.UNRESOLVED | BundleEvent.UNINSTALLED)) != 0) {
+            packageOwners.clear();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (thread == Thread.currentThread()) {
+            try {
+                sample();
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    void sample() {
+        long self = Thread.currentThread().getId();
+        boolean cpuTime = threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        Map<Long, Long> previous = new HashMap<>(cpuTimes);
+        cpuTimes.clear();
+        List<List<StackTraceElement>> stacks = new ArrayList<>();
+        for (ThreadInfo info : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), maxDepth)) {
+            if (info == null || info.getThreadId() == self || info.getThreadState() != Thread.State.RUNNABLE
+                    || info.getStackTrace().length == 0) {
+                continue;
+            }
+            if (cpuTime) {
+                // a runnable thread blocked in a native call doesn't use the CPU
+                long time = threadMXBean.getThreadCpuTime(info.getThreadId());
+                cpuTimes.put(info.getThreadId(), time);
+                Long last = previous.get(info.getThreadId());
+                if (last == null || time <= last) {
+                    continue;
+                }
+            }
+            stacks.add(Arrays.asList(info.getStackTrace()));
+        }
+        record(stacks, System.currentTimeMillis());
+    }
+
+    /**
+     * Add the stacks of a sample to the current slice, discarding the expired slices.
+     */
+    void record(List<List<StackTraceElement>> stacks, long now) {
+        synchronized (slices) {
+            while (!slices.isEmpty() && isExpired(slices.peekFirst(), now)) {
+                slices.removeFirst();
+            }
+            Slice slice = slices.peekLast();
+            if (slice == null || slice.start + maxAge / SLICES <= now) {
+                slice = new Slice(now);
+                slices.addLast(slice);
+            }
+            slice.samples++;
+            for (List<StackTraceElement> stack : stacks) {
+                slice.stacks.merge(stack, 1, Integer::sum);
+            }
+        }
+    }
+
+    private boolean isExpired(Slice slice, long now) {
+        return slice.start < now - maxAge;
+    }
+
+    private String getBundle(List<StackTraceElement> stack) {
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            int index = className.lastIndexOf('.');
+            String owner = packageOwners.computeIfAbsent(index > 0 ? className.substring(0, index) : "", this::findOwner);
+            if (!SYSTEM.equals(owner)) {
+                return owner;
+            }
+        }
+        return SYSTEM;
+    }
+
+    private String findOwner(String pkg) {
+        if (pkg.startsWith("java.") || pkg.startsWith("javax.") || pkg.startsWith("sun.")
+                || pkg.startsWith("com.sun.") || pkg.startsWith("jdk.")) {
+            return SYSTEM;
+        }
+        Bundle[] bundles = bundleContext.getBundles();
+        for (Bundle bundle : bundles) {
+            BundleWiring wiring = bundle.adapt(BundleWiring.class);
+            if (wiring != null) {
+                for (BundleCapability capability : wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE)) {
+                    if (pkg.equals(capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE))) {
+                        return getName(bundle);
+                    }
+                }
+            }
+        }
+        // private package
+        String path = pkg.replace('.', '/');
+        for (Bundle bundle : bundles) {
+            BundleWiring wiring = bundle.adapt(BundleWiring.class);
+            if (wiring != null && !wiring.listResources(path, "*.class", BundleWiring.LISTRESOURCES_LOCAL).isEmpty()) {
+                return getName(bundle);
+            }
+        }
+        return SYSTEM;
+    }
+
+    private static String getName(Bundle bundle) {
+        return bundle.getBundleId() == 0 ? SYSTEM : bundle.getSymbolicName() + " (" + bundle.getBundleId() + ")";
+    }
+
+    /**
+     * Write the stacks sampled during the maximum age, the most frequent first.
+     */
+    public void write(Writer writer) throws IOException {
+        write(writer, System.currentTimeMillis());
+    }
+
+    void write(Writer writer, long now) throws IOException {
+        long samples = 0;
+        Map<List<StackTraceElement>, Integer> sampled = new HashMap<>();
+        synchronized (slices) {
+            for (Slice slice : slices) {
+                if (!isExpired(slice, now)) {
+                    samples += slice.samples;
+                    slice.stacks.forEach((stack, count) -> sampled.merge(stack, count, Integer::sum));
+                }
+            }
+        }
+        Map<String, Map<List<StackTraceElement>, Integer>> stacks = new HashMap<>();
+        sampled.forEach((stack, count) -> stacks.computeIfAbsent(getBundle(stack), b -> new HashMap<>()).put(stack, count));
+        Map<String, Integer> totals = new HashMap<>();
+        stacks.forEach((bundle, counts) -> totals.put(bundle, counts.values().stream().mapToInt(Integer::intValue).sum()));
+        long total = totals.values().stream().mapToLong(Integer::longValue).sum();
+
+        writer.write("Samples of the threads running on the CPU during the last " + maxAge / 1000 + " seconds, every "
+                + interval + " ms\n");
+        writer.write("Number of samples: " + samples + ", number of stacks: " + total + "\n\n");
+        List<String> bundles = new ArrayList<>(totals.keySet());
+        bundles.sort((b1, b2) -> totals.get(b2) - totals.get(b1));
+        for (String bundle : bundles) {
+            writer.write(String.format("%6.2f%% %8d  %s%n", percent(totals.get(bundle), total), totals.get(bundle), bundle));
+        }
+        for (String bundle : bundles) {
+            writer.write("\n" + bundle + ": " + totals.get(bundle) + " stacks\n");
+            List<Map.Entry<List<StackTraceElement>, Integer>> counts = new ArrayList<>(stacks.get(bundle).entrySet());
+            counts.sort((e1, e2) -> e2.getValue() - e1.getValue());
+            for (Map.Entry<List<StackTraceElement>, Integer> count : counts.subList(0, Math.min(MAX_STACKS_PER_BUNDLE, counts.size()))) {
+                writer.write(String.format("%n%6.2f%% %8d%n", percent(count.getValue(), total), count.getValue()));
+                for (StackTraceElement element : count.getKey()) {
+                    writer.write("\tat " + element + "\n");
+                }
+            }
+        }
+    }
+
+    private static double percent(long count, long total) {
+        return total > 0 ? 100.0 * count / total : 0;
+    }
+
+    private static class Slice {
+        final long start;
+        final Map<List<StackTraceElement>, Integer> stacks = new HashMap<>();
+        long samples;
+
+        Slice(long start) {
+            this.start = start;
+        }
+    }
+
+}
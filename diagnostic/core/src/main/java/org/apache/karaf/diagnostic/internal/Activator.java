@@ -24,6 +24,7 @@ import org.apache.karaf.diagnostic.core.DumpProvider;
 import org.apache.karaf.diagnostic.management.internal.DiagnosticDumpMBeanImpl;
 import org.apache.karaf.diagnostic.common.FeaturesDumpProvider;
 import org.apache.karaf.diagnostic.common.LogDumpProvider;
+import org.apache.karaf.diagnostic.common.ProfileDumpProvider;
 import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.util.tracker.SingleServiceTracker;
 import org.osgi.framework.BundleActivator;
@@ -35,6 +36,8 @@ public class Activator implements BundleActivator {
 
     private List<ServiceRegistration<DumpProvider>> registrations;
     private ServiceRegistration<DumpProvider> featuresProviderRegistration;
+    private ServiceRegistration profileProviderRegistration;
+    private ProfileDumpProvider profileProvider;
     private ServiceRegistration mbeanRegistration;
     private SingleServiceTracker<FeaturesService> featuresServiceTracker;
     private ServiceTracker<DumpProvider, DumpProvider> providersTracker;
@@ -44,6 +47,13 @@ public class Activator implements BundleActivator {
         registrations = new ArrayList<>();
         registrations.add(context.registerService(DumpProvider.class, new LogDumpProvider(context), null));
 
+        profileProvider = new ProfileDumpProvider(context);
+        profileProvider.init();
+        profileProviderRegistration = context.registerService(
+                new String[] { DumpProvider.class.getName(), ProfileDumpProvider.class.getName() },
+                profileProvider,
+                null);
+
         featuresServiceTracker = new SingleServiceTracker<>(context, FeaturesService.class, (oldFs, newFs) -> {
             if (featuresProviderRegistration != null) {
                 featuresProviderRegistration.unregister();
@@ -60,6 +70,7 @@ public class Activator implements BundleActivator {
 
         final DiagnosticDumpMBeanImpl diagnostic = new DiagnosticDumpMBeanImpl();
         diagnostic.setBundleContext(context);
+        diagnostic.setProfileProvider(profileProvider);
 
         Hashtable<String, Object> props = new Hashtable<>();
         props.put("jmx.objectname", "org.apache.karaf:type=diagnostic,name=" + System.getProperty("karaf.name"));
@@ -77,6 +88,8 @@ public class Activator implements BundleActivator {
         for (ServiceRegistration<DumpProvider> reg : registrations) {
             reg.unregister();
         }
+        profileProviderRegistration.unregister();
+        profileProvider.stop();
     }
 
     private String[] getInterfaceNames(Object object) {
@@ -41,4 +41,37 @@ public interface DiagnosticDumpMBean {
      */
     void createDump(boolean directory, String name, boolean noThreadDump, boolean noHeapDump) throws MBeanException;
 
+    /**
+     * Start the continuous profiling, restarting it if it is already started.
+     *
+     * @param maxAge Maximum age of the profiling data in seconds.
+     * @param maxSize Maximum size of the Flight Recorder data in megabytes.
+     * @param interval Interval between the stack samples in milliseconds.
+     * @throws MBeanException In case of any problems.
+     */
+    void startProfiling(long maxAge, long maxSize, long interval) throws MBeanException;
+
+    /**
+     * Stop the continuous profiling and discard its data.
+     *
+     * @throws MBeanException In case of any problems.
+     */
+    void stopProfiling() throws MBeanException;
+
+    /**
+     * Check if the continuous profiling is started.
+     *
+     * @return True if the profiling is started, false else.
+     */
+    boolean isProfiling();
+
+    /**
+     * Create dump containing only the continuous profiling data.
+     *
+     * @param directory Should dump be created in directory.
+     * @param name Name of the dump.
+     * @throws MBeanException In case of any problems.
+     */
+    void createProfileDump(boolean directory, String name) throws MBeanException;
+
 }
@@ -17,9 +17,11 @@ import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import javax.management.MBeanException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
 
+import org.apache.karaf.diagnostic.common.ProfileDumpProvider;
 import org.apache.karaf.diagnostic.core.Dump;
 import org.apache.karaf.diagnostic.core.DumpDestination;
 import org.apache.karaf.diagnostic.management.DiagnosticDumpMBean;
@@ -37,6 +39,8 @@ public class DiagnosticDumpMBeanImpl extends StandardMBean implements Diagnostic
      */
     private BundleContext bundleContext;
 
+    private ProfileDumpProvider profileProvider;
+
     private SimpleDateFormat dumpFormat = new SimpleDateFormat("yyyy-MM-dd_HHmmss");
 
     private final static Logger LOGGER = LoggerFactory.getLogger(DiagnosticDumpMBeanImpl.class);
@@ -82,6 +86,47 @@ public class DiagnosticDumpMBeanImpl extends StandardMBean implements Diagnostic
         LOGGER.info("Created dump " + destination.toString());
     }
 
+    public void startProfiling(long maxAge, long maxSize, long interval) throws MBeanException {
+        try {
+            profileProvider.start(maxAge, maxSize, interval);
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
+    public void stopProfiling() {
+        profileProvider.stop();
+    }
+
+    public boolean isProfiling() {
+        return profileProvider.isStarted();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void createProfileDump(boolean directory, String name) throws MBeanException {
+        if (!profileProvider.isStarted()) {
+            throw new MBeanException(null, "Profiling is not started");
+        }
+        if (name == null || name.trim().length() == 0) {
+            name = "profile-" + dumpFormat.format(new Date());
+            if (!directory) {
+                name += ".zip";
+            }
+        }
+        File target = new File(name);
+
+        DumpDestination destination = directory ? Dump.directory(target) : Dump.zip(target);
+        try {
+            profileProvider.createDump(destination);
+            destination.save();
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+        LOGGER.info("Created profile dump " + destination.toString());
+    }
+
     /**
      * Set the bundle context.
      *
@@ -91,4 +136,13 @@ public class DiagnosticDumpMBeanImpl extends StandardMBean implements Diagnostic
         this.bundleContext = bundleContext;
     }
 
+    /**
+     * Set the continuous profiling provider.
+     *
+     * @param profileProvider The profiling provider to use in the MBean.
+     */
+    public void setProfileProvider(ProfileDumpProvider profileProvider) {
+        this.profileProvider = profileProvider;
+    }
+
 }
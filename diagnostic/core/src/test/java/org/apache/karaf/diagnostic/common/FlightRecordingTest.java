@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.diagnostic.common;
+
+import static org.easymock.EasyMock.aryEq;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.easymock.Capture;
+import org.junit.Test;
+
+public class FlightRecordingTest {
+
+    static final ObjectName DIAGNOSTIC_COMMAND = name("com.sun.management:type=DiagnosticCommand");
+    static final String[] SIGNATURE = { String[].class.getName() };
+
+    @Test
+    public void testRecording() throws Exception {
+        MBeanServer mBeanServer = createMock(MBeanServer.class);
+        Capture<Object[]> start = Capture.newInstance();
+        Capture<Object[]> dump = Capture.newInstance();
+        Capture<Object[]> stop = Capture.newInstance();
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrStart"), capture(start), aryEq(SIGNATURE))).andReturn("");
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrDump"), capture(dump), aryEq(SIGNATURE))).andReturn("");
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrStop"), capture(stop), aryEq(SIGNATURE))).andReturn("");
+        replay(mBeanServer);
+
+        FlightRecording recording = new FlightRecording(mBeanServer, "test", "profile", 600, 100);
+        File file = new File("target/test.jfr");
+        recording.dump(file);
+        recording.stop();
+
+        verify(mBeanServer);
+        assertArrayEquals(new Object[] { new String[] { "name=test", "settings=profile", "disk=true", "maxage=600s", "maxsize=100M" } },
+                start.getValue());
+        assertArrayEquals(new Object[] { new String[] { "name=test", "filename=" + file.getAbsolutePath() } },
+                dump.getValue());
+        assertArrayEquals(new Object[] { new String[] { "name=test" } }, stop.getValue());
+    }
+
+    private static ObjectName name(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+}
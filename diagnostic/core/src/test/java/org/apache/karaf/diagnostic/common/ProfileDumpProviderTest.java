@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.diagnostic.common;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.aryEq;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.apache.karaf.diagnostic.common.FlightRecordingTest.DIAGNOSTIC_COMMAND;
+import static org.apache.karaf.diagnostic.common.FlightRecordingTest.SIGNATURE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+
+import org.apache.karaf.diagnostic.core.DumpDestination;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleListener;
+
+public class ProfileDumpProviderTest {
+
+    private static final byte[] RECORDING = "recording".getBytes(StandardCharsets.UTF_8);
+
+    private BundleContext bundleContext;
+    private MBeanServer mBeanServer;
+    private final Map<String, ByteArrayOutputStream> entries = new LinkedHashMap<>();
+    private final DumpDestination destination = new DumpDestination() {
+        @Override
+        public OutputStream add(String name) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entries.put(name, out);
+            return out;
+        }
+
+        @Override
+        public void save() {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        bundleContext = createMock(BundleContext.class);
+        expect(bundleContext.getProperty(ProfileDumpProvider.SETTINGS)).andReturn(null).anyTimes();
+        expect(bundleContext.getBundles()).andReturn(new Bundle[0]).anyTimes();
+        bundleContext.addBundleListener(anyObject(BundleListener.class));
+        expectLastCall().anyTimes();
+        bundleContext.removeBundleListener(anyObject(BundleListener.class));
+        expectLastCall().anyTimes();
+        replay(bundleContext);
+        mBeanServer = createMock(MBeanServer.class);
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrStart"), anyObject(), aryEq(SIGNATURE))).andReturn("");
+        // the recording is written to the file given to the diagnostic command
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrDump"), anyObject(), aryEq(SIGNATURE))).andAnswer(() -> {
+            String[] arguments = (String[]) ((Object[]) getCurrentArguments()[2])[0];
+            Files.write(Paths.get(arguments[1].substring("filename=".length())), RECORDING);
+            return "";
+        });
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrStop"), anyObject(), aryEq(SIGNATURE))).andReturn("");
+        replay(mBeanServer);
+
+        ProfileDumpProvider provider = new ProfileDumpProvider(bundleContext, mBeanServer);
+        provider.start(60, 10, 10);
+        assertTrue(provider.isStarted());
+        assertTrue(provider.isRecording());
+        provider.createDump(destination);
+        provider.stop();
+
+        verify(mBeanServer);
+        assertEquals(2, entries.size());
+        assertArrayEquals(RECORDING, entries.get("profile.jfr").toByteArray());
+        String profile = new String(entries.get("profile.txt").toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(profile, profile.startsWith("Samples of the threads running on the CPU during the last 60 seconds, every 10 ms\n"
+                + "Number of samples: "));
+    }
+
+    @Test
+    public void testDumpWithoutFlightRecorder() throws Exception {
+        expect(mBeanServer.invoke(eq(DIAGNOSTIC_COMMAND), eq("jfrStart"), anyObject(), aryEq(SIGNATURE)))
+                .andThrow(new IllegalArgumentException("Flight Recorder not available"));
+        replay(mBeanServer);
+
+        ProfileDumpProvider provider = new ProfileDumpProvider(bundleContext, mBeanServer);
+        provider.start(60, 10, 10);
+        assertTrue(provider.isStarted());
+        assertFalse(provider.isRecording());
+        provider.createDump(destination);
+        provider.stop();
+
+        // only the sampled stacks are dumped
+        verify(mBeanServer);
+        assertEquals(1, entries.size());
+        assertTrue(entries.containsKey("profile.txt"));
+    }
+
+    @Test
+    public void testDumpNotStarted() throws Exception {
+        replay(mBeanServer);
+
+        ProfileDumpProvider provider = new ProfileDumpProvider(bundleContext, mBeanServer);
+        assertFalse(provider.isStarted());
+        provider.createDump(destination);
+
+        assertTrue(entries.isEmpty());
+    }
+
+}
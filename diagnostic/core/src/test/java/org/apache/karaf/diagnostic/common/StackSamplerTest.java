@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.diagnostic.common;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
+
+public class StackSamplerTest {
+
+    private static final List<StackTraceElement> WORKER = Arrays.asList(
+            new StackTraceElement("org.example.foo.Worker", "work", "Worker.java", 42),
+            new StackTraceElement("java.lang.Thread", "run", "Thread.java", 748));
+    private static final List<StackTraceElement> IDLE = Collections.singletonList(
+            new StackTraceElement("java.lang.Object", "wait", "Object.java", 502));
+
+    @Test
+    public void testAggregation() throws Exception {
+        Bundle foo = bundle(5, "org.example.foo", "org.example.foo");
+        BundleContext bundleContext = createMock(BundleContext.class);
+        expect(bundleContext.getBundles()).andReturn(new Bundle[] { foo }).once();
+        replay(bundleContext);
+
+        StackSampler sampler = new StackSampler(bundleContext, 20, 60000, 64);
+        long now = System.currentTimeMillis();
+        sampler.record(Arrays.asList(WORKER, IDLE), now);
+        sampler.record(Collections.singletonList(WORKER), now + 100);
+        String dump = write(sampler, now + 200);
+
+        assertTrue(dump, dump.contains("Number of samples: 2, number of stacks: 3\n"));
+        assertTrue(dump, dump.contains(String.format("%6.2f%% %8d  %s%n", 200.0 / 3, 2, "org.example.foo (5)")));
+        assertTrue(dump, dump.contains(String.format("%6.2f%% %8d  %s%n", 100.0 / 3, 1, "system")));
+        assertTrue(dump, dump.contains("org.example.foo (5): 2 stacks\n"));
+        assertTrue(dump, dump.contains("\tat org.example.foo.Worker.work(Worker.java:42)\n"));
+        assertTrue(dump, dump.indexOf("org.example.foo (5): 2 stacks") < dump.indexOf("system: 1 stacks"));
+        // the bundles are only looked up once for a package
+        verify(bundleContext);
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        Bundle foo = bundle(5, "org.example.foo", "org.example.foo");
+        BundleContext bundleContext = createMock(BundleContext.class);
+        expect(bundleContext.getBundles()).andReturn(new Bundle[] { foo }).anyTimes();
+        replay(bundleContext);
+
+        StackSampler sampler = new StackSampler(bundleContext, 20, 1000, 64);
+        long now = System.currentTimeMillis();
+        sampler.record(Collections.singletonList(WORKER), now);
+        String dump = write(sampler, now + 500);
+        assertTrue(dump, dump.contains("Number of samples: 1, number of stacks: 1\n"));
+
+        // the expired slices are ignored when writing
+        dump = write(sampler, now + 1001);
+        assertTrue(dump, dump.contains("Number of samples: 0, number of stacks: 0\n"));
+
+        // and discarded by the next sample
+        sampler.record(Collections.singletonList(IDLE), now + 1001);
+        dump = write(sampler, now + 1001);
+        assertTrue(dump, dump.contains("Number of samples: 1, number of stacks: 1\n"));
+        assertFalse(dump, dump.contains("org.example.foo"));
+    }
+
+    @Test
+    public void testOwnersClearedOnBundleChange() throws Exception {
+        Bundle foo = bundle(5, "org.example.foo", "org.example.foo");
+        Bundle bar = bundle(6, "org.example.bar", "org.example.foo");
+        BundleContext bundleContext = createMock(BundleContext.class);
+        expect(bundleContext.getBundles()).andReturn(new Bundle[] { foo }).once();
+        expect(bundleContext.getBundles()).andReturn(new Bundle[] { bar }).once();
+        replay(bundleContext);
+
+        StackSampler sampler = new StackSampler(bundleContext, 20, 60000, 64);
+        long now = System.currentTimeMillis();
+        sampler.record(Collections.singletonList(WORKER), now);
+        assertTrue(write(sampler, now).contains("org.example.foo (5): 1 stacks"));
+
+        // the owners are kept while the wirings don't change
+        sampler.bundleChanged(new BundleEvent(BundleEvent.STARTED, foo));
+        assertTrue(write(sampler, now).contains("org.example.foo (5): 1 stacks"));
+
+        sampler.bundleChanged(new BundleEvent(BundleEvent.RESOLVED, bar));
+        assertTrue(write(sampler, now).contains("org.example.bar (6): 1 stacks"));
+        verify(bundleContext);
+    }
+
+    private static String write(StackSampler sampler, long now) throws Exception {
+        StringWriter writer = new StringWriter();
+        sampler.write(writer, now);
+        return writer.toString();
+    }
+
+    private static Bundle bundle(long id, String symbolicName, String... packages) {
+        List<BundleCapability> capabilities = new ArrayList<>();
+        for (String pkg : packages) {
+            BundleCapability capability = createMock(BundleCapability.class);
+            expect(capability.getAttributes()).andReturn(Collections.singletonMap(PackageNamespace.PACKAGE_NAMESPACE, pkg)).anyTimes();
+            replay(capability);
+            capabilities.add(capability);
+        }
+        BundleWiring wiring = createMock(BundleWiring.class);
+        expect(wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE)).andReturn(capabilities).anyTimes();
+        expect(wiring.listResources(anyString(), anyString(), anyInt())).andReturn(Collections.emptyList()).anyTimes();
+        Bundle bundle = createMock(Bundle.class);
+        expect(bundle.adapt(BundleWiring.class)).andReturn(wiring).anyTimes();
+        expect(bundle.getBundleId()).andReturn(id).anyTimes();
+        expect(bundle.getSymbolicName()).andReturn(symbolicName).anyTimes();
+        replay(wiring, bundle);
+        return bundle;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.event.command;
+
+import static org.apache.karaf.event.service.TopicPredicate.matchTopicName;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.apache.karaf.services.eventadmin.EventAdminStatistics;
+import org.apache.karaf.services.eventadmin.TopicStatistics;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Argument;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.api.console.Session;
+import org.apache.karaf.shell.support.table.Col;
+import org.apache.karaf.shell.support.table.ShellTable;
+
+@Command(scope = "event", name = "stats", description = "Shows the statistics of the published events per topic")
+@Service
+public class EventStatsCommand implements Action {
+
+    @Reference
+    Session session;
+
+    @Reference
+    EventAdminStatistics statistics;
+
+    @Argument
+    String topicFilter = "*";
+
+    @Option(name = "--reset", description = "Reset the statistics after displaying them")
+    boolean reset;
+
+    @Option(name = "--no-format", description = "Disable table rendered output")
+    boolean noFormat;
+
+    @Override
+    public Object execute() throws Exception {
+        Predicate<String> matcher = matchTopicName(topicFilter);
+        ShellTable table = new ShellTable();
+        table.column(new Col("Topic"));
+        table.column(new Col("Published").alignRight());
+        table.column(new Col("Delivered").alignRight());
+        table.column(new Col("Avg Delivery (us)").alignRight());
+        table.column(new Col("Max Delivery (us)").alignRight());
+        for (TopicStatistics topic : statistics.getTopicStatistics()) {
+            if (matcher.test(topic.getTopic())) {
+                table.addRow().addContent(topic.getTopic(), topic.getPublished(), topic.getDelivered(),
+                        TimeUnit.NANOSECONDS.toMicros(topic.getAverageTime()),
+                        TimeUnit.NANOSECONDS.toMicros(topic.getMaxTime()));
+            }
+        }
+        table.print(session.getConsole(), !noFormat);
+        if (reset) {
+            statistics.reset();
+        }
+        return null;
+    }
+
+}
@@ -19,23 +19,38 @@ package org.apache.karaf.event.service;
 import java.util.Dictionary;
 import java.util.Hashtable;
 
-import org.osgi.framework.BundleActivator;
-import org.osgi.framework.BundleContext;
+import org.apache.karaf.util.tracker.BaseActivator;
+import org.apache.karaf.util.tracker.annotation.Managed;
+import org.apache.karaf.util.tracker.annotation.ProvideService;
+import org.apache.karaf.util.tracker.annotation.Services;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.EventHandler;
 
-public class Activator implements BundleActivator {
+@Services(provides = {
+        @ProvideService(EventHandler.class),
+        @ProvideService(EventCollector.class)
+})
+@Managed("org.apache.karaf.event")
+public class Activator extends BaseActivator implements ManagedService {
+
+    private EventCollector collector;
 
     @Override
-    public void start(BundleContext context) throws Exception {
-        EventCollector collector = new EventCollector();
+    protected void doStart() throws Exception {
+        int size = getInt("size", EventCollector.DEFAULT_SIZE);
+        collector = new EventCollector(size);
         Dictionary<String, String> props = new Hashtable<>();
         props.put("event.topics", "*");
-        String[] ifAr = new String[]{EventHandler.class.getName(), EventCollector.class.getName()};
-        context.registerService(ifAr, collector, props);
+        register(new Class[]{EventHandler.class, EventCollector.class}, collector, props);
     }
 
     @Override
-    public void stop(BundleContext context) throws Exception {
+    protected void doStop() {
+        super.doStop();
+        if (collector != null) {
+            collector.close();
+            collector = null;
+        }
     }
 
 }
@@ -16,47 +16,223 @@
  */
 package org.apache.karaf.event.service;
 
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 
+/**
+ * Keeps the last events in a fixed size ring buffer.
+ * Publishing an event does not block: each consumer reads the buffer through its own cursor on the
+ * delivery executor, and the events overwritten before a slow consumer could read them are counted
+ * as dropped.
+ */
 public class EventCollector implements EventHandler {
-    private Deque<Event> events;
-    private int maxSize;
-    private Set<Consumer<Event>> consumers;
-    
+
+    public static final int DEFAULT_SIZE = 100;
+
+    private final int size;
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Executor executor;
+
     public EventCollector() {
-        events = new ConcurrentLinkedDeque<>();
-        maxSize = 100;
-        consumers = new HashSet<>();
+        this(DEFAULT_SIZE);
+    }
+
+    public EventCollector(int size) {
+        this(size, newExecutor());
+    }
+
+    /**
+     * @param size the number of events kept
+     * @param executor the executor delivering events to the consumers
+     */
+    public EventCollector(int size, Executor executor) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The size must be positive: " + size);
+        }
+        this.size = size;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.executor = executor;
     }
 
     @Override
-    public synchronized void handleEvent(Event event) {
-        events.addLast(event);
-        if (events.size() > maxSize) {
-            events.removeFirst();
+    public void handleEvent(Event event) {
+        long seq = next.getAndIncrement();
+        int index = (int) (seq % size);
+        Slot slot = new Slot(seq, event);
+        while (true) {
+            Slot current = slots.get(index);
+            // a slower publisher must not replace a more recent event
+            if (current != null && current.seq > seq) {
+                break;
+            }
+            if (slots.compareAndSet(index, current, slot)) {
+                break;
+            }
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.signal();
         }
-        consumers.forEach(c -> c.accept(event));
     }
 
+    /**
+     * The events currently kept, oldest first.
+     */
     public Stream<Event> getEvents() {
+        List<Event> events = new ArrayList<>(size);
+        long last = next.get();
+        for (long seq = Math.max(0, last - size); seq < last; seq++) {
+            Slot slot = slots.get((int) (seq % size));
+            if (slot == null || slot.seq < seq) {
+                break;
+            }
+            if (slot.seq == seq) {
+                events.add(slot.event);
+            }
+        }
         return events.stream();
     }
-    
-    public synchronized void addConsumer(Consumer<Event> eventConsumer) {
-        events.forEach(eventConsumer);
-        consumers.add(eventConsumer);
+
+    /**
+     * Delivers the events currently kept, then all new events, to the given consumer.
+     */
+    public void addConsumer(Consumer<Event> eventConsumer) {
+        Subscription subscription = new Subscription(eventConsumer, Math.max(0, next.get() - size));
+        subscriptions.add(subscription);
+        subscription.signal();
+    }
+
+    public void removeConsumer(Consumer<Event> eventConsumer) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.consumer == eventConsumer) {
+                subscription.closed = true;
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The number of events received since the collector was created.
+     */
+    public long getReceivedEvents() {
+        return next.get();
+    }
+
+    /**
+     * The number of events that were overwritten before a consumer could read them.
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops the delivery to the consumers.
+     */
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.closed = true;
+        }
+        subscriptions.clear();
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    private static ExecutorService newExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "karaf-event-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
-    
-    public synchronized void removeConsumer(Consumer<Event> eventConsumer) {
-        consumers.remove(eventConsumer);
+
+    private static class Slot {
+        final long seq;
+        final Event event;
+
+        Slot(long seq, Event event) {
+            this.seq = seq;
+            this.event = event;
+        }
+    }
+
+    /**
+     * The cursor of a consumer in the buffer. At most one delivery task per consumer is scheduled at a time.
+     */
+    private class Subscription implements Runnable {
+        final Consumer<Event> consumer;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+        long cursor;
+
+        Subscription(Consumer<Event> consumer, long cursor) {
+            this.consumer = consumer;
+            this.cursor = cursor;
+        }
+
+        void signal() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                drain();
+                scheduled.set(false);
+            } while (!closed && isPublished(cursor) && scheduled.compareAndSet(false, true));
+        }
+
+        private void drain() {
+            while (!closed) {
+                long oldest = next.get() - size;
+                if (cursor < oldest) {
+                    dropped.addAndGet(oldest - cursor);
+                    cursor = oldest;
+                }
+                Slot slot = slots.get((int) (cursor % size));
+                if (slot == null || slot.seq < cursor) {
+                    // not published yet, the publisher signals again once it is
+                    return;
+                }
+                if (slot.seq == cursor) {
+                    try {
+                        consumer.accept(slot.event);
+                    } catch (RuntimeException e) {
+                        // a failing consumer must not stop its own delivery
+                    }
+                } else {
+                    dropped.incrementAndGet();
+                }
+                cursor++;
+            }
+        }
+
+        private boolean isPublished(long seq) {
+            Slot slot = slots.get((int) (seq % size));
+            return slot != null && slot.seq >= seq;
+        }
     }
 
 }
@@ -37,4 +37,9 @@ public class TopicPredicate implements Predicate<Event> {
         return new TopicPredicate(topicFilter);
     }
 
+    public static Predicate<String> matchTopicName(String topicFilter) {
+        TopicPredicate predicate = new TopicPredicate(topicFilter);
+        return topic -> predicate.pattern.matcher(topic).matches();
+    }
+
 }
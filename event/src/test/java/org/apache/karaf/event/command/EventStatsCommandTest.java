@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.event.command;
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.apache.karaf.services.eventadmin.EventAdminStatistics;
+import org.apache.karaf.services.eventadmin.TopicStatistics;
+import org.apache.karaf.shell.api.console.Session;
+import org.easymock.IMocksControl;
+import org.junit.Test;
+
+public class EventStatsCommandTest {
+
+    @Test
+    public void testExecute() throws Exception {
+        IMocksControl c = createControl();
+        EventStatsCommand stats = new EventStatsCommand();
+        stats.session = c.createMock(Session.class);
+        stats.statistics = c.createMock(EventAdminStatistics.class);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        expect(stats.session.getConsole()).andReturn(new PrintStream(baos));
+        expect(stats.statistics.getTopicStatistics()).andReturn(Arrays.asList(
+                new TopicStatistics("org/osgi/framework/BundleEvent/STARTED", 4, 4, 8, 4000, 2000),
+                new TopicStatistics("myTopic", 1, 1, 0, 1000, 1000)));
+        stats.statistics.reset();
+        c.replay();
+        stats.topicFilter = "org/osgi/*";
+        stats.reset = true;
+        stats.execute();
+        c.verify();
+        String output = baos.toString();
+        assertThat(output, containsString("org/osgi/framework/BundleEvent/STARTED"));
+        assertThat(output, not(containsString("myTopic")));
+    }
+
+}
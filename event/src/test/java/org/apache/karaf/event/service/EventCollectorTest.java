@@ -20,7 +20,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
@@ -56,7 +61,7 @@ public class EventCollectorTest {
     public void testAddRemoveConsumer() {
         final AtomicInteger count = new AtomicInteger();
         Consumer<Event> countingConsumer = event -> count.incrementAndGet();
-        EventCollector collector = new EventCollector();
+        EventCollector collector = new EventCollector(100, Runnable::run);
         collector.handleEvent(event("myTopic"));
         collector.addConsumer(countingConsumer);
         assertThat(count.get(), equalTo(1));
@@ -69,6 +74,43 @@ public class EventCollectorTest {
         assertThat(count.get(), equalTo(2));
     }
 
+    @Test
+    public void testSlowConsumerDoesNotBlockPublisher() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> topics = new CopyOnWriteArrayList<>();
+        EventCollector collector = new EventCollector(10);
+        collector.addConsumer(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            topics.add(event.getTopic());
+        });
+        IntStream.range(0, 100).forEach(c -> collector.handleEvent(event("topic" + c)));
+        assertThat(collector.getReceivedEvents(), equalTo(100l));
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!topics.contains("topic99") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        collector.close();
+        assertTrue(topics.contains("topic99"));
+        // the consumer missed the events overwritten while it was blocked
+        assertThat(topics.size() + collector.getDroppedEvents(), equalTo(100l));
+    }
+
+    @Test
+    public void testConsumerReplay() {
+        List<String> topics = new ArrayList<>();
+        EventCollector collector = new EventCollector(3, Runnable::run);
+        IntStream.range(0, 5).forEach(c -> collector.handleEvent(event("topic" + c)));
+        collector.addConsumer(event -> topics.add(event.getTopic()));
+        assertThat(topics, equalTo(Arrays.asList("topic2", "topic3", "topic4")));
+        assertThat(collector.getDroppedEvents(), equalTo(0l));
+    }
+
     private Event event(String topic) {
         return new Event(topic, new HashMap<>());
     }
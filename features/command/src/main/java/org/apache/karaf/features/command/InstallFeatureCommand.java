@@ -65,6 +65,9 @@ public class InstallFeatureCommand extends FeaturesCommandSupport {
     @Option(name = "-g", aliases = "--region", description = "Region to install to")
     String region;
 
+    @Option(name = "-p", aliases = "--parallel-start", description = "Start independent bundles concurrently", required = false, multiValued = false)
+    boolean parallelStart;
+
     protected void doExecute(FeaturesService admin) throws Exception {
         addOption(FeaturesService.Option.Simulate, simulate);
         addOption(FeaturesService.Option.NoAutoStartBundles, noStart);
@@ -74,6 +77,7 @@ public class InstallFeatureCommand extends FeaturesCommandSupport {
         addOption(FeaturesService.Option.Upgrade, upgrade);
         addOption(FeaturesService.Option.DisplayFeaturesWiring, featuresWiring);
         addOption(FeaturesService.Option.DisplayAllWiring, allWiring);
+        addOption(FeaturesService.Option.ParallelStartBundles, parallelStart);
         admin.setResolutionOutputFile(outputFile);
         admin.installFeatures(new HashSet<>(features), region, options);
     }
@@ -27,6 +27,7 @@ import org.apache.karaf.features.command.completers.InstalledRepoUriCompleter;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.Completion;
+import org.apache.karaf.shell.api.action.Option;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 
 @Command(scope = "feature", name = "repo-refresh", description = "Refresh a features repository")
@@ -40,6 +41,9 @@ public class RepoRefreshCommand extends FeaturesCommandSupport {
     @Argument(index = 1, name = "Feature version", description = "The version of the feature if using the feature name. Should be empty if using the uri", required = false, multiValued = false)
     private String version;
 
+    @Option(name = "--rebuild-index", description = "Discard the precompiled form of all repositories so that they are parsed again", required = false, multiValued = false)
+    private boolean rebuildIndex;
+
     @Override
     protected void doExecute(FeaturesService featuresService) throws Exception {
         Set<URI> uris = new LinkedHashSet<>();
@@ -57,6 +61,9 @@ public class RepoRefreshCommand extends FeaturesCommandSupport {
     	}
         String uriString = uris.stream().map(URI::toString).collect(Collectors.joining(", "));
         try {
+            if (rebuildIndex) {
+                featuresService.clearRepositoryIndex();
+            }
             System.out.println("Refreshing feature url: " + uriString);
             featuresService.refreshRepositories(uris);
         } catch (Exception e) {
@@ -45,6 +45,10 @@ public interface FeaturesService {
 
     boolean DEFAULT_CONFIG_CFG_STORE = true;
     boolean DEFAULT_DIGRAPH_MBEAN = true;
+    boolean DEFAULT_RESOLUTION_CACHE = false;
+    boolean DEFAULT_PARALLEL_START_BUNDLES = false;
+    boolean DEFAULT_ARTIFACT_STORE = false;
+    boolean DEFAULT_STATE_JOURNAL = true;
 
     enum Option {
         NoFailOnFeatureNotFound,
@@ -58,7 +62,9 @@ public interface FeaturesService {
         Upgrade,
         DisplayFeaturesWiring,
         DisplayAllWiring,
-        DeleteConfigurations
+        DeleteConfigurations,
+        /** Start independent bundles concurrently, respecting start levels and wiring order */
+        ParallelStartBundles
     }
 
     /**
@@ -209,6 +215,12 @@ public interface FeaturesService {
 
     void refreshRepository(URI uri) throws Exception;
 
+    /**
+     * Removes the precompiled form of all features repositories, so that they are parsed again
+     * the next time they are loaded.
+     */
+    void clearRepositoryIndex() throws Exception;
+
     URI getRepositoryUriFor(String name, String version);
 
     String[] getRepositoryNames();
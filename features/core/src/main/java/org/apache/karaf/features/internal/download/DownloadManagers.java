@@ -18,7 +18,9 @@ package org.apache.karaf.features.internal.download;
 
 import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.karaf.features.internal.download.impl.ArtifactStore;
 import org.apache.karaf.features.internal.download.impl.MavenDownloadManager;
+import org.apache.karaf.features.internal.util.ChecksumIndex;
 import org.ops4j.pax.url.mvn.MavenResolver;
 
 public final class DownloadManagers {
@@ -31,6 +33,15 @@ public final class DownloadManagers {
 
     public static DownloadManager createDownloadManager(MavenResolver resolver, ScheduledExecutorService executorService,
                                                         long scheduleDelay, int scheduleMaxRun) {
-        return new MavenDownloadManager(resolver, executorService, scheduleDelay, scheduleMaxRun);
+        return createDownloadManager(resolver, executorService, scheduleDelay, scheduleMaxRun, null, null);
+    }
+
+    public static DownloadManager createDownloadManager(MavenResolver resolver, ScheduledExecutorService executorService,
+                                                        long scheduleDelay, int scheduleMaxRun,
+                                                        ChecksumIndex checksumIndex, ArtifactStore artifactStore) {
+        MavenDownloadManager manager = new MavenDownloadManager(resolver, executorService, scheduleDelay, scheduleMaxRun);
+        manager.setChecksumIndex(checksumIndex);
+        manager.setArtifactStore(artifactStore);
+        return manager;
     }
 }
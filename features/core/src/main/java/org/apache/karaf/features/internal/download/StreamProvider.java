@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.karaf.features.internal.util.ChecksumUtils;
+
 public interface StreamProvider {
 
     String getUrl();
@@ -28,4 +30,14 @@ public interface StreamProvider {
 
     InputStream open() throws IOException;
 
+    /**
+     * Returns the {@link ChecksumUtils#checksum(InputStream) checksum} of the content.
+     * Implementations may return a cached value if the content did not change.
+     */
+    default long getChecksum() throws IOException {
+        try (InputStream is = open()) {
+            return ChecksumUtils.checksum(is);
+        }
+    }
+
 }
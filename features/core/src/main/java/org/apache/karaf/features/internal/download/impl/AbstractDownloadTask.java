@@ -23,11 +23,13 @@ import java.io.InputStream;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.karaf.features.internal.download.StreamProvider;
+import org.apache.karaf.features.internal.util.ChecksumIndex;
 
 public abstract class AbstractDownloadTask extends DefaultFuture<AbstractDownloadTask> implements Runnable, StreamProvider {
 
     protected final String url;
     protected ScheduledExecutorService executorService;
+    protected ChecksumIndex checksumIndex;
 
     public AbstractDownloadTask(ScheduledExecutorService executorService, String url) {
         this.executorService = executorService;
@@ -54,6 +56,21 @@ public abstract class AbstractDownloadTask extends DefaultFuture<AbstractDownloa
         return new FileInputStream(getFile());
     }
 
+    @Override
+    public long getChecksum() throws IOException {
+        if (checksumIndex != null) {
+            File file = getFile();
+            if (file != null) {
+                return checksumIndex.checksum(file);
+            }
+        }
+        return StreamProvider.super.getChecksum();
+    }
+
+    public void setChecksumIndex(ChecksumIndex checksumIndex) {
+        this.checksumIndex = checksumIndex;
+    }
+
     public void setFile(File file) {
         if (file == null) {
             throw new NullPointerException("file");
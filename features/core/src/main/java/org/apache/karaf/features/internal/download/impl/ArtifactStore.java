@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Content addressed store of downloaded artifacts.</p>
+ * <p>Each artifact is stored once, under its SHA-256 digest, and hard-linked (or copied if the file system
+ * doesn't support links) to the location where download tasks expect it. Stored artifacts are read-only, so
+ * that the shared content can't be modified through a link. An index maps download urls to
+ * digests, so that artifacts already present in the store don't have to be downloaded again when a
+ * container is provisioned again.</p>
+ * <p>The content behind an url may change, so each url is also mapped to a validator describing the
+ * downloaded content (for instance an HTTP <code>ETag</code>). A stored artifact is only used for an url
+ * when the validator of the content currently behind the url is the same.</p>
+ * <p>Artifacts which are not referenced by the index anymore are deleted when the index is saved.</p>
+ */
+public class ArtifactStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactStore.class);
+
+    private static final String INDEX_FILE = "index.json";
+
+    private final File root;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public ArtifactStore(File root) {
+        this.root = root;
+        load();
+    }
+
+    /**
+     * Looks up the artifact previously downloaded from the given url.
+     * @param url the download url
+     * @param validator the validator of the content currently behind the url
+     * @return the stored file or <code>null</code> if there is none or the content changed
+     */
+    public File get(String url, String validator) {
+        Entry entry = index.get(url);
+        if (entry != null && entry.validator.equals(validator)) {
+            File file = getObject(entry.digest);
+            if (file.isFile()) {
+                return file;
+            }
+            index.remove(url, entry);
+            dirty = true;
+        }
+        return null;
+    }
+
+    /**
+     * @param url the download url
+     * @return the validator of the content stored for the url or <code>null</code>
+     */
+    public String getValidator(String url) {
+        Entry entry = index.get(url);
+        return entry != null ? entry.validator : null;
+    }
+
+    /**
+     * Moves the given downloaded file into the store. If an artifact with the same content is already
+     * present, the downloaded file is simply deleted.
+     * @param url the download url
+     * @param validator the validator of the downloaded content
+     * @param file the downloaded file
+     * @return the stored file
+     * @throws IOException if the file can't be stored
+     */
+    public File put(String url, String validator, File file) throws IOException {
+        Objects.requireNonNull(validator, "validator");
+        String digest = digest(file);
+        File object = getObject(digest);
+        // Placing the object and indexing it must not interleave with the pruning of unreferenced objects
+        synchronized (this) {
+            store(file, object);
+            index.put(url, new Entry(digest, validator));
+            dirty = true;
+        }
+        return object;
+    }
+
+    private void store(File file, File object) throws IOException {
+        if (object.isFile()) {
+            Files.delete(file.toPath());
+        } else {
+            File dir = object.getParentFile();
+            dir.mkdirs();
+            if (!dir.isDirectory()) {
+                throw new IOException("Unable to create directory " + dir.toString());
+            }
+            try {
+                Files.move(file.toPath(), object.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Concurrent store of the same content or different file systems
+                if (!object.isFile()) {
+                    Files.copy(file.toPath(), object.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.deleteIfExists(file.toPath());
+            }
+            object.setReadOnly();
+        }
+    }
+
+    /**
+     * Makes the stored artifact available, read-only, at the given location.
+     * @param object a file from the store
+     * @param target the location
+     * @throws IOException if the file can't be linked nor copied
+     */
+    public void link(File object, File target) throws IOException {
+        delete(target);
+        // A link shares the permissions of the object, make sure it can't be used to modify the object
+        object.setReadOnly();
+        try {
+            Files.createLink(target.toPath(), object.toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            LOGGER.debug("Unable to link {} to {}, copying it", object, target, e);
+            Files.copy(object.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Persists the url index if it changed, and deletes the stored artifacts it doesn't reference anymore.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        prune();
+        root.mkdirs();
+        try (
+                OutputStream os = new FileOutputStream(new File(root, INDEX_FILE))
+        ) {
+            Map<String, Object> json = new HashMap<>();
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                Map<String, Object> value = new HashMap<>();
+                value.put("digest", entry.getValue().digest);
+                value.put("validator", entry.getValue().validator);
+                json.put(entry.getKey(), value);
+            }
+            JsonWriter.write(os, json);
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.warn("Error saving artifact store index in " + root, e);
+        }
+    }
+
+    private void prune() {
+        Set<String> referenced = new HashSet<>();
+        for (Entry entry : index.values()) {
+            referenced.add(entry.digest);
+        }
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            File[] objects = dir.listFiles();
+            if (objects == null) {
+                continue;
+            }
+            for (File object : objects) {
+                if (!referenced.contains(object.getName())) {
+                    try {
+                        delete(object);
+                    } catch (IOException e) {
+                        LOGGER.debug("Unable to delete unreferenced artifact {}", object, e);
+                    }
+                }
+            }
+            // Only succeeds if the directory is empty
+            dir.delete();
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        // Read-only files can't be deleted on some platforms
+        if (file.exists() && !file.canWrite()) {
+            file.setWritable(true);
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void load() {
+        File file = new File(root, INDEX_FILE);
+        if (!file.isFile()) {
+            return;
+        }
+        try (
+                InputStream is = new FileInputStream(file)
+        ) {
+            Map<?, ?> json = (Map) JsonReader.read(is);
+            for (Map.Entry<?, ?> entry : json.entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    Map<?, ?> value = (Map) entry.getValue();
+                    if (value.get("digest") != null && value.get("validator") != null) {
+                        index.put(entry.getKey().toString(),
+                                new Entry(value.get("digest").toString(), value.get("validator").toString()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading artifact store index from " + file, e);
+            index.clear();
+        }
+    }
+
+    private File getObject(String digest) {
+        return new File(new File(root, digest.substring(0, 2)), digest);
+    }
+
+    static String digest(File file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream is = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int l;
+            while ((l = is.read(buffer)) > 0) {
+                md.update(buffer, 0, l);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    private static class Entry {
+        final String digest;
+        final String validator;
+
+        Entry(String digest, String validator) {
+            this.digest = digest;
+            this.validator = validator;
+        }
+    }
+
+}
@@ -19,15 +19,17 @@ package org.apache.karaf.features.internal.download.impl;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.karaf.features.internal.download.DownloadCallback;
 import org.apache.karaf.features.internal.download.DownloadManager;
 import org.apache.karaf.features.internal.download.Downloader;
 import org.apache.karaf.features.internal.download.StreamProvider;
+import org.apache.karaf.features.internal.util.ChecksumIndex;
 import org.apache.karaf.features.internal.util.MultiException;
 import org.ops4j.pax.url.mvn.MavenResolver;
 
@@ -43,13 +45,21 @@ public class MavenDownloadManager implements DownloadManager {
 
     protected File tmpPath;
 
-    private final Map<String, AbstractDownloadTask> downloaded = new HashMap<>();
+    protected ChecksumIndex checksumIndex;
 
-    private final Map<String, AbstractDownloadTask> downloading = new HashMap<>();
+    protected ArtifactStore artifactStore;
 
-    private final Object lock = new Object();
+    /**
+     * All download tasks, either running or completed, by location
+     */
+    private final ConcurrentMap<String, AbstractDownloadTask> tasks = new ConcurrentHashMap<>();
 
-    private volatile int allPending = 0;
+    /**
+     * Completed download tasks by location
+     */
+    private final ConcurrentMap<String, AbstractDownloadTask> downloaded = new ConcurrentHashMap<>();
+
+    private final AtomicInteger allPending = new AtomicInteger();
 
     public MavenDownloadManager(MavenResolver mavenResolver, ScheduledExecutorService executorService,
                                 long scheduleDelay, int scheduleMaxRun) {
@@ -63,8 +73,22 @@ public class MavenDownloadManager implements DownloadManager {
         this.tmpPath = new File(karafData, "tmp");
     }
 
+    /**
+     * Sets the index used to avoid computing again the checksums of unchanged downloaded files.
+     */
+    public void setChecksumIndex(ChecksumIndex checksumIndex) {
+        this.checksumIndex = checksumIndex;
+    }
+
+    /**
+     * Sets the content addressed store used to avoid downloading again non maven artifacts.
+     */
+    public void setArtifactStore(ArtifactStore artifactStore) {
+        this.artifactStore = artifactStore;
+    }
+
     public int getPending() {
-        return allPending;
+        return allPending.get();
     }
 
     @Override
@@ -77,7 +101,7 @@ public class MavenDownloadManager implements DownloadManager {
     })
     @Override
     public Map<String, StreamProvider> getProviders() {
-        return (Map) Collections.synchronizedMap(downloaded);
+        return (Map) downloaded;
     }
 
     @Override
@@ -87,18 +111,22 @@ public class MavenDownloadManager implements DownloadManager {
 
     protected class MavenDownloader implements Downloader {
 
-        private volatile int pending = 0;
+        /**
+         * Number of downloads requested through this downloader which are not yet completed.
+         * Waiters are only notified when it drops to zero, using this downloader's monitor.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
         private final MultiException exception = new MultiException("Error");
 
         public int pending() {
-            return pending;
+            return pending.get();
         }
 
         @Override
         public void await() throws InterruptedException, MultiException {
-            synchronized (lock) {
-                while (pending != 0) {
-                    lock.wait();
+            synchronized (this) {
+                while (pending.get() != 0) {
+                    wait();
                 }
             }
             exception.throwIfExceptions();
@@ -106,30 +134,17 @@ public class MavenDownloadManager implements DownloadManager {
 
         @Override
         public void download(final String location, final DownloadCallback downloadCallback) throws MalformedURLException {
-            AbstractDownloadTask task;
-            synchronized (lock) {
-                task = downloaded.get(location);
-                if (task == null) {
-                    task = downloading.get(location);
-                }
-            }
+            AbstractDownloadTask task = tasks.get(location);
             if (task == null) {
-                task = createDownloadTask(location);
-            }
-            synchronized (lock) {
-                AbstractDownloadTask prev = downloaded.get(location);
-                if (prev == null) {
-                    prev = downloading.get(location);
-                }
-                if (prev == null) {
-                    downloading.put(location, task);
+                AbstractDownloadTask newTask = createDownloadTask(location);
+                task = tasks.putIfAbsent(location, newTask);
+                if (task == null) {
+                    task = newTask;
                     executorService.execute(task);
-                } else {
-                    task = prev;
                 }
-                pending++;
-                allPending++;
             }
+            pending.incrementAndGet();
+            allPending.incrementAndGet();
             final AbstractDownloadTask downloadTask = task;
             task.addListener(future -> {
                 try {
@@ -142,12 +157,11 @@ public class MavenDownloadManager implements DownloadManager {
                 } catch (Throwable e) {
                     exception.addSuppressed(e);
                 } finally {
-                    synchronized (lock) {
-                        downloading.remove(location);
-                        downloaded.put(location, downloadTask);
-                        --allPending;
-                        if (--pending == 0) {
-                            lock.notifyAll();
+                    downloaded.put(location, downloadTask);
+                    allPending.decrementAndGet();
+                    if (pending.decrementAndGet() == 0) {
+                        synchronized (this) {
+                            notifyAll();
                         }
                     }
                 }
@@ -156,6 +170,7 @@ public class MavenDownloadManager implements DownloadManager {
 
         protected AbstractDownloadTask createDownloadTask(String url) {
             AbstractDownloadTask task = doCreateDownloadTask(url);
+            task.setChecksumIndex(checksumIndex);
             if (task instanceof AbstractRetryableDownloadTask) {
                 AbstractRetryableDownloadTask rt = (AbstractRetryableDownloadTask) task;
                 if (scheduleDelay > 0) {
@@ -225,7 +240,7 @@ public class MavenDownloadManager implements DownloadManager {
     }
 
     protected AbstractDownloadTask createCustomDownloadTask(final String url) {
-        return new SimpleDownloadTask(executorService, url, tmpPath);
+        return new SimpleDownloadTask(executorService, url, tmpPath, artifactStore);
     }
 
 }
@@ -21,7 +21,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -34,6 +36,13 @@ public class SimpleDownloadTask extends AbstractRetryableDownloadTask {
     private static final String BLUEPRINT_PREFIX = "blueprint:";
     private static final String SPRING_PREFIX = "spring:";
 
+    /**
+     * Prefixes of the validators of the content kept in the artifact store.
+     */
+    private static final String FILE = "file:";
+    private static final String ETAG = "etag:";
+    private static final String LAST_MODIFIED = "last-modified:";
+
     /**
      * Logger.
      */
@@ -41,9 +50,16 @@ public class SimpleDownloadTask extends AbstractRetryableDownloadTask {
 
     private File basePath;
 
+    private ArtifactStore artifactStore;
+
     public SimpleDownloadTask(ScheduledExecutorService executorService, String url, File basePath) {
+        this(executorService, url, basePath, null);
+    }
+
+    public SimpleDownloadTask(ScheduledExecutorService executorService, String url, File basePath, ArtifactStore artifactStore) {
         super(executorService, url);
         this.basePath = basePath;
+        this.artifactStore = artifactStore;
     }
 
     @Override
@@ -66,33 +82,110 @@ public class SimpleDownloadTask extends AbstractRetryableDownloadTask {
                 return file;
             }
 
-            File dir = new File(System.getProperty("karaf.data"), "tmp");
-            dir.mkdirs();
-            if (!dir.isDirectory()) {
-                throw new IOException("Unable to create directory " + dir.toString());
-            }
-
-            File tmpFile = Files.createTempFile(dir.toPath(), "download-", null).toFile();
-            
             urlObj = new URL(DownloadManagerHelper.stripStartLevel(urlObj.toString()));
-            try (InputStream is = urlObj.openStream();
-                 OutputStream os = new FileOutputStream(tmpFile)) {
-                StreamUtils.copy(is, os);
-            }
-
-            if (file.exists() && !file.delete()) {
-                throw new IOException("Unable to delete file: " + file.toString());
-            }
-            // check: this will move the file to CHILD_HOME root directory...
-            if (!tmpFile.renameTo(file)) {
-                throw new IOException("Unable to rename file " + tmpFile.toString() + " to " + file.toString());
+            if (artifactStore != null) {
+                return downloadWithStore(urlObj, file);
             }
+            moveTo(downloadToTmpFile(urlObj.openStream()), file);
             return file;
         } catch (Exception ignore) {
             throw new IOException("Could not download [" + this.url + "]", ignore);
         }
     }
 
+    /**
+     * Links the artifact stored for the url if its content didn't change, or downloads it and stores it.
+     * The content of a local file is revalidated with its length and last modification time, and the content
+     * of an http url with a conditional request. Other urls can't be revalidated, so they are not stored.
+     */
+    private File downloadWithStore(URL urlObj, File file) throws IOException {
+        String validator = getFileValidator();
+        if (validator != null) {
+            File stored = artifactStore.get(url, validator);
+            if (stored != null) {
+                LOG.trace("Using stored artifact " + stored + " for [" + url + "]");
+                artifactStore.link(stored, file);
+                return file;
+            }
+            artifactStore.link(artifactStore.put(url, validator, downloadToTmpFile(urlObj.openStream())), file);
+            return file;
+        }
+        URLConnection connection = urlObj.openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            moveTo(downloadToTmpFile(connection.getInputStream()), file);
+            return file;
+        }
+        HttpURLConnection http = (HttpURLConnection) connection;
+        String previous = artifactStore.getValidator(url);
+        File stored = previous != null ? artifactStore.get(url, previous) : null;
+        if (stored != null) {
+            if (previous.startsWith(ETAG)) {
+                http.setRequestProperty("If-None-Match", previous.substring(ETAG.length()));
+            } else if (previous.startsWith(LAST_MODIFIED)) {
+                http.setRequestProperty("If-Modified-Since", previous.substring(LAST_MODIFIED.length()));
+            }
+            if (http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                http.disconnect();
+                LOG.trace("Using stored artifact " + stored + " for [" + url + "]");
+                artifactStore.link(stored, file);
+                return file;
+            }
+        }
+        File tmpFile = downloadToTmpFile(http.getInputStream());
+        if (http.getHeaderField("ETag") != null) {
+            validator = ETAG + http.getHeaderField("ETag");
+        } else if (http.getHeaderField("Last-Modified") != null) {
+            validator = LAST_MODIFIED + http.getHeaderField("Last-Modified");
+        }
+        if (validator != null) {
+            artifactStore.link(artifactStore.put(url, validator, tmpFile), file);
+        } else {
+            moveTo(tmpFile, file);
+        }
+        return file;
+    }
+
+    /**
+     * @return the length and last modification time of the local file behind the url (possibly wrapped),
+     * or <code>null</code> if the url doesn't point to a local file
+     */
+    private String getFileValidator() {
+        String location = DownloadManagerHelper.stripUrl(url);
+        if (!location.startsWith("file:")) {
+            return null;
+        }
+        try {
+            File source = new File(new URL(location).toURI());
+            return source.isFile() ? FILE + source.length() + "/" + source.lastModified() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private File downloadToTmpFile(InputStream input) throws IOException {
+        File dir = new File(System.getProperty("karaf.data"), "tmp");
+        dir.mkdirs();
+        if (!dir.isDirectory()) {
+            throw new IOException("Unable to create directory " + dir.toString());
+        }
+        File tmpFile = Files.createTempFile(dir.toPath(), "download-", null).toFile();
+        try (InputStream is = input;
+             OutputStream os = new FileOutputStream(tmpFile)) {
+            StreamUtils.copy(is, os);
+        }
+        return tmpFile;
+    }
+
+    private void moveTo(File tmpFile, File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete file: " + file.toString());
+        }
+        // check: this will move the file to CHILD_HOME root directory...
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("Unable to rename file " + tmpFile.toString() + " to " + file.toString());
+        }
+    }
+
     // we only want the filename itself, not the whole path
     private String getFileName(URL urlObj) {
         String url = urlObj.getFile();
@@ -109,15 +202,7 @@ public class SimpleDownloadTask extends AbstractRetryableDownloadTask {
 
     protected File downloadBlueprintOrSpring() throws Exception {
         // when downloading an embedded blueprint or spring xml file, then it must be as a temporary file
-        File dir = new File(System.getProperty("karaf.data"), "tmp");
-        dir.mkdirs();
-        File tmpFile = Files.createTempFile(dir.toPath(), "download-", null).toFile();
-        try (InputStream is = new URL(url).openStream();
-             OutputStream os = new FileOutputStream(tmpFile))
-        {
-            StreamUtils.copy(is, os);
-        }
-        return tmpFile;
+        return downloadToTmpFile(new URL(url).openStream());
     }
 
     @Override
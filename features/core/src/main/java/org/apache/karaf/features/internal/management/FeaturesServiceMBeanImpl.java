@@ -37,6 +37,7 @@ import org.apache.karaf.features.FeaturesListener;
 import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.features.Repository;
 import org.apache.karaf.features.RepositoryEvent;
+import org.apache.karaf.features.internal.service.ResolutionCache;
 import org.apache.karaf.features.management.FeaturesServiceMBean;
 import org.apache.karaf.features.management.codec.JmxFeature;
 import org.apache.karaf.features.management.codec.JmxFeatureEvent;
@@ -61,6 +62,8 @@ public class FeaturesServiceMBeanImpl extends StandardEmitterMBean implements
 
     private FeaturesService featuresService;
 
+    private ResolutionCache resolutionCache;
+
     public FeaturesServiceMBeanImpl() throws NotCompliantMBeanException {
         super(FeaturesServiceMBean.class,
               new NotificationBroadcasterSupport(getBroadcastInfo()));
@@ -332,6 +335,26 @@ public class FeaturesServiceMBeanImpl extends StandardEmitterMBean implements
         featuresService.uninstallFeature(name, version, options);
     }
 
+    @Override
+    public long getResolutionCacheHits() {
+        return resolutionCache != null ? resolutionCache.getHits() : 0;
+    }
+
+    @Override
+    public long getResolutionCacheMisses() {
+        return resolutionCache != null ? resolutionCache.getMisses() : 0;
+    }
+
+    @Override
+    public long getResolutionCacheTimeSaved() {
+        return resolutionCache != null ? resolutionCache.getTimeSaved() : 0;
+    }
+
+    @Override
+    public long getResolutionCacheReusedFeatures() {
+        return resolutionCache != null ? resolutionCache.getReusedFeatures() : 0;
+    }
+
     public void setBundleContext(BundleContext bundleContext) {
         this.bundleContext = bundleContext;
     }
@@ -340,6 +363,10 @@ public class FeaturesServiceMBeanImpl extends StandardEmitterMBean implements
         this.featuresService = featuresService;
     }
 
+    public void setResolutionCache(ResolutionCache resolutionCache) {
+        this.resolutionCache = resolutionCache;
+    }
+
     public FeaturesListener getFeaturesListener() {
         return new FeaturesListener() {
             public void featureEvent(FeatureEvent event) {
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.features.internal.model;
 
+import java.io.Serializable;
 import java.util.Objects;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -50,7 +51,9 @@ import org.apache.karaf.features.BundleInfo;
 @XmlType(name = "bundle", propOrder = {
         "value"
         })
-public class Bundle implements BundleInfo {
+public class Bundle implements BundleInfo, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @XmlValue
     @XmlSchemaType(name = "anyURI")
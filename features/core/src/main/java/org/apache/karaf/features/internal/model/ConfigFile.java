@@ -16,6 +16,8 @@
  */
 package org.apache.karaf.features.internal.model;
 
+import java.io.Serializable;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -42,7 +44,9 @@ import org.apache.karaf.features.ConfigFileInfo;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "configFile", propOrder = {"value"})
-public class ConfigFile implements ConfigFileInfo {
+public class ConfigFile implements ConfigFileInfo, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @XmlValue
     protected String value;
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.features.internal.model;
 
+import java.io.Serializable;
 import java.util.Objects;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -40,7 +41,9 @@ import javax.xml.bind.annotation.XmlValue;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "dependency", propOrder = {"name"})
-public class Dependency implements org.apache.karaf.features.Dependency {
+public class Dependency implements org.apache.karaf.features.Dependency, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @XmlValue
     protected String name;
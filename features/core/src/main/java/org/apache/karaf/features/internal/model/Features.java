@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.features.internal.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
@@ -55,7 +56,9 @@ import org.apache.karaf.features.Blacklisting;
 @XmlRootElement(name = "features", namespace=org.apache.karaf.features.FeaturesNamespaces.URI_CURRENT)
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "features", propOrder = {"repository", "resourceRepository", "feature"})
-public class Features implements Blacklisting {
+public class Features implements Blacklisting, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @XmlSchemaType(name = "anyURI")
     @XmlElement(name = "repository", namespace=org.apache.karaf.features.FeaturesNamespaces.URI_CURRENT)
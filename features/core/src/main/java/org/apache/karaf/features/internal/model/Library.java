@@ -16,6 +16,8 @@
  */
 package org.apache.karaf.features.internal.model;
 
+import java.io.Serializable;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -24,7 +26,9 @@ import javax.xml.bind.annotation.XmlValue;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "library", propOrder = { "location" })
-public class Library implements org.apache.karaf.features.Library {
+public class Library implements org.apache.karaf.features.Library, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @XmlValue
     private String location;
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.features.internal.model;
 
+import java.io.Serializable;
 import java.util.Objects;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -38,7 +39,9 @@ import javax.xml.bind.annotation.XmlValue;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "requirement", propOrder = {"value"})
-public class Requirement implements org.apache.karaf.features.Requirement {
+public class Requirement implements org.apache.karaf.features.Requirement, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @XmlValue
     protected String value;
@@ -23,6 +23,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Hashtable;
@@ -52,6 +53,8 @@ import org.apache.karaf.features.internal.service.FeaturesServiceConfig;
 import org.apache.karaf.features.internal.service.FeaturesServiceImpl;
 import org.apache.karaf.features.internal.service.BundleInstallSupport;
 import org.apache.karaf.features.internal.service.BundleInstallSupportImpl;
+import org.apache.karaf.features.internal.service.JournaledStateStorage;
+import org.apache.karaf.features.internal.service.State;
 import org.apache.karaf.features.internal.service.StateStorage;
 import org.apache.karaf.util.ThreadUtils;
 import org.apache.karaf.util.tracker.BaseActivator;
@@ -185,6 +188,7 @@ public class Activator extends BaseActivator {
         FeaturesServiceMBeanImpl featuresServiceMBean = new FeaturesServiceMBeanImpl();
         featuresServiceMBean.setBundleContext(bundleContext);
         featuresServiceMBean.setFeaturesService(featuresService);
+        featuresServiceMBean.setResolutionCache(featuresService.getResolutionCache());
         registerMBean(featuresServiceMBean, "type=feature");
 
         String[] featuresRepositories = getStringArray("featuresRepositories", "");
@@ -241,10 +245,18 @@ public class Activator extends BaseActivator {
             getString("blacklisted", new File(karafEtc, "blacklisted.properties").toURI().toString()),
             getString("featureProcessing", new File(karafEtc, FEATURES_SERVICE_PROCESSING_FILE).toURI().toString()),
             getString("featureProcessingVersions", new File(karafEtc, FEATURES_SERVICE_PROCESSING_VERSIONS_FILE).toURI().toString()),
-            getString("serviceRequirements", FeaturesService.ServiceRequirementsBehavior.Default.getValue()));
+            getString("serviceRequirements", FeaturesService.ServiceRequirementsBehavior.Default.getValue()),
+            getBoolean("resolutionCache", FeaturesService.DEFAULT_RESOLUTION_CACHE),
+            getBoolean("parallelStartBundles", FeaturesService.DEFAULT_PARALLEL_START_BUNDLES),
+            getInt("startThreads", Runtime.getRuntime().availableProcessors()),
+            getBoolean("artifactStore", FeaturesService.DEFAULT_ARTIFACT_STORE));
     }
 
     private StateStorage createStateStorage() {
+        File dataDir = bundleContext.getDataFile("");
+        if (getBoolean("stateJournal", FeaturesService.DEFAULT_STATE_JOURNAL)) {
+            return new JournaledStateStorage(dataDir);
+        }
         StateStorage stateStorage = new StateStorage() {
             @Override
             protected InputStream getInputStream() throws IOException {
@@ -262,6 +274,21 @@ public class Activator extends BaseActivator {
                 return new FileOutputStream(file);
             }
         };
+        // Convert back a binary state when the journal has been disabled
+        File snapshot = new File(dataDir, JournaledStateStorage.SNAPSHOT_FILE);
+        if (snapshot.isFile() && !bundleContext.getDataFile(STATE_FILE).exists()) {
+            try {
+                State state = new State();
+                new JournaledStateStorage(dataDir).load(state);
+                stateStorage.save(state);
+                // Keep the binary state until the JSON one is durably written
+                JournaledStateStorage.sync(bundleContext.getDataFile(STATE_FILE));
+                Files.delete(snapshot.toPath());
+                Files.deleteIfExists(new File(dataDir, JournaledStateStorage.JOURNAL_FILE).toPath());
+            } catch (IOException e) {
+                logger.warn("Error converting features service state to " + STATE_FILE, e);
+            }
+        }
         return stateStorage;
     }
 
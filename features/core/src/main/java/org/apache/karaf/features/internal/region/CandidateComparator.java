@@ -19,6 +19,7 @@ package org.apache.karaf.features.internal.region;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.function.ToIntFunction;
 
 import org.apache.karaf.features.internal.resolver.ResolverUtil;
@@ -33,9 +34,19 @@ import org.osgi.resource.Resource;
 public class CandidateComparator implements Comparator<Capability> {
 
     private final ToIntFunction<Resource> cost;
+    private final Predicate<Resource> preferred;
 
     public CandidateComparator(ToIntFunction<Resource> cost) {
+        this(cost, r -> false);
+    }
+
+    /**
+     * @param cost the cost of a resource, lower costs are preferred
+     * @param preferred resources to try first, e.g. the ones selected by a previous resolution
+     */
+    public CandidateComparator(ToIntFunction<Resource> cost, Predicate<Resource> preferred) {
         this.cost = cost;
+        this.preferred = preferred;
     }
 
     public int compare(Capability cap1, Capability cap2) {
@@ -46,6 +57,12 @@ public class CandidateComparator implements Comparator<Capability> {
         } else if (!(cap1 instanceof BundleCapability) && cap2 instanceof BundleCapability) {
             c = 1;
         }
+        // Prefer the resources selected by a previous resolution
+        if (c == 0) {
+            boolean p1 = preferred.test(cap1.getResource());
+            boolean p2 = preferred.test(cap2.getResource());
+            c = Boolean.compare(p2, p1);
+        }
         // Always prefer mandatory resources
         if (c == 0) {
             int c1 = cost.applyAsInt(cap1.getResource());
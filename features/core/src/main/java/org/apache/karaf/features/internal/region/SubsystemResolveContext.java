@@ -69,7 +69,7 @@ public class SubsystemResolveContext extends ResolveContext {
     private final Subsystem root;
     private final Map<String, Region> regions;
     private final Map<Resource, Integer> distance;
-    private final CandidateComparator candidateComparator = new CandidateComparator(this::getResourceCost);
+    private final CandidateComparator candidateComparator;
 
     private final Map<Resource, Subsystem> resToSub = new HashMap<>();
     private final Repository repository;
@@ -78,7 +78,16 @@ public class SubsystemResolveContext extends ResolveContext {
     private final FeaturesService.ServiceRequirementsBehavior serviceRequirements;
 
     public SubsystemResolveContext(Subsystem root, RegionDigraph digraph, Repository globalRepository, Downloader downloader, FeaturesService.ServiceRequirementsBehavior serviceRequirements) {
+        this(root, digraph, globalRepository, downloader, serviceRequirements, Collections.emptySet());
+    }
+
+    /**
+     * @param preferredResources identities (<code>symbolicName/version</code>) of the resources to try first
+     */
+    public SubsystemResolveContext(Subsystem root, RegionDigraph digraph, Repository globalRepository, Downloader downloader, FeaturesService.ServiceRequirementsBehavior serviceRequirements, Set<String> preferredResources) {
         this.root = root;
+        this.candidateComparator = new CandidateComparator(this::getResourceCost,
+                r -> !preferredResources.isEmpty() && isPreferred(r, preferredResources));
         this.globalRepository = globalRepository != null ? new SubsystemRepository(globalRepository) : null;
         this.downloader = downloader;
         this.serviceRequirements = serviceRequirements;
@@ -148,6 +157,11 @@ public class SubsystemResolveContext extends ResolveContext {
         return edges;
     }
 
+    private static boolean isPreferred(Resource resource, Set<String> preferredResources) {
+        String name = ResolverUtil.getSymbolicName(resource);
+        return name != null && preferredResources.contains(name + "/" + ResolverUtil.getVersion(resource));
+    }
+
     private int getResourceCost(Resource resource) {
         return distance.getOrDefault(resource, Integer.MAX_VALUE);
     }
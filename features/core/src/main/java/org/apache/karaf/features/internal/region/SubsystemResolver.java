@@ -98,6 +98,7 @@ public class SubsystemResolver implements SubsystemResolverResolution, Subsystem
     private Map<String, Map<String, BundleInfo>> bundleInfos;
 
     private SubsystemResolverCallback callback;
+    private Set<String> preferredResources = Collections.emptySet();
 
     public SubsystemResolver(Resolver resolver, DownloadManager manager) {
         this.resolver = resolver;
@@ -108,6 +109,14 @@ public class SubsystemResolver implements SubsystemResolverResolution, Subsystem
         this.callback = callback;
     }
 
+    /**
+     * Sets the resources the resolver should try first when several candidates are available.
+     * @param preferredResources identities (<code>symbolicName/version</code>) of the preferred resources
+     */
+    public void setPreferredResources(Set<String> preferredResources) {
+        this.preferredResources = preferredResources;
+    }
+
     @Override
     public void prepare(
             Map<String, List<Feature>> allFeatures,
@@ -228,7 +237,7 @@ public class SubsystemResolver implements SubsystemResolverResolution, Subsystem
         populateDigraph(digraph, root);
 
         Downloader downloader = manager.createDownloader();
-        SubsystemResolveContext context = new SubsystemResolveContext(root, digraph, globalRepository, downloader, serviceRequirements);
+        SubsystemResolveContext context = new SubsystemResolveContext(root, digraph, globalRepository, downloader, serviceRequirements, preferredResources);
         if (outputFile != null) {
             Map<String, Object> json = new HashMap<>();
             if (globalRepository != null) {
@@ -36,6 +36,11 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.apache.felix.utils.version.VersionRange;
@@ -60,6 +65,7 @@ import org.apache.karaf.features.internal.util.ChecksumUtils;
 import org.apache.karaf.features.internal.util.Macro;
 import org.apache.karaf.features.internal.util.MapUtils;
 import org.apache.karaf.features.internal.util.MultiException;
+import org.apache.karaf.util.ThreadUtils;
 import org.eclipse.equinox.region.Region;
 import org.eclipse.equinox.region.RegionDigraph;
 import org.osgi.framework.Bundle;
@@ -262,6 +268,8 @@ public class Deployer {
         public Map<String, Map<String, FeatureState>> stateChanges;
         /** Deployment options */
         public EnumSet<FeaturesService.Option> options;
+        /** Number of threads used to start bundles when {@link FeaturesService.Option#ParallelStartBundles} is set */
+        public int startThreads;
 
         /** File to store result of deployment */
         public String outputFile;
@@ -281,6 +289,7 @@ public class Deployer {
             request.requirements = new HashMap<>();
             request.stateChanges = new HashMap<>();
             request.options = EnumSet.noneOf(FeaturesService.Option.class);
+            request.startThreads = Runtime.getRuntime().availableProcessors();
             return request;
         }
     }
@@ -311,11 +320,17 @@ public class Deployer {
     private final DownloadManager manager;
     private final Resolver resolver;
     private final DeployCallback callback;
+    private final ResolutionCache resolutionCache;
 
     public Deployer(DownloadManager manager, Resolver resolver, DeployCallback callback) {
+        this(manager, resolver, callback, null);
+    }
+
+    public Deployer(DownloadManager manager, Resolver resolver, DeployCallback callback, ResolutionCache resolutionCache) {
         this.manager = manager;
         this.resolver = resolver;
         this.callback = callback;
+        this.resolutionCache = resolutionCache;
     }
 
     /**
@@ -362,9 +377,24 @@ public class Deployer {
         boolean showFeaturesWiringOnly = request.options.contains(FeaturesService.Option.DisplayFeaturesWiring)
                     && !request.options.contains(FeaturesService.Option.DisplayAllWiring);
         boolean deleteConfigurations = request.options.contains(FeaturesService.Option.DeleteConfigurations);
+        boolean parallelStart = request.options.contains(FeaturesService.Option.ParallelStartBundles);
 
         // TODO: add an option to unmanage bundles instead of uninstalling those
 
+        // If the very same deployment already led to no change, there's no need to resolve again
+        String fingerprint = null;
+        if (resolutionCache != null && ResolutionCache.isCacheable(dstate, request)) {
+            fingerprint = ResolutionCache.fingerprint(dstate, request);
+            if (resolutionCache.lookup(fingerprint)) {
+                callback.callListeners(DeploymentEvent.DEPLOYMENT_STARTED);
+                print("No deployment change.", verbose);
+                callback.callListeners(DeploymentEvent.DEPLOYMENT_FINISHED);
+                print("Done.", verbose);
+                return;
+            }
+        }
+        long resolutionStart = System.currentTimeMillis();
+
         // current managed bundles per region, as known by o.a.k.features.internal.service.FeaturesServiceImpl.state
         Map<String, Set<Long>> managedBundles = copy(dstate.state.managedBundles);
 
@@ -376,6 +406,10 @@ public class Deployer {
         // Use Subsystem and Felix resolver
         SubsystemResolver resolver = new SubsystemResolver(this.resolver, manager);
         resolver.setDeployCallback(callback);
+        if (fingerprint != null) {
+            // Try the bundles selected last time for unchanged features first
+            resolver.setPreferredResources(resolutionCache.getPreferredResources(dstate.featuresById()));
+        }
         Map<String, Set<BundleRevision>> unmanagedBundleRevisions = apply(unmanagedBundles, adapt(BundleRevision.class));
 
         // preparation - creating OSGi resources with reqs and caps for regions and features
@@ -393,6 +427,7 @@ public class Deployer {
                 request.serviceRequirements,
                 request.globalRepository,
                 request.outputFile);
+        long resolutionTime = System.currentTimeMillis() - resolutionStart;
 
         Map<String, StreamProvider> providers = resolver.getProviders();
         Map<String, Set<Resource>> featuresPerRegion = resolver.getFeaturesPerRegions();
@@ -677,6 +712,18 @@ public class Deployer {
             return;
         }
 
+        // Check if this deployment is a no-op, so that it can be skipped next time
+        boolean unchanged = deployment.regions.isEmpty()
+                && (noRefresh || toRefresh.isEmpty())
+                && toManage.isEmpty()
+                && toUpdateStartLevel.isEmpty()
+                && newFeatures.isEmpty()
+                && delFeatures.isEmpty()
+                && stateFeatures.equals(dstate.state.stateFeatures)
+                && request.requirements.equals(dstate.state.requirements)
+                && !hasBundlesNotInState(toStart, UNINSTALLED | ACTIVE)
+                && !hasBundlesNotInState(toStop, UNINSTALLED | RESOLVED | STOPPING | STARTING);
+
         //
         // Execute deployment
         //
@@ -1025,16 +1072,28 @@ public class Deployer {
             // Compute correct start order
             List<Exception> exceptions = new ArrayList<>();
             print("Starting bundles:", verbose);
-            while (!toStart.isEmpty()) {
-                List<Bundle> bs = getBundlesToStart(toStart, serviceBundle);
-                for (Bundle bundle : bs) {
-                    print("  " + bundle.getSymbolicName() + "/" + bundle.getVersion(), verbose);
-                    try {
-                        callback.startBundle(bundle);
-                    } catch (BundleException e) {
-                        exceptions.add(e);
+            ExecutorService startExecutor = parallelStart ? createStartExecutor(request.startThreads) : null;
+            try {
+                while (!toStart.isEmpty()) {
+                    List<Bundle> bs = getBundlesToStart(toStart, serviceBundle);
+                    if (startExecutor != null && bs.size() > 1) {
+                        startBundles(bs, resolver.getWiring(), deployment.resToBnd, startExecutor, exceptions, verbose);
+                        toStart.removeAll(bs);
+                        continue;
                     }
-                    toStart.remove(bundle);
+                    for (Bundle bundle : bs) {
+                        print("  " + bundle.getSymbolicName() + "/" + bundle.getVersion(), verbose);
+                        try {
+                            callback.startBundle(bundle);
+                        } catch (BundleException e) {
+                            exceptions.add(e);
+                        }
+                        toStart.remove(bundle);
+                    }
+                }
+            } finally {
+                if (startExecutor != null) {
+                    startExecutor.shutdownNow();
                 }
             }
             if (!exceptions.isEmpty()) {
@@ -1063,6 +1122,15 @@ public class Deployer {
         }
         callback.callListeners(DeploymentEvent.DEPLOYMENT_FINISHED);
 
+        if (fingerprint != null) {
+            resolutionCache.storeSelection(featuresPerRegion, resolver.getWiring(), dstate.featuresById());
+            if (unchanged) {
+                resolutionCache.store(fingerprint, resolutionTime);
+            } else {
+                resolutionCache.invalidate();
+            }
+        }
+
         print("Done.", verbose);
     }
 
@@ -1296,6 +1364,12 @@ public class Deployer {
                 || bundle.getHeaders().get(Constants.FRAGMENT_HOST) != null);
     }
 
+    private static boolean hasBundlesNotInState(Collection<Bundle> bundles, int state) {
+        List<Bundle> remaining = new ArrayList<>(bundles);
+        removeFragmentsAndBundlesInState(remaining, state);
+        return !remaining.isEmpty();
+    }
+
     private static void removeBundlesInState(Collection<Bundle> bundles, int state) {
         bundles.removeIf(bundle -> (bundle.getState() & state) != 0);
     }
@@ -1451,13 +1525,8 @@ public class Deployer {
                                     }
                                 }
                                 // Compute new bundle checksum
-                                long newCrc;
-                                try (
-                                        InputStream is = getBundleInputStream(resource, resolver.getProviders())
-                                ) {
-                                    newCrc = ChecksumUtils.checksum(is);
-                                    result.bundleChecksums.put(bundle.getBundleId(), newCrc);
-                                }
+                                long newCrc = getBundleChecksum(resource, resolver.getProviders());
+                                result.bundleChecksums.put(bundle.getBundleId(), newCrc);
                                 // if the checksum are different
                                 if (newCrc != oldCrc) {
                                     LOGGER.debug("New snapshot available for " + bundle.getLocation());
@@ -1563,6 +1632,95 @@ public class Deployer {
         return sorted;
     }
 
+    protected ExecutorService createStartExecutor(int threads) {
+        int nb = Math.max(1, threads);
+        return new ThreadPoolExecutor(nb, nb, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                ThreadUtils.namedThreadFactory("features-start"));
+    }
+
+    /**
+     * Start the given bundles concurrently. All bundles are expected to share the same start level and to be
+     * sorted as returned by {@link #getBundlesToStart(Collection, Bundle)}. A bundle is only started once all
+     * the bundles it is wired to have been started. If the wiring contains cycles, the bundles are started in
+     * the given order until the cycle is broken.
+     */
+    protected void startBundles(List<Bundle> bundles,
+                                Map<Resource, List<Wire>> wiring,
+                                Map<Resource, Bundle> resToBnd,
+                                ExecutorService executor,
+                                List<Exception> exceptions,
+                                boolean verbose) throws InterruptedException {
+        // Compute the wiring DAG restricted to the bundles to start
+        Map<Bundle, Set<Bundle>> dependencies = new HashMap<>();
+        Map<Bundle, Set<Bundle>> dependents = new HashMap<>();
+        for (Bundle bundle : bundles) {
+            dependencies.put(bundle, new HashSet<>());
+            dependents.put(bundle, new HashSet<>());
+        }
+        if (wiring != null) {
+            for (Map.Entry<Resource, List<Wire>> entry : wiring.entrySet()) {
+                Bundle requirer = getBundle(entry.getKey(), resToBnd);
+                if (requirer == null || !dependencies.containsKey(requirer)) {
+                    continue;
+                }
+                for (Wire wire : entry.getValue()) {
+                    Bundle provider = getBundle(wire.getProvider(), resToBnd);
+                    if (provider != null && provider != requirer && dependencies.containsKey(provider)) {
+                        dependencies.get(requirer).add(provider);
+                        dependents.get(provider).add(requirer);
+                    }
+                }
+            }
+        }
+        // Start bundles as soon as all their providers are started
+        BlockingQueue<Bundle> started = new LinkedBlockingQueue<>();
+        List<Bundle> pending = new ArrayList<>(bundles);
+        int running = 0;
+        while (!pending.isEmpty() || running > 0) {
+            List<Bundle> ready = new ArrayList<>();
+            for (Bundle bundle : pending) {
+                if (dependencies.get(bundle).isEmpty()) {
+                    ready.add(bundle);
+                }
+            }
+            if (ready.isEmpty() && running == 0) {
+                // Cycle in the wiring
+                ready.add(pending.get(0));
+            }
+            pending.removeAll(ready);
+            for (Bundle bundle : ready) {
+                running++;
+                executor.execute(() -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        callback.startBundle(bundle);
+                    } catch (Exception e) {
+                        synchronized (exceptions) {
+                            exceptions.add(e);
+                        }
+                    } finally {
+                        print("  " + bundle.getSymbolicName() + "/" + bundle.getVersion()
+                                + " (" + (System.currentTimeMillis() - start) + " ms)", verbose);
+                        started.add(bundle);
+                    }
+                });
+            }
+            Bundle bundle = started.take();
+            running--;
+            for (Bundle dependent : dependents.get(bundle)) {
+                dependencies.get(dependent).remove(bundle);
+            }
+        }
+    }
+
+    private static Bundle getBundle(Resource resource, Map<Resource, Bundle> resToBnd) {
+        if (resource instanceof BundleRevision) {
+            return ((BundleRevision) resource).getBundle();
+        }
+        return resToBnd.get(resource);
+    }
+
     @SuppressWarnings("rawtypes")
     protected List<Bundle> getBundlesToStop(Collection<Bundle> bundles) {
         SortedMap<Integer, Set<Bundle>> bundlesPerStartLevel = new TreeMap<>();
@@ -1637,6 +1795,19 @@ public class Deployer {
         return provider.open();
     }
 
+    protected long getBundleChecksum(Resource resource, Map<String, StreamProvider> providers) throws IOException {
+        StreamProvider provider = providers.get(getUri(resource));
+        if (provider != null) {
+            // Providers may avoid reading the whole content again if it did not change
+            return provider.getChecksum();
+        }
+        try (
+                InputStream is = getBundleInputStream(resource, providers)
+        ) {
+            return ChecksumUtils.checksum(is);
+        }
+    }
+
     public static void ensureAllClassesLoaded(Bundle bundle) throws ClassNotFoundException {
         BundleWiring wiring = bundle.adapt(BundleWiring.class);
         if (wiring != null) {
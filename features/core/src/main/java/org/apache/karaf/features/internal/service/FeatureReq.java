@@ -22,6 +22,7 @@ import org.apache.karaf.features.Feature;
 import org.osgi.framework.Version;
 
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -114,6 +115,39 @@ public class FeatureReq {
         return allFeatures.keySet().stream().map(func).filter(Optional::isPresent).map(Optional::get);
     }
 
+    /**
+     * Checks if the name of this requirement can only match a feature with the very same name,
+     * in which case the matching feature can be looked up by name instead of scanning all features.
+     * A dot is considered literal as it is commonly used in feature names.
+     */
+    public boolean isLiteral() {
+        for (int i = 0; i < name.length(); i++) {
+            if ("\\[](){}^$|?*+".indexOf(name.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the latest feature with a version in the given range, preferring non blacklisted ones.
+     * @param versions the features sorted by version
+     */
+    public static Feature getLatestFeature(NavigableMap<Version, Feature> versions, VersionRange versionRange) {
+        Feature blacklisted = null;
+        for (Map.Entry<Version, Feature> entry : versions.descendingMap().entrySet()) {
+            if (versionRange.contains(entry.getKey())) {
+                if (!entry.getValue().isBlacklisted()) {
+                    return entry.getValue();
+                }
+                if (blacklisted == null) {
+                    blacklisted = entry.getValue();
+                }
+            }
+        }
+        return blacklisted;
+    }
+
     private static Feature getLatestFeature(Map<String, Feature> versions, VersionRange versionRange) {
         Feature feature = null;
         if (versions != null && !versions.isEmpty()) {
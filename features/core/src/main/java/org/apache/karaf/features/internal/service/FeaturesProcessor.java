@@ -46,4 +46,10 @@ public interface FeaturesProcessor {
      */
     void process(Features features);
 
+    /**
+     * Returns a fingerprint of the processing configuration, so that processed models may be cached.
+     * @return a fingerprint or <code>null</code> if processed models should not be cached
+     */
+    String getFingerprint();
+
 }
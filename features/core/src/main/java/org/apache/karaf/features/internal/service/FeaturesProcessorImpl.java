@@ -18,11 +18,13 @@
  */
 package org.apache.karaf.features.internal.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
@@ -61,6 +63,8 @@ public class FeaturesProcessorImpl implements FeaturesProcessor {
     // empty, but fully functional features processing configuration
     private FeaturesProcessing processing = new FeaturesProcessing();
 
+    private volatile String fingerprint;
+
     /**
      * Creates instance of features processor using 1 external URI, additional {@link Blacklist} instance
      * and additional set of override clauses.
@@ -124,6 +128,31 @@ public class FeaturesProcessorImpl implements FeaturesProcessor {
     public void addOverrides(Set<String> overrides) {
         processing.getBundleReplacements().getOverrideBundles()
                 .addAll(FeaturesProcessing.parseOverridesClauses(overrides));
+        fingerprint = null;
+    }
+
+    @Override
+    public String getFingerprint() {
+        String fp = fingerprint;
+        if (fp == null) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writeInstructions(baos);
+            if (baos.size() == 0) {
+                return null;
+            }
+            try {
+                StringBuilder sb = new StringBuilder();
+                for (byte b : MessageDigest.getInstance("SHA-256").digest(baos.toByteArray())) {
+                    sb.append(String.format("%02x", b & 0xff));
+                }
+                fp = sb.toString();
+            } catch (Exception e) {
+                LOG.debug("Can't compute features processing fingerprint", e);
+                return null;
+            }
+            fingerprint = fp;
+        }
+        return fp;
     }
 
     @Override
@@ -76,6 +76,27 @@ public class FeaturesServiceConfig {
     @Deprecated
     public final String overrides;
 
+    /**
+     * Skip the resolution of deployments whose inputs did not change since the last deployment
+     * that did not lead to any change
+     */
+    public final boolean resolutionCache;
+
+    /**
+     * Start independent bundles concurrently for all deployments
+     */
+    public final boolean parallelStartBundles;
+
+    /**
+     * Number of threads used to start bundles concurrently
+     */
+    public final int startThreads;
+
+    /**
+     * Keep downloaded non maven artifacts in a content addressed store, so that they are not downloaded again
+     */
+    public final boolean artifactStore;
+
     public FeaturesServiceConfig() {
         this(null, null, null, null);
     }
@@ -92,6 +113,10 @@ public class FeaturesServiceConfig {
     public FeaturesServiceConfig(String featureResolutionRange, String bundleUpdateRange, String updateSnapshots, int downloadThreads, long scheduleDelay, int scheduleMaxRun,
                                  String featureModifications, String featureProcessingVersions, String serviceRequirements) {
         this.overrides = null;
+        this.resolutionCache = FeaturesService.DEFAULT_RESOLUTION_CACHE;
+        this.parallelStartBundles = FeaturesService.DEFAULT_PARALLEL_START_BUNDLES;
+        this.startThreads = Runtime.getRuntime().availableProcessors();
+        this.artifactStore = FeaturesService.DEFAULT_ARTIFACT_STORE;
         this.featureResolutionRange = featureResolutionRange;
         this.bundleUpdateRange = bundleUpdateRange;
         this.updateSnapshots = updateSnapshots;
@@ -110,6 +135,18 @@ public class FeaturesServiceConfig {
                                  String blacklisted,
                                  String featureModifications, String featureProcessingVersions,
                                  String serviceRequirements) {
+        this(overrides, featureResolutionRange, bundleUpdateRange, updateSnapshots, downloadThreads, scheduleDelay, scheduleMaxRun,
+                blacklisted, featureModifications, featureProcessingVersions, serviceRequirements,
+                FeaturesService.DEFAULT_RESOLUTION_CACHE, FeaturesService.DEFAULT_PARALLEL_START_BUNDLES,
+                Runtime.getRuntime().availableProcessors(), FeaturesService.DEFAULT_ARTIFACT_STORE);
+    }
+
+    public FeaturesServiceConfig(String overrides, String featureResolutionRange, String bundleUpdateRange,
+                                 String updateSnapshots, int downloadThreads, long scheduleDelay, int scheduleMaxRun,
+                                 String blacklisted,
+                                 String featureModifications, String featureProcessingVersions,
+                                 String serviceRequirements, boolean resolutionCache,
+                                 boolean parallelStartBundles, int startThreads, boolean artifactStore) {
         this.overrides = overrides;
         this.featureResolutionRange = featureResolutionRange;
         this.bundleUpdateRange = bundleUpdateRange;
@@ -121,6 +158,10 @@ public class FeaturesServiceConfig {
         this.featureModifications = featureModifications;
         this.featureProcessingVersions = featureProcessingVersions;
         this.serviceRequirements = serviceRequirements;
+        this.resolutionCache = resolutionCache;
+        this.parallelStartBundles = parallelStartBundles;
+        this.startThreads = startThreads;
+        this.artifactStore = artifactStore;
     }
 
 }
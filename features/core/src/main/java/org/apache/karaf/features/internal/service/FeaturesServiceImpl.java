@@ -65,10 +65,12 @@ import org.apache.karaf.features.Repository;
 import org.apache.karaf.features.RepositoryEvent;
 import org.apache.karaf.features.internal.download.DownloadManager;
 import org.apache.karaf.features.internal.download.DownloadManagers;
+import org.apache.karaf.features.internal.download.impl.ArtifactStore;
 import org.apache.karaf.features.internal.model.Features;
 import org.apache.karaf.features.internal.model.JaxbUtil;
 import org.apache.karaf.features.internal.region.DigraphHelper;
 import org.apache.karaf.features.internal.service.BundleInstallSupport.FrameworkInfo;
+import org.apache.karaf.features.internal.util.ChecksumIndex;
 import org.apache.karaf.util.ThreadUtils;
 import org.apache.karaf.util.json.JsonReader;
 import org.apache.karaf.util.json.JsonWriter;
@@ -102,6 +104,13 @@ import static org.apache.karaf.features.internal.util.MapUtils.*;
 public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCallback {
 
     private static final String RESOLVE_FILE = "resolve";
+    private static final String RESOLUTION_CACHE_FILE = "resolution.json";
+    private static final String CHECKSUM_INDEX_FILE = "checksums.json";
+    private static final String ARTIFACT_STORE_DIR = "artifacts";
+    /**
+     * Folder of the precompiled repositories, in the data area of this bundle.
+     */
+    private static final String REPOSITORY_INDEX_DIR = "repositories";
     private static final Logger LOGGER = LoggerFactory.getLogger(FeaturesServiceImpl.class);
 
     /**
@@ -113,7 +122,11 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
     private final Resolver resolver;
     private final BundleInstallSupport installSupport;
     private final FeaturesServiceConfig cfg;
-    private RepositoryCache repositories;
+    private final ResolutionCache resolutionCache;
+    private final ChecksumIndex checksumIndex;
+    private final ArtifactStore artifactStore;
+    private final RepositoryIndex repositoryIndex;
+    private volatile RepositoryCache repositories;
     private FeaturesProcessor featuresProcessor;
 
     private final ThreadLocal<String> outputFile = new ThreadLocal<>();
@@ -137,7 +150,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
     private final ExecutorService executor;
 
     //the outer map's key is feature name, the inner map's key is feature version
-    private Map<String, Map<String, Feature>> featureCache;
+    private volatile Map<String, Map<String, Feature>> featureCache;
 
 
     public FeaturesServiceImpl(StateStorage storage,
@@ -154,8 +167,13 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         this.installSupport = installSupport;
         this.globalRepository = globalRepository;
         this.featuresProcessor = new FeaturesProcessorImpl(cfg);
-        this.repositories = new RepositoryCacheImpl(featuresProcessor);
+        File indexDir = installSupport.getDataFile(REPOSITORY_INDEX_DIR);
+        this.repositoryIndex = indexDir != null ? new RepositoryIndex(indexDir) : null;
+        this.repositories = new RepositoryCacheImpl(featuresProcessor, repositoryIndex);
         this.cfg = cfg;
+        this.resolutionCache = cfg.resolutionCache ? new ResolutionCache(installSupport.getDataFile(RESOLUTION_CACHE_FILE)) : null;
+        this.checksumIndex = new ChecksumIndex(installSupport.getDataFile(CHECKSUM_INDEX_FILE));
+        this.artifactStore = cfg.artifactStore ? createArtifactStore() : null;
         this.executor = Executors.newSingleThreadExecutor(ThreadUtils.namedThreadFactory("features"));
         loadState();
         checkResolve();
@@ -165,6 +183,19 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         this.executor.shutdown();
     }
 
+    /**
+     * @return the {@link ResolutionCache} used by deployments or <code>null</code> if disabled
+     */
+    public ResolutionCache getResolutionCache() {
+        return resolutionCache;
+    }
+
+    private static ArtifactStore createArtifactStore() {
+        String karafRoot = System.getProperty("karaf.home", "karaf");
+        String karafData = System.getProperty("karaf.data", karafRoot + "/data");
+        return new ArtifactStore(new File(karafData, ARTIFACT_STORE_DIR));
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     private void checkResolve() {
         File resolveFile = installSupport.getDataFile(RESOLVE_FILE);
@@ -495,36 +526,46 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         }
     }
 
+    @Override
+    public void clearRepositoryIndex() {
+        if (repositoryIndex != null) {
+            repositoryIndex.clear();
+        }
+    }
+
+    /**
+     * @return the index of precompiled repositories or <code>null</code> if not available
+     */
+    public RepositoryIndex getRepositoryIndex() {
+        return repositoryIndex;
+    }
+
     @Override
     public Repository[] listRepositories() throws Exception {
         ensureCacheLoaded();
-        synchronized (lock) {
-            return repositories.listRepositories();
-        }
+        return repositories.listRepositories();
     }
 
     @Override
     public Repository[] listRequiredRepositories() throws Exception {
         ensureCacheLoaded();
+        Set<String> uris;
         synchronized (lock) {
-            return repositories.listMatchingRepositories(state.repositories);
+            uris = new HashSet<>(state.repositories);
         }
+        return repositories.listMatchingRepositories(uris);
     }
 
     @Override
     public Repository getRepository(String name) throws Exception {
         ensureCacheLoaded();
-        synchronized (lock) {
-            return repositories.getRepositoryByName(name);
-        }
+        return repositories.getRepositoryByName(name);
     }
 
     @Override
     public Repository getRepository(URI uri) throws Exception {
         ensureCacheLoaded();
-        synchronized (lock) {
-            return repositories.getRepository(uri.toString());
-        }
+        return repositories.getRepository(uri.toString());
     }
 
     @Override
@@ -569,6 +610,13 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
     
     private Feature[] getFeatures(FeatureReq featureReq) throws Exception {
         Map<String, Map<String, Feature>> allFeatures = getFeatureCache();
+        if (featureReq.isLiteral()) {
+            // use the version index of the repository cache instead of scanning all features
+            Feature feature = FeatureReq.getLatestFeature(repositories.getFeatures(featureReq.getName()), featureReq.getVersionRange());
+            if (feature != null) {
+                return new Feature[] { feature };
+            }
+        }
         return featureReq.getMatchingFeatures(allFeatures).toArray(Feature[]::new);
     }
     
@@ -581,6 +629,10 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
      * @return map from feature name to map from feature version to Feature
      */
     protected Map<String, Map<String, Feature>> getFeatureCache() throws Exception {
+        Map<String, Map<String, Feature>> cache = featureCache;
+        if (cache != null) {
+            return cache;
+        }
         Set<String> uris;
         synchronized (lock) {
             if (featureCache != null) {
@@ -1042,6 +1094,11 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         request.requirements = requirements;
         request.stateChanges = stateChanges;
         request.options = options;
+        if (cfg.parallelStartBundles) {
+            request.options = EnumSet.copyOf(options);
+            request.options.add(Option.ParallelStartBundles);
+        }
+        request.startThreads = cfg.startThreads;
         request.outputFile = outputFile;
         return request;
     }
@@ -1059,7 +1116,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
                 try {
                     Deployer.DeploymentState dstate = getDeploymentState(state, featuresById);
                     Deployer.DeploymentRequest request = getDeploymentRequest(requirements, stateChanges, options, outputFile);
-                    new Deployer(manager, this.resolver, this).deploy(dstate, request);
+                    new Deployer(manager, this.resolver, this, resolutionCache).deploy(dstate, request);
                     break;
                 } catch (Deployer.PartialDeploymentException e) {
                     if (!prereqs.containsAll(e.getMissing())) {
@@ -1074,6 +1131,11 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
                     throw t;
                 }
             }
+        } finally {
+            checksumIndex.save();
+            if (artifactStore != null) {
+                artifactStore.save();
+            }
         }
     }
 
@@ -1082,7 +1144,8 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         MavenResolver resolver = MavenResolvers.createMavenResolver(props, "org.ops4j.pax.url.mvn");
         ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(cfg.downloadThreads, ThreadUtils.namedThreadFactory("downloader"));
         executor.setMaximumPoolSize(cfg.downloadThreads);
-        return DownloadManagers.createDownloadManager(resolver, executor, cfg.scheduleDelay, cfg.scheduleMaxRun);
+        return DownloadManagers.createDownloadManager(resolver, executor, cfg.scheduleDelay, cfg.scheduleMaxRun,
+                checksumIndex, artifactStore);
     }
 
     private Dictionary<String, String> getMavenConfig() throws IOException {
@@ -1223,7 +1286,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         }
         this.refreshRepositories(uris);
         this.featuresProcessor = new FeaturesProcessorImpl(cfg);
-        this.repositories = new RepositoryCacheImpl(featuresProcessor);
+        this.repositories = new RepositoryCacheImpl(featuresProcessor, repositoryIndex);
 
         State state = copyState();
         doProvisionInThread(state.requirements, emptyMap(), state, getFeaturesById(), options);
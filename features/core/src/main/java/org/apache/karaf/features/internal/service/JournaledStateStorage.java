@@ -0,0 +1,545 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link StateStorage} using a compact binary format instead of rewriting the whole JSON state at each save.</p>
+ * <p>The state is stored as a binary snapshot and an append-only journal of the changes made since that snapshot.
+ * Each save only appends the difference with the last saved state to the journal and syncs it to disk. Once the
+ * journal holds enough records, it is compacted into a new snapshot.</p>
+ * <p>Records are checksummed, so that a record partially written during a crash is detected and ignored.
+ * Snapshots are written to a temporary file, synced and atomically renamed, and the directory is synced after the
+ * rename. Both files carry a generation number so that a journal is only replayed on top of the snapshot it was
+ * written for.</p>
+ * <p>An existing JSON state is read through {@link #getInputStream()} and migrated on first load. The JSON file is
+ * only deleted once the snapshot has durably replaced it.</p>
+ */
+public class JournaledStateStorage extends StateStorage {
+
+    public static final String SNAPSHOT_FILE = "state.bin";
+    public static final String JOURNAL_FILE = "state.journal";
+    public static final String LEGACY_FILE = "state.json";
+
+    static final int DEFAULT_MAX_JOURNAL_RECORDS = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournaledStateStorage.class);
+
+    private static final int MAGIC = 0x4b465354; // KFST
+    private static final int VERSION = 1;
+
+    private static final byte OP_BOOT_DONE = 1;
+    private static final byte OP_REPOSITORY_ADD = 2;
+    private static final byte OP_REPOSITORY_REMOVE = 3;
+    private static final byte OP_REQUIREMENTS_PUT = 4;
+    private static final byte OP_REQUIREMENTS_REMOVE = 5;
+    private static final byte OP_INSTALLED_PUT = 6;
+    private static final byte OP_INSTALLED_REMOVE = 7;
+    private static final byte OP_STATE_PUT = 8;
+    private static final byte OP_STATE_REMOVE = 9;
+    private static final byte OP_MANAGED_ADD = 10;
+    private static final byte OP_MANAGED_REMOVE = 11;
+    private static final byte OP_MANAGED_DROP = 12;
+    private static final byte OP_CHECKSUM_PUT = 13;
+    private static final byte OP_CHECKSUM_REMOVE = 14;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File legacyFile;
+    private final int maxJournalRecords;
+
+    /**
+     * Last state written to disk, used to compute the changes to append to the journal
+     */
+    private State persisted;
+    private long generation;
+    private int journalRecords;
+
+    public JournaledStateStorage(File directory) {
+        this(directory, DEFAULT_MAX_JOURNAL_RECORDS);
+    }
+
+    JournaledStateStorage(File directory, int maxJournalRecords) {
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE);
+        this.journalFile = new File(directory, JOURNAL_FILE);
+        this.legacyFile = new File(directory, LEGACY_FILE);
+        this.maxJournalRecords = maxJournalRecords;
+    }
+
+    @Override
+    public synchronized void load(State state) throws IOException {
+        state.replace(new State());
+        generation = 0;
+        journalRecords = 0;
+        if (snapshotFile.isFile()) {
+            try (
+                    DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))
+            ) {
+                generation = readHeader(dis, snapshotFile);
+                byte[] record = readRecord(dis);
+                if (record == null) {
+                    throw new IOException("Corrupted state snapshot " + snapshotFile);
+                }
+                apply(state, record);
+            }
+            replayJournal(state);
+            persisted = state.copy();
+        } else {
+            // Migrate the JSON state if any
+            super.load(state);
+            persisted = null;
+            if (legacyFile.isFile()) {
+                LOGGER.info("Migrating features service state from {} to {}", legacyFile, snapshotFile);
+                compact(state);
+                Files.delete(legacyFile.toPath());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void save(State state) throws IOException {
+        if (persisted == null || journalRecords >= maxJournalRecords) {
+            compact(state);
+            return;
+        }
+        byte[] delta = diff(persisted, state);
+        if (delta.length == 0) {
+            return;
+        }
+        if (!journalFile.isFile()) {
+            resetJournal();
+        }
+        try (
+                FileOutputStream fos = new FileOutputStream(journalFile, true)
+        ) {
+            DataOutputStream dos = new DataOutputStream(fos);
+            writeRecord(dos, delta);
+            dos.flush();
+            fos.getFD().sync();
+        }
+        journalRecords++;
+        persisted = state.copy();
+    }
+
+    /**
+     * Writes a new snapshot of the given state and empties the journal.
+     */
+    synchronized void compact(State state) throws IOException {
+        long newGeneration = generation + 1;
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (
+                FileOutputStream fos = new FileOutputStream(tmp)
+        ) {
+            DataOutputStream dos = new DataOutputStream(fos);
+            writeHeader(dos, newGeneration);
+            writeRecord(dos, diff(new State(), state));
+            dos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(snapshotFile.getParentFile());
+        // A crash here leaves a journal with the previous generation, which is ignored
+        generation = newGeneration;
+        resetJournal();
+        persisted = state.copy();
+    }
+
+    int getJournalRecords() {
+        return journalRecords;
+    }
+
+    @Override
+    protected InputStream getInputStream() throws IOException {
+        return legacyFile.isFile() ? new FileInputStream(legacyFile) : null;
+    }
+
+    @Override
+    protected OutputStream getOutputStream() throws IOException {
+        // State is only written in the binary format
+        return null;
+    }
+
+    private void replayJournal(State state) throws IOException {
+        if (!journalFile.isFile()) {
+            return;
+        }
+        long valid;
+        try (
+                DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))
+        ) {
+            if (readHeader(dis, journalFile) != generation) {
+                LOGGER.debug("Ignoring stale journal {}", journalFile);
+                resetJournal();
+                return;
+            }
+            valid = headerLength();
+            byte[] record;
+            while ((record = readRecord(dis)) != null) {
+                apply(state, record);
+                journalRecords++;
+                valid += 8 + record.length;
+            }
+        }
+        if (valid < journalFile.length()) {
+            LOGGER.warn("Discarding incomplete record at the end of {}", journalFile);
+            try (
+                    RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")
+            ) {
+                raf.setLength(valid);
+                raf.getFD().sync();
+            }
+        }
+    }
+
+    private void resetJournal() throws IOException {
+        boolean created = !journalFile.exists();
+        try (
+                FileOutputStream fos = new FileOutputStream(journalFile)
+        ) {
+            DataOutputStream dos = new DataOutputStream(fos);
+            writeHeader(dos, generation);
+            dos.flush();
+            fos.getFD().sync();
+        }
+        if (created) {
+            syncDirectory(journalFile.getParentFile());
+        }
+        journalRecords = 0;
+    }
+
+    /**
+     * Syncs the given file and its directory, so that both its content and its directory entry survive a crash.
+     */
+    public static void sync(File file) throws IOException {
+        try (
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)
+        ) {
+            channel.force(true);
+        }
+        syncDirectory(file.getParentFile());
+    }
+
+    private static void syncDirectory(File directory) {
+        try (
+                FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)
+        ) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories can't be opened on some platforms (Windows), where this is not needed
+            LOGGER.debug("Unable to sync directory {}", directory, e);
+        }
+    }
+
+    //
+    // File format
+    //
+
+    private static int headerLength() {
+        return 4 + 4 + 8;
+    }
+
+    private static void writeHeader(DataOutputStream dos, long generation) throws IOException {
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeLong(generation);
+    }
+
+    private static long readHeader(DataInputStream dis, File file) throws IOException {
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Invalid state file " + file);
+        }
+        int version = dis.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported state file version " + version + " in " + file);
+        }
+        return dis.readLong();
+    }
+
+    private static void writeRecord(DataOutputStream dos, byte[] data) throws IOException {
+        dos.writeInt(data.length);
+        dos.writeInt(crc(data));
+        dos.write(data);
+    }
+
+    /**
+     * @return the record payload or <code>null</code> at the end of the file or if the record is incomplete
+     */
+    private static byte[] readRecord(DataInputStream dis) throws IOException {
+        try {
+            int length = dis.readInt();
+            int crc = dis.readInt();
+            if (length < 0 || length > dis.available()) {
+                return null;
+            }
+            byte[] data = new byte[length];
+            dis.readFully(data);
+            return crc(data) == crc ? data : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    //
+    // Changes
+    //
+
+    /**
+     * Computes the operations needed to go from the <code>from</code> state to the <code>to</code> state.
+     */
+    static byte[] diff(State from, State to) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        if (from.bootDone.get() != to.bootDone.get()) {
+            dos.writeByte(OP_BOOT_DONE);
+            dos.writeBoolean(to.bootDone.get());
+        }
+        for (String repo : to.repositories) {
+            if (!from.repositories.contains(repo)) {
+                dos.writeByte(OP_REPOSITORY_ADD);
+                writeString(dos, repo);
+            }
+        }
+        for (String repo : from.repositories) {
+            if (!to.repositories.contains(repo)) {
+                dos.writeByte(OP_REPOSITORY_REMOVE);
+                writeString(dos, repo);
+            }
+        }
+        diffStringSets(dos, from.requirements, to.requirements, OP_REQUIREMENTS_PUT, OP_REQUIREMENTS_REMOVE);
+        diffStringSets(dos, from.installedFeatures, to.installedFeatures, OP_INSTALLED_PUT, OP_INSTALLED_REMOVE);
+        for (Map.Entry<String, Map<String, String>> entry : to.stateFeatures.entrySet()) {
+            if (!Objects.equals(entry.getValue(), from.stateFeatures.get(entry.getKey()))) {
+                dos.writeByte(OP_STATE_PUT);
+                writeString(dos, entry.getKey());
+                dos.writeInt(entry.getValue().size());
+                for (Map.Entry<String, String> e : entry.getValue().entrySet()) {
+                    writeString(dos, e.getKey());
+                    writeString(dos, e.getValue());
+                }
+            }
+        }
+        for (String region : from.stateFeatures.keySet()) {
+            if (!to.stateFeatures.containsKey(region)) {
+                dos.writeByte(OP_STATE_REMOVE);
+                writeString(dos, region);
+            }
+        }
+        // Managed bundles and checksums are the biggest parts of the state, so only write what changed
+        for (Map.Entry<String, Set<Long>> entry : to.managedBundles.entrySet()) {
+            Set<Long> old = from.managedBundles.get(entry.getKey());
+            Set<Long> added = new TreeSet<>(entry.getValue());
+            Set<Long> removed = new TreeSet<>();
+            if (old != null) {
+                added.removeAll(old);
+                removed.addAll(old);
+                removed.removeAll(entry.getValue());
+            }
+            if (old == null || !added.isEmpty()) {
+                writeLongs(dos, OP_MANAGED_ADD, entry.getKey(), added);
+            }
+            if (!removed.isEmpty()) {
+                writeLongs(dos, OP_MANAGED_REMOVE, entry.getKey(), removed);
+            }
+        }
+        for (String region : from.managedBundles.keySet()) {
+            if (!to.managedBundles.containsKey(region)) {
+                dos.writeByte(OP_MANAGED_DROP);
+                writeString(dos, region);
+            }
+        }
+        for (Map.Entry<Long, Long> entry : to.bundleChecksums.entrySet()) {
+            if (!entry.getValue().equals(from.bundleChecksums.get(entry.getKey()))) {
+                dos.writeByte(OP_CHECKSUM_PUT);
+                dos.writeLong(entry.getKey());
+                dos.writeLong(entry.getValue());
+            }
+        }
+        for (Long id : from.bundleChecksums.keySet()) {
+            if (!to.bundleChecksums.containsKey(id)) {
+                dos.writeByte(OP_CHECKSUM_REMOVE);
+                dos.writeLong(id);
+            }
+        }
+        dos.flush();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Applies the operations of a record to the given state.
+     */
+    static void apply(State state, byte[] record) throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(record));
+        int op;
+        while ((op = dis.read()) >= 0) {
+            switch (op) {
+            case OP_BOOT_DONE:
+                state.bootDone.set(dis.readBoolean());
+                break;
+            case OP_REPOSITORY_ADD:
+                state.repositories.add(readString(dis));
+                break;
+            case OP_REPOSITORY_REMOVE:
+                state.repositories.remove(readString(dis));
+                break;
+            case OP_REQUIREMENTS_PUT:
+                state.requirements.put(readString(dis), readStrings(dis));
+                break;
+            case OP_REQUIREMENTS_REMOVE:
+                state.requirements.remove(readString(dis));
+                break;
+            case OP_INSTALLED_PUT:
+                state.installedFeatures.put(readString(dis), readStrings(dis));
+                break;
+            case OP_INSTALLED_REMOVE:
+                state.installedFeatures.remove(readString(dis));
+                break;
+            case OP_STATE_PUT: {
+                String region = readString(dis);
+                int size = dis.readInt();
+                Map<String, String> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(dis), readString(dis));
+                }
+                state.stateFeatures.put(region, map);
+                break;
+            }
+            case OP_STATE_REMOVE:
+                state.stateFeatures.remove(readString(dis));
+                break;
+            case OP_MANAGED_ADD: {
+                String region = readString(dis);
+                state.managedBundles.computeIfAbsent(region, r -> new HashSet<>()).addAll(readLongs(dis));
+                break;
+            }
+            case OP_MANAGED_REMOVE: {
+                String region = readString(dis);
+                Set<Long> ids = readLongs(dis);
+                Set<Long> managed = state.managedBundles.get(region);
+                if (managed != null) {
+                    managed.removeAll(ids);
+                }
+                break;
+            }
+            case OP_MANAGED_DROP:
+                state.managedBundles.remove(readString(dis));
+                break;
+            case OP_CHECKSUM_PUT:
+                state.bundleChecksums.put(dis.readLong(), dis.readLong());
+                break;
+            case OP_CHECKSUM_REMOVE:
+                state.bundleChecksums.remove(dis.readLong());
+                break;
+            default:
+                throw new IOException("Unknown state operation: " + op);
+            }
+        }
+    }
+
+    private static void diffStringSets(DataOutputStream dos, Map<String, Set<String>> from, Map<String, Set<String>> to,
+                                       byte putOp, byte removeOp) throws IOException {
+        for (Map.Entry<String, Set<String>> entry : to.entrySet()) {
+            if (!Objects.equals(entry.getValue(), from.get(entry.getKey()))) {
+                dos.writeByte(putOp);
+                writeString(dos, entry.getKey());
+                dos.writeInt(entry.getValue().size());
+                for (String s : entry.getValue()) {
+                    writeString(dos, s);
+                }
+            }
+        }
+        for (String region : from.keySet()) {
+            if (!to.containsKey(region)) {
+                dos.writeByte(removeOp);
+                writeString(dos, region);
+            }
+        }
+    }
+
+    private static void writeLongs(DataOutputStream dos, byte op, String region, Set<Long> values) throws IOException {
+        dos.writeByte(op);
+        writeString(dos, region);
+        dos.writeInt(values.size());
+        for (long value : values) {
+            dos.writeLong(value);
+        }
+    }
+
+    private static Set<Long> readLongs(DataInputStream dis) throws IOException {
+        int size = dis.readInt();
+        Set<Long> set = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            set.add(dis.readLong());
+        }
+        return set;
+    }
+
+    private static Set<String> readStrings(DataInputStream dis) throws IOException {
+        int size = dis.readInt();
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            set.add(readString(dis));
+        }
+        return set;
+    }
+
+    private static void writeString(DataOutputStream dos, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+        byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
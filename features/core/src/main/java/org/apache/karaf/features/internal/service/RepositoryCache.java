@@ -19,9 +19,12 @@
 package org.apache.karaf.features.internal.service;
 
 import java.net.URI;
+import java.util.NavigableMap;
 import java.util.Set;
 
+import org.apache.karaf.features.Feature;
 import org.apache.karaf.features.Repository;
+import org.osgi.framework.Version;
 
 /**
  * <p>An interface for accessing repository/features information. Simple implementations
@@ -87,4 +90,17 @@ public interface RepositoryCache {
      */
     Set<Repository> getRepositoryClosure(Repository repo);
 
+    /**
+     * Returns the features with the given name provided by cached {@link Repository repositories}
+     * @param name the name of the features
+     * @return a read-only map of features sorted by version, empty if there's no such feature
+     */
+    NavigableMap<Version, Feature> getFeatures(String name);
+
+    /**
+     * Returns the names of all the features provided by cached {@link Repository repositories}
+     * @return a read-only set of feature names
+     */
+    Set<String> getFeatureNames();
+
 }
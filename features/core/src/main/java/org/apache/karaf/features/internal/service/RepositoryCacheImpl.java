@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.features.internal.service;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -25,22 +26,48 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
+import org.apache.felix.utils.version.VersionTable;
+import org.apache.karaf.features.Feature;
 import org.apache.karaf.features.Repository;
 import org.apache.karaf.features.internal.model.Features;
+import org.apache.karaf.features.internal.model.JaxbUtil;
+import org.osgi.framework.Version;
 
 /**
  * Implementation of {@link RepositoryCache} that makes use of {@link FeaturesProcessor} to alter feature
  * definitions after reading them from XML file.
+ * Lookups are lock free and may be performed while repositories are added or removed.
  */
 public class RepositoryCacheImpl implements RepositoryCache {
 
-    private final Map<String, Repository> repositoryCache = new HashMap<>();
+    /** Repositories by URI */
+    private final ConcurrentMap<String, Repository> repositoryCache = new ConcurrentHashMap<>();
+    /** Repositories by name */
+    private final ConcurrentMap<String, Repository> repositoriesByName = new ConcurrentHashMap<>();
+    /** Features by name and version */
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Version, Feature>> featuresByName = new ConcurrentHashMap<>();
     private final FeaturesProcessor featuresProcessor;
+    private final RepositoryIndex repositoryIndex;
 
     public RepositoryCacheImpl(FeaturesProcessor featuresProcessor) {
+        this(featuresProcessor, null);
+    }
+
+    /**
+     * @param featuresProcessor the processor used to alter the features, may be <code>null</code>
+     * @param repositoryIndex the index of precompiled repositories, may be <code>null</code>
+     */
+    public RepositoryCacheImpl(FeaturesProcessor featuresProcessor, RepositoryIndex repositoryIndex) {
         this.featuresProcessor = featuresProcessor;
+        this.repositoryIndex = repositoryIndex;
     }
 
     @Override
@@ -48,6 +75,9 @@ public class RepositoryCacheImpl implements RepositoryCache {
         if (featuresProcessor != null && featuresProcessor.isRepositoryBlacklisted(uri.toString())) {
             return new RepositoryImpl(uri, new Features(), true);
         }
+        if (repositoryIndex != null && featuresProcessor != null) {
+            return createIndexed(uri, validate);
+        }
         RepositoryImpl repository = new RepositoryImpl(uri, validate);
         if (featuresProcessor != null) {
             // maybe it could be done better - first we have to set if entire repo is blacklisted
@@ -58,19 +88,42 @@ public class RepositoryCacheImpl implements RepositoryCache {
         return repository;
     }
 
+    private Repository createIndexed(URI uri, boolean validate) {
+        try {
+            byte[] content = repositoryIndex.read(uri);
+            String key = repositoryIndex.key(content, featuresProcessor.getFingerprint(), validate);
+            Features features = repositoryIndex.get(uri, key);
+            if (features != null) {
+                return new RepositoryImpl(uri, features, false);
+            }
+            features = JaxbUtil.unmarshal(uri.toASCIIString(), new ByteArrayInputStream(content), validate);
+            RepositoryImpl repository = new RepositoryImpl(uri, features, false);
+            repository.processFeatures(featuresProcessor);
+            repositoryIndex.put(uri, key, features);
+            return repository;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage() + " : " + uri, e);
+        }
+    }
+
     @Override
-    public void addRepository(Repository repository) {
+    public synchronized void addRepository(Repository repository) {
         String repoUriSt = repository.getURI().toString();
-        repositoryCache.put(repoUriSt, repository);
+        Repository old = repositoryCache.put(repoUriSt, repository);
+        if (old != null) {
+            unindex(old);
+        }
+        index(repository);
     }
 
     @Override
-    public void removeRepository(URI repositoryUri) {
+    public synchronized void removeRepository(URI repositoryUri) {
         List<String> toRemove = new ArrayList<>();
         toRemove.add(repositoryUri.toString());
         while (!toRemove.isEmpty()) {
             Repository rep = repositoryCache.remove(toRemove.remove(0));
             if (rep != null) {
+                unindex(rep);
                 for (URI u : rep.getRepositories()) {
                     toRemove.add(u.toString());
                 }
@@ -80,24 +133,20 @@ public class RepositoryCacheImpl implements RepositoryCache {
 
     @Override
     public Repository[] listRepositories() {
-        return repositoryCache.values().toArray(new Repository[repositoryCache.size()]);
+        return repositoryCache.values().toArray(new Repository[0]);
     }
 
     @Override
     public Repository[] listMatchingRepositories(Set<String> uris) {
-        return repositoryCache.values().stream()
-                .filter(r -> uris.contains(r.getURI().toString()))
+        return uris.stream()
+                .map(repositoryCache::get)
+                .filter(Objects::nonNull)
                 .toArray(Repository[]::new);
     }
 
     @Override
     public Repository getRepositoryByName(String name) {
-        for (Repository repo : this.repositoryCache.values()) {
-            if (name.equals(repo.getName())) {
-                return repo;
-            }
-        }
-        return null;
+        return repositoriesByName.get(name);
     }
 
     @Override
@@ -105,6 +154,65 @@ public class RepositoryCacheImpl implements RepositoryCache {
         return repositoryCache.get(uri);
     }
 
+    @Override
+    public NavigableMap<Version, Feature> getFeatures(String name) {
+        NavigableMap<Version, Feature> versions = featuresByName.get(name);
+        return versions != null ? Collections.unmodifiableNavigableMap(versions) : Collections.emptyNavigableMap();
+    }
+
+    @Override
+    public Set<String> getFeatureNames() {
+        return Collections.unmodifiableSet(featuresByName.keySet());
+    }
+
+    private void index(Repository repository) {
+        String name = repository.getName();
+        if (name != null) {
+            repositoriesByName.put(name, repository);
+        }
+        for (Feature feature : repository.getFeatures()) {
+            featuresByName.computeIfAbsent(feature.getName(), n -> new ConcurrentSkipListMap<>())
+                    .put(VersionTable.getVersion(feature.getVersion()), feature);
+        }
+    }
+
+    /**
+     * Removes the repository from the indexes, restoring entries of other repositories it may have shadowed.
+     */
+    private void unindex(Repository repository) {
+        String name = repository.getName();
+        if (name != null && repositoriesByName.remove(name, repository)) {
+            repositoryCache.values().stream()
+                    .filter(r -> name.equals(r.getName()))
+                    .findFirst()
+                    .ifPresent(r -> repositoriesByName.put(name, r));
+        }
+        Set<String> names = new HashSet<>();
+        for (Feature feature : repository.getFeatures()) {
+            names.add(feature.getName());
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        Map<String, ConcurrentNavigableMap<Version, Feature>> rebuilt = new HashMap<>();
+        for (Repository r : repositoryCache.values()) {
+            for (Feature feature : r.getFeatures()) {
+                if (names.contains(feature.getName())) {
+                    rebuilt.computeIfAbsent(feature.getName(), n -> new ConcurrentSkipListMap<>())
+                            .put(VersionTable.getVersion(feature.getVersion()), feature);
+                }
+            }
+        }
+        for (String n : names) {
+            ConcurrentNavigableMap<Version, Feature> versions = rebuilt.get(n);
+            if (versions != null) {
+                featuresByName.put(n, versions);
+            } else {
+                featuresByName.remove(n);
+            }
+        }
+    }
+
     /**
      * Returns a set containing the given repository and all its dependencies recursively
      */
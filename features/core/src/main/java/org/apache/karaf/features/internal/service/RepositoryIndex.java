@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.internal.model.Features;
+import org.apache.karaf.util.StreamUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Index of precompiled features repositories.</p>
+ * <p>Parsing (and optionally validating) features XML with JAXB and processing them with {@link FeaturesProcessor}
+ * is the main cost of loading repositories. This index stores the processed {@link Features} model of each
+ * repository in a binary form, keyed by the repository URI, the digest of the XML content and the
+ * {@link FeaturesProcessor#getFingerprint() fingerprint} of the processing configuration. When a repository is
+ * loaded again with the same content and processing configuration, the model is read back instead.</p>
+ * <p>The index is kept in the <code>repositories</code> folder of the features service bundle data area.</p>
+ */
+public class RepositoryIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryIndex.class);
+
+    private static final int MAGIC = 0x4b465249; // KFRI
+    private static final int VERSION = 1;
+
+    private final File directory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public RepositoryIndex(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the content of the repository at the given URI.
+     */
+    public byte[] read(URI uri) throws IOException {
+        try (
+                InputStream is = new RepositoryImpl.InterruptibleInputStream(uri.toURL().openStream())
+        ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            StreamUtils.copy(is, baos);
+            return baos.toByteArray();
+        }
+    }
+
+    /**
+     * Computes the key of a repository content processed with the given configuration fingerprint.
+     * @return the key or <code>null</code> if the processed model can't be cached
+     */
+    public String key(byte[] content, String fingerprint, boolean validate) {
+        if (fingerprint == null) {
+            return null;
+        }
+        return digest(content) + "/" + fingerprint + "/" + validate;
+    }
+
+    /**
+     * Loads the precompiled model of a repository.
+     * @param uri the repository URI
+     * @param key the key computed with {@link #key(byte[], String, boolean)}
+     * @return the processed model or <code>null</code> if the index does not contain it
+     */
+    public Features get(URI uri, String key) {
+        File file = getFile(uri);
+        if (key == null || !file.isFile()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (
+                DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))
+        ) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION
+                    || !uri.toString().equals(dis.readUTF()) || !key.equals(dis.readUTF())) {
+                misses.incrementAndGet();
+                return null;
+            }
+            Features features = (Features) new ModelInputStream(dis).readObject();
+            hits.incrementAndGet();
+            return features;
+        } catch (Exception e) {
+            LOGGER.debug("Unable to read precompiled repository {}", uri, e);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the processed model of a repository.
+     */
+    public void put(URI uri, String key, Features features) {
+        if (key == null) {
+            return;
+        }
+        File file = getFile(uri);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            directory.mkdirs();
+            try (
+                    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))
+            ) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                dos.writeUTF(uri.toString());
+                dos.writeUTF(key);
+                ObjectOutputStream oos = new ObjectOutputStream(dos);
+                oos.writeObject(features);
+                oos.flush();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to store precompiled repository {}", uri, e);
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Removes all precompiled repositories.
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    LOGGER.warn("Unable to delete " + file);
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private File getFile(URI uri) {
+        return new File(directory, digest(uri.toString().getBytes(StandardCharsets.UTF_8)) + ".bin");
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Only allows the features model to be deserialized, and loads its classes from this bundle.
+     */
+    static class ModelInputStream extends ObjectInputStream {
+
+        private static final String MODEL_PACKAGE = Features.class.getPackage().getName();
+
+        /**
+         * The other classes of the serialized model: its enum and the collection and boxed types of its fields.
+         */
+        private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+                BundleInfo.BundleOverrideMode.class.getName(),
+                ArrayList.class.getName(),
+                Boolean.class.getName(),
+                Integer.class.getName(),
+                Number.class.getName(),
+                Enum.class.getName()));
+
+        ModelInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            if (!isModelClass(name) && !ALLOWED_CLASSES.contains(name)) {
+                throw new InvalidClassException(name, "Unexpected class in precompiled repository");
+            }
+            return Class.forName(name, false, RepositoryIndex.class.getClassLoader());
+        }
+
+        private static boolean isModelClass(String name) {
+            return name.startsWith(MODEL_PACKAGE + ".") && name.indexOf('.', MODEL_PACKAGE.length() + 1) < 0;
+        }
+    }
+
+}
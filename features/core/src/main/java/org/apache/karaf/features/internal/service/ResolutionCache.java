@@ -0,0 +1,516 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Capability;
+import org.apache.karaf.features.Conditional;
+import org.apache.karaf.features.ConfigFileInfo;
+import org.apache.karaf.features.ConfigInfo;
+import org.apache.karaf.features.Dependency;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.Requirement;
+import org.apache.karaf.features.internal.resolver.ResolverUtil;
+import org.apache.karaf.features.internal.resolver.ResourceUtils;
+import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
+import org.osgi.framework.Bundle;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Cache of the last deployment inputs for which a full resolution did not lead to any change in the system.</p>
+ * <p>Most deployments triggered without any real change (boot features being installed again at each restart,
+ * <code>feature:install</code> of an already installed feature, ...) still have to go through the costly
+ * {@link org.apache.karaf.features.internal.region.SubsystemResolver} preparation and resolution. The cache
+ * stores a fingerprint of everything the resolution depends on (requirements, features definitions including
+ * their configurations, installed bundles, regions and deployment options) and allows the {@link Deployer} to
+ * skip the resolution when the same inputs are seen again.</p>
+ * <p>When the inputs did change, the cache still remembers which bundles the last resolution selected for each
+ * feature. The bundles of the features whose definition did not change are given to the resolver as preferred
+ * candidates, so that adding a feature to an existing system reuses the previous solution for everything else
+ * instead of searching it again. The resolver still validates the whole wiring, so a stale preference can only
+ * cost some backtracking, never a wrong result.</p>
+ * <p>The fingerprint is persisted next to the features service state, so that it survives restarts.</p>
+ */
+public class ResolutionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolutionCache.class);
+
+    private final File file;
+
+    private String fingerprint;
+    private long resolutionTime;
+    private Map<String, Selection> selections = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong timeSaved = new AtomicLong();
+    private final AtomicLong reusedFeatures = new AtomicLong();
+
+    /**
+     * @param file the file used to persist the cache, may be <code>null</code> for an in-memory only cache
+     */
+    public ResolutionCache(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Checks if the given fingerprint matches the last unchanged deployment and updates the statistics.
+     * @param fingerprint the fingerprint of the deployment inputs
+     * @return <code>true</code> if the resolution can be skipped
+     */
+    public synchronized boolean lookup(String fingerprint) {
+        if (fingerprint != null && fingerprint.equals(this.fingerprint)) {
+            hits.incrementAndGet();
+            timeSaved.addAndGet(resolutionTime);
+            return true;
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Remembers the fingerprint of deployment inputs for which the resolution did not change anything.
+     * @param fingerprint the fingerprint of the deployment inputs
+     * @param resolutionTime the time spent resolving, in milliseconds
+     */
+    public synchronized void store(String fingerprint, long resolutionTime) {
+        this.fingerprint = fingerprint;
+        this.resolutionTime = resolutionTime;
+        save();
+    }
+
+    public synchronized void invalidate() {
+        if (fingerprint != null) {
+            fingerprint = null;
+            resolutionTime = 0;
+            save();
+        }
+    }
+
+    /**
+     * Computes the bundles to prefer when resolving, i.e. the bundles selected by the last resolution for the
+     * features which are still defined the same way.
+     * @param featuresById the features currently available
+     * @return the identities (<code>symbolicName/version</code>) of the preferred bundles
+     */
+    public synchronized Set<String> getPreferredResources(Map<String, Feature> featuresById) {
+        Set<String> preferred = new HashSet<>();
+        for (Map.Entry<String, Selection> entry : selections.entrySet()) {
+            Feature feature = featuresById.get(entry.getKey());
+            if (feature != null && entry.getValue().hash.equals(hash(feature))) {
+                preferred.addAll(entry.getValue().resources);
+                reusedFeatures.incrementAndGet();
+            }
+        }
+        return preferred;
+    }
+
+    /**
+     * Remembers the bundles selected by a resolution for each feature, i.e. the bundles transitively wired
+     * from the feature resource.
+     * @param featuresPerRegion the resolved feature resources per region
+     * @param wiring the wiring computed by the resolver
+     * @param featuresById the features used for the resolution
+     */
+    public synchronized void storeSelection(Map<String, Set<Resource>> featuresPerRegion,
+                                            Map<Resource, List<Wire>> wiring,
+                                            Map<String, Feature> featuresById) {
+        Map<String, Selection> selections = new HashMap<>();
+        for (Set<Resource> features : featuresPerRegion.values()) {
+            for (Resource resource : features) {
+                String id = ResourceUtils.getFeatureId(resource);
+                Feature feature = id != null ? featuresById.get(id) : null;
+                if (feature == null) {
+                    continue;
+                }
+                Selection selection = selections.computeIfAbsent(id, i -> new Selection(hash(feature), new TreeSet<>()));
+                collectBundles(resource, wiring, selection.resources);
+            }
+        }
+        if (!selections.equals(this.selections)) {
+            this.selections = selections;
+            save();
+        }
+    }
+
+    private static void collectBundles(Resource feature, Map<Resource, List<Wire>> wiring, Set<String> bundles) {
+        Set<Resource> visited = new HashSet<>();
+        Deque<Resource> toVisit = new LinkedList<>();
+        toVisit.add(feature);
+        while (!toVisit.isEmpty()) {
+            Resource resource = toVisit.removeFirst();
+            List<Wire> wires = wiring.get(resource);
+            if (wires == null) {
+                continue;
+            }
+            for (Wire wire : wires) {
+                Resource provider = wire.getProvider();
+                String type = ResourceUtils.getType(provider);
+                // stop at other features and subsystems, they have their own selection
+                if (ResourceUtils.TYPE_FEATURE.equals(type) || ResourceUtils.TYPE_SUBSYSTEM.equals(type)
+                        || !visited.add(provider)) {
+                    continue;
+                }
+                if (ResolverUtil.getSymbolicName(provider) != null) {
+                    bundles.add(getIdentity(provider));
+                }
+                toVisit.add(provider);
+            }
+        }
+    }
+
+    /**
+     * @param resource a bundle resource
+     * @return the identity of the resource, as used by {@link #getPreferredResources(Map)}
+     */
+    private static String getIdentity(Resource resource) {
+        return ResolverUtil.getSymbolicName(resource) + "/" + ResolverUtil.getVersion(resource);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the estimated time saved by skipped resolutions, in milliseconds
+     */
+    public long getTimeSaved() {
+        return timeSaved.get();
+    }
+
+    /**
+     * @return the number of features for which the previous selection of bundles was reused
+     */
+    public long getReusedFeatures() {
+        return reusedFeatures.get();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void load() {
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try (
+                InputStream is = new FileInputStream(file)
+        ) {
+            Map json = (Map) JsonReader.read(is);
+            fingerprint = (String) json.get("fingerprint");
+            Object time = json.get("time");
+            resolutionTime = time instanceof Number ? ((Number) time).longValue() : 0;
+            Map features = (Map) json.get("features");
+            if (features != null) {
+                for (Object o : features.entrySet()) {
+                    Map.Entry entry = (Map.Entry) o;
+                    Map selection = (Map) entry.getValue();
+                    selections.put((String) entry.getKey(), new Selection((String) selection.get("hash"),
+                            new TreeSet<String>((Collection) selection.get("resources"))));
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading resolution cache from " + file, e);
+            fingerprint = null;
+            selections = new HashMap<>();
+        }
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        try (
+                OutputStream os = new FileOutputStream(file)
+        ) {
+            Map<String, Object> json = new HashMap<>();
+            json.put("fingerprint", fingerprint);
+            json.put("time", resolutionTime);
+            Map<String, Object> features = new TreeMap<>();
+            for (Map.Entry<String, Selection> entry : selections.entrySet()) {
+                Map<String, Object> selection = new HashMap<>();
+                selection.put("hash", entry.getValue().hash);
+                selection.put("resources", new ArrayList<>(entry.getValue().resources));
+                features.put(entry.getKey(), selection);
+            }
+            json.put("features", features);
+            JsonWriter.write(os, json);
+        } catch (IOException e) {
+            LOGGER.warn("Error saving resolution cache to " + file, e);
+        }
+    }
+
+    /**
+     * Checks if the result of the resolution for the given request only depends on what is covered
+     * by {@link #fingerprint(Deployer.DeploymentState, Deployer.DeploymentRequest)}.
+     * @param dstate the deployment state
+     * @param request the deployment request
+     * @return <code>true</code> if the cache can be used for this request
+     */
+    static boolean isCacheable(Deployer.DeploymentState dstate, Deployer.DeploymentRequest request) {
+        if (request.globalRepository != null
+                || request.outputFile != null
+                || (request.stateChanges != null && !request.stateChanges.isEmpty())
+                || request.options.contains(FeaturesService.Option.Simulate)
+                || request.options.contains(FeaturesService.Option.Upgrade)
+                || request.options.contains(FeaturesService.Option.DisplayFeaturesWiring)
+                || request.options.contains(FeaturesService.Option.DisplayAllWiring)) {
+            return false;
+        }
+        // Snapshots may have changed content without any visible change
+        if (request.updateSnaphots != null && request.updateSnaphots != FeaturesService.SnapshotUpdateBehavior.None) {
+            for (Collection<Long> ids : dstate.state.managedBundles.values()) {
+                for (long id : ids) {
+                    Bundle bundle = dstate.bundles.get(id);
+                    if (bundle != null && bundle.getLocation() != null
+                            && bundle.getLocation().matches(FeaturesService.UPDATEABLE_URIS)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes a fingerprint of all the inputs the deployment of the given request depends on.
+     * @param dstate the deployment state
+     * @param request the deployment request
+     * @return a hex encoded SHA-256 digest
+     */
+    static String fingerprint(Deployer.DeploymentState dstate, Deployer.DeploymentRequest request) {
+        Digest digest = new Digest();
+        // Request
+        digest.add("request")
+                .add(request.featureResolutionRange)
+                .add(request.bundleUpdateRange)
+                .add(request.serviceRequirements)
+                .add(request.updateSnaphots);
+        for (FeaturesService.Option option : request.options) {
+            if (option != FeaturesService.Option.Verbose) {
+                digest.add(option);
+            }
+        }
+        digest.add("requirements").add(new TreeMap<>(request.requirements));
+        // Features service state
+        digest.add("state")
+                .add(new TreeMap<>(dstate.state.requirements))
+                .add(new TreeMap<>(dstate.state.installedFeatures))
+                .add(new TreeMap<>(dstate.state.stateFeatures))
+                .add(new TreeMap<>(dstate.state.managedBundles));
+        // Framework
+        digest.add("framework")
+                .add(dstate.initialBundleStartLevel)
+                .add(dstate.currentStartLevel);
+        for (Bundle bundle : new TreeMap<>(dstate.bundles).values()) {
+            digest.add(bundle.getBundleId())
+                    .add(bundle.getLocation())
+                    .add(bundle.getLastModified())
+                    .add((bundle.getState() & Bundle.ACTIVE) != 0);
+        }
+        // Regions
+        digest.add("regions")
+                .add(new TreeMap<>(dstate.bundlesPerRegion))
+                .add(new TreeMap<>(dstate.filtersPerRegion));
+        // Features
+        digest.add("features");
+        for (Feature feature : new TreeMap<>(dstate.featuresById()).values()) {
+            addFeature(digest, feature);
+        }
+        return digest.toHex();
+    }
+
+    static String hash(Feature feature) {
+        Digest digest = new Digest();
+        addFeature(digest, feature);
+        return digest.toHex();
+    }
+
+    private static void addFeature(Digest digest, Feature feature) {
+        digest.add(feature.getId())
+                .add(feature.getInstall())
+                .add(feature.getStartLevel())
+                .add(feature.isBlacklisted())
+                .add(feature.getScoping() != null);
+        for (Dependency dependency : feature.getDependencies()) {
+            digest.add(dependency.getName())
+                    .add(dependency.getVersion())
+                    .add(dependency.isPrerequisite())
+                    .add(dependency.isDependency());
+        }
+        for (BundleInfo bundle : feature.getBundles()) {
+            digest.add(bundle.getLocation())
+                    .add(bundle.getStartLevel())
+                    .add(bundle.isStart())
+                    .add(bundle.isDependency())
+                    .add(bundle.isBlacklisted());
+        }
+        for (Capability capability : feature.getCapabilities()) {
+            digest.add(capability.getValue());
+        }
+        for (Requirement requirement : feature.getRequirements()) {
+            digest.add(requirement.getValue());
+        }
+        for (ConfigInfo config : feature.getConfigurations()) {
+            digest.add("config")
+                    .add(config.getName())
+                    .add(config.getValue())
+                    .add(config.isAppend())
+                    .add(config.isOverride())
+                    .add(config.isExternal());
+        }
+        for (ConfigFileInfo configFile : feature.getConfigurationFiles()) {
+            digest.add("configfile")
+                    .add(configFile.getLocation())
+                    .add(configFile.getFinalname())
+                    .add(configFile.isOverride())
+                    .addContent(configFile.getLocation());
+        }
+        for (Conditional conditional : feature.getConditional()) {
+            digest.add("conditional").add(conditional.getCondition());
+            addFeature(digest, conditional.asFeature());
+        }
+    }
+
+    /**
+     * Bundles selected for a feature by the last resolution.
+     */
+    private static class Selection {
+
+        final String hash;
+        final Set<String> resources;
+
+        Selection(String hash, Set<String> resources) {
+            this.hash = hash;
+            this.resources = resources;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Selection)) {
+                return false;
+            }
+            Selection selection = (Selection) o;
+            return hash.equals(selection.hash) && resources.equals(selection.resources);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * hash.hashCode() + resources.hashCode();
+        }
+    }
+
+    /**
+     * Small helper feeding a {@link MessageDigest} with a canonical form of values.
+     */
+    private static class Digest {
+
+        private final MessageDigest md;
+
+        Digest() {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Digest add(Object value) {
+            if (value instanceof Map) {
+                md.update((byte) '{');
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    add(entry.getKey());
+                    add(entry.getValue() instanceof Map
+                            ? new TreeMap<>((Map<?, ?>) entry.getValue())
+                            : entry.getValue());
+                }
+                md.update((byte) '}');
+            } else if (value instanceof Collection) {
+                md.update((byte) '[');
+                Collection<?> col = (Collection<?>) value;
+                for (Object o : col.stream().allMatch(o -> o instanceof Comparable) ? new TreeSet<>(col) : col) {
+                    add(o);
+                }
+                md.update((byte) ']');
+            } else {
+                md.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the content of a local file, which may change behind the same location.
+         * Other locations (maven artifacts, ...) are only identified by the location.
+         */
+        Digest addContent(String location) {
+            if (location != null && location.startsWith("file:")) {
+                try {
+                    md.update(Files.readAllBytes(Paths.get(new URI(location))));
+                } catch (Exception e) {
+                    LOGGER.debug("Unable to read {}", location, e);
+                }
+            }
+            md.update((byte) 0);
+            return this;
+        }
+
+        String toHex() {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        }
+    }
+
+}
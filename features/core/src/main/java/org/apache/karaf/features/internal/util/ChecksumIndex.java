@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent index of {@link ChecksumUtils#checksum(InputStream) checksums} of files, so that files which did
+ * not change (same path, length and last modification time) don't need to be read again, even across restarts.
+ * <p>
+ * SNAPSHOT artifacts can be rebuilt with the same length within the resolution of the last modification time,
+ * or copied with their original modification time, so their content is always checked and they are not indexed.
+ */
+public class ChecksumIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumIndex.class);
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * @param file the file used to persist the index, may be <code>null</code> for an in-memory only index
+     */
+    public ChecksumIndex(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Returns the checksum of the given file, computing it only if the file changed since it was last indexed.
+     * @param f the file
+     * @return the {@link java.util.zip.CRC32} checksum of the file content
+     * @throws IOException if the file can't be read
+     */
+    public long checksum(File f) throws IOException {
+        String key = f.getAbsolutePath();
+        if (isSnapshot(key)) {
+            return read(f);
+        }
+        long length = f.length();
+        long modified = f.lastModified();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.length == length && entry.modified == modified) {
+            return entry.checksum;
+        }
+        long checksum = read(f);
+        entries.put(key, new Entry(length, modified, checksum));
+        dirty = true;
+        return checksum;
+    }
+
+    private static long read(File f) throws IOException {
+        try (InputStream is = new FileInputStream(f)) {
+            return ChecksumUtils.checksum(is);
+        }
+    }
+
+    private static boolean isSnapshot(String path) {
+        return path.contains("-SNAPSHOT");
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Persists the index if it changed, dropping entries for files which don't exist anymore
+     * and for SNAPSHOT artifacts indexed by previous versions.
+     */
+    public synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        entries.keySet().removeIf(path -> isSnapshot(path) || !new File(path).isFile());
+        Map<String, Object> json = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Entry e = entry.getValue();
+            json.put(entry.getKey(), Arrays.asList(e.length, e.modified, e.checksum));
+        }
+        try (
+                OutputStream os = new FileOutputStream(file)
+        ) {
+            JsonWriter.write(os, json);
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.warn("Error saving checksum index to " + file, e);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void load() {
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try (
+                InputStream is = new FileInputStream(file)
+        ) {
+            Map<?, ?> json = (Map) JsonReader.read(is);
+            for (Map.Entry<?, ?> entry : json.entrySet()) {
+                List values = (List) entry.getValue();
+                entries.put(entry.getKey().toString(), new Entry(
+                        ((Number) values.get(0)).longValue(),
+                        ((Number) values.get(1)).longValue(),
+                        ((Number) values.get(2)).longValue()));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading checksum index from " + file, e);
+            entries.clear();
+        }
+    }
+
+    private static class Entry {
+        final long length;
+        final long modified;
+        final long checksum;
+
+        Entry(long length, long modified, long checksum) {
+            this.length = length;
+            this.modified = modified;
+            this.checksum = checksum;
+        }
+    }
+
+}
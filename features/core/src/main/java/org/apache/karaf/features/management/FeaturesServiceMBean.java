@@ -157,4 +157,32 @@ public interface FeaturesServiceMBean {
 
     void uninstallFeature(String name, String version, boolean noRefresh, boolean deleteConfigurations) throws Exception;
 
+    /**
+     * Number of deployments which skipped the resolution because their inputs did not change.
+     *
+     * @return the resolution cache hits, or 0 if the resolution cache is disabled.
+     */
+    long getResolutionCacheHits();
+
+    /**
+     * Number of deployments which required a full resolution.
+     *
+     * @return the resolution cache misses, or 0 if the resolution cache is disabled.
+     */
+    long getResolutionCacheMisses();
+
+    /**
+     * Estimated time saved by the resolution cache.
+     *
+     * @return the time saved in milliseconds.
+     */
+    long getResolutionCacheTimeSaved();
+
+    /**
+     * Number of features for which a resolution reused the bundles selected by the previous resolution.
+     *
+     * @return the reused features, or 0 if the resolution cache is disabled.
+     */
+    long getResolutionCacheReusedFeatures();
+
 }
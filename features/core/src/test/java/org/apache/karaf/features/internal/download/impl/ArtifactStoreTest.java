@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ArtifactStoreTest {
+
+    @Test
+    public void testStoreAndLink() throws Exception {
+        File dir = Files.createTempDirectory("store").toFile();
+        File root = new File(dir, "artifacts");
+        byte[] content = "bundle".getBytes(StandardCharsets.UTF_8);
+
+        ArtifactStore store = new ArtifactStore(root);
+        assertNull(store.get("http://host/a.jar", "etag:1"));
+
+        File tmp1 = new File(dir, "tmp1");
+        Files.write(tmp1.toPath(), content);
+        File stored = store.put("http://host/a.jar", "etag:1", tmp1);
+        assertFalse(tmp1.exists());
+
+        // Same content from another url is only stored once
+        File tmp2 = new File(dir, "tmp2");
+        Files.write(tmp2.toPath(), content);
+        assertEquals(stored, store.put("http://mirror/a.jar", "etag:2", tmp2));
+        assertFalse(tmp2.exists());
+
+        File target = new File(dir, "a.jar");
+        store.link(stored, target);
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertReadOnly(stored);
+        assertReadOnly(target);
+
+        store.save();
+        store = new ArtifactStore(root);
+        assertEquals(stored, store.get("http://host/a.jar", "etag:1"));
+        assertEquals(stored, store.get("http://mirror/a.jar", "etag:2"));
+        assertEquals("etag:1", store.getValidator("http://host/a.jar"));
+
+        // The content behind the url changed
+        assertNull(store.get("http://host/a.jar", "etag:3"));
+    }
+
+    @Test
+    public void testPruneUnreferenced() throws Exception {
+        File dir = Files.createTempDirectory("store").toFile();
+        File root = new File(dir, "artifacts");
+        ArtifactStore store = new ArtifactStore(root);
+
+        File tmp1 = new File(dir, "tmp1");
+        Files.write(tmp1.toPath(), "bundle 1".getBytes(StandardCharsets.UTF_8));
+        File stored1 = store.put("http://host/a.jar", "etag:1", tmp1);
+        File tmp2 = new File(dir, "tmp2");
+        Files.write(tmp2.toPath(), "bundle 2".getBytes(StandardCharsets.UTF_8));
+        File stored2 = store.put("http://host/b.jar", "etag:1", tmp2);
+        File target = new File(dir, "a.jar");
+        store.link(stored1, target);
+
+        // The content behind the url changed
+        File tmp3 = new File(dir, "tmp3");
+        Files.write(tmp3.toPath(), "bundle 3".getBytes(StandardCharsets.UTF_8));
+        File stored3 = store.put("http://host/a.jar", "etag:2", tmp3);
+        store.save();
+
+        assertFalse(stored1.exists());
+        assertTrue(stored2.isFile());
+        assertTrue(stored3.isFile());
+        // The linked copy is left alone
+        assertTrue(target.isFile());
+        assertEquals(stored3, new ArtifactStore(root).get("http://host/a.jar", "etag:2"));
+    }
+
+    private static void assertReadOnly(File file) throws Exception {
+        if (Files.getFileStore(file.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            assertFalse(Files.getPosixFilePermissions(file.toPath()).contains(PosixFilePermission.OWNER_WRITE));
+        } else {
+            assertFalse(file.canWrite());
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.io.File;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.karaf.features.internal.download.Downloader;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MavenDownloadManagerTest {
+
+    @Test
+    public void testDownloadsAreShared() throws Exception {
+        SyntheticDownloadManager manager = new SyntheticDownloadManager(new ScheduledThreadPoolExecutor(4));
+        try {
+            AtomicInteger callbacks = new AtomicInteger();
+            Downloader downloader1 = manager.createDownloader();
+            Downloader downloader2 = manager.createDownloader();
+            for (int i = 0; i < 100; i++) {
+                downloader1.download("synthetic:" + i, provider -> callbacks.incrementAndGet());
+                downloader2.download("synthetic:" + i, provider -> callbacks.incrementAndGet());
+            }
+            downloader1.await();
+            downloader2.await();
+
+            assertEquals(200, callbacks.get());
+            assertEquals(100, manager.created.get());
+            assertEquals(100, manager.getProviders().size());
+            assertEquals(0, manager.getPending());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testNestedDownloads() throws Exception {
+        SyntheticDownloadManager manager = new SyntheticDownloadManager(new ScheduledThreadPoolExecutor(4));
+        try {
+            Downloader downloader = manager.createDownloader();
+            for (int i = 0; i < 10; i++) {
+                final int idx = i;
+                downloader.download("synthetic:" + i, provider -> {
+                    for (int j = 0; j < 10; j++) {
+                        downloader.download("synthetic:" + idx + "/" + j, null);
+                    }
+                });
+            }
+            downloader.await();
+
+            assertEquals(110, manager.getProviders().size());
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * A {@link MavenDownloadManager} which "downloads" non maven locations instantly.
+     */
+    static class SyntheticDownloadManager extends MavenDownloadManager {
+
+        final AtomicInteger created = new AtomicInteger();
+
+        SyntheticDownloadManager(ScheduledExecutorService executorService) {
+            super(null, executorService, 0, 1);
+        }
+
+        @Override
+        protected AbstractDownloadTask createCustomDownloadTask(String url) {
+            created.incrementAndGet();
+            return new AbstractDownloadTask(executorService, url) {
+                @Override
+                public void run() {
+                    setFile(new File(url));
+                }
+            };
+        }
+    }
+
+}
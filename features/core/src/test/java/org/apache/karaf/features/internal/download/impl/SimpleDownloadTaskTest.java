@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SimpleDownloadTaskTest {
+
+    private File dir;
+    private String karafData;
+    private ScheduledExecutorService executor;
+    private ArtifactStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("download").toFile();
+        karafData = System.getProperty("karaf.data");
+        System.setProperty("karaf.data", dir.getPath());
+        executor = new ScheduledThreadPoolExecutor(1);
+        store = new ArtifactStore(new File(dir, "artifacts"));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if (karafData != null) {
+            System.setProperty("karaf.data", karafData);
+        } else {
+            System.clearProperty("karaf.data");
+        }
+    }
+
+    @Test
+    public void testChangedFileIsDownloadedAgain() throws Exception {
+        File source = new File(dir, "a.jar");
+        Files.write(source.toPath(), "v1".getBytes(StandardCharsets.UTF_8));
+        String url = source.toURI().toString();
+
+        assertEquals("v1", download(url, "tmp1"));
+        assertEquals("v1", download(url, "tmp2"));
+
+        Files.write(source.toPath(), "v2-changed".getBytes(StandardCharsets.UTF_8));
+        assertEquals("v2-changed", download(url, "tmp3"));
+    }
+
+    @Test
+    public void testChangedHttpContentIsDownloadedAgain() throws Exception {
+        String[] content = {"v1"};
+        AtomicInteger downloads = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/a.jar", exchange -> {
+            String etag = "\"" + content[0] + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                downloads.incrementAndGet();
+                byte[] data = content[0].getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, data.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(data);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/a.jar";
+
+            assertEquals("v1", download(url, "tmp1"));
+            assertEquals("v1", download(url, "tmp2"));
+            assertEquals(1, downloads.get());
+
+            content[0] = "v2";
+            assertEquals("v2", download(url, "tmp3"));
+            assertEquals(2, downloads.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private String download(String url, String basePath) throws Exception {
+        SimpleDownloadTask task = new SimpleDownloadTask(executor, url, new File(dir, basePath), store);
+        return new String(Files.readAllBytes(task.download(null).toPath()), StandardCharsets.UTF_8);
+    }
+
+}
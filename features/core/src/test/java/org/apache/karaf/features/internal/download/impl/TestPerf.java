@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.apache.karaf.features.internal.download.Downloader;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Measures the throughput of {@link MavenDownloadManager} <code>download()</code> + <code>await()</code>
+ * with thousands of synthetic locations downloaded concurrently by several downloaders.
+ */
+@Ignore
+public class TestPerf {
+
+    private static final int LOCATIONS = 5000;
+
+    @Test
+    public void testDownloadThroughput() throws Exception {
+        for (int threads : new int[] { 1, 4, 16, 32 }) {
+            for (int i = 0; i < 5; i++) {
+                long t = measure(threads);
+                System.out.println("threads = " + threads + ", "
+                        + (LOCATIONS * threads * 1000L / Math.max(1, t)) + " downloads/s");
+            }
+        }
+    }
+
+    private long measure(int threads) throws Exception {
+        MavenDownloadManagerTest.SyntheticDownloadManager manager =
+                new MavenDownloadManagerTest.SyntheticDownloadManager(new ScheduledThreadPoolExecutor(8));
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try {
+            Callable<Void> task = () -> {
+                Downloader downloader = manager.createDownloader();
+                for (int i = 0; i < LOCATIONS; i++) {
+                    downloader.download("synthetic:" + i, null);
+                }
+                downloader.await();
+                return null;
+            };
+            System.gc();
+            long t0 = System.currentTimeMillis();
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(callers.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            return System.currentTimeMillis() - t0;
+        } finally {
+            callers.shutdown();
+            manager.close();
+        }
+    }
+
+}
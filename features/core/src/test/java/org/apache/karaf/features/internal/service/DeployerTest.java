@@ -19,6 +19,7 @@ package org.apache.karaf.features.internal.service;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,6 +30,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.jar.Manifest;
 
 import org.apache.felix.resolver.ResolverImpl;
@@ -49,6 +51,8 @@ import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
 import org.osgi.service.resolver.Resolver;
@@ -58,6 +62,8 @@ import org.slf4j.LoggerFactory;
 import static org.apache.karaf.features.FeaturesService.*;
 import static org.apache.karaf.features.internal.util.MapUtils.addToMapSet;
 import static org.easymock.EasyMock.anyInt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class DeployerTest {
@@ -509,6 +515,57 @@ public class DeployerTest {
         }
     }
 
+    @Test
+    public void testParallelStartRespectsWiring() throws Exception {
+        String dataDir = "data3";
+        TestBundle a = createTestBundle(1, Bundle.RESOLVED, dataDir, "a100");
+        TestBundle b = createTestBundle(2, Bundle.RESOLVED, dataDir, "b100");
+        TestBundle c = createTestBundle(3, Bundle.RESOLVED, dataDir, "c100");
+
+        // c is wired to a
+        Map<Resource, List<Wire>> wiring = new HashMap<>();
+        wiring.put(c, Collections.singletonList(new Wire() {
+            public Capability getCapability() {
+                return null;
+            }
+            public Requirement getRequirement() {
+                return null;
+            }
+            public Resource getProvider() {
+                return a;
+            }
+            public Resource getRequirer() {
+                return c;
+            }
+        }));
+
+        List<Bundle> started = Collections.synchronizedList(new ArrayList<>());
+        Deployer.DeployCallback callback = EasyMock.createNiceMock(Deployer.DeployCallback.class);
+        callback.startBundle(EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(() -> {
+            Bundle bundle = (Bundle) EasyMock.getCurrentArguments()[0];
+            if (bundle == a) {
+                Thread.sleep(100);
+            }
+            started.add(bundle);
+            return null;
+        }).anyTimes();
+        EasyMock.replay(callback);
+
+        Deployer deployer = new Deployer(new TestDownloadManager(getClass(), dataDir), resolver, callback);
+        ExecutorService executor = deployer.createStartExecutor(4);
+        List<Exception> exceptions = new ArrayList<>();
+        try {
+            deployer.startBundles(Arrays.asList(a, b, c), wiring, Collections.emptyMap(), executor, exceptions, false);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(3, started.size());
+        assertTrue(started.indexOf(a) < started.indexOf(c));
+        assertTrue(exceptions.isEmpty());
+    }
+
     private TestBundle createTestBundle(long bundleId, int state, String dir, String name) throws IOException, BundleException {
         URL loc = getClass().getResource(dir + "/" + name + ".mf");
         Manifest man = new Manifest(loc.openStream());
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JournaledStateStorageTest {
+
+    @Test
+    public void testMigrateAndJournal() throws Exception {
+        File dir = Files.createTempDirectory("state").toFile();
+        State state = createState();
+
+        // Write a JSON state with the default storage
+        new StateStorage() {
+            @Override
+            protected InputStream getInputStream() {
+                return null;
+            }
+            @Override
+            protected OutputStream getOutputStream() throws IOException {
+                return new FileOutputStream(new File(dir, JournaledStateStorage.LEGACY_FILE));
+            }
+        }.save(state);
+
+        JournaledStateStorage storage = new JournaledStateStorage(dir);
+        State loaded = new State();
+        storage.load(loaded);
+        assertStateEquals(state, loaded);
+        assertTrue(new File(dir, JournaledStateStorage.SNAPSHOT_FILE).isFile());
+        assertFalse(new File(dir, JournaledStateStorage.LEGACY_FILE).exists());
+
+        // Changes are appended to the journal
+        loaded.managedBundles.get("reg2").remove(24L);
+        loaded.managedBundles.get("reg2").add(51L);
+        loaded.managedBundles.remove("reg");
+        loaded.bundleChecksums.put(51L, 1234L);
+        loaded.stateFeatures.put("reg2", Collections.singletonMap("f1/1.0.0", "Started"));
+        storage.save(loaded);
+        storage.save(loaded);
+        assertEquals(1, storage.getJournalRecords());
+
+        State reloaded = new State();
+        new JournaledStateStorage(dir).load(reloaded);
+        assertStateEquals(loaded, reloaded);
+    }
+
+    @Test
+    public void testFailedMigrationKeepsLegacyState() throws Exception {
+        File dir = Files.createTempDirectory("state").toFile();
+        File legacy = new File(dir, JournaledStateStorage.LEGACY_FILE);
+        new StateStorage() {
+            @Override
+            protected InputStream getInputStream() {
+                return null;
+            }
+            @Override
+            protected OutputStream getOutputStream() throws IOException {
+                return new FileOutputStream(legacy);
+            }
+        }.save(createState());
+        // The snapshot can't be written
+        assertTrue(new File(dir, JournaledStateStorage.SNAPSHOT_FILE + ".tmp").mkdir());
+
+        try {
+            new JournaledStateStorage(dir).load(new State());
+            fail("The migration should have failed");
+        } catch (IOException e) {
+            // expected
+        }
+        assertTrue(legacy.isFile());
+        assertFalse(new File(dir, JournaledStateStorage.SNAPSHOT_FILE).exists());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        File dir = Files.createTempDirectory("state").toFile();
+        JournaledStateStorage storage = new JournaledStateStorage(dir, 3);
+        State state = createState();
+        storage.load(new State());
+        storage.save(state);
+        for (long id = 100; id < 110; id++) {
+            state.managedBundles.get("reg").add(id);
+            storage.save(state);
+            assertTrue(storage.getJournalRecords() <= 3);
+        }
+        State reloaded = new State();
+        new JournaledStateStorage(dir, 3).load(reloaded);
+        assertStateEquals(state, reloaded);
+    }
+
+    @Test
+    public void testIncompleteRecord() throws Exception {
+        File dir = Files.createTempDirectory("state").toFile();
+        JournaledStateStorage storage = new JournaledStateStorage(dir);
+        State state = createState();
+        storage.load(new State());
+        storage.save(state);
+        state.repositories.add("repo2");
+        storage.save(state);
+
+        // Simulate a crash while appending a record
+        File journal = new File(dir, JournaledStateStorage.JOURNAL_FILE);
+        long length = journal.length();
+        try (OutputStream os = new FileOutputStream(journal, true)) {
+            os.write(new byte[] {0, 0, 0, 42, 1, 2, 3});
+        }
+
+        State reloaded = new State();
+        new JournaledStateStorage(dir).load(reloaded);
+        assertStateEquals(state, reloaded);
+        assertEquals(length, journal.length());
+    }
+
+    private State createState() {
+        State state = new State();
+        state.bootDone.set(true);
+        state.bundleChecksums.put(4L, 32794L);
+        state.requirements.put("bar", new HashSet<>(Collections.singleton("f1")));
+        state.installedFeatures.put("bar", new HashSet<>(Collections.singleton("f1/1.0.0")));
+        state.stateFeatures.put("bar", new HashMap<>(Collections.singletonMap("f1/1.0.0", "Resolved")));
+        state.managedBundles.put("reg", new HashSet<>(Collections.singleton(32L)));
+        state.managedBundles.put("reg2", new HashSet<>(Arrays.asList(24L, 43L)));
+        state.repositories.add("repo");
+        return state;
+    }
+
+    private void assertStateEquals(State expected, State actual) {
+        assertEquals(expected.bootDone.get(), actual.bootDone.get());
+        assertEquals(expected.repositories, actual.repositories);
+        assertEquals(expected.requirements, actual.requirements);
+        assertEquals(expected.installedFeatures, actual.installedFeatures);
+        assertEquals(expected.stateFeatures, actual.stateFeatures);
+        assertEquals(expected.managedBundles, actual.managedBundles);
+        assertEquals(expected.bundleChecksums, actual.bundleChecksums);
+    }
+
+}
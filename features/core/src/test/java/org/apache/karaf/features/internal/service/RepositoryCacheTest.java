@@ -20,13 +20,21 @@ package org.apache.karaf.features.internal.service;
 
 import java.net.URI;
 
+import org.apache.felix.utils.version.VersionRange;
 import org.apache.karaf.features.Repository;
+import org.apache.karaf.features.internal.model.Feature;
+import org.apache.karaf.features.internal.model.Features;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class RepositoryCacheTest {
 
@@ -67,4 +75,63 @@ public class RepositoryCacheTest {
                 cache.getRepository("urn:r1"));
     }
 
+    @Test
+    public void indexes() throws Exception {
+        RepositoryCacheImpl cache = new RepositoryCacheImpl(null);
+        Repository repo1 = repository("urn:r1", "repo1", new Feature("f1", "1.0.0"), new Feature("f1", "1.2.0"));
+        Repository repo2 = repository("urn:r2", "repo2", new Feature("f1", "2.0.0"), new Feature("f2", "1.0.0"));
+        cache.addRepository(repo1);
+        cache.addRepository(repo2);
+
+        assertSame(repo1, cache.getRepositoryByName("repo1"));
+        assertSame(repo2, cache.getRepositoryByName("repo2"));
+        assertEquals(3, cache.getFeatures("f1").size());
+        assertEquals("2.0.0", cache.getFeatures("f1").lastEntry().getValue().getVersion());
+        assertEquals("1.2.0", FeatureReq.getLatestFeature(cache.getFeatures("f1"),
+                new VersionRange("[1,2)")).getVersion());
+        assertTrue(cache.getFeatureNames().contains("f2"));
+
+        cache.removeRepository(repo2.getURI());
+        assertNull(cache.getRepositoryByName("repo2"));
+        assertEquals(2, cache.getFeatures("f1").size());
+        assertTrue(cache.getFeatures("f2").isEmpty());
+        assertFalse(cache.getFeatureNames().contains("f2"));
+    }
+
+    @Test
+    public void shadowedFeaturesAreRestored() throws Exception {
+        RepositoryCacheImpl cache = new RepositoryCacheImpl(null);
+        Repository repo1 = repository("urn:r1", "repo", new Feature("f1", "1.0.0"));
+        Repository repo2 = repository("urn:r2", "repo", new Feature("f1", "1.0.0"));
+        cache.addRepository(repo1);
+        cache.addRepository(repo2);
+        assertSame(repo2.getFeatures()[0], cache.getFeatures("f1").firstEntry().getValue());
+
+        cache.removeRepository(repo2.getURI());
+        assertSame(repo1, cache.getRepositoryByName("repo"));
+        assertSame(repo1.getFeatures()[0], cache.getFeatures("f1").firstEntry().getValue());
+    }
+
+    @Test
+    public void latestFeaturePrefersNonBlacklisted() throws Exception {
+        Feature f1 = new Feature("f1", "1.0.0");
+        Feature f2 = new Feature("f1", "2.0.0");
+        f2.setBlacklisted(true);
+        RepositoryCacheImpl cache = new RepositoryCacheImpl(null);
+        cache.addRepository(repository("urn:r1", "repo", f1, f2));
+        assertSame(f1, FeatureReq.getLatestFeature(cache.getFeatures("f1"), VersionRange.ANY_VERSION));
+        assertSame(f2, FeatureReq.getLatestFeature(cache.getFeatures("f1"), new VersionRange("[2,3)")));
+        assertTrue(new FeatureReq("f1/1.0.0").isLiteral());
+        assertFalse(new FeatureReq("f.*").isLiteral());
+    }
+
+    private Repository repository(String uri, String name, Feature... features) {
+        Features model = new Features();
+        model.setName(name);
+        for (Feature feature : features) {
+            model.getFeature().add(feature);
+        }
+        return new RepositoryImpl(URI.create(uri), model, false);
+    }
+
 }
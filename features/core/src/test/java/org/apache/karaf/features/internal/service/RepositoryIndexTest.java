@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.Repository;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class RepositoryIndexTest {
+
+    @Test
+    public void testPrecompiledRepository() throws Exception {
+        File dir = Files.createTempDirectory("index").toFile();
+        URI uri = getClass().getResource("f01.xml").toURI();
+        RepositoryIndex index = new RepositoryIndex(dir);
+        FeaturesProcessorImpl processor = new FeaturesProcessorImpl(new FeaturesServiceConfig());
+
+        Repository repo1 = new RepositoryCacheImpl(processor, index).create(uri, false);
+        assertEquals(0, index.getHits());
+        Repository repo2 = new RepositoryCacheImpl(processor, index).create(uri, false);
+        assertEquals(1, index.getHits());
+
+        assertEquals(repo1.getName(), repo2.getName());
+        assertEquals(repo1.getFeatures().length, repo2.getFeatures().length);
+        for (int i = 0; i < repo1.getFeatures().length; i++) {
+            Feature f1 = repo1.getFeatures()[i];
+            Feature f2 = repo2.getFeatures()[i];
+            assertEquals(f1.getId(), f2.getId());
+            assertEquals(f1.getBundles().size(), f2.getBundles().size());
+        }
+
+        // A different processing configuration or validation leads to a different key
+        byte[] content = index.read(uri);
+        assertNotNull(index.get(uri, index.key(content, processor.getFingerprint(), false)));
+        assertNull(index.get(uri, index.key(content, processor.getFingerprint(), true)));
+        assertNull(index.get(uri, index.key(content, "other", false)));
+
+        index.clear();
+        assertNull(index.get(uri, index.key(content, processor.getFingerprint(), false)));
+    }
+
+    @Test
+    public void testUnexpectedClass() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(new HashMap<>(Collections.singletonMap("key", 1L)));
+        }
+        try (ObjectInputStream ois = new RepositoryIndex.ModelInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            ois.readObject();
+            fail("Only the classes of the features model should be deserialized");
+        } catch (InvalidClassException e) {
+            assertEquals(HashMap.class.getName(), e.classname);
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.felix.utils.resource.ResourceImpl;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.internal.model.Bundle;
+import org.apache.karaf.features.internal.model.Config;
+import org.apache.karaf.features.internal.model.ConfigFile;
+import org.apache.karaf.features.internal.model.Feature;
+import org.apache.karaf.features.internal.resolver.FeatureResource;
+import org.junit.Test;
+import org.osgi.framework.Version;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+
+import static org.apache.karaf.features.FeaturesService.ROOT_REGION;
+import static org.apache.karaf.features.internal.util.MapUtils.addToMapSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResolutionCacheTest {
+
+    @Test
+    public void testFingerprint() {
+        Deployer.DeploymentState dstate = createDeploymentState();
+        Deployer.DeploymentRequest request = Deployer.DeploymentRequest.defaultDeploymentRequest();
+        addToMapSet(request.requirements, ROOT_REGION, "feature:f1/0.0.0");
+
+        String fp1 = ResolutionCache.fingerprint(dstate, request);
+        assertEquals(fp1, ResolutionCache.fingerprint(dstate, request));
+
+        request.options.add(FeaturesService.Option.Verbose);
+        assertEquals(fp1, ResolutionCache.fingerprint(dstate, request));
+
+        addToMapSet(request.requirements, ROOT_REGION, "feature:f2/0.0.0");
+        assertNotEquals(fp1, ResolutionCache.fingerprint(dstate, request));
+    }
+
+    @Test
+    public void testFeatureConfigurationsHash() throws Exception {
+        Feature feature = new Feature("f1", "1.0.0");
+        Config config = new Config();
+        config.setName("my.pid");
+        config.setValue("key = value1");
+        feature.getConfig().add(config);
+        File file = File.createTempFile("config", ".cfg");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "key = value1".getBytes(StandardCharsets.UTF_8));
+        ConfigFile configFile = new ConfigFile();
+        configFile.setLocation(file.toURI().toString());
+        configFile.setFinalname("etc/my.cfg");
+        feature.getConfigfile().add(configFile);
+
+        String hash = ResolutionCache.hash(feature);
+        assertEquals(hash, ResolutionCache.hash(feature));
+
+        config.setValue("key = value2");
+        assertNotEquals(hash, ResolutionCache.hash(feature));
+        config.setValue("key = value1");
+        assertEquals(hash, ResolutionCache.hash(feature));
+
+        // The content of a local configuration file can change behind the same location
+        Files.write(file.toPath(), "key = value2".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(hash, ResolutionCache.hash(feature));
+    }
+
+    @Test
+    public void testCacheable() {
+        Deployer.DeploymentState dstate = createDeploymentState();
+        Deployer.DeploymentRequest request = Deployer.DeploymentRequest.defaultDeploymentRequest();
+        assertTrue(ResolutionCache.isCacheable(dstate, request));
+
+        request.options.add(FeaturesService.Option.Simulate);
+        assertFalse(ResolutionCache.isCacheable(dstate, request));
+    }
+
+    @Test
+    public void testLookupAndPersistence() throws Exception {
+        File file = File.createTempFile("resolution", ".json");
+        file.deleteOnExit();
+        file.delete();
+
+        ResolutionCache cache = new ResolutionCache(file);
+        assertFalse(cache.lookup("abc"));
+        cache.store("abc", 100);
+        assertTrue(cache.lookup("abc"));
+        assertFalse(cache.lookup("def"));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(100, cache.getTimeSaved());
+
+        cache = new ResolutionCache(file);
+        assertTrue(cache.lookup("abc"));
+        cache.invalidate();
+        assertFalse(cache.lookup("abc"));
+        assertFalse(new ResolutionCache(file).lookup("abc"));
+    }
+
+    @Test
+    public void testPreferredResources() throws Exception {
+        File file = File.createTempFile("resolution", ".json");
+        file.deleteOnExit();
+        file.delete();
+
+        Feature f1 = new Feature("f1", "1.0.0");
+        Feature f2 = new Feature("f2", "1.0.0");
+        Resource r1 = FeatureResource.build(f1, null, Collections.emptyMap());
+        Resource r2 = FeatureResource.build(f2, null, Collections.emptyMap());
+        Resource b1 = new ResourceImpl("b1", "osgi.bundle", new Version(1, 0, 0));
+        Resource b2 = new ResourceImpl("b2", "osgi.bundle", new Version(2, 0, 0));
+        Resource b3 = new ResourceImpl("b3", "osgi.bundle", new Version(3, 0, 0));
+
+        // f1 -> b1 -> b2, f2 -> b3
+        Map<Resource, List<Wire>> wiring = new HashMap<>();
+        wiring.put(r1, Collections.singletonList(wire(r1, b1)));
+        wiring.put(b1, Collections.singletonList(wire(b1, b2)));
+        wiring.put(r2, Collections.singletonList(wire(r2, b3)));
+        Map<String, Set<Resource>> featuresPerRegion = new HashMap<>();
+        featuresPerRegion.put(ROOT_REGION, new HashSet<>(Arrays.asList(r1, r2)));
+        Map<String, org.apache.karaf.features.Feature> featuresById = new HashMap<>();
+        featuresById.put(f1.getId(), f1);
+        featuresById.put(f2.getId(), f2);
+
+        ResolutionCache cache = new ResolutionCache(file);
+        assertTrue(cache.getPreferredResources(featuresById).isEmpty());
+        cache.storeSelection(featuresPerRegion, wiring, featuresById);
+        assertEquals(new HashSet<>(Arrays.asList("b1/1.0.0", "b2/2.0.0", "b3/3.0.0")),
+                cache.getPreferredResources(featuresById));
+        assertEquals(2, cache.getReusedFeatures());
+
+        // The selection survives restarts, and is only reused for unchanged features
+        cache = new ResolutionCache(file);
+        Feature f2b = new Feature("f2", "1.0.0");
+        f2b.getBundle().add(new Bundle("mvn:foo/bar/1.0"));
+        featuresById.put(f2b.getId(), f2b);
+        assertEquals(new HashSet<>(Arrays.asList("b1/1.0.0", "b2/2.0.0")),
+                cache.getPreferredResources(featuresById));
+        assertEquals(1, cache.getReusedFeatures());
+    }
+
+    private static Wire wire(Resource requirer, Resource provider) {
+        return new Wire() {
+            public Capability getCapability() {
+                return null;
+            }
+
+            public Requirement getRequirement() {
+                return null;
+            }
+
+            public Resource getProvider() {
+                return provider;
+            }
+
+            public Resource getRequirer() {
+                return requirer;
+            }
+        };
+    }
+
+    private Deployer.DeploymentState createDeploymentState() {
+        Deployer.DeploymentState dstate = new Deployer.DeploymentState();
+        dstate.state = new State();
+        dstate.bundles = new HashMap<>();
+        dstate.bundlesPerRegion = new HashMap<>();
+        dstate.filtersPerRegion = new HashMap<>();
+        dstate.partitionFeatures(Collections.emptyList());
+        return dstate;
+    }
+
+}
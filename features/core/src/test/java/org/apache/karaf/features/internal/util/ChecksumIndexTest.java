@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChecksumIndexTest {
+
+    @Test
+    public void testChecksumAndPersistence() throws Exception {
+        File dir = Files.createTempDirectory("checksums").toFile();
+        File indexFile = new File(dir, "checksums.json");
+        File artifact = new File(dir, "artifact.jar");
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        Files.write(artifact.toPath(), content);
+        long expected = ChecksumUtils.checksum(new ByteArrayInputStream(content));
+
+        ChecksumIndex index = new ChecksumIndex(indexFile);
+        assertEquals(expected, index.checksum(artifact));
+        index.save();
+
+        index = new ChecksumIndex(indexFile);
+        assertEquals(1, index.size());
+        assertEquals(expected, index.checksum(artifact));
+
+        // Modified content is detected through the length / last modification time
+        content = "some other content".getBytes(StandardCharsets.UTF_8);
+        Files.write(artifact.toPath(), content);
+        assertEquals(ChecksumUtils.checksum(new ByteArrayInputStream(content)), index.checksum(artifact));
+
+        // Entries for deleted files are pruned
+        Files.delete(artifact.toPath());
+        index.save();
+        assertEquals(0, new ChecksumIndex(indexFile).size());
+    }
+
+    @Test
+    public void testSnapshotContentIsChecked() throws Exception {
+        File dir = Files.createTempDirectory("checksums").toFile();
+        File indexFile = new File(dir, "checksums.json");
+        File artifact = new File(dir, "artifact-1.0-SNAPSHOT.jar");
+        byte[] content = "content 1".getBytes(StandardCharsets.UTF_8);
+        Files.write(artifact.toPath(), content);
+        FileTime modified = Files.getLastModifiedTime(artifact.toPath());
+
+        ChecksumIndex index = new ChecksumIndex(indexFile);
+        assertEquals(ChecksumUtils.checksum(new ByteArrayInputStream(content)), index.checksum(artifact));
+        assertEquals(0, index.size());
+
+        // Rebuilt with the same length and last modification time
+        content = "content 2".getBytes(StandardCharsets.UTF_8);
+        Files.write(artifact.toPath(), content);
+        Files.setLastModifiedTime(artifact.toPath(), modified);
+        assertEquals(ChecksumUtils.checksum(new ByteArrayInputStream(content)), index.checksum(artifact));
+    }
+
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.karaf.http.core;
 
+import java.util.List;
+
 public interface BalancingPolicy {
 
     /**
@@ -26,4 +28,25 @@ public interface BalancingPolicy {
      */
     String selectHost(String[] targets);
 
+    /**
+     * Select a target proxy upstream in the given list. This method allows the policy to use the current
+     * load of the upstreams, by default it selects the upstream of the host returned by {@link #selectHost(String[])}.
+     *
+     * @param upstreams the list of available upstreams.
+     * @return the selected upstream in the list.
+     */
+    default UpstreamInfo selectUpstream(List<? extends UpstreamInfo> upstreams) {
+        String[] targets = new String[upstreams.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = upstreams.get(i).getLocation();
+        }
+        String host = selectHost(targets);
+        for (UpstreamInfo upstream : upstreams) {
+            if (upstream.getLocation().equals(host)) {
+                return upstream;
+            }
+        }
+        return null;
+    }
+
 }
@@ -44,6 +44,14 @@ public interface HttpMBean {
      */
     Collection<String> getProxyBalancingPolicies() throws MBeanException;
 
+    /**
+     * List the upstreams of the HTTP proxies, with their load, latency and throughput statistics.
+     *
+     * @return A {@link TabularData} containing the upstreams information.
+     * @throws MBeanException In case of MBean failure.
+     */
+    TabularData getProxyUpstreams() throws MBeanException;
+
     /**
      * Add a new HTTP proxy using URL, proxyTo and prefix.
      */
@@ -18,6 +18,7 @@ package org.apache.karaf.http.core;
 
 import java.util.Collection;
 import java.util.Dictionary;
+import java.util.List;
 import java.util.Map;
 
 public interface ProxyService {
@@ -30,6 +31,14 @@ public interface ProxyService {
 
     void removeProxy(String url) throws Exception;
 
+    /**
+     * Get the upstreams of a proxy, with their statistics.
+     *
+     * @param url the proxy URL.
+     * @return the upstreams of the proxy, empty if the proxy doesn't exist.
+     */
+    List<? extends UpstreamInfo> getUpstreams(String url);
+
     void update(Dictionary<String, ?> properties);
 
 }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core;
+
+/**
+ * Runtime state and statistics of an upstream (a target location) of a HTTP proxy.
+ */
+public interface UpstreamInfo {
+
+    /**
+     * @return the location of the upstream, as defined in the proxy targets.
+     */
+    String getLocation();
+
+    /**
+     * @return true if the upstream can be selected, false if it has been ejected after consecutive failures
+     * or if it failed the last health check.
+     */
+    boolean isAvailable();
+
+    /**
+     * @return the number of requests currently in progress on the upstream.
+     */
+    int getOutstandingRequests();
+
+    /**
+     * @return the number of requests sent to the upstream.
+     */
+    long getRequests();
+
+    /**
+     * @return the number of failed requests (I/O errors and 502, 503 or 504 statuses).
+     */
+    long getFailures();
+
+    /**
+     * @return the exponentially weighted moving average of the latency (time to get the response headers), in milliseconds.
+     */
+    double getAverageLatency();
+
+    /**
+     * @return the maximum latency, in milliseconds.
+     */
+    long getMaxLatency();
+
+    /**
+     * @return the number of requests per second, measured on the last window of at least ten seconds.
+     */
+    double getThroughput();
+
+}
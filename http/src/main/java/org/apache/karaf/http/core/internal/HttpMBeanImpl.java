@@ -85,6 +85,30 @@ public class HttpMBeanImpl extends StandardMBean implements HttpMBean {
         }
     }
 
+    @Override
+    public TabularData getProxyUpstreams() throws MBeanException {
+        try {
+            String[] names = new String[]{"URL", "Upstream", "Available", "Outstanding Requests", "Requests", "Failures", "Average Latency", "Max Latency", "Throughput"};
+            CompositeType upstreamType = new CompositeType("Upstream", "HTTP proxy upstream", names,
+                new String[]{"URL of the proxy", "Location of the upstream", "Whether the upstream can be selected", "Number of requests in progress",
+                        "Number of requests", "Number of failed requests", "Average latency in milliseconds", "Maximum latency in milliseconds", "Number of requests per second"},
+                new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.BOOLEAN, SimpleType.INTEGER, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.LONG, SimpleType.DOUBLE});
+            TabularType tableType = new TabularType("Upstreams", "Table of all HTTP proxy upstreams", upstreamType, new String[]{"URL", "Upstream"});
+            TabularData table = new TabularDataSupport(tableType);
+            for (String url : proxyService.getProxies().keySet()) {
+                for (UpstreamInfo upstream : proxyService.getUpstreams(url)) {
+                    CompositeData data = new CompositeDataSupport(upstreamType, names,
+                            new Object[]{url, upstream.getLocation(), upstream.isAvailable(), upstream.getOutstandingRequests(), upstream.getRequests(),
+                                    upstream.getFailures(), upstream.getAverageLatency(), upstream.getMaxLatency(), upstream.getThroughput()});
+                    table.put(data);
+                }
+            }
+            return table;
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
     @Override
     public void addProxy(String url, String proxyTo, String balancingPolicy) throws MBeanException {
         try {
@@ -19,6 +19,7 @@ package org.apache.karaf.http.core.internal;
 import org.apache.karaf.http.core.BalancingPolicy;
 import org.apache.karaf.http.core.Proxy;
 import org.apache.karaf.http.core.ProxyService;
+import org.apache.karaf.http.core.UpstreamInfo;
 import org.apache.karaf.http.core.internal.proxy.ProxyServlet;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
@@ -37,10 +38,28 @@ public class ProxyServiceImpl implements ProxyService {
     protected static final String CONFIGURATION_PID = "org.apache.karaf.http";
     protected static final String CONFIGURATION_KEY = "proxies";
 
+    protected static final String ASYNC_KEY = "proxy.async";
+    protected static final String ASYNC_THREADS_KEY = "proxy.async.threads";
+    protected static final String ASYNC_QUEUE_SIZE_KEY = "proxy.async.queue.size";
+    protected static final String ASYNC_TIMEOUT_KEY = "proxy.async.timeout";
+    protected static final String CONNECT_TIMEOUT_KEY = "proxy.connect.timeout";
+    protected static final String CONNECTION_REQUEST_TIMEOUT_KEY = "proxy.connection.request.timeout";
+    protected static final String SOCKET_TIMEOUT_KEY = "proxy.socket.timeout";
+    protected static final String MAX_CONNECTIONS_KEY = "proxy.max.connections";
+    protected static final String MAX_CONNECTIONS_PER_UPSTREAM_KEY = "proxy.max.connections.per.upstream";
+    protected static final String EJECTION_FAILURES_KEY = "proxy.ejection.failures";
+    protected static final String EJECTION_TIME_KEY = "proxy.ejection.time";
+    protected static final String HEALTH_CHECK_INTERVAL_KEY = "proxy.health.check.interval";
+    protected static final String HEALTH_CHECK_PATH_KEY = "proxy.health.check.path";
+    protected static final String STREAMING_KEY = "proxy.streaming";
+    protected static final String BUFFER_SIZE_KEY = "proxy.buffer.size";
+
     private ConfigurationAdmin configurationAdmin;
     private HttpService httpService;
     private BundleContext bundleContext;
     private Map<String, Proxy> proxies;
+    private Map<String, ProxyServlet> servlets = new HashMap<>();
+    private Map<String, String> settings = new HashMap<>();
 
     public ProxyServiceImpl(HttpService httpService, ConfigurationAdmin configurationAdmin, BundleContext bundleContext) {
         this.httpService = httpService;
@@ -84,15 +103,40 @@ public class ProxyServiceImpl implements ProxyService {
         LOG.debug("removing proxy {}", url);
         httpService.unregister(url);
         proxies.remove(url);
+        servlets.remove(url);
         updateConfiguration();
     }
 
+    @Override
+    public List<? extends UpstreamInfo> getUpstreams(String url) {
+        ProxyServlet servlet = servlets.get(url);
+        return servlet != null ? servlet.getUpstreams() : Collections.emptyList();
+    }
+
     @Override
     public void update(Dictionary<String, ?> properties) {
         LOG.debug("update proxies");
         if (properties == null) {
             return;
         }
+        Map<String, String> settings = new HashMap<>();
+        for (Enumeration<String> keys = properties.keys(); keys.hasMoreElements(); ) {
+            String key = keys.nextElement();
+            if (key.startsWith("proxy.")) {
+                settings.put(key, properties.get(key).toString());
+            }
+        }
+        if (!settings.equals(this.settings)) {
+            this.settings = settings;
+            // the servlets of the existing proxies are registered again with the new settings
+            for (Proxy proxy : new ArrayList<>(proxies.values())) {
+                LOG.debug("updating proxy {}", proxy.getUrl());
+                httpService.unregister(proxy.getUrl());
+                proxies.remove(proxy.getUrl());
+                servlets.remove(proxy.getUrl());
+                addProxyInternal(proxy);
+            }
+        }
         if (properties.get(CONFIGURATION_KEY) != null && (properties.get(CONFIGURATION_KEY) instanceof String[])) {
             String[] proxiesArray = (String[]) properties.get(CONFIGURATION_KEY);
             for (String proxyString : proxiesArray) {
@@ -122,6 +166,7 @@ public class ProxyServiceImpl implements ProxyService {
         try {
             ProxyServlet proxyServlet = new ProxyServlet();
             proxyServlet.setProxyTo(proxy.getProxyTo());
+            configure(proxyServlet);
             if (proxy.getBalancingPolicy() != null) {
                 Collection<ServiceReference<BalancingPolicy>> serviceReferences = bundleContext.getServiceReferences(BalancingPolicy.class, "(type=" + proxy.getBalancingPolicy() + ")");
                 if (serviceReferences != null && serviceReferences.size() == 1) {
@@ -131,11 +176,60 @@ public class ProxyServiceImpl implements ProxyService {
             }
             httpService.registerServlet(proxy.getUrl(), proxyServlet, new Hashtable(), null);
             proxies.put(proxy.getUrl(), proxy);
+            servlets.put(proxy.getUrl(), proxyServlet);
         } catch (Exception e) {
             LOG.error("Can't add {} proxy to {}", proxy.getUrl(), proxy.getProxyTo(), e);
         }
     }
 
+    private void configure(ProxyServlet proxyServlet) {
+        if (settings.containsKey(ASYNC_KEY)) {
+            proxyServlet.setAsync(Boolean.parseBoolean(settings.get(ASYNC_KEY)));
+        }
+        if (settings.containsKey(ASYNC_THREADS_KEY)) {
+            proxyServlet.setAsyncThreads(Integer.parseInt(settings.get(ASYNC_THREADS_KEY)));
+        }
+        if (settings.containsKey(ASYNC_QUEUE_SIZE_KEY)) {
+            proxyServlet.setAsyncQueueSize(Integer.parseInt(settings.get(ASYNC_QUEUE_SIZE_KEY)));
+        }
+        if (settings.containsKey(ASYNC_TIMEOUT_KEY)) {
+            proxyServlet.setAsyncTimeout(Long.parseLong(settings.get(ASYNC_TIMEOUT_KEY)));
+        }
+        if (settings.containsKey(CONNECT_TIMEOUT_KEY)) {
+            proxyServlet.setConnectTimeout(Integer.parseInt(settings.get(CONNECT_TIMEOUT_KEY)));
+        }
+        if (settings.containsKey(CONNECTION_REQUEST_TIMEOUT_KEY)) {
+            proxyServlet.setConnectionRequestTimeout(Integer.parseInt(settings.get(CONNECTION_REQUEST_TIMEOUT_KEY)));
+        }
+        if (settings.containsKey(SOCKET_TIMEOUT_KEY)) {
+            proxyServlet.setSocketTimeout(Integer.parseInt(settings.get(SOCKET_TIMEOUT_KEY)));
+        }
+        if (settings.containsKey(MAX_CONNECTIONS_KEY)) {
+            proxyServlet.setMaxConnections(Integer.parseInt(settings.get(MAX_CONNECTIONS_KEY)));
+        }
+        if (settings.containsKey(MAX_CONNECTIONS_PER_UPSTREAM_KEY)) {
+            proxyServlet.setMaxConnectionsPerUpstream(Integer.parseInt(settings.get(MAX_CONNECTIONS_PER_UPSTREAM_KEY)));
+        }
+        if (settings.containsKey(EJECTION_FAILURES_KEY)) {
+            proxyServlet.setEjectionFailures(Integer.parseInt(settings.get(EJECTION_FAILURES_KEY)));
+        }
+        if (settings.containsKey(EJECTION_TIME_KEY)) {
+            proxyServlet.setEjectionTime(Long.parseLong(settings.get(EJECTION_TIME_KEY)));
+        }
+        if (settings.containsKey(HEALTH_CHECK_INTERVAL_KEY)) {
+            proxyServlet.setHealthCheckInterval(Long.parseLong(settings.get(HEALTH_CHECK_INTERVAL_KEY)));
+        }
+        if (settings.containsKey(HEALTH_CHECK_PATH_KEY)) {
+            proxyServlet.setHealthCheckPath(settings.get(HEALTH_CHECK_PATH_KEY));
+        }
+        if (settings.containsKey(STREAMING_KEY)) {
+            proxyServlet.setStreaming(Boolean.parseBoolean(settings.get(STREAMING_KEY)));
+        }
+        if (settings.containsKey(BUFFER_SIZE_KEY)) {
+            proxyServlet.setBufferSize(Integer.parseInt(settings.get(BUFFER_SIZE_KEY)));
+        }
+    }
+
     private void updateConfiguration() {
         try {
             // get configuration
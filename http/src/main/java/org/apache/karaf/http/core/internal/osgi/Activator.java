@@ -23,6 +23,8 @@ import org.apache.karaf.http.core.internal.HttpMBeanImpl;
 import org.apache.karaf.http.core.internal.ProxyServiceImpl;
 import org.apache.karaf.http.core.internal.ServletEventHandler;
 import org.apache.karaf.http.core.internal.ServletServiceImpl;
+import org.apache.karaf.http.core.internal.proxy.LatencyBalancingPolicy;
+import org.apache.karaf.http.core.internal.proxy.LeastRequestsBalancingPolicy;
 import org.apache.karaf.http.core.internal.proxy.RandomBalancingPolicy;
 import org.apache.karaf.http.core.internal.proxy.RoundRobinBalancingPolicy;
 import org.apache.karaf.util.tracker.BaseActivator;
@@ -94,6 +96,16 @@ public class Activator extends BaseActivator implements ManagedService {
         roundRobinBalancingPolicyProperties.put("type", "round-robin");
         register(BalancingPolicy.class, roundRobinBalancingPolicy, roundRobinBalancingPolicyProperties);
 
+        LeastRequestsBalancingPolicy leastRequestsBalancingPolicy = new LeastRequestsBalancingPolicy();
+        Hashtable<String, String> leastRequestsBalancingPolicyProperties = new Hashtable<>();
+        leastRequestsBalancingPolicyProperties.put("type", "least-requests");
+        register(BalancingPolicy.class, leastRequestsBalancingPolicy, leastRequestsBalancingPolicyProperties);
+
+        LatencyBalancingPolicy latencyBalancingPolicy = new LatencyBalancingPolicy();
+        Hashtable<String, String> latencyBalancingPolicyProperties = new Hashtable<>();
+        latencyBalancingPolicyProperties.put("type", "latency");
+        register(BalancingPolicy.class, latencyBalancingPolicy, latencyBalancingPolicyProperties);
+
         proxyService = new ProxyServiceImpl(httpService, configurationAdmin, bundleContext);
         register(ProxyService.class, proxyService);
 
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import org.apache.http.client.methods.AbortableHttpRequest;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Response of a request proxied asynchronously, shared by the proxy thread and the async timeout.
+ * <p>
+ * The request is done once it has been completed, either by the proxy thread or by the timeout. The writes of
+ * the proxy thread are then ignored, the client response being owned by the timeout, and its upstream request is aborted.
+ */
+public class AsyncProxyResponse extends HttpServletResponseWrapper {
+
+    private final AtomicBoolean done = new AtomicBoolean();
+    private volatile AbortableHttpRequest upstreamRequest;
+    private ServletOutputStream outputStream;
+
+    public AsyncProxyResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Mark the request as done.
+     *
+     * @return <code>true</code> if the request was not already done, the caller then completes the request.
+     */
+    public boolean done() {
+        return done.compareAndSet(false, true);
+    }
+
+    public boolean isDone() {
+        return done.get();
+    }
+
+    /**
+     * Set the request sent to the upstream, it is aborted right away if the request is already done.
+     */
+    public void setUpstreamRequest(AbortableHttpRequest upstreamRequest) {
+        this.upstreamRequest = upstreamRequest;
+        if (done.get()) {
+            upstreamRequest.abort();
+        }
+    }
+
+    /**
+     * Abort the upstream request in flight, if any.
+     */
+    public void abort() {
+        AbortableHttpRequest upstreamRequest = this.upstreamRequest;
+        if (upstreamRequest != null) {
+            upstreamRequest.abort();
+        }
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (!done.get()) {
+            super.setStatus(sc);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int sc, String sm) {
+        if (!done.get()) {
+            super.setStatus(sc, sm);
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        if (!done.get()) {
+            super.sendError(sc, msg);
+        }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        if (!done.get()) {
+            super.sendError(sc);
+        }
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        if (!done.get()) {
+            super.sendRedirect(location);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!done.get()) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!done.get()) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (!done.get()) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (!done.get()) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        if (!done.get()) {
+            super.setDateHeader(name, date);
+        }
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        if (!done.get()) {
+            super.addDateHeader(name, date);
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        if (!done.get()) {
+            super.addCookie(cookie);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (!done.get()) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        checkDone();
+        return super.getWriter();
+    }
+
+    @Override
+    public synchronized ServletOutputStream getOutputStream() throws IOException {
+        checkDone();
+        if (outputStream == null) {
+            outputStream = new AsyncProxyOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    private void checkDone() throws IOException {
+        if (done.get()) {
+            throw new IOException("The request is already completed");
+        }
+    }
+
+    /**
+     * Output stream failing the writes once the request is done, which stops the copy of the upstream response.
+     */
+    private class AsyncProxyOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        AsyncProxyOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkDone();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkDone();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkDone();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!done.get()) {
+                delegate.close();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+}
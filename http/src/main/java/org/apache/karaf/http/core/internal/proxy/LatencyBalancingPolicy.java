@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import org.apache.karaf.http.core.BalancingPolicy;
+import org.apache.karaf.http.core.UpstreamInfo;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Randomly select an upstream, with a probability inversely proportional to its average latency multiplied
+ * by its number of outstanding requests (plus one). Fast upstreams get most of the load, but the slow ones
+ * are still used, so that their latency keeps being measured.
+ *
+ * Without upstream statistics ({@link #selectHost(String[])}), the hosts are selected randomly.
+ */
+public class LatencyBalancingPolicy implements BalancingPolicy {
+
+    /**
+     * Latency (in milliseconds) added to the measured one, so that an upstream without measure or with
+     * a very low latency doesn't get all the load.
+     */
+    private static final double LATENCY_OFFSET = 1.0;
+
+    @Override
+    public String selectHost(String[] targets) {
+        if (targets.length == 0) {
+            return null;
+        }
+        return targets[ThreadLocalRandom.current().nextInt(targets.length)];
+    }
+
+    @Override
+    public UpstreamInfo selectUpstream(List<? extends UpstreamInfo> upstreams) {
+        if (upstreams.isEmpty()) {
+            return null;
+        } else if (upstreams.size() == 1) {
+            return upstreams.get(0);
+        }
+        double[] weights = new double[upstreams.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            UpstreamInfo upstream = upstreams.get(i);
+            weights[i] = 1.0 / ((upstream.getAverageLatency() + LATENCY_OFFSET) * (upstream.getOutstandingRequests() + 1));
+            total += weights[i];
+        }
+        double random = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            random -= weights[i];
+            if (random < 0) {
+                return upstreams.get(i);
+            }
+        }
+        return upstreams.get(weights.length - 1);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import org.apache.karaf.http.core.BalancingPolicy;
+import org.apache.karaf.http.core.UpstreamInfo;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Select the upstream having the least outstanding requests. Ties are broken sequentially (round robin),
+ * so that idle upstreams are used evenly.
+ *
+ * Without upstream statistics ({@link #selectHost(String[])}), the hosts are selected sequentially.
+ */
+public class LeastRequestsBalancingPolicy implements BalancingPolicy {
+
+    private final AtomicInteger index = new AtomicInteger();
+
+    @Override
+    public String selectHost(String[] targets) {
+        if (targets.length == 0) {
+            return null;
+        }
+        return targets[next(targets.length)];
+    }
+
+    @Override
+    public UpstreamInfo selectUpstream(List<? extends UpstreamInfo> upstreams) {
+        if (upstreams.isEmpty()) {
+            return null;
+        }
+        int size = upstreams.size();
+        int start = next(size);
+        UpstreamInfo selected = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            UpstreamInfo upstream = upstreams.get((start + i) % size);
+            int outstanding = upstream.getOutstandingRequests();
+            if (outstanding < least) {
+                selected = upstream;
+                least = outstanding;
+            }
+        }
+        return selected;
+    }
+
+    private int next(int size) {
+        return (index.getAndIncrement() & Integer.MAX_VALUE) % size;
+    }
+
+}
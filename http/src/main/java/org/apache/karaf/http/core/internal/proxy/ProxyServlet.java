@@ -18,25 +18,32 @@ package org.apache.karaf.http.core.internal.proxy;
 
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.AbortableHttpRequest;
-import org.apache.http.client.params.ClientPNames;
-import org.apache.http.client.params.CookiePolicy;
-import org.apache.http.client.utils.URIUtils;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.cookie.SM;
 import org.apache.http.entity.InputStreamEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
-import org.apache.http.message.BasicHttpEntityEnclosingRequest;
-import org.apache.http.message.BasicHttpRequest;
 import org.apache.http.message.HeaderGroup;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 import org.apache.http.util.EntityUtils;
 import org.apache.karaf.http.core.BalancingPolicy;
+import org.apache.karaf.http.core.UpstreamInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServlet;
@@ -44,18 +51,38 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Constructor;
 import java.net.HttpCookie;
+import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Formatter;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is a simple servlet acting as a HTTP reverse proxy/gateway. It works with any webcontainer as it's a regular servlet.
+ *
+ * The requests are sent to the upstreams using pooled connections. When the webcontainer supports it, the
+ * requests are processed asynchronously, the container thread being released while a proxy thread waits for the upstream.
+ * The upstream requests are bounded by the connect, connection request and socket timeouts, and the asynchronous
+ * requests by the async timeout; the requests exceeding the async queue are rejected with a 503 status.
+ * The upstreams failing consecutively are ejected for a while, and they can also be checked periodically.
+ *
+ * In streaming mode, the bodies are copied with pooled buffers, and the responses without length (chunked, server-sent
+ * events) are flushed to the client as soon as the upstream has no more data immediately available.
  */
 public class ProxyServlet extends HttpServlet {
 
@@ -65,8 +92,27 @@ public class ProxyServlet extends HttpServlet {
     protected boolean doForwardIP = true;
     protected boolean doSendUrlFragment = true;
     protected BalancingPolicy balancingPolicy;
+    protected List<Upstream> upstreams = Collections.emptyList();
+    protected boolean async = true;
+    protected int asyncThreads = 50;
+    protected int asyncQueueSize = 1000;
+    protected long asyncTimeout = 120000;
+    protected int connectTimeout = 10000;
+    protected int connectionRequestTimeout = 10000;
+    protected int socketTimeout = 60000;
+    protected int maxConnections = 200;
+    protected int maxConnectionsPerUpstream = 20;
+    protected int ejectionFailures = 5;
+    protected long ejectionTime = 30000;
+    protected long healthCheckInterval;
+    protected String healthCheckPath = "";
+    protected boolean streaming = true;
+    protected int bufferSize = 16 * 1024;
 
     private HttpClient proxyClient;
+    private ExecutorService executor;
+    private ScheduledExecutorService healthChecker;
+    private BufferPool bufferPool;
 
     public void setIPForwarding(boolean ipForwarding) {
         this.doForwardIP = ipForwarding;
@@ -74,6 +120,121 @@ public class ProxyServlet extends HttpServlet {
 
     public void setProxyTo(String proxyTo) {
         this.proxyTo = proxyTo;
+        // the targets are parsed once, not on each request
+        List<Upstream> upstreams = new ArrayList<>();
+        for (String location : proxyTo.split(",")) {
+            upstreams.add(new Upstream(location.trim()));
+        }
+        this.upstreams = Collections.unmodifiableList(upstreams);
+    }
+
+    public List<? extends UpstreamInfo> getUpstreams() {
+        return upstreams;
+    }
+
+    /**
+     * @param async true to process the requests asynchronously when the webcontainer supports it.
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * @param asyncThreads the number of threads processing the asynchronous requests.
+     */
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    /**
+     * @param asyncQueueSize the maximum number of asynchronous requests waiting for a thread, the other ones are rejected.
+     */
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    /**
+     * @param asyncTimeout the maximum time to process an asynchronous request in milliseconds, 0 for no limit.
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * @param connectTimeout the timeout to connect to a upstream in milliseconds, 0 for no timeout.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @param connectionRequestTimeout the timeout to get a pooled connection in milliseconds, 0 for no timeout.
+     */
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    /**
+     * @param socketTimeout the maximum inactivity while waiting for data from a upstream in milliseconds, 0 for no timeout.
+     */
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    /**
+     * @param maxConnections the maximum number of pooled connections to all the upstreams.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @param maxConnectionsPerUpstream the maximum number of pooled connections to a upstream host.
+     */
+    public void setMaxConnectionsPerUpstream(int maxConnectionsPerUpstream) {
+        this.maxConnectionsPerUpstream = maxConnectionsPerUpstream;
+    }
+
+    /**
+     * @param ejectionFailures the number of consecutive failures ejecting a upstream, 0 to never eject.
+     */
+    public void setEjectionFailures(int ejectionFailures) {
+        this.ejectionFailures = ejectionFailures;
+    }
+
+    /**
+     * @param ejectionTime the time a failing upstream is ejected, in milliseconds.
+     */
+    public void setEjectionTime(long ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+
+    /**
+     * @param healthCheckInterval the interval between two health checks of the upstreams in milliseconds, 0 to disable them.
+     */
+    public void setHealthCheckInterval(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    /**
+     * @param healthCheckPath the path appended to the upstream locations for the health checks.
+     */
+    public void setHealthCheckPath(String healthCheckPath) {
+        this.healthCheckPath = healthCheckPath != null ? healthCheckPath : "";
+    }
+
+    /**
+     * @param streaming true to copy the request and response bodies with pooled buffers, flushing the responses without length.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @param bufferSize the size of the buffers used in streaming mode.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
     }
 
     public void setBalancingPolicy(BalancingPolicy balancingPolicy) {
@@ -87,28 +248,66 @@ public class ProxyServlet extends HttpServlet {
 
     @Override
     public void init() throws ServletException {
-        HttpParams hcParams = new BasicHttpParams();
-        hcParams.setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.IGNORE_COOKIES);
-        proxyClient = createHttpClient(hcParams);
+        proxyClient = createHttpClient();
+        if (streaming) {
+            // a request uses a single buffer at a time, so the pool doesn't need more buffers than connections
+            bufferPool = new BufferPool(bufferSize, maxConnections);
+        }
+        if (async) {
+            ThreadPoolExecutor threadPool = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(asyncQueueSize, 1)), threadFactory("Karaf proxy"));
+            threadPool.allowCoreThreadTimeOut(true);
+            executor = threadPool;
+        }
+        if (healthCheckInterval > 0 && upstreams.size() > 1) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(threadFactory("Karaf proxy health check"));
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
-    protected HttpClient createHttpClient(HttpParams hcParams) {
-        try {
-            Class clientClazz = Class.forName("org.apache.http.impl.client.SystemDefaultHttpClient");
-            Constructor constructor = clientClazz.getConstructor(HttpParams.class);
-            return (HttpClient) constructor.newInstance(hcParams);
-        } catch (ClassNotFoundException e) {
-            // not a problem, we fallback on the "old" client
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    protected HttpClient createHttpClient() {
+        // same socket factories as the "system" client, but with a pool sized for the upstreams
+        Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+                .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerUpstream);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(socketTimeout)
+                .build();
+        return HttpClientBuilder.create()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .disableCookieManagement()
+                // the proxied entities are sent as is to the client
+                .disableContentCompression()
+                .build();
+    }
 
-        // fallback on using "old" client style
-        return new DefaultHttpClient(new ThreadSafeClientConnManager(), hcParams);
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     @Override
     public void destroy() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
         // starting for HttpComponents 4.3, clients implements Closeable
         if (proxyClient instanceof Closeable) {
             try {
@@ -127,30 +326,166 @@ public class ProxyServlet extends HttpServlet {
 
     @Override
     protected void service(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws ServletException, IOException {
-        String[] proxyTos = proxyTo.split(",");
-        String actualProxy;
+        ExecutorService executor = this.executor;
+        if (executor == null || !servletRequest.isAsyncSupported()) {
+            proxy(servletRequest, servletResponse);
+            return;
+        }
+        AsyncContext asyncContext = servletRequest.startAsync();
+        asyncContext.setTimeout(asyncTimeout);
+        // the request is completed either by the proxy thread or by the timeout, whichever comes first,
+        // the proxy thread writes through a response ignoring the writes once the request is done
+        AsyncProxyResponse asyncResponse = new AsyncProxyResponse(servletResponse);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (asyncResponse.done()) {
+                    LOGGER.warn("Timeout proxying {}", servletRequest.getRequestURI());
+                    asyncResponse.abort();
+                    sendError(servletResponse, HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!asyncResponse.isDone()) {
+                        proxy(servletRequest, asyncResponse);
+                    }
+                } catch (Exception e) {
+                    if (!asyncResponse.isDone()) {
+                        LOGGER.warn("Can't proxy {}", servletRequest.getRequestURI(), e);
+                        sendError(asyncResponse, isTimeout(e) ? HttpServletResponse.SC_GATEWAY_TIMEOUT : HttpServletResponse.SC_BAD_GATEWAY);
+                    }
+                } finally {
+                    if (asyncResponse.done()) {
+                        asyncContext.complete();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the queue is full, or the servlet is being destroyed
+            if (asyncResponse.done()) {
+                sendError(servletResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                asyncContext.complete();
+            }
+        }
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException || t instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendError(HttpServletResponse servletResponse, int status) {
+        if (!servletResponse.isCommitted()) {
+            try {
+                servletResponse.sendError(status);
+            } catch (IOException e) {
+                LOGGER.debug("Can't send error {}", status, e);
+            }
+        }
+    }
+
+    /**
+     * Select the upstream of a request, using the balancing policy on the available upstreams.
+     */
+    protected Upstream selectUpstream() {
+        List<Upstream> upstreams = this.upstreams;
+        if (upstreams.size() == 1) {
+            return upstreams.get(0);
+        }
+        List<Upstream> available = new ArrayList<>(upstreams.size());
+        for (Upstream upstream : upstreams) {
+            if (upstream.isAvailable()) {
+                available.add(upstream);
+            }
+        }
+        if (available.isEmpty()) {
+            // all the upstreams are failing, try them anyway rather than rejecting the request
+            available = upstreams;
+        }
         if (balancingPolicy != null) {
-            actualProxy = balancingPolicy.selectHost(proxyTos);
-        } else {
-            actualProxy = proxyTos[0];
+            UpstreamInfo selected = balancingPolicy.selectUpstream(available);
+            if (selected instanceof Upstream) {
+                return (Upstream) selected;
+            }
         }
+        return available.get(0);
+    }
 
-        URI locationUri = URI.create(actualProxy);
-        HttpHost host = URIUtils.extractHost(locationUri);
+    /**
+     * Check the upstreams, a upstream is healthy if it answers with a status lower than 500.
+     */
+    protected void checkHealth() {
+        int timeout = (int) Math.min(healthCheckInterval, Integer.MAX_VALUE);
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .build();
+        for (Upstream upstream : upstreams) {
+            boolean healthy;
+            try {
+                HttpGet request = new HttpGet(upstream.getLocation() + healthCheckPath);
+                request.setConfig(config);
+                HttpResponse response = proxyClient.execute(request);
+                try {
+                    healthy = response.getStatusLine().getStatusCode() < HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                } finally {
+                    consumeQuietly(response.getEntity());
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Health check of {} failed", upstream.getLocation(), e);
+                healthy = false;
+            }
+            if (healthy != upstream.isHealthy()) {
+                LOGGER.info("Proxy upstream {} is {}", upstream.getLocation(), healthy ? "healthy" : "unhealthy");
+                upstream.setHealthy(healthy);
+            }
+        }
+    }
 
-        LOGGER.debug("Proxy to {} (host {})", locationUri, host);
+    protected void proxy(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws ServletException, IOException {
+        Upstream upstream = selectUpstream();
+        String actualProxy = upstream.getLocation();
+        HttpHost host = upstream.getHost();
+
+        LOGGER.debug("Proxy to {} (host {})", actualProxy, host);
 
         String method = servletRequest.getMethod();
         String proxyRequestUri = rewriteUrlFromRequest(servletRequest, actualProxy);
-        HttpRequest proxyRequest;
+        // the request is abortable, its upstream exchange can be interrupted when the client request times out
+        RequestBuilder requestBuilder = RequestBuilder.create(method).setUri(proxyRequestUri);
 
         // spec: RFC 2616, sec 4.3: either of these two headers means there is a message body
         if (servletRequest.getHeader(HttpHeaders.CONTENT_LENGTH) != null || servletRequest.getHeader(HttpHeaders.TRANSFER_ENCODING) != null) {
-            HttpEntityEnclosingRequest entityProxyRequest = new BasicHttpEntityEnclosingRequest(method, proxyRequestUri);
-            entityProxyRequest.setEntity(new InputStreamEntity(servletRequest.getInputStream(), servletRequest.getContentLength()));
-            proxyRequest = entityProxyRequest;
-        } else {
-            proxyRequest = new BasicHttpRequest(method, proxyRequestUri);
+            if (bufferPool != null) {
+                requestBuilder.setEntity(new StreamingRequestEntity(servletRequest, bufferPool));
+            } else {
+                requestBuilder.setEntity(new InputStreamEntity(servletRequest.getInputStream(), servletRequest.getContentLength()));
+            }
+        }
+        HttpUriRequest proxyRequest = requestBuilder.build();
+        if (servletResponse instanceof AsyncProxyResponse) {
+            ((AsyncProxyResponse) servletResponse).setUpstreamRequest((AbortableHttpRequest) proxyRequest);
         }
 
         copyRequestHeaders(servletRequest, proxyRequest, host);
@@ -158,12 +493,16 @@ public class ProxyServlet extends HttpServlet {
         setXForwardedForHeader(servletRequest, proxyRequest);
 
         HttpResponse proxyResponse = null;
+        long start = upstream.begin();
+        boolean completed = false;
         try {
             // execute the request
             proxyResponse = proxyClient.execute(host, proxyRequest);
 
             // process the response
             int statusCode = proxyResponse.getStatusLine().getStatusCode();
+            upstream.completed(start, !isUpstreamFailure(statusCode), ejectionFailures, ejectionTime);
+            completed = true;
 
             // copying response headers to make sure SESSIONID or other Cookie which comes from the remote host
             // will be saved in client when the proxied URL was redirect to another one.
@@ -180,6 +519,9 @@ public class ProxyServlet extends HttpServlet {
             // send the content to the client
             copyResponseEntity(proxyResponse, servletResponse);
         } catch (Exception e) {
+            if (!completed) {
+                upstream.completed(start, false, ejectionFailures, ejectionTime);
+            }
             // abort request
             if (proxyRequest instanceof AbortableHttpRequest) {
                 AbortableHttpRequest abortableHttpRequest = (AbortableHttpRequest) proxyRequest;
@@ -193,12 +535,19 @@ public class ProxyServlet extends HttpServlet {
             }
             throw new RuntimeException(e);
         } finally {
+            upstream.end();
             if (proxyResponse != null) {
                 consumeQuietly(proxyResponse.getEntity());
             }
         }
     }
 
+    protected boolean isUpstreamFailure(int statusCode) {
+        return statusCode == HttpServletResponse.SC_BAD_GATEWAY
+                || statusCode == HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                || statusCode == HttpServletResponse.SC_GATEWAY_TIMEOUT;
+    }
+
     protected boolean doResponseRedirect(HttpServletRequest servletRequest, HttpServletResponse servletResponse, HttpResponse proxyResponse, int statusCode, String proxyTo) throws ServletException, IOException {
         // check if the proxy is a redirect
         if (statusCode >= HttpServletResponse.SC_MULTIPLE_CHOICES && statusCode < HttpServletResponse.SC_NOT_MODIFIED) {
@@ -375,9 +724,28 @@ public class ProxyServlet extends HttpServlet {
      */
     protected void copyResponseEntity(HttpResponse proxyResponse, HttpServletResponse servletResponse) throws IOException {
         HttpEntity entity = proxyResponse.getEntity();
-        if (entity != null) {
-            OutputStream servletOutputStream = servletResponse.getOutputStream();
+        if (entity == null) {
+            return;
+        }
+        OutputStream servletOutputStream = servletResponse.getOutputStream();
+        if (bufferPool == null) {
             entity.writeTo(servletOutputStream);
+            return;
+        }
+        // the response length is unknown for chunked responses and event streams, the data is sent as soon as possible
+        boolean flush = entity.getContentLength() < 0;
+        InputStream content = entity.getContent();
+        byte[] buffer = bufferPool.acquire();
+        try {
+            int n;
+            while ((n = content.read(buffer)) != -1) {
+                servletOutputStream.write(buffer, 0, n);
+                if (flush && content.available() == 0) {
+                    servletOutputStream.flush();
+                }
+            }
+        } finally {
+            bufferPool.release(buffer);
         }
     }
 
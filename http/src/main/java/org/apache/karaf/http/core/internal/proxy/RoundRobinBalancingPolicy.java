@@ -34,6 +34,10 @@ public class RoundRobinBalancingPolicy implements BalancingPolicy {
         } else if (targets.length == 1) {
             return targets[0];
         } else {
+            // the number of targets changes when upstreams are ejected
+            if (index >= targets.length) {
+                index = 0;
+            }
             String host = targets[index];
             // moving index
             index++;
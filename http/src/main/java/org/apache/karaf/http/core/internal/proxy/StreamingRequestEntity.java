@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import javax.servlet.ServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Entity streaming a request body from the client to the upstream, using a pooled buffer.
+ * <p>
+ * The client input stream is only opened when the HTTP client sends the body, as the webcontainers continue
+ * the requests having a <code>Expect: 100-continue</code> header when their input is opened or read: the client
+ * only sends the body when the upstream accepted it. The client is not read faster
+ * than the upstream consumes the body, as each buffer is written before the next one is read.
+ * A body without length is sent with the chunked transfer encoding.
+ */
+public class StreamingRequestEntity extends AbstractHttpEntity {
+
+    private final ServletRequest request;
+    private final long length;
+    private final BufferPool bufferPool;
+
+    public StreamingRequestEntity(ServletRequest request, BufferPool bufferPool) {
+        this.request = request;
+        this.length = request.getContentLengthLong();
+        this.bufferPool = bufferPool;
+        setChunked(length < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return request.getInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream content = request.getInputStream();
+        byte[] buffer = bufferPool.acquire();
+        try {
+            int n;
+            if (length < 0) {
+                while ((n = content.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            } else {
+                long remaining = length;
+                while (remaining > 0 && (n = content.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    out.write(buffer, 0, n);
+                    remaining -= n;
+                }
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.karaf.http.core.UpstreamInfo;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A target location of a proxy servlet, with its load and latency statistics.
+ * <p>
+ * An upstream is passively ejected (not selected anymore) for a while after a number of consecutive failures,
+ * and it's also unavailable while the health check (when enabled) fails.
+ */
+public class Upstream implements UpstreamInfo {
+
+    private static final double LATENCY_DECAY = 0.2;
+    private static final long THROUGHPUT_WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    private final String location;
+    private final HttpHost host;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile double averageLatency;
+    private boolean sampled;
+    private volatile long maxLatency;
+    private volatile boolean healthy = true;
+    private volatile long ejectedUntil;
+
+    private final LongAdder window = new LongAdder();
+    private volatile long windowStart = System.nanoTime();
+    private volatile double throughput;
+
+    public Upstream(String location) {
+        this.location = location;
+        this.host = URIUtils.extractHost(URI.create(location));
+    }
+
+    @Override
+    public String getLocation() {
+        return location;
+    }
+
+    public HttpHost getHost() {
+        return host;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return healthy && System.currentTimeMillis() >= ejectedUntil;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    @Override
+    public int getOutstandingRequests() {
+        return outstanding.get();
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getAverageLatency() {
+        return averageLatency;
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    @Override
+    public double getThroughput() {
+        roll(System.nanoTime());
+        return throughput;
+    }
+
+    /**
+     * Start a request on this upstream.
+     *
+     * @return the start time of the request, to give to {@link #completed(long, boolean, int, long)}.
+     */
+    public long begin() {
+        outstanding.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the result of a request, when the response headers have been received or the request failed.
+     *
+     * @param start the value returned by {@link #begin()}.
+     * @param success false if the request failed.
+     * @param maxFailures the number of consecutive failures ejecting the upstream, 0 to never eject it.
+     * @param ejectionTime the time the upstream is ejected, in milliseconds.
+     */
+    public void completed(long start, boolean success, int maxFailures, long ejectionTime) {
+        long now = System.nanoTime();
+        long latency = TimeUnit.NANOSECONDS.toMillis(now - start);
+        requests.increment();
+        window.increment();
+        synchronized (this) {
+            averageLatency = sampled ? averageLatency + LATENCY_DECAY * (latency - averageLatency) : latency;
+            sampled = true;
+            if (latency > maxLatency) {
+                maxLatency = latency;
+            }
+        }
+        if (success) {
+            consecutiveFailures.set(0);
+        } else {
+            failures.increment();
+            if (maxFailures > 0 && consecutiveFailures.incrementAndGet() >= maxFailures) {
+                consecutiveFailures.set(0);
+                eject(ejectionTime);
+            }
+        }
+        roll(now);
+    }
+
+    /**
+     * End a request started with {@link #begin()}, once the response has been fully sent.
+     */
+    public void end() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Eject the upstream for the given time.
+     *
+     * @param time the ejection time, in milliseconds.
+     */
+    public void eject(long time) {
+        ejectedUntil = System.currentTimeMillis() + time;
+    }
+
+    private void roll(long now) {
+        long start = windowStart;
+        long elapsed = now - start;
+        if (elapsed >= THROUGHPUT_WINDOW) {
+            synchronized (this) {
+                if (windowStart == start) {
+                    throughput = window.sumThenReset() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                    windowStart = now;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return location;
+    }
+
+}
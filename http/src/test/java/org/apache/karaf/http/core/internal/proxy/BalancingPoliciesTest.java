@@ -19,6 +19,10 @@ package org.apache.karaf.http.core.internal.proxy;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public class BalancingPoliciesTest {
 
     private static final String proxyTo = "A,B,C";
@@ -67,4 +71,86 @@ public class BalancingPoliciesTest {
         Assert.assertEquals("A", selected);
     }
 
+    @Test
+    public void testSelectUpstream() throws Exception {
+        List<Upstream> upstreams = upstreams();
+        RoundRobinBalancingPolicy balancingPolicy = new RoundRobinBalancingPolicy();
+        Assert.assertSame(upstreams.get(0), balancingPolicy.selectUpstream(upstreams));
+        Assert.assertSame(upstreams.get(1), balancingPolicy.selectUpstream(upstreams));
+        // an upstream has been ejected
+        Assert.assertSame(upstreams.get(0), balancingPolicy.selectUpstream(upstreams.subList(0, 2)));
+    }
+
+    @Test
+    public void testLeastRequestsBalancingPolicy() throws Exception {
+        List<Upstream> upstreams = upstreams();
+        LeastRequestsBalancingPolicy balancingPolicy = new LeastRequestsBalancingPolicy();
+        upstreams.get(0).begin();
+        upstreams.get(0).begin();
+        upstreams.get(1).begin();
+        Assert.assertSame(upstreams.get(2), balancingPolicy.selectUpstream(upstreams));
+        upstreams.get(2).begin();
+        upstreams.get(2).begin();
+        Assert.assertSame(upstreams.get(1), balancingPolicy.selectUpstream(upstreams));
+        upstreams.get(0).end();
+        upstreams.get(0).end();
+        Assert.assertSame(upstreams.get(0), balancingPolicy.selectUpstream(upstreams));
+    }
+
+    @Test
+    public void testLatencyBalancingPolicy() throws Exception {
+        List<Upstream> upstreams = upstreams();
+        // A answers in one second, B and C immediately
+        upstreams.get(0).completed(upstreams.get(0).begin() - TimeUnit.SECONDS.toNanos(1), true, 0, 0);
+        upstreams.get(0).end();
+        upstreams.get(1).completed(upstreams.get(1).begin(), true, 0, 0);
+        upstreams.get(1).end();
+        upstreams.get(2).completed(upstreams.get(2).begin(), true, 0, 0);
+        upstreams.get(2).end();
+        LatencyBalancingPolicy balancingPolicy = new LatencyBalancingPolicy();
+        int[] selections = new int[3];
+        for (int i = 0; i < 1000; i++) {
+            selections[upstreams.indexOf(balancingPolicy.selectUpstream(upstreams))]++;
+        }
+        String message = "Selections: " + Arrays.toString(selections);
+        Assert.assertTrue(message, selections[0] < 50);
+        Assert.assertTrue(message, selections[1] > 300);
+        Assert.assertTrue(message, selections[2] > 300);
+    }
+
+    @Test
+    public void testUpstreamEjection() throws Exception {
+        Upstream upstream = new Upstream("http://localhost:8181/test");
+        Assert.assertEquals("localhost", upstream.getHost().getHostName());
+        Assert.assertEquals(8181, upstream.getHost().getPort());
+        upstream.completed(upstream.begin(), false, 3, 60000);
+        upstream.end();
+        upstream.completed(upstream.begin(), false, 3, 60000);
+        upstream.end();
+        Assert.assertTrue(upstream.isAvailable());
+        // a success resets the consecutive failures
+        upstream.completed(upstream.begin(), true, 3, 60000);
+        upstream.end();
+        upstream.completed(upstream.begin(), false, 3, 60000);
+        upstream.end();
+        upstream.completed(upstream.begin(), false, 3, 60000);
+        upstream.end();
+        Assert.assertTrue(upstream.isAvailable());
+        upstream.completed(upstream.begin(), false, 3, 60000);
+        upstream.end();
+        Assert.assertFalse(upstream.isAvailable());
+        Assert.assertEquals(6, upstream.getRequests());
+        Assert.assertEquals(5, upstream.getFailures());
+        Assert.assertEquals(0, upstream.getOutstandingRequests());
+        // the upstream is selectable again after the ejection time
+        upstream.eject(0);
+        Assert.assertTrue(upstream.isAvailable());
+        upstream.setHealthy(false);
+        Assert.assertFalse(upstream.isAvailable());
+    }
+
+    private static List<Upstream> upstreams() {
+        return Arrays.asList(new Upstream("http://A"), new Upstream("http://B"), new Upstream("http://C"));
+    }
+
 }
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProxyServletTest {
+
+    private ServerSocket upstream;
+    private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+    private ProxyServlet servlet;
+
+    @Before
+    public void setUp() throws Exception {
+        // a upstream accepting the connections but never answering
+        upstream = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    sockets.add(upstream.accept());
+                }
+            } catch (Exception e) {
+                // closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        servlet = new ProxyServlet();
+        servlet.setProxyTo("http://localhost:" + upstream.getLocalPort());
+        servlet.setAsyncThreads(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        servlet.destroy();
+        upstream.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testUpstreamTimeout() throws Exception {
+        servlet.setSocketTimeout(200);
+        servlet.init();
+        Exchange exchange = new Exchange();
+        servlet.service(exchange.request(), exchange.response());
+        Assert.assertTrue(exchange.completed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(HttpServletResponse.SC_GATEWAY_TIMEOUT, exchange.status);
+    }
+
+    @Test
+    public void testAsyncTimeout() throws Exception {
+        servlet.setSocketTimeout(10000);
+        servlet.init();
+        Exchange exchange = new Exchange();
+        servlet.service(exchange.request(), exchange.response());
+        Socket socket = awaitUpstreamConnection();
+        exchange.listener.onTimeout(new AsyncEvent(exchange.asyncContext));
+        Assert.assertEquals(HttpServletResponse.SC_GATEWAY_TIMEOUT, exchange.status);
+        Assert.assertEquals(1, exchange.completions.get());
+        Assert.assertEquals(Collections.singletonList("sendError"), exchange.writes);
+        // the upstream request is aborted, closing its connection well before the socket timeout
+        socket.setSoTimeout(5000);
+        InputStream input = socket.getInputStream();
+        byte[] buffer = new byte[1024];
+        try {
+            while (input.read(buffer) != -1) {
+                // skip the request
+            }
+        } catch (SocketException e) {
+            // reset by the aborted request
+        }
+        // the proxy thread doesn't complete nor write the response after the timeout, nor retry the request
+        Thread.sleep(500);
+        Assert.assertEquals(1, sockets.size());
+        Assert.assertEquals(1, exchange.completions.get());
+        Assert.assertEquals(Collections.singletonList("sendError"), exchange.writes);
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        servlet.setSocketTimeout(2000);
+        servlet.setAsyncQueueSize(1);
+        servlet.init();
+        Exchange running = new Exchange();
+        servlet.service(running.request(), running.response());
+        // wait for the request to be taken by the proxy thread
+        Thread.sleep(500);
+        Exchange queued = new Exchange();
+        servlet.service(queued.request(), queued.response());
+        Exchange rejected = new Exchange();
+        servlet.service(rejected.request(), rejected.response());
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rejected.status);
+        Assert.assertEquals(1, rejected.completions.get());
+        Assert.assertEquals(0, queued.status);
+    }
+
+    private Socket awaitUpstreamConnection() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (sockets.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse("The proxy didn't connect to the upstream", sockets.isEmpty());
+        return sockets.get(0);
+    }
+
+    private static class Exchange {
+        final CountDownLatch completed = new CountDownLatch(1);
+        final AtomicInteger completions = new AtomicInteger();
+        final List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        volatile int status;
+        volatile AsyncListener listener;
+        AsyncContext asyncContext;
+
+        HttpServletRequest request() {
+            asyncContext = (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[] { AsyncContext.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                        case "addListener":
+                            listener = (AsyncListener) args[0];
+                            break;
+                        case "complete":
+                            completions.incrementAndGet();
+                            completed.countDown();
+                            break;
+                        default:
+                            break;
+                        }
+                        return null;
+                    });
+            return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[] { HttpServletRequest.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                        case "isAsyncSupported":
+                            return true;
+                        case "startAsync":
+                            return asyncContext;
+                        case "getMethod":
+                            return "GET";
+                        case "getRequestURI":
+                            return "/test";
+                        case "getRequestURL":
+                            return new StringBuffer("http://localhost/test");
+                        case "getContextPath":
+                        case "getServletPath":
+                            return "";
+                        case "getPathInfo":
+                            return "/";
+                        case "getRemoteAddr":
+                            return "127.0.0.1";
+                        case "getHeaderNames":
+                        case "getHeaders":
+                            return Collections.emptyEnumeration();
+                        default:
+                            return null;
+                        }
+                    });
+        }
+
+        HttpServletResponse response() {
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[] { HttpServletResponse.class }, (proxy, method, args) -> {
+                        if (!method.getName().startsWith("get") && !method.getName().startsWith("is")) {
+                            writes.add(method.getName());
+                        }
+                        switch (method.getName()) {
+                        case "sendError":
+                            status = (Integer) args[0];
+                            return null;
+                        case "isCommitted":
+                            return status != 0;
+                        default:
+                            return null;
+                        }
+                    });
+        }
+    }
+
+}
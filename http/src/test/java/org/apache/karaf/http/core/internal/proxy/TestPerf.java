@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.http.core.internal.proxy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Measures the throughput (MB/s) and the memory allocated per request by the proxy servlet thread, in streaming
+ * and non streaming modes, for downloads and uploads of 8 MB bodies to a local upstream.
+ */
+@Ignore
+public class TestPerf {
+
+    private static final int SIZE = 8 * 1024 * 1024;
+    private static final int REQUESTS = 200;
+
+    private HttpServer upstream;
+    private byte[] body;
+
+    @Before
+    public void setUp() throws Exception {
+        body = new byte[SIZE];
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.createContext("/download", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.createContext("/upload", exchange -> {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read(buffer) != -1) {
+                    // discard
+                }
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        upstream.start();
+    }
+
+    @After
+    public void tearDown() {
+        upstream.stop(0);
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        run("download", false, "GET", 0);
+        run("download", true, "GET", 0);
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        run("upload", false, "POST", SIZE);
+        run("upload", true, "POST", SIZE);
+    }
+
+    private void run(String path, boolean streaming, String method, int uploadSize) throws Exception {
+        ProxyServlet servlet = new ProxyServlet();
+        servlet.setProxyTo("http://localhost:" + upstream.getAddress().getPort());
+        servlet.setAsync(false);
+        servlet.setStreaming(streaming);
+        servlet.init();
+        try {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            // warm up
+            for (int i = 0; i < REQUESTS / 10; i++) {
+                proxy(servlet, method, "/" + path, uploadSize);
+            }
+            long bytes = 0;
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                bytes += proxy(servlet, method, "/" + path, uploadSize) + uploadSize;
+            }
+            long t1 = System.nanoTime();
+            allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+            System.out.println(path + (streaming ? " (streaming)" : " (buffered)") + ": "
+                    + String.format("%.1f", bytes / 1024.0 / 1024.0 / ((t1 - t0) / 1e9)) + " MB/s, "
+                    + String.format("%.1f", allocated / 1024.0 / REQUESTS) + " KB allocated per request");
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    /**
+     * Proxy a request, returning the number of bytes received by the client.
+     */
+    private long proxy(ProxyServlet servlet, String method, String path, int uploadSize) throws Exception {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (uploadSize > 0) {
+            headers.put("Content-Length", Integer.toString(uploadSize));
+        }
+        ServletInputStream input = new ServletInputStream() {
+            private final InputStream in = new ByteArrayInputStream(body, 0, uploadSize);
+
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return false;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+        AtomicLong received = new AtomicLong();
+        ServletOutputStream output = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                received.addAndGet(len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { HttpServletRequest.class }, (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "getMethod":
+                            return method;
+                        case "getPathInfo":
+                            return path;
+                        case "getHeader":
+                            return headers.get((String) args[0]);
+                        case "getHeaderNames":
+                            return Collections.enumeration(headers.keySet());
+                        case "getHeaders":
+                            return Collections.enumeration(Collections.singletonList(headers.get((String) args[0])));
+                        case "getInputStream":
+                            return input;
+                        case "getContentLength":
+                            return uploadSize;
+                        case "getContentLengthLong":
+                            return (long) uploadSize;
+                        case "getRemoteAddr":
+                            return "127.0.0.1";
+                        default:
+                            return defaultValue(m.getReturnType());
+                    }
+                });
+        HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { HttpServletResponse.class }, (proxy, m, args) -> {
+                    if (m.getName().equals("getOutputStream")) {
+                        return output;
+                    }
+                    return defaultValue(m.getReturnType());
+                });
+        servlet.service(request, response);
+        assertEquals(method.equals("GET") ? SIZE : 0, received.get());
+        return received.get();
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+}
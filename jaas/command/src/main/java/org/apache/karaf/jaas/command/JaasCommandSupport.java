@@ -27,6 +27,7 @@ import org.apache.karaf.jaas.boot.ProxyLoginModule;
 import org.apache.karaf.jaas.config.JaasRealm;
 import org.apache.karaf.jaas.modules.BackingEngine;
 import org.apache.karaf.jaas.modules.BackingEngineFactory;
+import org.apache.karaf.jaas.modules.CacheInvalidatingBackingEngine;
 import org.apache.karaf.shell.api.action.Action;
 import org.apache.karaf.shell.api.action.lifecycle.Reference;
 import org.apache.karaf.shell.api.console.Session;
@@ -73,7 +74,7 @@ public abstract class JaasCommandSupport implements Action {
             for (BackingEngineFactory factory : engineFactories) {
                 String loginModuleClass = (String) entry.getOptions().get(ProxyLoginModule.PROPERTY_MODULE);
                 if (factory.getModuleClass().equals(loginModuleClass)) {
-                    return factory.build(entry.getOptions());
+                    return CacheInvalidatingBackingEngine.wrap(factory.build(entry.getOptions()), entry.getOptions());
                 }
             }
         }
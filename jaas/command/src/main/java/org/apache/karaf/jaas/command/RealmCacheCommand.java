@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.jaas.command;
+
+import java.util.List;
+
+import org.apache.karaf.jaas.command.completers.RealmCompleter;
+import org.apache.karaf.jaas.config.AuthenticationCache;
+import org.apache.karaf.jaas.config.JaasRealm;
+import org.apache.karaf.jaas.modules.BackingEngine;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Completion;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.support.table.ShellTable;
+
+@Command(scope = "jaas", name = "realm-cache", description = "Display the statistics of the JAAS realms authentication caches, or clear them")
+@Service
+public class RealmCacheCommand extends JaasCommandSupport {
+
+    @Option(name = "--realm", description = "Only display or clear the cache of this JAAS Realm", required = false, multiValued = false)
+    @Completion(RealmCompleter.class)
+    String realmName;
+
+    @Option(name = "-c", aliases = {"--clear"}, description = "Clear the caches and reset their statistics", required = false, multiValued = false)
+    boolean clear;
+
+    @Option(name = "--no-format", description = "Disable table rendered output", required = false, multiValued = false)
+    boolean noFormat;
+
+    @Override
+    protected Object doExecute(BackingEngine engine) throws Exception {
+        return null;
+    }
+
+    @Override
+    public Object execute() throws Exception {
+        ShellTable table = new ShellTable();
+        table.column("Realm Name");
+        table.column("Size").alignRight();
+        table.column("Max Size").alignRight();
+        table.column("TTL (ms)").alignRight();
+        table.column("Hits").alignRight();
+        table.column("Misses").alignRight();
+
+        List<JaasRealm> realms = getRealms(true);
+        if (realms != null) {
+            for (JaasRealm realm : realms) {
+                AuthenticationCache cache = realm.getAuthenticationCache();
+                if (cache == null || (realmName != null && !realmName.equals(realm.getName()))) {
+                    continue;
+                }
+                if (clear) {
+                    cache.invalidate();
+                    cache.resetStatistics();
+                }
+                table.addRow().addContent(realm.getName(), cache.getSize(), cache.getMaxSize(), cache.getTtl(),
+                        cache.getHits(), cache.getMisses());
+            }
+        }
+
+        table.print(System.out, !noFormat);
+
+        return null;
+    }
+
+}
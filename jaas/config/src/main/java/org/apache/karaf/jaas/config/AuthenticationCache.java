@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.jaas.config;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.security.auth.login.AppConfigurationEntry;
+
+import org.apache.karaf.jaas.boot.ProxyLoginModule;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Cache of the successful authentications of a realm.
+ * <p>
+ * The cache is used by two login modules added to the entries of the realm, see
+ * {@link #wrap(AppConfigurationEntry[], AppConfigurationEntry[])}: a <code>sufficient</code> module placed
+ * before the authentication modules grants the cached principals when the credentials match an entry,
+ * and a module placed after them records the principals of a successful login.
+ * <p>
+ * Only a salted hash of the password is kept. The entries expire after a time to live, the least recently
+ * used ones are evicted when the cache is full, and the cache is cleared when one of the watched files
+ * (the <code>users</code> files of the authentication modules) changes, or when a backing engine of the realm
+ * modifies the users.
+ */
+public class AuthenticationCache {
+
+    /** The option holding the cache in the login module options. */
+    public static final String CACHE_OPTION = AuthenticationCache.class.getName();
+
+    /** The option defining the role of a cache login module, either {@link #PHASE_LOOKUP} or {@link #PHASE_STORE}. */
+    public static final String PHASE_OPTION = "org.apache.karaf.jaas.cache.phase";
+    public static final String PHASE_LOOKUP = "lookup";
+    public static final String PHASE_STORE = "store";
+
+    private static final String CACHE_MODULE = "org.apache.karaf.jaas.config.impl.CacheLoginModule";
+    private static final int SALT_LENGTH = 16;
+
+    private final String realm;
+    private final long ttl;
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+    private final List<File> files = new CopyOnWriteArrayList<>();
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile long filesStamp;
+
+    /**
+     * @param realm The name of the realm.
+     * @param ttl The time to live of an entry in milliseconds.
+     * @param maxSize The maximum number of cached users.
+     */
+    public AuthenticationCache(String realm, long ttl, int maxSize) {
+        if (ttl <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("The time to live and the size of the cache must be positive");
+        }
+        this.realm = realm;
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AuthenticationCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Build the entries of a realm using this cache.
+     *
+     * @param leading The entries always invoked, before the cache lookup (the audit modules for instance).
+     * @param authentication The entries authenticating the users.
+     * @return The entries of the realm.
+     */
+    public AppConfigurationEntry[] wrap(AppConfigurationEntry[] leading, AppConfigurationEntry[] authentication) {
+        AppConfigurationEntry[] result = new AppConfigurationEntry[leading.length + authentication.length + 2];
+        System.arraycopy(leading, 0, result, 0, leading.length);
+        result[leading.length] = createEntry(PHASE_LOOKUP, AppConfigurationEntry.LoginModuleControlFlag.SUFFICIENT);
+        for (int i = 0; i < authentication.length; i++) {
+            AppConfigurationEntry entry = authentication[i];
+            Object users = entry.getOptions().get("users");
+            if (users instanceof String) {
+                watch(new File((String) users));
+            }
+            // the backing engines built from these options invalidate the cache when they modify the users
+            Map<String, Object> options = new HashMap<>(entry.getOptions());
+            options.put(CACHE_OPTION, this);
+            result[leading.length + 1 + i] = new AppConfigurationEntry(entry.getLoginModuleName(), entry.getControlFlag(), options);
+        }
+        result[result.length - 1] = createEntry(PHASE_STORE, AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL);
+        return result;
+    }
+
+    private AppConfigurationEntry createEntry(String phase, AppConfigurationEntry.LoginModuleControlFlag flag) {
+        Map<String, Object> options = new HashMap<>();
+        options.put(CACHE_OPTION, this);
+        options.put(PHASE_OPTION, phase);
+        options.put(ProxyLoginModule.PROPERTY_MODULE, CACHE_MODULE);
+        Bundle bundle = FrameworkUtil.getBundle(AuthenticationCache.class);
+        if (bundle != null) {
+            options.put(ProxyLoginModule.PROPERTY_BUNDLE, Long.toString(bundle.getBundleId()));
+        }
+        return new AppConfigurationEntry(ProxyLoginModule.class.getName(), flag, options);
+    }
+
+    /**
+     * Clear the cache when the given file is modified.
+     */
+    public void watch(File file) {
+        if (!files.contains(file)) {
+            files.add(file);
+            filesStamp = computeFilesStamp();
+        }
+    }
+
+    /**
+     * Get the principals of a user if the password matches the cached one.
+     *
+     * @return The principals, or <code>null</code> if the user is not cached or the password doesn't match.
+     */
+    public Set<Principal> get(String user, char[] password) {
+        if (user == null || password == null) {
+            return null;
+        }
+        checkFiles();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(user);
+            if (entry != null && System.nanoTime() - entry.created > ttl) {
+                entries.remove(user);
+                entry = null;
+            }
+        }
+        if (entry != null && MessageDigest.isEqual(entry.hash, hash(entry.salt, password))) {
+            hits.increment();
+            return entry.principals;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Cache the principals of a user successfully authenticated with the given password.
+     */
+    public void put(String user, char[] password, Set<Principal> principals) {
+        if (user == null || password == null) {
+            return;
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        Entry entry = new Entry(salt, hash(salt, password), Collections.unmodifiableSet(new HashSet<>(principals)));
+        synchronized (entries) {
+            entries.put(user, entry);
+        }
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    /**
+     * @return The time to live of an entry in milliseconds.
+     */
+    public long getTtl() {
+        return TimeUnit.NANOSECONDS.toMillis(ttl);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    private void checkFiles() {
+        if (files.isEmpty()) {
+            return;
+        }
+        long stamp = computeFilesStamp();
+        if (stamp != filesStamp) {
+            filesStamp = stamp;
+            invalidate();
+        }
+    }
+
+    private long computeFilesStamp() {
+        long stamp = 17;
+        for (File file : files) {
+            stamp = stamp * 31 + file.lastModified();
+            stamp = stamp * 31 + file.length();
+        }
+        return stamp;
+    }
+
+    private static byte[] hash(byte[] salt, char[] password) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+            if (encoded.hasArray()) {
+                Arrays.fill(encoded.array(), (byte) 0);
+            }
+        }
+    }
+
+    private static class Entry {
+        final byte[] salt;
+        final byte[] hash;
+        final Set<Principal> principals;
+        final long created = System.nanoTime();
+
+        Entry(byte[] salt, byte[] hash, Set<Principal> principals) {
+            this.salt = salt;
+            this.hash = hash;
+            this.principals = principals;
+        }
+    }
+
+}
@@ -25,4 +25,13 @@ public interface JaasRealm {
     int getRank();
 
     AppConfigurationEntry[] getEntries();
+
+    /**
+     * The cache of the successful authentications of this realm.
+     *
+     * @return The cache, or <code>null</code> if the authentications are not cached.
+     */
+    default AuthenticationCache getAuthenticationCache() {
+        return null;
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.jaas.config.impl;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.login.LoginException;
+import javax.security.auth.spi.LoginModule;
+
+import org.apache.karaf.jaas.config.AuthenticationCache;
+
+/**
+ * Login module using an {@link AuthenticationCache}.
+ * <p>
+ * In the lookup phase, the login succeeds if the cache holds the user with the same password, and the cached
+ * principals are added to the subject on commit. In the store phase, the login always fails, so it doesn't
+ * change the result of the authentication, and the principals added to the subject by the other modules are
+ * cached on commit, which is only called when the authentication succeeded.
+ * <p>
+ * Only the name and password authentications are cached, the other ones (public key for instance) always
+ * go through the authentication modules.
+ */
+public class CacheLoginModule implements LoginModule {
+
+    private Subject subject;
+    private CallbackHandler callbackHandler;
+    private AuthenticationCache cache;
+    private boolean store;
+    private String user;
+    private char[] password;
+    private Set<Principal> initialPrincipals;
+    private Set<Principal> principals;
+
+    @Override
+    public void initialize(Subject subject, CallbackHandler callbackHandler, Map<String, ?> sharedState, Map<String, ?> options) {
+        this.subject = subject;
+        this.callbackHandler = callbackHandler;
+        this.cache = (AuthenticationCache) options.get(AuthenticationCache.CACHE_OPTION);
+        this.store = AuthenticationCache.PHASE_STORE.equals(options.get(AuthenticationCache.PHASE_OPTION));
+    }
+
+    @Override
+    public boolean login() throws LoginException {
+        if (cache == null || !readCredentials()) {
+            return false;
+        }
+        if (store) {
+            // the principals already in the subject are not the result of the authentication
+            initialPrincipals = new HashSet<>(subject.getPrincipals());
+            return false;
+        }
+        principals = cache.get(user, password);
+        clearPassword();
+        return principals != null;
+    }
+
+    @Override
+    public boolean commit() throws LoginException {
+        if (store) {
+            if (password != null) {
+                Set<Principal> added = new HashSet<>(subject.getPrincipals());
+                added.removeAll(initialPrincipals);
+                if (!added.isEmpty()) {
+                    cache.put(user, password, added);
+                }
+            }
+            clear();
+            return false;
+        }
+        if (principals == null) {
+            clear();
+            return false;
+        }
+        subject.getPrincipals().addAll(principals);
+        return true;
+    }
+
+    @Override
+    public boolean abort() throws LoginException {
+        boolean succeeded = !store && principals != null;
+        clear();
+        return succeeded;
+    }
+
+    @Override
+    public boolean logout() throws LoginException {
+        if (principals != null) {
+            subject.getPrincipals().removeAll(principals);
+        }
+        clear();
+        return true;
+    }
+
+    private boolean readCredentials() {
+        NameCallback nameCallback = new NameCallback("Username: ");
+        PasswordCallback passwordCallback = new PasswordCallback("Password: ", false);
+        try {
+            callbackHandler.handle(new Callback[] { nameCallback, passwordCallback });
+        } catch (UnsupportedCallbackException e) {
+            // not a password authentication
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+        user = nameCallback.getName();
+        char[] pwd = passwordCallback.getPassword();
+        passwordCallback.clearPassword();
+        if (user == null || pwd == null) {
+            return false;
+        }
+        password = pwd;
+        return true;
+    }
+
+    private void clearPassword() {
+        if (password != null) {
+            Arrays.fill(password, '\0');
+            password = null;
+        }
+    }
+
+    private void clear() {
+        clearPassword();
+        user = null;
+        initialPrincipals = null;
+        principals = null;
+    }
+
+}
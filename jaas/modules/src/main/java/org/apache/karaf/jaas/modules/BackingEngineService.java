@@ -31,7 +31,7 @@ public class BackingEngineService {
             for (BackingEngineFactory factory : engineFactories) {
                 String loginModuleClass = (String) entry.getOptions().get(ProxyLoginModule.PROPERTY_MODULE);
                 if (factory.getModuleClass().equals(loginModuleClass)) {
-                    return factory.build(entry.getOptions());
+                    return CacheInvalidatingBackingEngine.wrap(factory.build(entry.getOptions()), entry.getOptions());
                 }
             }
         }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.karaf.jaas.modules;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.karaf.jaas.boot.principal.GroupPrincipal;
+import org.apache.karaf.jaas.boot.principal.RolePrincipal;
+import org.apache.karaf.jaas.boot.principal.UserPrincipal;
+import org.apache.karaf.jaas.config.AuthenticationCache;
+
+/**
+ * {@link BackingEngine} clearing the {@link AuthenticationCache} of its realm when the users are modified.
+ */
+public class CacheInvalidatingBackingEngine implements BackingEngine {
+
+    private final BackingEngine engine;
+    private final AuthenticationCache cache;
+
+    public CacheInvalidatingBackingEngine(BackingEngine engine, AuthenticationCache cache) {
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    /**
+     * Wrap the engine built from the given login module options if the realm caches the authentications.
+     *
+     * @param engine the backing engine, may be <code>null</code>.
+     * @param options the options of the login module.
+     * @return the backing engine to use.
+     */
+    public static BackingEngine wrap(BackingEngine engine, Map<String, ?> options) {
+        Object cache = options.get(AuthenticationCache.CACHE_OPTION);
+        if (engine != null && cache instanceof AuthenticationCache) {
+            return new CacheInvalidatingBackingEngine(engine, (AuthenticationCache) cache);
+        }
+        return engine;
+    }
+
+    @Override
+    public void addUser(String username, String password) {
+        try {
+            engine.addUser(username, password);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        try {
+            engine.deleteUser(username);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public List<UserPrincipal> listUsers() {
+        return engine.listUsers();
+    }
+
+    @Override
+    public UserPrincipal lookupUser(String username) {
+        return engine.lookupUser(username);
+    }
+
+    @Override
+    public List<GroupPrincipal> listGroups(UserPrincipal user) {
+        return engine.listGroups(user);
+    }
+
+    @Override
+    public Map<GroupPrincipal, String> listGroups() {
+        return engine.listGroups();
+    }
+
+    @Override
+    public void addGroup(String username, String group) {
+        try {
+            engine.addGroup(username, group);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void createGroup(String group) {
+        try {
+            engine.createGroup(group);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteGroup(String username, String group) {
+        try {
+            engine.deleteGroup(username, group);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public List<RolePrincipal> listRoles(Principal principal) {
+        return engine.listRoles(principal);
+    }
+
+    @Override
+    public void addRole(String username, String role) {
+        try {
+            engine.addRole(username, role);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteRole(String username, String role) {
+        try {
+            engine.deleteRole(username, role);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void addGroupRole(String group, String role) {
+        try {
+            engine.addGroupRole(group, role);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteGroupRole(String group, String role) {
+        try {
+            engine.deleteGroupRole(group, role);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+}
@@ -114,6 +114,9 @@ public class Activator extends BaseActivator implements ManagedService {
         populate(config, "audit.log.level", "info");
         populate(config, "audit.eventadmin.enabled", "true");
         populate(config, "audit.eventadmin.topic", "org/apache/karaf/login");
+        populate(config, "authentication.cache.enabled", "false");
+        populate(config, "authentication.cache.ttl", "60000");
+        populate(config, "authentication.cache.size", "1000");
         config.put(BundleContext.class.getName(), bundleContext);
         return config;
     }
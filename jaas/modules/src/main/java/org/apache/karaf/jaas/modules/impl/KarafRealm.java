@@ -21,6 +21,7 @@ import java.util.Map;
 import javax.security.auth.login.AppConfigurationEntry;
 
 import org.apache.karaf.jaas.boot.ProxyLoginModule;
+import org.apache.karaf.jaas.config.AuthenticationCache;
 import org.apache.karaf.jaas.config.JaasRealm;
 import org.osgi.framework.BundleContext;
 
@@ -36,6 +37,7 @@ public class KarafRealm implements JaasRealm {
 
     private final BundleContext bundleContext;
     private volatile Map<String, Object> properties;
+    private volatile AuthenticationCache cache;
 
     public KarafRealm(BundleContext bundleContext, Map<String, Object> properties) {
         this.bundleContext = bundleContext;
@@ -44,6 +46,24 @@ public class KarafRealm implements JaasRealm {
 
     public void updated(Map<String, Object> properties) {
         this.properties = properties;
+        if (Boolean.parseBoolean(String.valueOf(properties.get("authentication.cache.enabled")))) {
+            long ttl = Long.parseLong(String.valueOf(properties.get("authentication.cache.ttl")));
+            int size = Integer.parseInt(String.valueOf(properties.get("authentication.cache.size")));
+            AuthenticationCache current = this.cache;
+            if (current == null || current.getTtl() != ttl || current.getMaxSize() != size) {
+                this.cache = new AuthenticationCache(REALM, ttl, size);
+            } else {
+                // the options of the login modules may have changed
+                current.invalidate();
+            }
+        } else {
+            this.cache = null;
+        }
+    }
+
+    @Override
+    public AuthenticationCache getAuthenticationCache() {
+        return cache;
     }
 
     @Override
@@ -100,13 +120,27 @@ public class KarafRealm implements JaasRealm {
         eventadminOptions.put("enabled", properties.get("audit.eventadmin.enabled"));
         eventadminOptions.put("topic", properties.get("audit.eventadmin.topic"));
 
-        return new AppConfigurationEntry[] {
+        AppConfigurationEntry[] authentication = new AppConfigurationEntry[] {
                 new AppConfigurationEntry(ProxyLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, propertiesOptions),
-                new AppConfigurationEntry(ProxyLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, publicKeyOptions),
+                new AppConfigurationEntry(ProxyLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, publicKeyOptions)
+        };
+        AppConfigurationEntry[] audit = new AppConfigurationEntry[] {
                 new AppConfigurationEntry(ProxyLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, fileOptions),
                 new AppConfigurationEntry(ProxyLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, logOptions),
                 new AppConfigurationEntry(ProxyLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, eventadminOptions)
         };
+        AuthenticationCache cache = this.cache;
+        if (cache != null) {
+            // the audit modules come first so that the cached logins are audited too
+            return cache.wrap(audit, authentication);
+        }
+        return new AppConfigurationEntry[] {
+                authentication[0],
+                authentication[1],
+                audit[0],
+                audit[1],
+                audit[2]
+        };
     }
 
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jaas.modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.spi.LoginModule;
+
+import org.apache.felix.utils.properties.Properties;
+import org.apache.karaf.jaas.boot.principal.RolePrincipal;
+import org.apache.karaf.jaas.boot.principal.UserPrincipal;
+import org.apache.karaf.jaas.config.AuthenticationCache;
+import org.apache.karaf.jaas.config.impl.CacheLoginModule;
+import org.apache.karaf.jaas.modules.properties.PropertiesBackingEngine;
+import org.apache.karaf.jaas.modules.properties.PropertiesLoginModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuthenticationCacheTest {
+
+    private File f;
+
+    @Before
+    public void setUp() throws IOException {
+        f = File.createTempFile(getClass().getName(), ".tmp");
+        PropertiesBackingEngine engine = new PropertiesBackingEngine(new Properties(f));
+        engine.addUser("abc", "xyz");
+        engine.addRole("abc", "myrole");
+    }
+
+    @After
+    public void tearDown() {
+        f.delete();
+    }
+
+    @Test
+    public void testGetPut() {
+        AuthenticationCache cache = new AuthenticationCache("test", 60000, 10);
+        Set<Principal> principals = Collections.singleton(new UserPrincipal("abc"));
+
+        assertNull(cache.get("abc", "xyz".toCharArray()));
+        cache.put("abc", "xyz".toCharArray(), principals);
+        assertEquals(principals, cache.get("abc", "xyz".toCharArray()));
+        assertNull(cache.get("abc", "wrong".toCharArray()));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        cache.invalidate();
+        assertNull(cache.get("abc", "xyz".toCharArray()));
+    }
+
+    @Test
+    public void testSizeAndTtl() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache("test", 100, 2);
+        Set<Principal> principals = Collections.singleton(new UserPrincipal("abc"));
+        cache.put("a", "a".toCharArray(), principals);
+        cache.put("b", "b".toCharArray(), principals);
+        // "a" is now the most recently used entry, so "b" is evicted
+        assertNotNull(cache.get("a", "a".toCharArray()));
+        cache.put("c", "c".toCharArray(), principals);
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get("b", "b".toCharArray()));
+
+        Thread.sleep(200);
+        assertNull(cache.get("a", "a".toCharArray()));
+        assertNull(cache.get("c", "c".toCharArray()));
+    }
+
+    @Test
+    public void testLoginModules() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache("test", 60000, 10);
+        Map<String, Object> options = new HashMap<>();
+        options.put("users", f.getAbsolutePath());
+        AppConfigurationEntry[] entries = cache.wrap(new AppConfigurationEntry[0], new AppConfigurationEntry[] {
+                new AppConfigurationEntry(PropertiesLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.OPTIONAL, options)
+        });
+        assertEquals(3, entries.length);
+        assertEquals(AppConfigurationEntry.LoginModuleControlFlag.SUFFICIENT, entries[0].getControlFlag());
+
+        // first login: the authentication goes through the properties module and is cached
+        Subject subject = new Subject();
+        assertFalse(login(subject, "xyz", entries[0].getOptions(), entries[1].getOptions(), entries[2].getOptions()));
+        assertEquals(2, subject.getPrincipals().size());
+        assertEquals(1, cache.getSize());
+
+        // second login: the cache grants the same principals
+        subject = new Subject();
+        assertTrue(login(subject, "xyz", entries[0].getOptions(), entries[1].getOptions(), entries[2].getOptions()));
+        assertEquals(1, subject.getPrincipals(UserPrincipal.class).size());
+        assertEquals(1, subject.getPrincipals(RolePrincipal.class).size());
+
+        // a backing engine built from the realm options clears the cache
+        BackingEngine engine = CacheInvalidatingBackingEngine.wrap(
+                new PropertiesBackingEngine(new Properties(f)), entries[1].getOptions());
+        engine.deleteRole("abc", "myrole");
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testUsersFileChange() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache("test", 60000, 10);
+        cache.watch(f);
+        cache.put("abc", "xyz".toCharArray(), Collections.singleton(new UserPrincipal("abc")));
+        assertNotNull(cache.get("abc", "xyz".toCharArray()));
+
+        new PropertiesBackingEngine(new Properties(f)).addUser("other", "other");
+        assertTrue(f.setLastModified(f.lastModified() + 2000));
+        assertNull(cache.get("abc", "xyz".toCharArray()));
+    }
+
+    /**
+     * Run the cache lookup, authentication and cache store modules the way a login context does.
+     *
+     * @return <code>true</code> if the cache granted the authentication.
+     */
+    private static boolean login(Subject subject, String password, Map<String, ?> lookupOptions,
+                                 Map<String, ?> authenticationOptions, Map<String, ?> storeOptions) throws Exception {
+        LoginModule lookup = new CacheLoginModule();
+        lookup.initialize(subject, new NamePasswordCallbackHandler("abc", password), new HashMap<>(), lookupOptions);
+        LoginModule authentication = new PropertiesLoginModule();
+        authentication.initialize(subject, new NamePasswordCallbackHandler("abc", password), new HashMap<>(), authenticationOptions);
+        LoginModule store = new CacheLoginModule();
+        store.initialize(subject, new NamePasswordCallbackHandler("abc", password), new HashMap<>(), storeOptions);
+
+        if (lookup.login()) {
+            // sufficient module succeeded, the other modules are not invoked
+            lookup.commit();
+            authentication.commit();
+            store.commit();
+            return true;
+        }
+        assertTrue(authentication.login());
+        assertFalse(store.login());
+        assertFalse(lookup.commit());
+        assertTrue(authentication.commit());
+        assertFalse(store.commit());
+        return false;
+    }
+
+}
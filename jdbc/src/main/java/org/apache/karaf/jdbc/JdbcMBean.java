@@ -94,4 +94,16 @@ public interface JdbcMBean {
      */
     TabularData query(String datasource, String query) throws MBeanException;
 
+    /**
+     * Execute a SQL query on a JDBC datasource, and return a page of the result.
+     *
+     * @param datasource The JDBC datasource name.
+     * @param query The SQL query to execute.
+     * @param offset The index of the first row to return.
+     * @param limit The maximum number of rows to return.
+     * @return A {@link TabularData} with the rows of the requested page (columns/values).
+     * @throws MBeanException In case of MBean failure.
+     */
+    TabularData query(String datasource, String query, long offset, int limit) throws MBeanException;
+
 }
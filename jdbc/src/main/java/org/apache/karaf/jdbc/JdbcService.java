@@ -82,6 +82,21 @@ public interface JdbcService {
      */
     Map<String, List<String>> query(String datasource, String query) throws Exception;
 
+    /**
+     * Execute a SQL query on a given JDBC datasource, streaming the rows to a handler
+     * instead of loading the whole result in memory.
+     *
+     * @param datasource The JDBC datasource name.
+     * @param query The SQL query to execute.
+     * @param fetchSize The number of rows fetched from the database at once, 0 to use the driver default.
+     * @param maxRows The maximum number of rows to read, 0 for no limit.
+     * @param timeout The query timeout in seconds, 0 for no limit.
+     * @param handler The handler of the rows.
+     * @return The number of rows passed to the handler.
+     * @throws Exception If the service or the handler fails.
+     */
+    long query(String datasource, String query, int fetchSize, int maxRows, int timeout, RowHandler handler) throws Exception;
+
     /**
      * Execute a SQL command on a given JDBC datasource.
      *
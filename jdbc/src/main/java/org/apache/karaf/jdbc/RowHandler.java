@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jdbc;
+
+import java.util.List;
+
+/**
+ * Handler of the rows of a SQL query result, called as the rows are read from the database.
+ */
+public interface RowHandler {
+
+    /**
+     * Called once, before the rows.
+     *
+     * @param columns The column labels.
+     * @throws Exception If the handler fails, the query is aborted.
+     */
+    void columns(List<String> columns) throws Exception;
+
+    /**
+     * Called for each row of the result.
+     *
+     * @param values The values of the row, in the same order as the columns.
+     * @return <code>true</code> to read the next row, <code>false</code> to stop the query.
+     * @throws Exception If the handler fails, the query is aborted.
+     */
+    boolean row(List<String> values) throws Exception;
+
+}
@@ -16,17 +16,20 @@
  */
 package org.apache.karaf.jdbc.command;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
+import org.apache.karaf.jdbc.RowHandler;
 import org.apache.karaf.jdbc.command.completers.DataSourcesNameCompleter;
 import org.apache.karaf.jdbc.command.completers.SqlCompleter;
 import org.apache.karaf.jdbc.command.parsing.JdbcParser;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.Completion;
+import org.apache.karaf.shell.api.action.Option;
 import org.apache.karaf.shell.api.action.Parsing;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.support.table.Col;
 import org.apache.karaf.shell.support.table.Row;
 import org.apache.karaf.shell.support.table.ShellTable;
 
@@ -43,27 +46,109 @@ public class QueryCommand extends JdbcCommandSupport {
     @Completion(SqlCompleter.class)
     String query;
 
+    @Option(name = "--fetch-size", description = "The number of rows fetched from the database at once (default is the driver one)", required = false, multiValued = false)
+    int fetchSize;
+
+    @Option(name = "--max-rows", description = "The maximum number of rows to display (default is no limit)", required = false, multiValued = false)
+    int maxRows;
+
+    @Option(name = "--timeout", description = "The query timeout in seconds (default is no timeout)", required = false, multiValued = false)
+    int timeout;
+
+    @Option(name = "--page-size", description = "The number of rows rendered at once, the column widths are computed on the first page (default is 100, 0 renders all the rows at once)", required = false, multiValued = false)
+    int pageSize = 100;
+
     @Override
     public Object execute() throws Exception {
-        ShellTable table = new ShellTable();
+        // the rows are rendered page per page, so the whole result is never held in memory
+        TablePrinter printer = new TablePrinter(pageSize > 0 ? pageSize : Integer.MAX_VALUE);
+        this.getJdbcService().query(datasource, query, fetchSize, maxRows, timeout, printer);
+        printer.flush();
+
+        return null;
+    }
+
+    /**
+     * Print the rows page per page. The column widths are computed on the first page and kept for the next ones,
+     * so that the columns stay aligned: shorter values are padded and longer values are cut, except in the last
+     * column.
+     */
+    private static class TablePrinter implements RowHandler {
+
+        private final int pageSize;
+        private List<String> columns;
+        private ShellTable table;
+        private List<Col> cols;
+        private int[] widths;
+        private int rows;
+        private boolean printed;
+
+        TablePrinter(int pageSize) {
+            this.pageSize = pageSize;
+        }
 
-        Map<String, List<String>> map = this.getJdbcService().query(datasource, query);
-        int rowCount = 0;
-        for (String column : map.keySet()) {
-            table.column(column);
-            rowCount = map.get(column).size();
+        @Override
+        public void columns(List<String> columns) {
+            this.columns = columns;
+            this.table = newTable();
         }
 
-        for (int i = 0; i < rowCount; i++) {
+        @Override
+        public boolean row(List<String> values) {
             Row row = table.addRow();
-            for (String column : map.keySet()) {
-                row.addContent(map.get(column).get(i));
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                if (widths != null) {
+                    value = pad(value, widths[i]);
+                }
+                row.addContent(value);
             }
+            if (++rows >= pageSize) {
+                flush();
+                table = newTable();
+            }
+            return !Thread.currentThread().isInterrupted();
         }
 
-        table.print(System.out);
+        void flush() {
+            // the headers are always displayed, even if there is no row
+            if (table != null && (rows > 0 || !printed)) {
+                table.print(System.out);
+                if (widths == null) {
+                    widths = new int[cols.size()];
+                    for (int i = 0; i < widths.length; i++) {
+                        widths[i] = cols.get(i).getSize();
+                    }
+                }
+                printed = true;
+                rows = 0;
+            }
+        }
 
-        return null;
+        private ShellTable newTable() {
+            ShellTable table = new ShellTable();
+            if (printed) {
+                table.noHeaders();
+            }
+            cols = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                Col col = table.column(columns.get(i));
+                // the last column can grow without moving the other ones
+                if (widths != null && i < columns.size() - 1) {
+                    col.maxSize(widths[i]);
+                }
+                cols.add(col);
+            }
+            return table;
+        }
+
+        private static String pad(String value, int width) {
+            StringBuilder sb = new StringBuilder(value != null ? value : "");
+            while (sb.length() < width) {
+                sb.append(' ');
+            }
+            return sb.toString();
+        }
     }
 
 }
@@ -18,6 +18,7 @@ package org.apache.karaf.jdbc.internal;
 
 import org.apache.karaf.jdbc.JdbcMBean;
 import org.apache.karaf.jdbc.JdbcService;
+import org.apache.karaf.jdbc.RowHandler;
 
 import javax.management.MBeanException;
 import javax.management.openmbean.*;
@@ -133,36 +134,69 @@ public class JdbcMBeanImpl implements JdbcMBean {
         }
     }
 
-    @SuppressWarnings("rawtypes")
     @Override
     public TabularData query(String datasource, String query) throws MBeanException {
         try {
-            Map<String, List<String>> result = jdbcService.query(datasource, query);
-            OpenType[] stringTypes = new OpenType[result.keySet().size()];
-            for (int i = 0; i < stringTypes.length; i++) {
-                stringTypes[i] = SimpleType.STRING;
-            }
-            String[] columns = result.keySet().toArray(new String[result.keySet().size()]);
+            TabularDataHandler handler = new TabularDataHandler(0, Integer.MAX_VALUE);
+            jdbcService.query(datasource, query, 0, 0, 0, handler);
+            return handler.table;
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
 
-            CompositeType type = new CompositeType("Columns", "Columns",
-                    columns, columns, stringTypes);
-            TabularType rows = new TabularType("Result", "Result Rows", type, columns);
-            TabularData table = new TabularDataSupport(rows);
+    @Override
+    public TabularData query(String datasource, String query, long offset, int limit) throws MBeanException {
+        if (offset < 0 || limit <= 0) {
+            throw new MBeanException(null, "The offset must be positive and the limit strictly positive");
+        }
+        try {
+            TabularDataHandler handler = new TabularDataHandler(offset, limit);
+            // the database doesn't need to read the rows after the page
+            long maxRows = offset + limit;
+            jdbcService.query(datasource, query, Math.min(limit, 1000), maxRows <= Integer.MAX_VALUE ? (int) maxRows : 0, 0, handler);
+            return handler.table;
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
 
-            int rowCount = result.get(result.keySet().iterator().next()).size();
+    /**
+     * Build the {@link TabularData} of a query result as the rows are read.
+     */
+    private static class TabularDataHandler implements RowHandler {
+
+        private final long offset;
+        private final int limit;
+        private String[] columns;
+        private CompositeType type;
+        private TabularData table;
+        private long index;
+
+        TabularDataHandler(long offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+        }
 
-            for (int i = 0; i < rowCount; i++) {
-                Object[] row = new Object[columns.length];
-                for (int j = 0; j < columns.length; j++) {
-                    row[j] = result.get(columns[j]).get(i);
-                }
-                CompositeData data = new CompositeDataSupport(type, columns, row);
-                table.put(data);
+        @SuppressWarnings("rawtypes")
+        @Override
+        public void columns(List<String> columns) throws Exception {
+            this.columns = columns.toArray(new String[columns.size()]);
+            OpenType[] stringTypes = new OpenType[this.columns.length];
+            for (int i = 0; i < stringTypes.length; i++) {
+                stringTypes[i] = SimpleType.STRING;
             }
+            type = new CompositeType("Columns", "Columns", this.columns, this.columns, stringTypes);
+            TabularType rows = new TabularType("Result", "Result Rows", type, this.columns);
+            table = new TabularDataSupport(rows);
+        }
 
-            return table;
-        } catch (Exception e) {
-            throw new MBeanException(null, e.toString());
+        @Override
+        public boolean row(List<String> values) throws Exception {
+            if (index++ >= offset) {
+                table.put(new CompositeDataSupport(type, columns, values.toArray()));
+            }
+            return index < offset + limit;
         }
     }
 
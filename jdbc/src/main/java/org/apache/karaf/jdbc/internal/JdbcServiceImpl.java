@@ -23,9 +23,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +36,7 @@ import javax.sql.DataSource;
 import javax.sql.XADataSource;
 
 import org.apache.karaf.jdbc.JdbcService;
+import org.apache.karaf.jdbc.RowHandler;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
@@ -134,20 +138,61 @@ public class JdbcServiceImpl implements JdbcService {
 
     @Override
     public Map<String, List<String>> query(String datasource, String query) throws Exception {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        query(datasource, query, 0, 0, 0, new RowHandler() {
+            @Override
+            public void columns(List<String> columns) {
+                for (String column : columns) {
+                    map.put(column, new ArrayList<>());
+                }
+            }
+
+            @Override
+            public boolean row(List<String> values) {
+                Iterator<String> it = values.iterator();
+                for (List<String> column : map.values()) {
+                    column.add(it.next());
+                }
+                return true;
+            }
+        });
+        return map;
+    }
+
+    @Override
+    public long query(String datasource, String query, int fetchSize, int maxRows, int timeout, RowHandler handler) throws Exception {
         try (JdbcConnector jdbcConnector = new JdbcConnector(bundleContext, lookupDataSource(datasource))) {
-            Map<String, List<String>> map = new HashMap<>();
             Statement statement = jdbcConnector.createStatement();
+            if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (maxRows > 0) {
+                statement.setMaxRows(maxRows);
+            }
+            if (timeout > 0) {
+                statement.setQueryTimeout(timeout);
+            }
             ResultSet resultSet = jdbcConnector.register(statement.executeQuery(query));
             ResultSetMetaData metaData = resultSet.getMetaData();
-            for (int c = 1; c <= metaData.getColumnCount(); c++) {
-                map.put(metaData.getColumnLabel(c), new ArrayList<>());
+            int columnCount = metaData.getColumnCount();
+            List<String> columns = new ArrayList<>(columnCount);
+            for (int c = 1; c <= columnCount; c++) {
+                columns.add(metaData.getColumnLabel(c));
             }
+            handler.columns(Collections.unmodifiableList(columns));
+            long rows = 0;
             while (resultSet.next()) {
-                for (int c = 1; c <= metaData.getColumnCount(); c++) {
-                    map.get(metaData.getColumnLabel(c)).add(resultSet.getString(c));
+                String[] values = new String[columnCount];
+                for (int c = 1; c <= columnCount; c++) {
+                    values[c - 1] = resultSet.getString(c);
+                }
+                rows++;
+                if (!handler.row(Arrays.asList(values))) {
+                    // the remaining rows are not fetched, the result set is closed with the connector
+                    break;
                 }
             }
-            return map;
+            return rows;
         }
     }
 
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jdbc.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.apache.karaf.jdbc.JdbcService;
+import org.apache.karaf.jdbc.RowHandler;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JdbcMBeanImplTest {
+
+    private static final int ROWS = 50;
+
+    private JdbcMBeanImpl mbean;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("derby.stream.error.file", "target/derby.log");
+
+        EmbeddedDataSource derby = new EmbeddedDataSource();
+        derby.setDatabaseName("memory:jdbcmbean");
+        derby.setCreateDatabase("create");
+        try (Connection connection = derby.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("drop table PERSON");
+            } catch (SQLException e) {
+                // Ignore
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table PERSON (ID INT PRIMARY KEY, NAME VARCHAR(32))");
+                for (int i = 1; i <= ROWS; i++) {
+                    statement.execute("insert into PERSON values (" + i + ", 'name" + i + "')");
+                }
+            }
+        }
+
+        mbean = new JdbcMBeanImpl();
+        mbean.setJdbcService(JdbcServiceImplTest.createService(derby));
+    }
+
+    @Test
+    public void testQuery() throws Exception {
+        TabularData table = mbean.query("test", "select * from PERSON");
+        assertEquals(ROWS, table.size());
+    }
+
+    @Test
+    public void testQueryPages() throws Exception {
+        assertEquals(ids(1, 10), ids(mbean.query("test", "select * from PERSON order by ID", 0, 10)));
+        assertEquals(ids(21, 30), ids(mbean.query("test", "select * from PERSON order by ID", 20, 10)));
+        // the last page is partial
+        assertEquals(ids(46, 50), ids(mbean.query("test", "select * from PERSON order by ID", 45, 10)));
+        // no row after the end
+        assertTrue(mbean.query("test", "select * from PERSON order by ID", 50, 10).isEmpty());
+        assertTrue(mbean.query("test", "select * from PERSON order by ID", Integer.MAX_VALUE + 1L, 10).isEmpty());
+    }
+
+    @Test
+    public void testQueryPageBounds() throws Exception {
+        try {
+            mbean.query("test", "select * from PERSON", -1, 10);
+            fail("Expected an exception");
+        } catch (MBeanException e) {
+            // expected
+        }
+        try {
+            mbean.query("test", "select * from PERSON", 0, 0);
+            fail("Expected an exception");
+        } catch (MBeanException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testQueryPageStatement() throws Exception {
+        JdbcService service = EasyMock.createMock(JdbcService.class);
+        // the database reads up to the end of the page, fetched at once
+        EasyMock.expect(service.query(EasyMock.eq("test"), EasyMock.eq("select"), EasyMock.eq(10), EasyMock.eq(30),
+                EasyMock.eq(0), (RowHandler) EasyMock.anyObject())).andReturn(0L);
+        // the fetch size is bounded, and the max rows is not set when the end of the page overflows
+        EasyMock.expect(service.query(EasyMock.eq("test"), EasyMock.eq("select"), EasyMock.eq(1000), EasyMock.eq(0),
+                EasyMock.eq(0), (RowHandler) EasyMock.anyObject())).andReturn(0L);
+        EasyMock.replay(service);
+
+        mbean.setJdbcService(service);
+        mbean.query("test", "select", 20, 10);
+        mbean.query("test", "select", Integer.MAX_VALUE, 5000);
+        EasyMock.verify(service);
+    }
+
+    private static List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            ids.add(Integer.toString(i));
+        }
+        return ids;
+    }
+
+    private static List<String> ids(TabularData table) {
+        List<String> ids = new ArrayList<>();
+        for (Object row : table.values()) {
+            ids.add((String) ((CompositeData) row).get("ID"));
+        }
+        // the rows of the tabular data are not ordered
+        ids.sort((i1, i2) -> Integer.compare(Integer.parseInt(i1), Integer.parseInt(i2)));
+        return ids;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jdbc.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.apache.karaf.jdbc.RowHandler;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+import static org.junit.Assert.assertEquals;
+
+public class JdbcServiceImplTest {
+
+    private static final int ROWS = 250;
+
+    private JdbcServiceImpl service;
+    private Map<String, Object> statementSettings;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("derby.stream.error.file", "target/derby.log");
+
+        EmbeddedDataSource derby = new EmbeddedDataSource();
+        derby.setDatabaseName("memory:jdbc");
+        derby.setCreateDatabase("create");
+        try (Connection connection = derby.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("drop table PERSON");
+            } catch (SQLException e) {
+                // Ignore
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table PERSON (ID INT PRIMARY KEY, NAME VARCHAR(32))");
+                for (int i = 1; i <= ROWS; i++) {
+                    statement.execute("insert into PERSON values (" + i + ", 'name" + i + "')");
+                }
+            }
+        }
+
+        statementSettings = new HashMap<>();
+        service = createService(recording(derby, statementSettings));
+    }
+
+    /**
+     * Create a service using the given datasource for any name.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static JdbcServiceImpl createService(DataSource dataSource) throws Exception {
+        ServiceReference reference = EasyMock.createMock(ServiceReference.class);
+        BundleContext bundleContext = EasyMock.createMock(BundleContext.class);
+        EasyMock.expect(bundleContext.getServiceReferences((String) EasyMock.isNull(), (String) EasyMock.anyObject()))
+                .andReturn(new ServiceReference[] { reference }).anyTimes();
+        EasyMock.expect(bundleContext.getService(reference)).andReturn(dataSource).anyTimes();
+        EasyMock.expect(bundleContext.ungetService(reference)).andReturn(true).anyTimes();
+        EasyMock.replay(reference, bundleContext);
+
+        JdbcServiceImpl service = new JdbcServiceImpl();
+        service.setBundleContext(bundleContext);
+        return service;
+    }
+
+    /**
+     * Wrap a datasource to record the settings of the statements.
+     */
+    private static DataSource recording(DataSource dataSource, Map<String, Object> settings) {
+        return proxy(DataSource.class, dataSource, settings);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Map<String, Object> settings) {
+        return (T) Proxy.newProxyInstance(JdbcServiceImplTest.class.getClassLoader(), new Class<?>[] { type },
+                (p, method, args) -> {
+                    if (method.getName().startsWith("set") && type == Statement.class) {
+                        settings.put(method.getName(), args[0]);
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Connection) {
+                        return proxy(Connection.class, (Connection) result, settings);
+                    } else if (result instanceof Statement && method.getName().equals("createStatement")) {
+                        return proxy(Statement.class, (Statement) result, settings);
+                    }
+                    return result;
+                });
+    }
+
+    @Test
+    public void testQuery() throws Exception {
+        Map<String, List<String>> result = service.query("test", "select * from PERSON order by ID");
+        assertEquals(Arrays.asList("ID", "NAME"), new ArrayList<>(result.keySet()));
+        assertEquals(ROWS, result.get("ID").size());
+        assertEquals("1", result.get("ID").get(0));
+        assertEquals("name250", result.get("NAME").get(ROWS - 1));
+        // no setting is forced on the statement by default
+        assertEquals(new HashMap<>(), statementSettings);
+    }
+
+    @Test
+    public void testQuerySettings() throws Exception {
+        CollectingHandler handler = new CollectingHandler(-1);
+        assertEquals(20, service.query("test", "select * from PERSON order by ID", 7, 20, 30, handler));
+        assertEquals(Arrays.asList("ID", "NAME"), handler.columns);
+        assertEquals(20, handler.rows.size());
+        assertEquals(Arrays.asList("20", "name20"), handler.rows.get(19));
+        assertEquals(7, statementSettings.get("setFetchSize"));
+        assertEquals(20, statementSettings.get("setMaxRows"));
+        assertEquals(30, statementSettings.get("setQueryTimeout"));
+    }
+
+    @Test
+    public void testQueryEarlyStop() throws Exception {
+        CollectingHandler handler = new CollectingHandler(5);
+        assertEquals(5, service.query("test", "select * from PERSON order by ID", 0, 0, 0, handler));
+        assertEquals(5, handler.rows.size());
+        assertEquals(Arrays.asList("5", "name5"), handler.rows.get(4));
+    }
+
+    @Test
+    public void testQueryEmpty() throws Exception {
+        CollectingHandler handler = new CollectingHandler(-1);
+        assertEquals(0, service.query("test", "select * from PERSON where ID < 0", 0, 0, 0, handler));
+        // the columns are known even without any row
+        assertEquals(Arrays.asList("ID", "NAME"), handler.columns);
+    }
+
+    private static class CollectingHandler implements RowHandler {
+
+        private final int stopAfter;
+        List<String> columns;
+        final List<List<String>> rows = new ArrayList<>();
+
+        CollectingHandler(int stopAfter) {
+            this.stopAfter = stopAfter;
+        }
+
+        @Override
+        public void columns(List<String> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean row(List<String> values) {
+            rows.add(values);
+            return stopAfter < 0 || rows.size() < stopAfter;
+        }
+    }
+
+}
@@ -123,6 +123,8 @@ public interface JmsMBean {
      */
     TabularData browse(String connectionFactory, String queue, String selector, String username, String password) throws MBeanException;
 
+    TabularData browse(String connectionFactory, String queue, String selector, String username, String password, int offset, int max) throws MBeanException;
+
     /**
      * Send a JMS message to given queue.
      *
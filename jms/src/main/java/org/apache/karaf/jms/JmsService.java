@@ -18,6 +18,7 @@ package org.apache.karaf.jms;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * JMS Service.
@@ -129,6 +130,22 @@ public interface JmsService {
      */
     List<JmsMessage> browse(String connectionFactory, String queue, String selector, String username, String password) throws Exception;
 
+    /**
+     * Browse a page of a destination, passing the messages to a consumer as they are read.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param queue The queue name.
+     * @param selector The selector.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @param offset The number of messages to skip.
+     * @param max The maximum number of messages to browse, -1 for no limit.
+     * @param consumer The consumer of the messages.
+     * @return The number of browsed messages.
+     * @throws Exception If the service fails.
+     */
+    int browse(String connectionFactory, String queue, String selector, String username, String password, int offset, int max, Consumer<JmsMessage> consumer) throws Exception;
+
     /**
      * Send a message on the given queue.
      *
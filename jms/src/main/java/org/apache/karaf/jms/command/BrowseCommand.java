@@ -16,8 +16,6 @@
  */
 package org.apache.karaf.jms.command;
 
-import java.util.List;
-
 import org.apache.karaf.jms.JmsMessage;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
@@ -29,6 +27,8 @@ import org.apache.karaf.shell.support.table.ShellTable;
 @Service
 public class BrowseCommand extends JmsConnectionCommandSupport {
 
+    private static final int PAGE_SIZE = 100;
+
     @Argument(index = 1, name = "queue", description = "The JMS queue to browse", required = true, multiValued = false)
     String queue;
 
@@ -38,10 +38,38 @@ public class BrowseCommand extends JmsConnectionCommandSupport {
     @Option(name = "-v", aliases = { "--verbose" }, description = "Display JMS properties", required = false, multiValued = false)
     boolean verbose = false;
 
+    @Option(name = "--offset", description = "The number of messages to skip", required = false, multiValued = false)
+    int offset = 0;
+
+    @Option(name = "-m", aliases = { "--max" }, description = "The maximum number of messages to browse (default is all the messages)", required = false, multiValued = false)
+    int max = -1;
+
     @Override
     public Object execute() throws Exception {
+        // the messages are rendered page per page, so the whole queue is never held in memory
+        ShellTable[] table = { createTable(true) };
+        int[] rows = { 0 };
+        int count = getJmsService().browse(connectionFactory, queue, selector, username, password, offset, max, message -> {
+            addRow(table[0], message);
+            if (++rows[0] == PAGE_SIZE) {
+                table[0].print(System.out);
+                table[0] = createTable(false);
+                rows[0] = 0;
+            }
+        });
+        // the headers are always displayed, even if there is no message
+        if (rows[0] > 0 || count == 0) {
+            table[0].print(System.out);
+        }
 
+        return null;
+    }
+
+    private ShellTable createTable(boolean headers) {
         ShellTable table = new ShellTable();
+        if (!headers) {
+            table.noHeaders();
+        }
         table.column("Message ID");
         table.column("Content").maxSize(80);
         table.column("Charset");
@@ -57,48 +85,44 @@ public class BrowseCommand extends JmsConnectionCommandSupport {
         if (verbose) {
             table.column("Properties");
         }
+        return table;
+    }
 
-        List<JmsMessage> messages = getJmsService().browse(connectionFactory, queue, selector, username, password);
-        for (JmsMessage message : messages) {
-            if (verbose) {
-                StringBuilder properties = new StringBuilder();
-                for (String property : message.getProperties().keySet()) {
-                    properties.append(property).append("=").append(message.getProperties().get(property)).append("\n");
-                }
-                table.addRow().addContent(
-                        message.getMessageId(),
-                        message.getContent(),
-                        message.getCharset(),
-                        message.getType(),
-                        message.getCorrelationID(),
-                        message.getDeliveryMode(),
-                        message.getDestination(),
-                        message.getExpiration(),
-                        message.getPriority(),
-                        message.isRedelivered(),
-                        message.getReplyTo(),
-                        message.getTimestamp(),
-                        properties.toString());
-            } else {
-                table.addRow().addContent(
-                        message.getMessageId(),
-                        message.getContent(),
-                        message.getCharset(),
-                        message.getType(),
-                        message.getCorrelationID(),
-                        message.getDeliveryMode(),
-                        message.getDestination(),
-                        message.getExpiration(),
-                        message.getPriority(),
-                        message.isRedelivered(),
-                        message.getReplyTo(),
-                        message.getTimestamp());
+    private void addRow(ShellTable table, JmsMessage message) {
+        if (verbose) {
+            StringBuilder properties = new StringBuilder();
+            for (String property : message.getProperties().keySet()) {
+                properties.append(property).append("=").append(message.getProperties().get(property)).append("\n");
             }
+            table.addRow().addContent(
+                    message.getMessageId(),
+                    message.getContent(),
+                    message.getCharset(),
+                    message.getType(),
+                    message.getCorrelationID(),
+                    message.getDeliveryMode(),
+                    message.getDestination(),
+                    message.getExpiration(),
+                    message.getPriority(),
+                    message.isRedelivered(),
+                    message.getReplyTo(),
+                    message.getTimestamp(),
+                    properties.toString());
+        } else {
+            table.addRow().addContent(
+                    message.getMessageId(),
+                    message.getContent(),
+                    message.getCharset(),
+                    message.getType(),
+                    message.getCorrelationID(),
+                    message.getDeliveryMode(),
+                    message.getDestination(),
+                    message.getExpiration(),
+                    message.getPriority(),
+                    message.isRedelivered(),
+                    message.getReplyTo(),
+                    message.getTimestamp());
         }
-
-        table.print(System.out);
-
-        return null;
     }
 
 }
@@ -20,22 +20,53 @@ import javax.jms.ConnectionMetaData;
 import javax.jms.Destination;
 import javax.jms.JMSConsumer;
 import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
 import javax.jms.Topic;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 class ActiveMQDestinationSourceFactory implements DestinationSource.Factory {
 
+    private static final long STATISTICS_TIMEOUT = 1000L;
+    private static final int MAX_CONNECTIONS = 256;
+
+    /**
+     * Client ids of the connections to brokers without the statistics plugin, so that {@link #count(JMSContext, String)}
+     * only waits for the plugin once per connection.
+     */
+    private final Set<String> withoutStatistics = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_CONNECTIONS;
+                }
+            }));
+
     @Override
     public DestinationSource create(JMSContext context) {
         try {
             ConnectionMetaData cmd = context.getMetaData();
             if (cmd.getJMSProviderName().equals("ActiveMQ") && cmd.getProviderVersion().startsWith("5.")) {
-                return type -> getNames(context, type);
+                return new DestinationSource() {
+                    @Override
+                    public List<String> getNames(DestinationType type) {
+                        return ActiveMQDestinationSourceFactory.this.getNames(context, type);
+                    }
+
+                    @Override
+                    public long count(String queue) {
+                        return ActiveMQDestinationSourceFactory.this.count(context, queue);
+                    }
+                };
             }
         } catch (Throwable t) {
             // Ignore
@@ -71,6 +102,61 @@ class ActiveMQDestinationSourceFactory implements DestinationSource.Factory {
         return Collections.emptyList();
     }
 
+    /**
+     * Count the messages of a queue using the statistics broker plugin, if it's enabled on the broker.
+     * The request is sent on a topic, so it's simply dropped if the plugin is not enabled. In this case, the
+     * connection is remembered and the plugin is not queried again on it.
+     */
+    long count(JMSContext context, String queue) {
+        String clientId = getClientId(context);
+        if (clientId != null && withoutStatistics.contains(clientId)) {
+            return -1;
+        }
+        try {
+            TemporaryQueue replyTo = context.createTemporaryQueue();
+            try {
+                context.start();
+                context.createProducer()
+                        .setJMSReplyTo(replyTo)
+                        .setTimeToLive(STATISTICS_TIMEOUT)
+                        .send(context.createTopic("ActiveMQ.Statistics.Destination." + queue), "");
+                try (JMSConsumer consumer = context.createConsumer(replyTo)) {
+                    // the plugin replies for all the destinations matching the name, topics included
+                    Message reply = consumer.receive(STATISTICS_TIMEOUT);
+                    if (reply == null && clientId != null) {
+                        withoutStatistics.add(clientId);
+                    }
+                    while (reply != null) {
+                        if (reply instanceof MapMessage
+                                && ("queue://" + queue).equals(((MapMessage) reply).getString("destinationName"))) {
+                            return ((MapMessage) reply).getLong("size");
+                        }
+                        reply = consumer.receive(STATISTICS_TIMEOUT);
+                    }
+                }
+            } finally {
+                // the temporary queue would otherwise live as long as the pooled connection
+                try {
+                    replyTo.delete();
+                } catch (JMSException e) {
+                    // Ignore, it is removed with the connection
+                }
+            }
+        } catch (Exception e) {
+            // Ignore
+        }
+        return -1;
+    }
+
+    private static String getClientId(JMSContext context) {
+        try {
+            // the contexts created on the same connection share its client id
+            return context.getClientID();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private static Object getField(Object context, String... fields) throws NoSuchFieldException, IllegalAccessException {
         Object obj = context;
         for (String field : fields) {
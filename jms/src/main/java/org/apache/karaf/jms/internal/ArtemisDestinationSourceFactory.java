@@ -17,25 +17,62 @@
 package org.apache.karaf.jms.internal;
 
 import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
 
 import javax.jms.ConnectionMetaData;
 import javax.jms.JMSConsumer;
 import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
 import javax.jms.Message;
 import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
 import javax.jms.TextMessage;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 class ArtemisDestinationSourceFactory implements DestinationSource.Factory {
 
+    private static final long TIMEOUT = 5000L;
+    private static final long MOVE_TIMEOUT = 600000L;
+
     @Override
     public DestinationSource create(JMSContext context) {
         try {
             ConnectionMetaData cmd = context.getMetaData();
             if (cmd.getJMSProviderName().equals("ActiveMQ") && cmd.getProviderVersion().startsWith("2.")) {
-                return type -> getNames(context, type);
+                return new DestinationSource() {
+                    @Override
+                    public List<String> getNames(DestinationType type) {
+                        return ArtemisDestinationSourceFactory.this.getNames(context, type);
+                    }
+
+                    @Override
+                    public long count(String queue) {
+                        try {
+                            Object count = invoke(context, TIMEOUT, "queue." + queue, "getMessageCount");
+                            return count instanceof Number ? ((Number) count).longValue() : -1;
+                        } catch (Exception e) {
+                            return -1;
+                        }
+                    }
+
+                    @Override
+                    public int move(String sourceQueue, String targetQueue, String selector) {
+                        try {
+                            Object count = invoke(context, MOVE_TIMEOUT, "queue." + sourceQueue, "moveMessages", selector, targetQueue);
+                            return count instanceof Number ? ((Number) count).intValue() : -1;
+                        } catch (NoReplyException e) {
+                            // the broker may still be moving the messages, so don't fall back to a client side move
+                            throw new JMSRuntimeException(e.getMessage());
+                        } catch (Exception e) {
+                            return -1;
+                        }
+                    }
+                };
             }
         } catch (Throwable t) {
             // Ignore
@@ -45,25 +82,55 @@ class ArtemisDestinationSourceFactory implements DestinationSource.Factory {
 
     private List<String> getNames(JMSContext context, DestinationSource.DestinationType type) {
         try {
-            Queue managementQueue = context.createQueue("activemq.management");
-            Queue replyTo = context.createTemporaryQueue();
+            String routing = type == DestinationSource.DestinationType.Queue ? "ANYCAST" : "MULTICAST";
+            return (List<String>) invoke(context, TIMEOUT, "broker", "getQueueNames", routing);
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Invoke an operation of the broker management, and return its result.
+     */
+    private static Object invoke(JMSContext context, long timeout, String resource, String operation, Object... parameters) throws Exception {
+        StringWriter json = new StringWriter();
+        JsonWriter.write(json, Arrays.asList(parameters));
 
+        Queue managementQueue = context.createQueue("activemq.management");
+        TemporaryQueue replyTo = context.createTemporaryQueue();
+        try {
             context.start();
 
-            String routing = type == DestinationSource.DestinationType.Queue ? "ANYCAST" : "MULTICAST";
             context.createProducer()
-                    .setProperty("_AMQ_ResourceName", "broker")
-                    .setProperty("_AMQ_OperationName", "getQueueNames")
+                    .setProperty("_AMQ_ResourceName", resource)
+                    .setProperty("_AMQ_OperationName", operation)
                     .setJMSReplyTo(replyTo)
-                    .send(managementQueue, "[\"" + routing + "\"]");
+                    .send(managementQueue, json.toString());
             try (JMSConsumer consumer = context.createConsumer(replyTo)) {
-                Message reply = consumer.receive(500);
-                String json = ((TextMessage) reply).getText();
-                List<?> array = (List<?>) JsonReader.read(new StringReader(json));
-                return (List<String>) array.get(0);
+                Message reply = consumer.receive(timeout);
+                if (reply == null) {
+                    throw new NoReplyException("No reply from the broker management for " + operation + " on " + resource);
+                }
+                String result = ((TextMessage) reply).getText();
+                if (reply.propertyExists("_AMQ_OperationSucceeded") && !reply.getBooleanProperty("_AMQ_OperationSucceeded")) {
+                    throw new IllegalStateException("Broker management operation " + operation + " failed: " + result);
+                }
+                List<?> array = (List<?>) JsonReader.read(new StringReader(result));
+                return array.get(0);
             }
-        } catch (Exception e) {
-            return Collections.emptyList();
+        } finally {
+            // the temporary queue would otherwise live as long as the pooled connection
+            try {
+                replyTo.delete();
+            } catch (JMSException e) {
+                // Ignore, it is removed with the connection
+            }
+        }
+    }
+
+    private static class NoReplyException extends Exception {
+        NoReplyException(String message) {
+            super(message);
         }
     }
 }
@@ -31,4 +31,23 @@ interface DestinationSource {
     }
 
     List<String> getNames(DestinationType type);
+
+    /**
+     * Count the messages of a queue using the broker management.
+     *
+     * @return The number of messages, or -1 if the broker can't count them.
+     */
+    default long count(String queue) {
+        return -1;
+    }
+
+    /**
+     * Move the messages of a queue to another one using the broker management, without
+     * consuming them on the client side.
+     *
+     * @return The number of moved messages, or -1 if the broker can't move them.
+     */
+    default int move(String sourceQueue, String targetQueue, String selector) {
+        return -1;
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms.internal;
+
+import javax.jms.JMSContext;
+import javax.jms.JMSRuntimeException;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keep the JMS connections open between the operations of the JMS service.
+ * <p>
+ * A connection is shared per connection factory and credentials, and each operation creates its own
+ * {@link JMSContext} (so its own session) on this connection, instead of connecting to the broker again.
+ * The connections not used for a while, or which failed, are closed.
+ */
+class JmsContextPool implements Closeable {
+
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final ScheduledExecutorService evictor;
+    private final long idleTimeout;
+
+    JmsContextPool() {
+        this(IDLE_TIMEOUT);
+    }
+
+    JmsContextPool(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Karaf JMS connection pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evict, idleTimeout, Math.max(idleTimeout / 2, 1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a context on the shared connection of a connection factory.
+     *
+     * @param factory The connection factory identifier (its service id).
+     * @param username The username.
+     * @param password The password.
+     * @param sessionMode The session mode of the context.
+     * @param connector Create the shared context, and so the connection, when none is available.
+     * @return The context, which has to be closed by the caller.
+     */
+    JMSContext createContext(Object factory, String username, String password, int sessionMode, Supplier<JMSContext> connector) {
+        Key key = new Key(factory, username, password);
+        Entry entry = getEntry(key, connector);
+        try {
+            return entry.context.createContext(sessionMode);
+        } catch (JMSRuntimeException e) {
+            // the shared connection may be broken, retry once with a new one
+            remove(key, entry);
+            return getEntry(key, connector).context.createContext(sessionMode);
+        }
+    }
+
+    private synchronized Entry getEntry(Key key, Supplier<JMSContext> connector) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry created = new Entry(connector.get());
+            try {
+                created.context.setExceptionListener(e -> remove(key, created));
+            } catch (JMSRuntimeException e) {
+                // the provider doesn't support exception listeners, failures are detected on use
+            }
+            entries.put(key, created);
+            entry = created;
+        }
+        entry.lastUsed = System.currentTimeMillis();
+        return entry;
+    }
+
+    private void remove(Key key, Entry entry) {
+        synchronized (this) {
+            if (!entries.remove(key, entry)) {
+                return;
+            }
+        }
+        entry.close();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        List<Entry> idle = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (now - entry.lastUsed > idleTimeout) {
+                    it.remove();
+                    idle.add(entry);
+                }
+            }
+        }
+        // the contexts created on the connection are still usable until they are closed
+        idle.forEach(Entry::close);
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        try {
+            // let a running eviction close its connections
+            evictor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Entry> all;
+        synchronized (this) {
+            all = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        all.forEach(Entry::close);
+    }
+
+    private static class Entry {
+        final JMSContext context;
+        volatile long lastUsed;
+
+        Entry(JMSContext context) {
+            this.context = context;
+        }
+
+        void close() {
+            try {
+                context.close();
+            } catch (Throwable t) {
+                // Ignore
+            }
+        }
+    }
+
+    private static class Key {
+        final Object factory;
+        final String username;
+        final String password;
+
+        Key(Object factory, String username, String password) {
+            this.factory = factory;
+            this.username = username;
+            this.password = password;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(factory, key.factory)
+                    && Objects.equals(username, key.username)
+                    && Objects.equals(password, key.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(factory, username);
+        }
+    }
+
+}
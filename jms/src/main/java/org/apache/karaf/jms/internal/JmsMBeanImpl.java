@@ -133,6 +133,11 @@ public class JmsMBeanImpl implements JmsMBean {
 
     @Override
     public TabularData browse(String connectionFactory, String queue, String selector, String username, String password) throws MBeanException {
+        return browse(connectionFactory, queue, selector, username, password, 0, -1);
+    }
+
+    @Override
+    public TabularData browse(String connectionFactory, String queue, String selector, String username, String password, int offset, int max) throws MBeanException {
         try {
             CompositeType type = new CompositeType("message", "JMS Message",
                     new String[]{ "id", "content", "charset", "type", "correlation", "delivery", "destination", "expiration", "priority", "redelivered", "replyto", "timestamp" },
@@ -140,13 +145,17 @@ public class JmsMBeanImpl implements JmsMBean {
                     new OpenType[]{ SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER, SimpleType.BOOLEAN, SimpleType.STRING, SimpleType.STRING });
             TabularType tableType = new TabularType("messages", "JMS Messages", type, new String[]{ "id" });
             TabularData table = new TabularDataSupport(tableType);
-            for (JmsMessage message : getJmsService().browse(connectionFactory, queue, selector, username, password)) {
-                CompositeData data = new CompositeDataSupport(type,
-                        new String[]{ "id", "content", "charset", "type", "correlation", "delivery", "destination", "expiration", "priority", "redelivered", "replyto", "timestamp" },
-                        new Object[]{ message.getMessageId(), message.getContent(), message.getCharset(), message.getType(), message.getCorrelationID(), message.getDeliveryMode(), message.getDestination(), message.getExpiration(), message.getPriority(), message.isRedelivered(), message.getReplyTo(), message.getTimestamp() }
-                        );
-                table.put(data);
-            }
+            getJmsService().browse(connectionFactory, queue, selector, username, password, offset, max, message -> {
+                try {
+                    CompositeData data = new CompositeDataSupport(type,
+                            new String[]{ "id", "content", "charset", "type", "correlation", "delivery", "destination", "expiration", "priority", "redelivered", "replyto", "timestamp" },
+                            new Object[]{ message.getMessageId(), message.getContent(), message.getCharset(), message.getType(), message.getCorrelationID(), message.getDeliveryMode(), message.getDestination(), message.getExpiration(), message.getPriority(), message.isRedelivered(), message.getReplyTo(), message.getTimestamp() }
+                            );
+                    table.put(data);
+                } catch (OpenDataException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
             return table;
         } catch (Throwable t) {
             throw new MBeanException(null, t.getMessage());
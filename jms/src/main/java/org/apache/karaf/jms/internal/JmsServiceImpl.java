@@ -34,6 +34,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -41,6 +42,16 @@ import java.util.stream.Collectors;
  */
 public class JmsServiceImpl implements JmsService {
 
+    /**
+     * Number of messages consumed or moved in a transaction.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private final JmsContextPool pool = new JmsContextPool();
+    private final List<DestinationSource.Factory> destinationSourceFactories = Arrays.asList(
+            new ActiveMQDestinationSourceFactory(),
+            new ArtemisDestinationSourceFactory()
+    );
     private BundleContext bundleContext;
     private ConfigurationAdmin configAdmin;
     private Path deployFolder;
@@ -137,6 +148,11 @@ public class JmsServiceImpl implements JmsService {
     @Override
     public int count(String connectionFactory, final String destination, String username, String password) throws IOException, JMSException {
         try (JMSContext context = createContext(connectionFactory, username, password)) {
+            long size = getDestinationSource(context).count(destination);
+            if (size >= 0) {
+                return (int) Math.min(size, Integer.MAX_VALUE);
+            }
+            // the broker can't count the messages itself
             try (QueueBrowser browser = context.createBrowser(context.createQueue(destination))) {
                 @SuppressWarnings("unchecked")
                 Enumeration<Message> enumeration = browser.getEnumeration();
@@ -156,12 +172,14 @@ public class JmsServiceImpl implements JmsService {
 
     private JMSContext createContext(String name, String username, String password, int sessionMode) {
         ServiceReference<ConnectionFactory> sr = lookupConnectionFactory(name);
-        ConnectionFactory cf = bundleContext.getService(sr);
-        try {
-            return cf.createContext(username, password, sessionMode);
-        } finally {
-            bundleContext.ungetService(sr);
-        }
+        return pool.createContext(sr.getProperty(Constants.SERVICE_ID), username, password, sessionMode, () -> {
+            ConnectionFactory cf = bundleContext.getService(sr);
+            try {
+                return cf.createContext(username, password);
+            } finally {
+                bundleContext.ungetService(sr);
+            }
+        });
     }
 
     private ServiceReference<ConnectionFactory> lookupConnectionFactory(String name) {
@@ -179,12 +197,8 @@ public class JmsServiceImpl implements JmsService {
     }
 
     private DestinationSource getDestinationSource(JMSContext context) throws JMSException {
-        List<DestinationSource.Factory> factories = Arrays.asList(
-                new ActiveMQDestinationSourceFactory(),
-                new ArtemisDestinationSourceFactory()
-        );
         DestinationSource source = null;
-        for (DestinationSource.Factory factory : factories) {
+        for (DestinationSource.Factory factory : destinationSourceFactories) {
             source = factory.create(context);
             if (source != null) {
                 break;
@@ -213,17 +227,29 @@ public class JmsServiceImpl implements JmsService {
     @Override
     public List<JmsMessage> browse(String connectionFactory, final String queue, final String filter,
                                    String username, String password) throws JMSException, IOException {
+        List<JmsMessage> messages = new ArrayList<>();
+        browse(connectionFactory, queue, filter, username, password, 0, -1, messages::add);
+        return messages;
+    }
+
+    @Override
+    public int browse(String connectionFactory, String queue, String selector, String username, String password,
+                      int offset, int max, Consumer<JmsMessage> consumer) throws JMSException, IOException {
         try (JMSContext context = createContext(connectionFactory, username, password)) {
-            try (QueueBrowser browser = context.createBrowser(context.createQueue(queue), filter)) {
-                List<JmsMessage> messages = new ArrayList<>();
+            try (QueueBrowser browser = context.createBrowser(context.createQueue(queue), selector)) {
                 @SuppressWarnings("unchecked")
                 Enumeration<Message> enumeration = browser.getEnumeration();
-                while (enumeration.hasMoreElements()) {
+                int index = 0;
+                int count = 0;
+                while ((max < 0 || count < max) && enumeration.hasMoreElements() && !Thread.currentThread().isInterrupted()) {
                     Message message = enumeration.nextElement();
-
-                    messages.add(new JmsMessage(message));
+                    // the messages before the page are skipped without reading their body
+                    if (index++ >= offset) {
+                        consumer.accept(new JmsMessage(message));
+                        count++;
+                    }
                 }
-                return messages;
+                return count;
             }
         }
     }
@@ -243,17 +269,9 @@ public class JmsServiceImpl implements JmsService {
     @Override
     public int consume(String connectionFactory, final String queue, final String selector, String username,
                        String password) throws Exception {
-        try (JMSContext context = createContext(connectionFactory, username, password)) {
+        try (JMSContext context = createContext(connectionFactory, username, password, JMSContext.SESSION_TRANSACTED)) {
             try (JMSConsumer consumer = context.createConsumer(context.createQueue(queue), selector)) {
-                int count = 0;
-                Message message;
-                do {
-                    message = consumer.receive(500L);
-                    if (message != null) {
-                        count++;
-                    }
-                } while (message != null);
-                return count;
+                return receiveAll(context, consumer, message -> { });
             }
         }
     }
@@ -261,25 +279,49 @@ public class JmsServiceImpl implements JmsService {
     @Override
     public int move(String connectionFactory, final String sourceQueue, final String targetQueue,
                     final String selector, String username, String password) throws IOException, JMSException {
+        // the management messages can't be sent in a transacted session
+        try (JMSContext context = createContext(connectionFactory, username, password)) {
+            int count = getDestinationSource(context).move(sourceQueue, targetQueue, selector);
+            if (count >= 0) {
+                return count;
+            }
+        }
+        // the broker can't move the messages itself
         try (JMSContext context = createContext(connectionFactory, username, password, JMSContext.SESSION_TRANSACTED)) {
             Queue source = context.createQueue(sourceQueue);
             Queue target = context.createQueue(targetQueue);
+            JMSProducer producer = context.createProducer();
             try (JMSConsumer consumer = context.createConsumer(source, selector)) {
-                int count = 0;
-                while (true) {
-                    Message message = consumer.receive(500L);
-                    if (message != null) {
-                        context.createProducer().send(target, message);
-                        context.commit();
-                        count++;
-                    } else {
-                        break;
-                    }
-                }
-                return count;
+                return receiveAll(context, consumer, message -> producer.send(target, message));
             }
         }
-   }
+    }
+
+    /**
+     * Receive all the available messages of a consumer created on a transacted context, committing the
+     * transaction every {@link #BATCH_SIZE} messages.
+     *
+     * @return The number of messages received.
+     */
+    static int receiveAll(JMSContext context, JMSConsumer consumer, Consumer<Message> handler) {
+        int count = 0;
+        Message message;
+        while ((message = consumer.receive(500L)) != null) {
+            handler.accept(message);
+            if (++count % BATCH_SIZE == 0) {
+                context.commit();
+            }
+        }
+        context.commit();
+        return count;
+    }
+
+    /**
+     * Close the connections kept open.
+     */
+    public void close() {
+        pool.close();
+    }
 
     public void setBundleContext(BundleContext bundleContext) {
         this.bundleContext = bundleContext;
@@ -32,11 +32,14 @@ import org.osgi.service.cm.ConfigurationAdmin;
         requires = @RequireService(ConfigurationAdmin.class)
 )
 public class Activator extends BaseActivator {
+
+    private JmsServiceImpl service;
+
     @Override
     protected void doStart() throws Exception {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
 
-        JmsServiceImpl service = new JmsServiceImpl();
+        service = new JmsServiceImpl();
         service.setBundleContext(bundleContext);
         service.setConfigAdmin(configurationAdmin);
         register(JmsService.class, service);
@@ -51,4 +54,13 @@ public class Activator extends BaseActivator {
         register(CommandLoggingFilter.class, filter);
 
     }
+
+    @Override
+    protected void doStop() {
+        super.doStop();
+        if (service != null) {
+            service.close();
+            service = null;
+        }
+    }
 }
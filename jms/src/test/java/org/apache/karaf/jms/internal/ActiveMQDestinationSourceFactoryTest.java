@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms.internal;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.TemporaryQueue;
+import javax.jms.Topic;
+
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class ActiveMQDestinationSourceFactoryTest {
+
+    @Test
+    public void testCountWithoutStatisticsPlugin() throws Exception {
+        TemporaryQueue replyTo = createMock(TemporaryQueue.class);
+        Topic topic = createMock(Topic.class);
+        JMSProducer producer = createNiceMock(JMSProducer.class);
+        JMSConsumer consumer = createNiceMock(JMSConsumer.class);
+        JMSContext context = createMock(JMSContext.class);
+        expect(context.getClientID()).andReturn("ID:connection-1").times(2);
+        expect(context.createTemporaryQueue()).andReturn(replyTo).once();
+        context.start();
+        expect(context.createProducer()).andReturn(producer).once();
+        expect(producer.setJMSReplyTo(replyTo)).andReturn(producer);
+        expect(producer.setTimeToLive(anyLong())).andReturn(producer);
+        expect(producer.send(topic, "")).andReturn(producer);
+        expect(context.createTopic("ActiveMQ.Statistics.Destination.test")).andReturn(topic);
+        expect(context.createConsumer(replyTo)).andReturn(consumer).once();
+        expect(consumer.receive(anyLong())).andReturn(null);
+        replyTo.delete();
+        replay(replyTo, topic, producer, consumer, context);
+
+        ActiveMQDestinationSourceFactory factory = new ActiveMQDestinationSourceFactory();
+        assertEquals(-1, factory.count(context, "test"));
+        // the plugin is not queried again on the same connection
+        assertEquals(-1, factory.count(context, "test"));
+        verify(replyTo, context);
+    }
+
+}
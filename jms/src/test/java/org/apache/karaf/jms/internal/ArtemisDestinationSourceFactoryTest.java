@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms.internal;
+
+import javax.jms.ConnectionMetaData;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class ArtemisDestinationSourceFactoryTest {
+
+    private final List<Object> mocks = new ArrayList<>();
+
+    @Test
+    public void testCountDeletesReplyQueue() throws Exception {
+        TextMessage reply = createNiceMock(TextMessage.class);
+        expect(reply.getText()).andReturn("[42]").times(2);
+        JMSContext context = mockManagement(reply, 2);
+
+        DestinationSource source = new ArtemisDestinationSourceFactory().create(context);
+        assertEquals(42, source.count("test"));
+        assertEquals(42, source.count("test"));
+        verify(mocks.toArray());
+    }
+
+    @Test
+    public void testNoReplyDeletesReplyQueue() throws Exception {
+        JMSContext context = mockManagement(null, 1);
+
+        DestinationSource source = new ArtemisDestinationSourceFactory().create(context);
+        assertEquals(-1, source.count("test"));
+        verify(mocks.toArray());
+    }
+
+    /**
+     * Mock a context on an Artemis broker, whose temporary reply queues must each be deleted.
+     */
+    private JMSContext mockManagement(TextMessage reply, int invocations) throws Exception {
+        ConnectionMetaData metaData = createMock(ConnectionMetaData.class);
+        expect(metaData.getJMSProviderName()).andReturn("ActiveMQ");
+        expect(metaData.getProviderVersion()).andReturn("2.16.0");
+        Queue management = createMock(Queue.class);
+        JMSProducer producer = createNiceMock(JMSProducer.class);
+        expect(producer.setProperty(anyString(), anyString())).andReturn(producer).anyTimes();
+        JMSContext context = createMock(JMSContext.class);
+        expect(context.getMetaData()).andReturn(metaData);
+        for (int i = 0; i < invocations; i++) {
+            TemporaryQueue replyTo = createMock(TemporaryQueue.class);
+            replyTo.delete();
+            JMSConsumer consumer = createNiceMock(JMSConsumer.class);
+            expect(consumer.receive(anyLong())).andReturn(reply);
+            expect(context.createQueue("activemq.management")).andReturn(management);
+            expect(context.createTemporaryQueue()).andReturn(replyTo);
+            context.start();
+            expect(context.createProducer()).andReturn(producer);
+            expect(producer.setJMSReplyTo(replyTo)).andReturn(producer);
+            expect(producer.send(anyObject(Queue.class), anyString())).andReturn(producer);
+            expect(context.createConsumer(replyTo)).andReturn(consumer);
+            mocks.add(replyTo);
+            mocks.add(consumer);
+        }
+        if (reply != null) {
+            mocks.add(reply);
+        }
+        mocks.add(metaData);
+        mocks.add(management);
+        mocks.add(producer);
+        mocks.add(context);
+        replay(mocks.toArray());
+        return context;
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms.internal;
+
+import javax.jms.JMSContext;
+import javax.jms.JMSRuntimeException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.makeThreadSafe;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class JmsContextPoolTest {
+
+    @Test
+    public void testSharedConnection() {
+        JMSContext shared = createMock(JMSContext.class);
+        JMSContext context1 = createMock(JMSContext.class);
+        JMSContext context2 = createMock(JMSContext.class);
+        shared.setExceptionListener(anyObject());
+        expect(shared.createContext(JMSContext.AUTO_ACKNOWLEDGE)).andReturn(context1);
+        expect(shared.createContext(JMSContext.SESSION_TRANSACTED)).andReturn(context2);
+        shared.close();
+        replay(shared, context1, context2);
+
+        AtomicInteger connections = new AtomicInteger();
+        JmsContextPool pool = new JmsContextPool();
+        assertSame(context1, pool.createContext("cf", "user", "pwd", JMSContext.AUTO_ACKNOWLEDGE, () -> {
+            connections.incrementAndGet();
+            return shared;
+        }));
+        assertSame(context2, pool.createContext("cf", "user", "pwd", JMSContext.SESSION_TRANSACTED, () -> {
+            connections.incrementAndGet();
+            return shared;
+        }));
+        assertEquals(1, connections.get());
+
+        pool.close();
+        verify(shared);
+    }
+
+    @Test
+    public void testRetryOnBrokenConnection() {
+        JMSContext broken = createMock(JMSContext.class);
+        JMSContext shared = createMock(JMSContext.class);
+        JMSContext context = createMock(JMSContext.class);
+        broken.setExceptionListener(anyObject());
+        expect(broken.createContext(JMSContext.AUTO_ACKNOWLEDGE)).andThrow(new JMSRuntimeException("broken"));
+        broken.close();
+        shared.setExceptionListener(anyObject());
+        expect(shared.createContext(JMSContext.AUTO_ACKNOWLEDGE)).andReturn(context);
+        replay(broken, shared, context);
+
+        JMSContext[] connections = { broken, shared };
+        AtomicInteger index = new AtomicInteger();
+        JmsContextPool pool = new JmsContextPool();
+        assertSame(context, pool.createContext("cf", null, null, JMSContext.AUTO_ACKNOWLEDGE,
+                () -> connections[index.getAndIncrement()]));
+        assertEquals(2, index.get());
+        verify(broken, shared);
+        pool.close();
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        JMSContext shared1 = createMock(JMSContext.class);
+        JMSContext shared2 = createMock(JMSContext.class);
+        JMSContext context = createMock(JMSContext.class);
+        shared1.setExceptionListener(anyObject());
+        expect(shared1.createContext(JMSContext.AUTO_ACKNOWLEDGE)).andReturn(context);
+        shared1.close();
+        shared2.setExceptionListener(anyObject());
+        expectLastCall().andThrow(new JMSRuntimeException("not supported"));
+        expect(shared2.createContext(JMSContext.AUTO_ACKNOWLEDGE)).andReturn(context);
+        shared2.close();
+        // the connections are closed by the eviction thread
+        makeThreadSafe(shared1, true);
+        makeThreadSafe(shared2, true);
+        replay(shared1, shared2, context);
+
+        JMSContext[] connections = { shared1, shared2 };
+        AtomicInteger index = new AtomicInteger();
+        JmsContextPool pool = new JmsContextPool(50);
+        pool.createContext("cf", null, null, JMSContext.AUTO_ACKNOWLEDGE, () -> connections[index.getAndIncrement()]);
+        Thread.sleep(300);
+        verify(shared1);
+
+        // the evicted connection is replaced by a new one
+        pool.createContext("cf", null, null, JMSContext.AUTO_ACKNOWLEDGE, () -> connections[index.getAndIncrement()]);
+        assertEquals(2, index.get());
+        pool.close();
+        verify(shared2);
+    }
+
+}
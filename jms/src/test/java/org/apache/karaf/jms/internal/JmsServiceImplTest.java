@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms.internal;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class JmsServiceImplTest {
+
+    @Test
+    public void testReceiveAllCommitsByBatches() {
+        Message message = createMock(Message.class);
+        JMSConsumer consumer = createMock(JMSConsumer.class);
+        JMSContext context = createMock(JMSContext.class);
+        expect(consumer.receive(500L)).andReturn(message).times(250);
+        expect(consumer.receive(500L)).andReturn(null);
+        // one commit per batch of 100 messages, and one for the remaining messages
+        context.commit();
+        expectLastCall().times(3);
+        replay(message, consumer, context);
+
+        List<Message> received = new ArrayList<>();
+        assertEquals(250, JmsServiceImpl.receiveAll(context, consumer, received::add));
+        assertEquals(250, received.size());
+        verify(consumer, context);
+    }
+
+    @Test
+    public void testReceiveAllEmpty() {
+        JMSConsumer consumer = createMock(JMSConsumer.class);
+        JMSContext context = createMock(JMSContext.class);
+        expect(consumer.receive(500L)).andReturn(null);
+        context.commit();
+        replay(consumer, context);
+
+        assertEquals(0, JmsServiceImpl.receiveAll(context, consumer, m -> { }));
+        verify(consumer, context);
+    }
+
+}
@@ -17,18 +17,15 @@
 package org.apache.karaf.kar.internal;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
 /**
  * Simple helper to determine if a file is a feature repo
@@ -37,18 +34,25 @@ class FeatureDetector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FeatureDetector.class);
     
-    private DocumentBuilderFactory dbf;
+    private final XMLInputFactory factory;
 
     FeatureDetector() {
-        dbf = DocumentBuilderFactory.newInstance();
-        try {
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-            dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        } catch (ParserConfigurationException ex) {
-            //
-        }
-        dbf.setNamespaceAware(true);
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
     }
+
+    /**
+     * Check if a file name is the name of a possible features XML.
+     *
+     * @param name the file name.
+     * @return true if the file may be a features XML.
+     */
+    static boolean isCandidate(String name) {
+        return name.endsWith(".xml") && !name.startsWith("maven-metadata");
+    }
+
     /**
      * Check if a file is a features XML.
      *
@@ -56,40 +60,52 @@ class FeatureDetector {
      * @return true if the artifact is a features XML, false else.
      */
     boolean isFeaturesRepository(File artifact) {
-        try {
-            if (artifact.isFile() && artifact.getName().endsWith(".xml") && !artifact.getName().startsWith("maven-metadata")) {
-                Document doc = parse(artifact);
-                String name = doc.getDocumentElement().getLocalName();
-                String uri  = doc.getDocumentElement().getNamespaceURI();
-                if ("features".equals(name) && (uri == null || "".equals(uri) || uri.startsWith("http://karaf.apache.org/xmlns/features/v"))) {
-                    return true;
-                }
-            }
+        if (!artifact.isFile() || !isCandidate(artifact.getName())) {
+            return false;
+        }
+        try (InputStream is = new FileInputStream(artifact)) {
+            return isFeaturesRepository(is, artifact.getName());
         } catch (Exception e) {
             LOGGER.debug("File '{}' is not a features file.", artifact.getName(), e);
+            return false;
         }
-        return false;
     }
-    
+
     /**
-     * Parse a features XML.
+     * Check if a stream contains a features XML. The stream is read until the end of the document if the
+     * root element is a features one (so that a malformed document is rejected), or until the root element
+     * otherwise. The stream is not closed.
      *
-     * @param artifact the features XML to parse.
-     * @return the parsed document.
-     * @throws Exception in case of parsing failure.
+     * @param is the stream to check.
+     * @param name the name of the checked artifact, for logging.
+     * @return true if the stream contains a features XML, false else.
      */
-    private Document parse(File artifact) throws Exception {
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        db.setErrorHandler(new ErrorHandler() {
-            public void warning(SAXParseException exception) throws SAXException {
+    boolean isFeaturesRepository(InputStream is, String name) {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(is);
+            reader.nextTag();
+            String localName = reader.getLocalName();
+            String uri = reader.getNamespaceURI();
+            if (!"features".equals(localName) || !(uri == null || "".equals(uri) || uri.startsWith("http://karaf.apache.org/xmlns/features/v"))) {
+                return false;
             }
-            public void error(SAXParseException exception) throws SAXException {
+            while (reader.next() != XMLStreamConstants.END_DOCUMENT) {
+                // check the whole document is well formed
             }
-            public void fatalError(SAXParseException exception) throws SAXException {
-                throw exception;
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("File '{}' is not a features file.", name, e);
+            return false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (Exception e) {
+                    // ignore
+                }
             }
-        });
-        return db.parse(artifact);
+        }
     }
 
 }
@@ -17,21 +17,38 @@
 package org.apache.karaf.kar.internal;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 
-import org.apache.karaf.util.StreamUtils;
 import org.apache.karaf.util.maven.Parser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,20 +73,46 @@ import org.slf4j.LoggerFactory;
  * resource/
  *   Everything below this directory will be copied to the karaf base dir on deploy
  * 
+ * A local kar file is extracted in parallel, other kars are read sequentially from their URL. The CRC of the
+ * extracted entries is checked, as well as their SHA-1 checksum when the kar contains a .sha1 file for the entry.
+ * The entries already present with the same content, either in the target directory or in the system repository,
+ * are not extracted again.
  */
 public class Kar {
 
     public static final Logger LOGGER = LoggerFactory.getLogger(KarServiceImpl.class);
     public static final String MANIFEST_ATTR_KARAF_FEATURE_START = "Karaf-Feature-Start";
     public static final String MANIFEST_ATTR_KARAF_FEATURE_REPOS = "Karaf-Feature-Repos";
+
+    private static final String REPOSITORY = "repository/";
+    private static final String RESOURCES = "resources/";
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
     private final URI karUri;
     private boolean shouldInstallFeatures;
     private List<URI> featureRepos;
+    private int threads = 1;
+    private File systemRepository;
 
     public Kar(URI karUri) {
         this.karUri = karUri;
     }
 
+    /**
+     * @param threads the number of threads extracting a local kar file.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param systemRepository the system repository, the artifacts already present in this repository are not
+     *                         extracted. <code>null</code> to always extract the artifacts.
+     */
+    public void setSystemRepository(File systemRepository) {
+        this.systemRepository = systemRepository;
+    }
+
     /**
      * Extract a kar from a given URI into a repository dir and resource dir
      * and populate shouldInstallFeatures and featureRepos
@@ -78,104 +121,261 @@ public class Kar {
      * @param resourceDir directory to write the resource contents of the kar to
      */
     public void extract(File repoDir, File resourceDir) {
-        InputStream is = null;
-        JarInputStream zipIs = null;
         FeatureDetector featureDetector = new FeatureDetector();
         this.featureRepos = new ArrayList<>();
         this.shouldInstallFeatures = true;
 
         try {
-            is = karUri.toURL().openStream();
-            repoDir.mkdirs();
+            File karFile = "file".equals(karUri.getScheme()) ? new File(karUri.toURL().getFile()) : null;
+            if (karFile != null && karFile.isFile()) {
+                extractFile(karFile, repoDir, resourceDir, featureDetector);
+            } else {
+                extractStream(repoDir, resourceDir, featureDetector);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error extracting kar file " + karUri + " into dir " + repoDir + ": " + e.getMessage(), e);
+        }
+    }
 
-            if (!repoDir.isDirectory()) {
-                throw new RuntimeException("The KAR file " + karUri + " is already installed");
+    /**
+     * Extract a local kar, using random access to extract the entries in parallel.
+     */
+    private void extractFile(File karFile, File repoDir, File resourceDir, FeatureDetector featureDetector) throws Exception {
+        try (JarFile jar = new JarFile(karFile, false)) {
+            createRepoDir(repoDir);
+            LOGGER.debug("Uncompress the KAR file {} into directory {} with {} threads", karUri, repoDir, threads);
+            boolean scanForRepos = readManifest(jar.getManifest());
+
+            List<Callable<URI>> tasks = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (isAllowed(entry)) {
+                    tasks.add(() -> {
+                        String sha1 = null;
+                        ZipEntry sha1Entry = jar.getEntry(entry.getName() + ".sha1");
+                        if (sha1Entry != null) {
+                            try (InputStream is = jar.getInputStream(sha1Entry)) {
+                                sha1 = readChecksum(is);
+                            }
+                        }
+                        try (InputStream is = jar.getInputStream(entry)) {
+                            return extract(is, entry, sha1, repoDir, resourceDir, scanForRepos, featureDetector);
+                        }
+                    });
+                }
             }
 
-            LOGGER.debug("Uncompress the KAR file {} into directory {}", karUri, repoDir);
-            zipIs = new JarInputStream(is);
-            boolean scanForRepos = true;
-
-            Manifest manifest = zipIs.getManifest();
-            if (manifest != null) {
-                Attributes attr = manifest.getMainAttributes();
-                String featureStartSt = (String)attr
-                    .get(new Attributes.Name(MANIFEST_ATTR_KARAF_FEATURE_START));
-                if ("false".equals(featureStartSt)) {
-                    shouldInstallFeatures = false;
+            List<Future<URI>> results;
+            if (threads > 1 && tasks.size() > 1) {
+                ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()), threadFactory());
+                try {
+                    results = executor.invokeAll(tasks);
+                } finally {
+                    executor.shutdownNow();
+                }
+            } else {
+                results = new ArrayList<>();
+                for (Callable<URI> task : tasks) {
+                    results.add(CompletableFuture.completedFuture(task.call()));
+                }
+            }
+            // the features repositories are kept in the kar order
+            for (Future<URI> result : results) {
+                URI uri;
+                try {
+                    uri = result.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
                 }
-                String featureReposAttr = (String)attr
-                    .get(new Attributes.Name(MANIFEST_ATTR_KARAF_FEATURE_REPOS));
-                if (featureReposAttr != null) {
-                    featureRepos.add(new URI(featureReposAttr));
-                    scanForRepos = false;
+                if (uri != null) {
+                    featureRepos.add(uri);
                 }
             }
+        }
+    }
+
+    /**
+     * Extract a kar sequentially from its URL.
+     */
+    private void extractStream(File repoDir, File resourceDir, FeatureDetector featureDetector) throws Exception {
+        try (JarInputStream zipIs = new JarInputStream(karUri.toURL().openStream())) {
+            createRepoDir(repoDir);
+            LOGGER.debug("Uncompress the KAR file {} into directory {}", karUri, repoDir);
+            boolean scanForRepos = readManifest(zipIs.getManifest());
 
             ZipEntry entry = zipIs.getNextEntry();
             while (entry != null) {
-                if (entry.getName().contains("..") || entry.getName().contains("%2e%2e")) {
-                    LOGGER.warn("kar entry {} contains a .. relative path. For security reasons, it's not allowed.", entry.getName());
-                } else {
-                    if (entry.getName().startsWith("repository/")) {
-                        String path = entry.getName().substring("repository/".length());
-                        File destFile = new File(repoDir, path);
-                        extract(zipIs, entry, destFile);
-                        if (scanForRepos && featureDetector.isFeaturesRepository(destFile)) {
-                            Map map = new HashMap<>();
-                            String uri = Parser.pathToMaven(path, map);
-                            if (map.get("classifier") != null && ((String) map.get("classifier")).equalsIgnoreCase("features"))
-                                featureRepos.add(URI.create(uri));
-                            else featureRepos.add(destFile.toURI());
-                        }
-                    }
-
-                    if (entry.getName().startsWith("resources/")) {
-                        String path = entry.getName().substring("resources/".length());
-                        File destFile = new File(resourceDir, path);
-                        extract(zipIs, entry, destFile);
+                if (isAllowed(entry)) {
+                    URI uri = extract(zipIs, entry, null, repoDir, resourceDir, scanForRepos, featureDetector);
+                    if (uri != null) {
+                        featureRepos.add(uri);
                     }
                 }
                 entry = zipIs.getNextEntry();
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error extracting kar file " + karUri + " into dir " + repoDir + ": " + e.getMessage(), e);
-        } finally {
-            closeStream(zipIs);
-            closeStream(is);
         }
     }
 
+    private void createRepoDir(File repoDir) {
+        repoDir.mkdirs();
+        if (!repoDir.isDirectory()) {
+            throw new RuntimeException("The KAR file " + karUri + " is already installed");
+        }
+    }
+
+    /**
+     * Read the kar manifest.
+     *
+     * @return true if the kar must be scanned for features repositories.
+     */
+    private boolean readManifest(Manifest manifest) throws Exception {
+        if (manifest != null) {
+            Attributes attr = manifest.getMainAttributes();
+            String featureStartSt = (String)attr
+                .get(new Attributes.Name(MANIFEST_ATTR_KARAF_FEATURE_START));
+            if ("false".equals(featureStartSt)) {
+                shouldInstallFeatures = false;
+            }
+            String featureReposAttr = (String)attr
+                .get(new Attributes.Name(MANIFEST_ATTR_KARAF_FEATURE_REPOS));
+            if (featureReposAttr != null) {
+                featureRepos.add(new URI(featureReposAttr));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAllowed(ZipEntry entry) {
+        if (entry.getName().contains("..") || entry.getName().contains("%2e%2e")) {
+            LOGGER.warn("kar entry {} contains a .. relative path. For security reasons, it's not allowed.", entry.getName());
+            return false;
+        }
+        return entry.getName().startsWith(REPOSITORY) || entry.getName().startsWith(RESOURCES);
+    }
+
     /**
      * Extract an entry from a KAR file
-     * 
-     * @param is
-     * @param zipEntry
-     * @param dest
-     * @return
-     * @throws Exception
+     *
+     * @param is the entry content
+     * @param zipEntry the entry
+     * @param sha1 the expected SHA-1 checksum of the entry, or <code>null</code>
+     * @return the URI of the features repository if the entry is one, <code>null</code> else
      */
-    private static File extract(InputStream is, ZipEntry zipEntry, File dest) throws Exception {
+    private URI extract(InputStream is, ZipEntry zipEntry, String sha1, File repoDir, File resourceDir,
+                        boolean scanForRepos, FeatureDetector featureDetector) throws Exception {
+        boolean repository = zipEntry.getName().startsWith(REPOSITORY);
+        String path = zipEntry.getName().substring(repository ? REPOSITORY.length() : RESOURCES.length());
+        File dest = new File(repository ? repoDir : resourceDir, path);
         if (zipEntry.isDirectory()) {
             LOGGER.debug("Creating directory {}", dest.getName());
-            dest.mkdirs();
-        } else {
-            dest.getParentFile().mkdirs();
-            FileOutputStream out = new FileOutputStream(dest);
-            StreamUtils.copy(is, out);
-            out.close();
-        }
-        return dest;
-    }
-
-    private static void closeStream(InputStream is) {
-        if (is != null) {
-            try {
-                is.close();
-            } catch (IOException e) {
-                LOGGER.warn("Error closing stream", e);
+            Files.createDirectories(dest.toPath());
+            return null;
+        }
+        boolean detect = repository && scanForRepos && FeatureDetector.isCandidate(dest.getName());
+
+        File existing = findIdentical(zipEntry, dest, repository ? new File(systemRepository, path) : null);
+        if (existing != null) {
+            LOGGER.debug("Skipping kar entry {}, identical to {}", zipEntry.getName(), existing);
+            return detect && featureDetector.isFeaturesRepository(existing) ? featuresRepository(path, existing) : null;
+        }
+
+        Files.createDirectories(dest.getParentFile().toPath());
+        CRC32 crc = new CRC32();
+        MessageDigest digest = sha1 != null ? MessageDigest.getInstance("SHA-1") : null;
+        boolean features = false;
+        try (OutputStream out = new FileOutputStream(dest)) {
+            InputStream in = new CheckedInputStream(is, crc);
+            if (digest != null) {
+                in = new DigestInputStream(in, digest);
+            }
+            // the content is written while it's read, so the features detection doesn't read the file again
+            in = new TeeInputStream(in, out);
+            if (detect) {
+                features = featureDetector.isFeaturesRepository(in, zipEntry.getName());
+            }
+            byte[] buffer = BUFFERS.get();
+            while (in.read(buffer) != -1) {
+                // copy the remaining content
+            }
+        }
+        if (zipEntry.getCrc() != -1 && zipEntry.getCrc() != crc.getValue()) {
+            throw new IOException("Invalid CRC for kar entry " + zipEntry.getName());
+        }
+        if (digest != null && !sha1.equalsIgnoreCase(toHex(digest.digest()))) {
+            throw new IOException("Invalid SHA-1 checksum for kar entry " + zipEntry.getName());
+        }
+        return features ? featuresRepository(path, dest) : null;
+    }
+
+    private static URI featuresRepository(String path, File file) {
+        Map map = new HashMap<>();
+        String uri = Parser.pathToMaven(path, map);
+        if (map.get("classifier") != null && ((String) map.get("classifier")).equalsIgnoreCase("features")) {
+            return URI.create(uri);
+        }
+        return file.toURI();
+    }
+
+    /**
+     * Look for a file having the same content as an entry. The destination file is checked first, the system
+     * repository file is only used if the destination file doesn't exist.
+     */
+    private File findIdentical(ZipEntry zipEntry, File dest, File system) throws IOException {
+        if (zipEntry.getSize() < 0 || zipEntry.getCrc() < 0) {
+            return null;
+        }
+        if (dest.exists()) {
+            return isIdentical(zipEntry, dest) ? dest : null;
+        }
+        if (systemRepository != null && system != null && isIdentical(zipEntry, system)) {
+            return system;
+        }
+        return null;
+    }
+
+    private static boolean isIdentical(ZipEntry zipEntry, File file) throws IOException {
+        if (!file.isFile() || file.length() != zipEntry.getSize()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        byte[] buffer = BUFFERS.get();
+        try (InputStream is = new FileInputStream(file)) {
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
             }
         }
+        return crc.getValue() == zipEntry.getCrc();
+    }
+
+    private static String readChecksum(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = is.read()) != -1 && sb.length() < 128) {
+            sb.append((char) c);
+        }
+        // the checksum may be followed by the file name
+        String checksum = sb.toString().trim();
+        int index = checksum.indexOf(' ');
+        return index > 0 ? checksum.substring(0, index) : checksum;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "Karaf kar extraction " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     public String getKarName() {
@@ -209,4 +409,54 @@ public class Kar {
         return featureRepos;
     } 
 
+    /**
+     * Stream writing all the bytes read to an output stream.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+
+        TeeInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                out.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                out.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // the skipped bytes must be written too
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // the entry stream is closed by the caller
+        }
+
+    }
+
 }
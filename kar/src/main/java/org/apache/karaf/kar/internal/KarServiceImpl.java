@@ -66,6 +66,8 @@ public class KarServiceImpl implements KarService {
     
     private boolean noAutoRefreshBundles;
     private boolean noAutoStartBundles;
+    private int extractThreads = 1;
+    private File systemRepository;
     private List<Kar> unsatisfiedKars;
     private AtomicBoolean busy;
     private DelayedDeployerThread delayedDeployerThread;
@@ -104,6 +106,8 @@ public class KarServiceImpl implements KarService {
     public void install(URI karUri, File repoDir, File resourceDir, boolean noAutoStartBundles) throws Exception {
         busy.set(true);
         Kar kar = new Kar(karUri);
+        kar.setThreads(extractThreads);
+        kar.setSystemRepository(systemRepository);
         try {
             kar.extract(repoDir, resourceDir);
             writeToFile(kar.getFeatureRepos(), new File(repoDir, FEATURE_CONFIG_FILE));
@@ -491,6 +495,22 @@ public class KarServiceImpl implements KarService {
         this.noAutoStartBundles = noAutoStartBundles;
     }
 
+    public int getExtractThreads() {
+        return extractThreads;
+    }
+
+    public void setExtractThreads(int extractThreads) {
+        this.extractThreads = extractThreads;
+    }
+
+    public File getSystemRepository() {
+        return systemRepository;
+    }
+
+    public void setSystemRepository(File systemRepository) {
+        this.systemRepository = systemRepository;
+    }
+
     private class DelayedDeployerThread extends Thread {
 
         private boolean noAutoStartBundles;
@@ -45,6 +45,8 @@ public class Activator extends BaseActivator implements ManagedService {
         boolean noAutoRefreshBundles = getBoolean("noAutoRefreshBundles", false);
         boolean noAutoStartBundles = getBoolean("noAutoStartBundles", false);
         String karStorage = getString("karStorage", System.getProperty("karaf.data") + File.separator + "kar");
+        int extractThreads = getInt("extractThreads", Runtime.getRuntime().availableProcessors());
+        boolean skipSystemArtifacts = getBoolean("skipSystemArtifacts", true);
 
         KarServiceImpl karService = new KarServiceImpl(
                 System.getProperty("karaf.base"),
@@ -53,6 +55,10 @@ public class Activator extends BaseActivator implements ManagedService {
         );
         karService.setNoAutoRefreshBundles(noAutoRefreshBundles);
         karService.setNoAutoStartBundles(noAutoStartBundles);
+        karService.setExtractThreads(extractThreads);
+        if (skipSystemArtifacts && System.getProperty("karaf.home") != null) {
+            karService.setSystemRepository(new File(System.getProperty("karaf.home"), System.getProperty("karaf.default.repository", "system")));
+        }
         register(KarService.class, karService);
 
         KarsMBeanImpl mbean = new KarsMBeanImpl();
@@ -23,7 +23,11 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -108,4 +112,99 @@ public class KarTest {
         badKarFile.delete();
     }
 
+    private static final String FEATURES = "<features name=\"test\" xmlns=\"http://karaf.apache.org/xmlns/features/v1.4.0\"><feature name=\"test\"/></features>";
+    private static final String ARTIFACT = "repository/org/foo/bar/1.0/bar-1.0.jar";
+
+    @Test
+    public void parallelKarExtractTest() throws Exception {
+        File karFile = createKar("parallel.kar", sha1(ARTIFACT.getBytes(StandardCharsets.UTF_8)));
+        File repoDir = new File("target/test/parallel-repo");
+        File resourceDir = new File("target/test/parallel-resources");
+        deleteRecursively(repoDir);
+        deleteRecursively(resourceDir);
+
+        Kar kar = new Kar(karFile.toURI());
+        kar.setThreads(4);
+        kar.extract(repoDir, resourceDir);
+
+        Assert.assertEquals(1, kar.getFeatureRepos().size());
+        Assert.assertEquals("mvn:org.foo/bar/1.0/xml/features", kar.getFeatureRepos().get(0).toString());
+        Assert.assertEquals(FEATURES, new String(Files.readAllBytes(new File(repoDir, "org/foo/bar/1.0/bar-1.0-features.xml").toPath()), StandardCharsets.UTF_8));
+        Assert.assertEquals(ARTIFACT, new String(Files.readAllBytes(new File(repoDir, "org/foo/bar/1.0/bar-1.0.jar").toPath()), StandardCharsets.UTF_8));
+        Assert.assertTrue(new File(resourceDir, "etc/foo.cfg").isFile());
+
+        // extracting again gives the same result
+        kar.extract(repoDir, resourceDir);
+        Assert.assertEquals(1, kar.getFeatureRepos().size());
+    }
+
+    @Test
+    public void badChecksumKarExtractTest() throws Exception {
+        File karFile = createKar("badchecksum.kar", "0123456789012345678901234567890123456789");
+        Kar kar = new Kar(karFile.toURI());
+        kar.setThreads(4);
+        try {
+            kar.extract(new File("target/test/badchecksum-repo"), new File("target/test/badchecksum-resources"));
+            Assert.fail("The checksum of the artifact is not valid");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("Invalid SHA-1 checksum"));
+        }
+    }
+
+    @Test
+    public void systemArtifactKarExtractTest() throws Exception {
+        File karFile = createKar("system.kar", sha1(ARTIFACT.getBytes(StandardCharsets.UTF_8)));
+        File system = new File("target/test/system");
+        File artifact = new File(system, "org/foo/bar/1.0/bar-1.0.jar");
+        artifact.getParentFile().mkdirs();
+        Files.write(artifact.toPath(), ARTIFACT.getBytes(StandardCharsets.UTF_8));
+        File repoDir = new File("target/test/system-repo");
+        deleteRecursively(repoDir);
+
+        Kar kar = new Kar(karFile.toURI());
+        kar.setSystemRepository(system);
+        kar.extract(repoDir, new File("target/test/system-resources"));
+
+        // the artifact is already in the system repository
+        Assert.assertFalse(new File(repoDir, "org/foo/bar/1.0/bar-1.0.jar").exists());
+        Assert.assertTrue(new File(repoDir, "org/foo/bar/1.0/bar-1.0-features.xml").isFile());
+    }
+
+    private static File createKar(String name, String artifactSha1) throws IOException {
+        File base = new File("target/test");
+        base.mkdirs();
+        File karFile = new File(base, name);
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(karFile))) {
+            addEntry(zos, "repository/org/foo/bar/1.0/bar-1.0-features.xml", FEATURES);
+            addEntry(zos, ARTIFACT, ARTIFACT);
+            addEntry(zos, ARTIFACT + ".sha1", artifactSha1);
+            addEntry(zos, "resources/etc/foo.cfg", "foo=bar");
+        }
+        return karFile;
+    }
+
+    private static void addEntry(ZipOutputStream zos, String name, String content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content.getBytes(StandardCharsets.UTF_8));
+        zos.closeEntry();
+    }
+
+    private static String sha1(byte[] data) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(data)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
 }
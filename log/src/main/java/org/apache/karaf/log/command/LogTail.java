@@ -49,7 +49,12 @@ public class LogTail extends DisplayLog {
         display(out, minLevel);
         out.flush();
 
-        PaxAppender appender = event -> printEvent(out, event, minLevel);
+        // events may be appended concurrently from several threads
+        PaxAppender appender = event -> {
+            synchronized (out) {
+                printEvent(out, event, minLevel);
+            }
+        };
         ServiceTracker<LogService, LogService> tracker = new LogServiceTracker(context, LogService.class, null, appender);
         tracker.open();
         try {
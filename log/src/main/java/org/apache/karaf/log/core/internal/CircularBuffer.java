@@ -18,92 +18,93 @@
  */
 package org.apache.karaf.log.core.internal;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 /**
- * An array that only keeps the last N elements added
+ * An array that only keeps the last N elements added.
+ * <p>
+ * Each element is given a sequence number when added.  Writers never block: they claim a sequence
+ * and publish the element in the corresponding slot.  Readers never block writers either: they
+ * collect the slots holding the expected sequences, so a snapshot only contains fully published
+ * elements, ordered by sequence.
  */
 public class CircularBuffer<T> {
 
-    private T[] elements;
-    private transient int start;
-    private transient int end;
-    private transient boolean full;
     private final int maxElements;
-    private Class<?> type;
+    private final AtomicReferenceArray<Slot<T>> slots;
+    /** The sequence of the next element to add */
+    private final AtomicLong next = new AtomicLong();
+    /** Elements with a lower sequence have been cleared */
+    private volatile long first;
 
-    public CircularBuffer(int size, Class<?> type) {
+    public CircularBuffer(int size) {
         if (size <= 0) {
             throw new IllegalArgumentException("The size must be greater than 0");
         }
-        this.type = type;
         maxElements = size;
-        clear();
+        slots = new AtomicReferenceArray<>(size);
     }
 
-    private int size() {
-        if (end == start) {
-            return full ? maxElements : 0;
-        } else if (end < start) {
-            return maxElements - start + end;
-        } else {
-            return end - start;
-        }
+    public CircularBuffer(int size, Class<?> type) {
+        this(size);
     }
 
-    @SuppressWarnings("unchecked")
-    public synchronized void clear() {
-        start = 0;
-        end = 0;
-        full = false;
-        elements = (T[])Array.newInstance(type, maxElements);
+    public void clear() {
+        first = next.get();
     }
 
-    public synchronized void add(T element) {
+    public void add(T element) {
         if (null == element) {
              throw new NullPointerException("Attempted to add null object to buffer");
         }
-        if (full) {
-            increaseStart();
+        long seq = next.getAndIncrement();
+        Slot<T> slot = new Slot<>(seq, element);
+        int index = (int) (seq % maxElements);
+        while (true) {
+            Slot<T> current = slots.get(index);
+            // a concurrent writer may already have published a newer element in this slot
+            if (current != null && current.sequence > seq) {
+                return;
+            }
+            if (slots.compareAndSet(index, current, slot)) {
+                return;
+            }
         }
-        elements[end] = element;
-        increaseEnd();
-        
     }
 
-    private void increaseStart() {
-        start++;
-        if (start >= maxElements) {
-            start = 0;
-        }
+    public Iterable<T> getElements() {
+        return getElements(maxElements);
     }
 
-    private void increaseEnd() {
-        end++;
-        if (end >= maxElements) {
-            end = 0;
-        }
-        if (end == start) {
-            full = true;
+    public Iterable<T> getElements(int nb) {
+        long end = next.get();
+        long seq = Math.max(Math.max(end - Math.max(0, nb), first), Math.max(0, end - maxElements));
+        List<T> result = new ArrayList<>((int) Math.max(0, end - seq));
+        for (; seq < end; seq++) {
+            Slot<T> slot = slots.get((int) (seq % maxElements));
+            if (slot == null || slot.sequence < seq) {
+                // not yet published, the following elements are left out to keep the snapshot ordered
+                break;
+            } else if (slot.sequence == seq) {
+                result.add(slot.element);
+            }
+            // else it has already been overwritten
         }
+        return result;
     }
 
-    public synchronized Iterable<T> getElements() {
-        return getElements(size());
-    }
+    private static final class Slot<T> {
+        final long sequence;
+        final T element;
 
-    public synchronized Iterable<T> getElements(int nb) {
-        int s = size();
-        nb = Math.min(Math.max(0, nb), s);
-        List<T> result = new ArrayList<>();
-        for (int i = 0; i < nb; i++) {
-            result.add(elements[(i + s - nb + start) % maxElements]);
+        Slot(long sequence, T element) {
+            this.sequence = sequence;
+            this.element = element;
         }
-        return result;
     }
 
-
 }
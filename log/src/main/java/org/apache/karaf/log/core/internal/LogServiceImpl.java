@@ -41,7 +41,7 @@ public class LogServiceImpl implements LogService, PaxAppender {
     public LogServiceImpl(ConfigurationAdmin configAdmin, int size) {
         this.configAdmin = configAdmin;
         this.appenders = new CopyOnWriteArrayList<>();
-        this.buffer = new CircularBuffer<>(size, PaxLoggingEvent.class);
+        this.buffer = new CircularBuffer<>(size);
     }
 
     private LogServiceInternal getDelegate(Dictionary<String, Object> config) {
@@ -172,7 +172,7 @@ public class LogServiceImpl implements LogService, PaxAppender {
     }
 
     @Override
-    public synchronized void doAppend(PaxLoggingEvent event) {
+    public void doAppend(PaxLoggingEvent event) {
         event.getProperties(); // ensure MDC properties are copied
         KarafLogEvent eventCopy = new KarafLogEvent(event);
         this.buffer.add(eventCopy);
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.log.core.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CircularBufferTest {
+
+    @Test
+    public void testAddAndWrap() {
+        CircularBuffer<Integer> buffer = new CircularBuffer<>(3);
+        assertEquals(list(), buffer.getElements());
+        buffer.add(1);
+        buffer.add(2);
+        assertEquals(list(1, 2), buffer.getElements());
+        buffer.add(3);
+        buffer.add(4);
+        buffer.add(5);
+        assertEquals(list(3, 4, 5), buffer.getElements());
+        assertEquals(list(4, 5), buffer.getElements(2));
+        assertEquals(list(3, 4, 5), buffer.getElements(Integer.MAX_VALUE));
+        assertEquals(list(), buffer.getElements(0));
+    }
+
+    @Test
+    public void testClear() {
+        CircularBuffer<Integer> buffer = new CircularBuffer<>(3);
+        buffer.add(1);
+        buffer.add(2);
+        buffer.clear();
+        assertEquals(list(), buffer.getElements());
+        buffer.add(3);
+        assertEquals(list(3), buffer.getElements());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        int threads = 8;
+        int count = 10000;
+        CircularBuffer<Integer> buffer = new CircularBuffer<>(threads * count);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * count;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    buffer.add(base + i);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        // the snapshots taken while writing only hold published elements, in order
+        while (writers.stream().anyMatch(Thread::isAlive)) {
+            assertInOrder(buffer.getElements(), threads, count);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        List<Integer> seen = new ArrayList<>();
+        buffer.getElements().forEach(seen::add);
+        assertEquals(threads * count, seen.size());
+        Set<Integer> unique = new HashSet<>(seen);
+        assertEquals(threads * count, unique.size());
+        assertInOrder(seen, threads, count);
+    }
+
+    private static void assertInOrder(Iterable<Integer> elements, int threads, int count) {
+        // each writer's elements are seen in order
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (Integer i : elements) {
+            assertNotNull(i);
+            assertTrue(i % count > last[i / count]);
+            last[i / count] = i % count;
+        }
+    }
+
+    private static List<Integer> list(Integer... elements) {
+        return Arrays.asList(elements);
+    }
+
+}
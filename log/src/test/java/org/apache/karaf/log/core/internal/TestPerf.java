@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.log.core.internal;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the throughput of appending to the events buffer from several threads,
+ * compared to the synchronized buffer the log service used to have.
+ */
+@Ignore
+public class TestPerf {
+
+    private static final int EVENTS = 2000000;
+
+    @Test
+    public void testAppendThroughput() throws Exception {
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            CircularBuffer<Object> lockFree = new CircularBuffer<>(1024);
+            SynchronizedCircularBuffer<Object> locked = new SynchronizedCircularBuffer<>(1024, Object.class);
+            // warm up
+            measure(threads, lockFree::add);
+            measure(threads, locked::add);
+            long t0 = measure(threads, lockFree::add);
+            long t1 = measure(threads, locked::add);
+            System.out.println(threads + " threads: lock-free = " + (EVENTS * 1000L / Math.max(t0, 1))
+                    + " events/s, locked = " + (EVENTS * 1000L / Math.max(t1, 1)) + " events/s");
+        }
+    }
+
+    private long measure(int threads, Appender appender) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        Object event = new Object();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < EVENTS / threads; j++) {
+                    appender.append(event);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        System.gc();
+        long t0 = System.currentTimeMillis();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.currentTimeMillis() - t0;
+    }
+
+    interface Appender {
+        void append(Object event);
+    }
+
+    /**
+     * The buffer used before the lock-free one.
+     */
+    static class SynchronizedCircularBuffer<T> {
+
+        private T[] elements;
+        private transient int start;
+        private transient int end;
+        private transient boolean full;
+        private final int maxElements;
+        private Class<?> type;
+
+        SynchronizedCircularBuffer(int size, Class<?> type) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("The size must be greater than 0");
+            }
+            this.type = type;
+            maxElements = size;
+            clear();
+        }
+
+        private int size() {
+            if (end == start) {
+                return full ? maxElements : 0;
+            } else if (end < start) {
+                return maxElements - start + end;
+            } else {
+                return end - start;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public synchronized void clear() {
+            start = 0;
+            end = 0;
+            full = false;
+            elements = (T[]) Array.newInstance(type, maxElements);
+        }
+
+        public synchronized void add(T element) {
+            if (null == element) {
+                throw new NullPointerException("Attempted to add null object to buffer");
+            }
+            if (full) {
+                increaseStart();
+            }
+            elements[end] = element;
+            increaseEnd();
+        }
+
+        private void increaseStart() {
+            start++;
+            if (start >= maxElements) {
+                start = 0;
+            }
+        }
+
+        private void increaseEnd() {
+            end++;
+            if (end >= maxElements) {
+                end = 0;
+            }
+            if (end == start) {
+                full = true;
+            }
+        }
+
+        public synchronized Iterable<T> getElements(int nb) {
+            int s = size();
+            nb = Math.min(Math.max(0, nb), s);
+            List<T> result = new ArrayList<>();
+            for (int i = 0; i < nb; i++) {
+                result.add(elements[(i + s - nb + start) % maxElements]);
+            }
+            return result;
+        }
+    }
+
+}
@@ -108,6 +108,27 @@ public interface JMXSecurityMBean {
      */
     TabularData canInvoke(Map<String, List<String>> bulkQuery) throws Exception;
 
+    /**
+     * Number of access decisions answered from the ACL decision cache.
+     *
+     * @return The number of cache hits.
+     */
+    long getCacheHits();
+
+    /**
+     * Number of access decisions computed from the ACL configurations.
+     *
+     * @return The number of cache misses.
+     */
+    long getCacheMisses();
+
+    /**
+     * Ratio of access decisions answered from the ACL decision cache.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    double getCacheHitRate();
+
     // a member class is used to initialize final fields, as this needs to do some exception handling...
     class SecurityMBeanOpenTypeInitializer {
 
@@ -23,6 +23,8 @@ import org.apache.karaf.management.internal.MBeanInvocationHandler;
 import org.apache.karaf.service.guard.tools.ACLConfigurationParser;
 import org.apache.karaf.util.jaas.JaasHelper;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
 
 import javax.management.*;
 import java.io.IOException;
@@ -31,20 +33,21 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class KarafMBeanServerGuard implements InvocationHandler {
+public class KarafMBeanServerGuard implements InvocationHandler, ConfigurationListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(KarafMBeanServerGuard.class);    
 
@@ -54,9 +57,7 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     
     private static final String JMX_ACL_DETAILED_MESSAGE = "jmx.acl.detailed.message";
 
-    private static final String JMX_OBJECTNAME_PROPERTY_WILDCARD = "_";
-
-    private static final Comparator<String[]> WILDCARD_PID_COMPARATOR = new WildcardPidComparator();
+    private static final int MAX_CACHED_DECISIONS = 16384;
 
     private static final String INVOKE = "invoke";
 
@@ -65,6 +66,14 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     private ConfigurationAdmin configAdmin;
     private EventAdminLogger logger;
 
+    /**
+     * ACL configurations and decisions, discarded when a <code>jmx.acl*</code> configuration changes
+     */
+    private volatile AclCache aclCache;
+    private long aclGeneration;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
     public ConfigurationAdmin getConfigAdmin() {
         return configAdmin;
     }
@@ -81,6 +90,57 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         this.logger = logger;
     }
 
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (event.getPid() != null && event.getPid().startsWith(JMX_ACL_PID_PREFIX)) {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Discard the cached ACL configurations and decisions.
+     */
+    public synchronized void invalidateCache() {
+        aclGeneration++;
+        aclCache = null;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * Return a context for the current subject, reusing the cached ACL configurations.
+     */
+    private BulkRequestContext newContext() throws IOException {
+        AclCache cache = getAclCache();
+        return cache.context.forCurrentSubject();
+    }
+
+    private AclCache getAclCache() throws IOException {
+        AclCache cache = aclCache;
+        if (cache == null) {
+            long generation;
+            synchronized (this) {
+                generation = aclGeneration;
+            }
+            BulkRequestContext context = BulkRequestContext.newContext(configAdmin);
+            context.getArgumentMethods();
+            cache = new AclCache(context);
+            synchronized (this) {
+                // do not keep configurations which may have been modified in the mean time
+                if (generation == aclGeneration) {
+                    aclCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         if (method.getParameterTypes().length == 0)
             return null;
@@ -255,9 +315,26 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     private boolean canInvoke(BulkRequestContext context, ObjectName objectName, String methodName, String[] signature) throws IOException {
-        if (context == null) {
-            context = BulkRequestContext.newContext(configAdmin);
-        }
+        if (context != null) {
+            // the configurations of a context supplied by the caller may differ from the cached ones
+            return doCanInvoke(context, objectName, methodName, signature);
+        }
+        // the decision is only stored in the cache holding the configurations it has been computed from
+        AclCache cache = getAclCache();
+        context = cache.context.forCurrentSubject();
+        DecisionKey key = new DecisionKey(objectName, methodName, signature, false, context.getPrincipalNames());
+        Boolean decision = cache.decisions.get(key);
+        if (decision != null) {
+            cacheHits.incrementAndGet();
+            return decision;
+        }
+        cacheMisses.incrementAndGet();
+        boolean result = doCanInvoke(context, objectName, methodName, signature);
+        cache.put(key, result);
+        return result;
+    }
+
+    private boolean doCanInvoke(BulkRequestContext context, ObjectName objectName, String methodName, String[] signature) throws IOException {
         if (canBypassRBAC(context, objectName, methodName)) {
             return true;
         }
@@ -350,15 +427,32 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     void handleInvoke(BulkRequestContext context, ObjectName objectName, String operationName, Object[] params, String[] signature) throws IOException {
+        AclCache cache = null;
         if (context == null) {
-            context = BulkRequestContext.newContext(configAdmin);
+            cache = getAclCache();
+            context = cache.context.forCurrentSubject();
+        }
+        // decisions only depend on the signature unless there are ACL entries for specific arguments,
+        // and are not cached when computed from a context supplied by the caller
+        DecisionKey key = null;
+        Boolean decision = null;
+        if (cache != null && !context.getArgumentMethods().contains(operationName)) {
+            key = new DecisionKey(objectName, operationName, signature, true, context.getPrincipalNames());
+            decision = cache.decisions.get(key);
+            if (decision != null) {
+                cacheHits.incrementAndGet();
+            } else {
+                cacheMisses.incrementAndGet();
+            }
         }
-        if (canBypassRBAC(context, objectName, operationName)) {
-            return;
+        if (decision == null) {
+            decision = isInvocationAllowed(context, objectName, operationName, params, signature);
+            if (key != null) {
+                cache.put(key, decision);
+            }
         }
-        for (String role : getRequiredRoles(context, objectName, operationName, params, signature)) {
-            if (JaasHelper.currentUserHasRole(role))
-                return;
+        if (decision) {
+            return;
         }
         if (Boolean.valueOf(System.getProperty(JMX_ACL_DETAILED_MESSAGE, "false"))) {
             printDetailedMessage(context, objectName, operationName, params, signature);
@@ -370,6 +464,17 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         throw se;
     }
 
+    private boolean isInvocationAllowed(BulkRequestContext context, ObjectName objectName, String operationName, Object[] params, String[] signature) throws IOException {
+        if (canBypassRBAC(context, objectName, operationName)) {
+            return true;
+        }
+        for (String role : getRequiredRoles(context, objectName, operationName, params, signature)) {
+            if (JaasHelper.currentUserHasRole(context.getPrincipals(), role))
+                return true;
+        }
+        return false;
+    }
+
     private void printDetailedMessage(BulkRequestContext context, ObjectName objectName,
                                       String operationName, Object[] params, String[] signature) throws IOException {
         StringBuilder expectedRoles = new StringBuilder();
@@ -393,7 +498,7 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         }
         String matchedPid = null;
         for (String pid : iterateDownPids(getNameSegments(objectName))) {
-            String generalPid = getGeneralPid(context.getAllPids(), pid);
+            String generalPid = context.getGeneralPid(pid);
             if (generalPid.length() > 0) {
                 Dictionary<String, Object> config = context.getConfiguration(generalPid);
                 List<String> roles = new ArrayList<>();
@@ -418,7 +523,7 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     List<String> getRequiredRoles(ObjectName objectName, String methodName, String[] signature) throws IOException {
-        return getRequiredRoles(BulkRequestContext.newContext(configAdmin), objectName, methodName, null, signature);
+        return getRequiredRoles(newContext(), objectName, methodName, null, signature);
     }
 
     List<String> getRequiredRoles(BulkRequestContext context, ObjectName objectName, String methodName, String[] signature) throws IOException {
@@ -426,12 +531,12 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     List<String> getRequiredRoles(ObjectName objectName, String methodName, Object[] params, String[] signature) throws IOException {
-        return getRequiredRoles(BulkRequestContext.newContext(configAdmin), objectName, methodName, params, signature);
+        return getRequiredRoles(newContext(), objectName, methodName, params, signature);
     }
 
     List<String> getRequiredRoles(BulkRequestContext context, ObjectName objectName, String methodName, Object[] params, String[] signature) throws IOException {
         for (String pid : iterateDownPids(getNameSegments(objectName))) {
-            String generalPid = getGeneralPid(context.getAllPids(), pid);
+            String generalPid = context.getGeneralPid(pid);
             if (generalPid.length() > 0) {
                 Dictionary<String, Object> config = context.getConfiguration(generalPid);
                 List<String> roles = new ArrayList<>();
@@ -444,43 +549,6 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         return Collections.emptyList();
     }
 
-    private String getGeneralPid(List<String> allPids, String pid) {
-        String[] pidStrArray = pid.split(Pattern.quote("."));
-        Set<String[]> rets = new TreeSet<>(WILDCARD_PID_COMPARATOR);
-        for (String id : allPids) {
-            String[] idStrArray = id.split(Pattern.quote("."));
-            if (idStrArray.length == pidStrArray.length) {
-                boolean match = true;
-                for (int i = 0; i < idStrArray.length; i++) {
-                    if (idStrArray[i].equals(JMX_OBJECTNAME_PROPERTY_WILDCARD) 
-                        || idStrArray[i].equals(pidStrArray[i])) {
-                        continue;
-                    } else {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    rets.add(idStrArray);
-                }
-            }
-        }
-
-        Iterator<String[]> it = rets.iterator();
-        if (!it.hasNext()) {
-            return "";
-        } else {
-            StringBuilder buffer = new StringBuilder();
-            for (String segment : it.next()) {
-                if (buffer.length() > 0) {
-                    buffer.append(".");
-                }
-                buffer.append(segment);
-            }
-            return buffer.toString();
-        }
-    }
-
     private List<String> getNameSegments(ObjectName objectName) {
         List<String> segments = new ArrayList<>();
         segments.add(objectName.getDomain());
@@ -531,38 +599,61 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     /**
-     * <code>nulls</code>-last comparator of PIDs split to segments. {@link #JMX_OBJECTNAME_PROPERTY_WILDCARD}
-     * in a segment makes the PID more generic, thus - with lower priority.
+     * ACL configurations and decisions cached until a <code>jmx.acl*</code> configuration changes.
      */
-    private static class WildcardPidComparator implements Comparator<String[]> {
-        @Override
-        public int compare(String[] o1, String[] o2) {
-            if (o1 == null && o2 == null) {
-                return 0;
-            }
-            if (o1 == null) {
-                return 1;
-            }
-            if (o2 == null) {
-                return -1;
+    private static class AclCache {
+        final BulkRequestContext context;
+        final Map<DecisionKey, Boolean> decisions = new ConcurrentHashMap<>();
+
+        AclCache(BulkRequestContext context) {
+            this.context = context;
+        }
+
+        void put(DecisionKey key, boolean decision) {
+            if (decisions.size() >= MAX_CACHED_DECISIONS) {
+                decisions.clear();
             }
-            if (o1.length != o2.length) {
-                // not necessary - not called with PIDs of different segment count
-                return o1.length - o2.length;
+            decisions.put(key, decision);
+        }
+    }
+
+    private static class DecisionKey {
+        private final String objectName;
+        private final String operation;
+        private final List<String> signature;
+        private final boolean invocation;
+        private final Set<String> principals;
+        private final int hashCode;
+
+        DecisionKey(ObjectName objectName, String operation, String[] signature, boolean invocation, Set<String> principals) {
+            this.objectName = objectName.getCanonicalName();
+            this.operation = operation;
+            this.signature = signature != null ? Arrays.asList(signature.clone()) : null;
+            this.invocation = invocation;
+            this.principals = principals;
+            this.hashCode = Objects.hash(this.objectName, operation, this.signature, invocation, principals);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
-            for (int n = 0; n < o1.length; n++) {
-                if (o1[n].equals(o2[n])) {
-                    continue;
-                }
-                if (o1[n].equals(JMX_OBJECTNAME_PROPERTY_WILDCARD)) {
-                    return 1;
-                }
-                if (o2[n].equals(JMX_OBJECTNAME_PROPERTY_WILDCARD)) {
-                    return -1;
-                }
-                return o1[n].compareTo(o2[n]);
+            if (!(o instanceof DecisionKey)) {
+                return false;
             }
-            return 0;
+            DecisionKey that = (DecisionKey) o;
+            return hashCode == that.hashCode
+                    && invocation == that.invocation
+                    && objectName.equals(that.objectName)
+                    && operation.equals(that.operation)
+                    && Objects.equals(signature, that.signature)
+                    && principals.equals(that.principals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
     }
 
@@ -36,6 +36,7 @@ import org.apache.karaf.util.tracker.annotation.RequireService;
 import org.apache.karaf.util.tracker.annotation.Services;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationListener;
 import org.osgi.service.cm.ManagedService;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
@@ -127,6 +128,7 @@ public class Activator extends BaseActivator implements ManagedService {
         KarafMBeanServerGuard guard = new KarafMBeanServerGuard();
         guard.setLogger(eventAdminLogger);
         guard.setConfigAdmin(configurationAdmin);
+        register(ConfigurationListener.class, guard);
 
         rmiRegistryFactory = new RmiRegistryFactory();
         rmiRegistryFactory.setCreate(createRmiRegistry);
@@ -21,12 +21,16 @@ import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import javax.security.auth.Subject;
 
@@ -39,10 +43,15 @@ import org.osgi.service.cm.ConfigurationAdmin;
  * {@link org.apache.karaf.management.JMXSecurityMBean#canInvoke(Map) bulk query invocation}. This prevents countless
  * {@link org.osgi.service.cm.ConfigurationAdmin#listConfigurations(String) listings of ConfigAdmin configurations}
  * for each checked MBean/method.</p>
- * <p>Access to this object doesn't have to be synchronized, as it is passed down the <code>canInvoke</code> chain.</p>
+ * <p>Access to this object doesn't have to be synchronized, as it is passed down the <code>canInvoke</code> chain.
+ * The ACL configurations may however be shared by several contexts created with {@link #forCurrentSubject()}.</p>
  */
 public class BulkRequestContext {
 
+    private static final Pattern PID_SEPARATOR = Pattern.compile(".", Pattern.LITERAL);
+
+    private static final String JMX_OBJECTNAME_PROPERTY_WILDCARD = "_";
+
     private List<String> allPids = new ArrayList<>();
     private List<Dictionary<String, Object>> whiteListProperties = new ArrayList<>();
 
@@ -53,8 +62,13 @@ public class BulkRequestContext {
     // otherwise we can cache current subject's principals for faster access
     private Set<Principal> principals = new HashSet<>();
 
-    // cache with lifecycle bound to BulkRequestContext instance
-    private Map<String, Dictionary<String, Object>> cachedConfigurations = new HashMap<>();
+    private Set<String> principalNames;
+
+    // caches with lifecycle bound to the ACL configurations
+    private Map<String, Dictionary<String, Object>> cachedConfigurations = Collections.synchronizedMap(new HashMap<>());
+    private Map<String, String> generalPids = new ConcurrentHashMap<>();
+    private PidNode pidTrie;
+    private Set<String> argumentMethods;
 
     private BulkRequestContext() {}
 
@@ -88,10 +102,38 @@ public class BulkRequestContext {
         } catch (InvalidSyntaxException ise) {
             throw new RuntimeException(ise);
         }
+        context.pidTrie = new PidNode();
+        for (String pid : context.allPids) {
+            context.pidTrie.add(PID_SEPARATOR.split(pid), 0);
+        }
 
         return context;
     }
 
+    /**
+     * Return a new context for the current JAAS subject, sharing the ACL configurations of this context.
+     *
+     * @return The new context.
+     */
+    public BulkRequestContext forCurrentSubject() {
+        BulkRequestContext context = new BulkRequestContext();
+        context.configAdmin = configAdmin;
+        context.allPids = allPids;
+        context.whiteListProperties = whiteListProperties;
+        context.cachedConfigurations = cachedConfigurations;
+        context.generalPids = generalPids;
+        context.pidTrie = pidTrie;
+        context.argumentMethods = argumentMethods;
+        AccessControlContext acc = AccessController.getContext();
+        Subject subject = acc != null ? Subject.getSubject(acc) : null;
+        if (subject == null) {
+            context.anonymous = true;
+        } else {
+            context.principals.addAll(subject.getPrincipals());
+        }
+        return context;
+    }
+
     /**
      * Return list of PIDs related to RBAC/ACL.
      *
@@ -125,6 +167,64 @@ public class BulkRequestContext {
         return cachedConfigurations.get(generalPid);
     }
 
+    /**
+     * Return the most specific ACL PID matching the given PID, where a {@link #JMX_OBJECTNAME_PROPERTY_WILDCARD}
+     * segment in an ACL PID matches any segment.
+     *
+     * @param pid The PID built from an ObjectName.
+     * @return The matching ACL PID or an empty string if none matches.
+     */
+    public String getGeneralPid(String pid) {
+        return generalPids.computeIfAbsent(pid, p -> {
+            String generalPid = pidTrie.find(PID_SEPARATOR.split(p), 0);
+            return generalPid != null ? generalPid : "";
+        });
+    }
+
+    /**
+     * Return the names of the methods having ACL entries which depend on the invocation arguments.
+     *
+     * @return The set of method names.
+     * @throws IOException If an error ocurrs while retrieving the configurations.
+     */
+    public Set<String> getArgumentMethods() throws IOException {
+        if (argumentMethods == null) {
+            Set<String> methods = new HashSet<>();
+            for (String pid : allPids) {
+                Dictionary<String, Object> config = getConfiguration(pid);
+                if (config == null) {
+                    continue;
+                }
+                for (Enumeration<String> keys = config.keys(); keys.hasMoreElements(); ) {
+                    String key = keys.nextElement();
+                    int index = key.indexOf('[');
+                    if (index > 0) {
+                        int end = key.indexOf('(');
+                        methods.add(key.substring(0, end >= 0 && end < index ? end : index).trim());
+                    }
+                }
+            }
+            argumentMethods = methods;
+        }
+        return argumentMethods;
+    }
+
+    /**
+     * Return the class and name of the principals of the subject, identifying its roles.
+     *
+     * @return The set of principal names.
+     */
+    public Set<String> getPrincipalNames() {
+        if (principalNames == null) {
+            Set<String> names = new HashSet<>();
+            for (Principal p : principals) {
+                names.add(p.getClass().getName() + ":" + p.getName());
+            }
+            principalNames = names;
+        }
+        return principalNames;
+    }
+
     public boolean isAnonymous() {
         return anonymous;
     }
@@ -133,4 +233,36 @@ public class BulkRequestContext {
         return principals;
     }
 
+    /**
+     * Node of a trie of ACL PIDs split in segments.
+     */
+    private static class PidNode {
+        private final Map<String, PidNode> children = new HashMap<>();
+        private String pid;
+
+        void add(String[] segments, int index) {
+            if (index == segments.length) {
+                pid = String.join(".", segments);
+            } else {
+                children.computeIfAbsent(segments[index], s -> new PidNode()).add(segments, index + 1);
+            }
+        }
+
+        /**
+         * Exact segments are preferred over wildcards, from the first segment to the last one.
+         */
+        String find(String[] segments, int index) {
+            if (index == segments.length) {
+                return pid;
+            }
+            PidNode child = children.get(segments[index]);
+            String found = child != null ? child.find(segments, index + 1) : null;
+            if (found == null && !JMX_OBJECTNAME_PROPERTY_WILDCARD.equals(segments[index])) {
+                child = children.get(JMX_OBJECTNAME_PROPERTY_WILDCARD);
+                found = child != null ? child.find(segments, index + 1) : null;
+            }
+            return found;
+        }
+    }
+
 }
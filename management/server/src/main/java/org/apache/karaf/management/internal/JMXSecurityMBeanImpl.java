@@ -118,6 +118,20 @@ public class JMXSecurityMBeanImpl extends StandardMBean implements JMXSecurityMB
         return table;
     }
 
+    public long getCacheHits() {
+        return guard != null ? guard.getCacheHits() : 0;
+    }
+
+    public long getCacheMisses() {
+        return guard != null ? guard.getCacheMisses() : 0;
+    }
+
+    public double getCacheHitRate() {
+        long hits = getCacheHits();
+        long total = hits + getCacheMisses();
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
     private String parseMethodName(String method, List<String> argTypes) {
         method = method.trim();
         int index = method.indexOf('(');
@@ -522,6 +522,93 @@ public class KarafMBeanServerGuardTest extends TestCase {
         });
     }
 
+    public void testInvokeCachesDecisions() throws Throwable {
+        Dictionary<String, Object> configuration = new Hashtable<>();
+        configuration.put("someMethod", "editor");
+        configuration.put("someOtherMethod", "viewer");
+        ConfigurationAdmin ca = getMockConfigAdmin(configuration);
+
+        final KarafMBeanServerGuard guard = new KarafMBeanServerGuard();
+        guard.setConfigAdmin(ca);
+
+        Subject subject = loginWithTestRoles("editor");
+        Subject.doAs(subject, (PrivilegedAction<Void>) () -> {
+            try {
+                Method im = MBeanServer.class.getMethod("invoke", ObjectName.class, String.class, Object[].class, String[].class);
+                ObjectName on = ObjectName.getInstance("foo.bar:type=Test");
+
+                for (int i = 0; i < 3; i++) {
+                    guard.invoke(null, im, new Object[]{on, "someMethod", new Object[]{"test"}, new String[]{"java.lang.String"}});
+                    try {
+                        guard.invoke(null, im, new Object[]{on, "someOtherMethod", new Object[]{}, new String[]{}});
+                        fail("Should not have allowed the invocation");
+                    } catch (SecurityException se) {
+                        // good
+                    }
+                }
+                assertEquals(2, guard.getCacheMisses());
+                assertEquals(4, guard.getCacheHits());
+
+                guard.invalidateCache();
+                guard.invoke(null, im, new Object[]{on, "someMethod", new Object[]{"test"}, new String[]{"java.lang.String"}});
+                assertEquals(3, guard.getCacheMisses());
+                return null;
+            } catch (Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
+    public void testInvokeConfigurationChangedDuringInvocation() throws Throwable {
+        Dictionary<String, Object> granted = new Hashtable<>();
+        granted.put(Constants.SERVICE_PID, "jmx.acl.foo.bar.Test");
+        granted.put("someMethod", "editor");
+        Dictionary<String, Object> revoked = new Hashtable<>();
+        revoked.put(Constants.SERVICE_PID, "jmx.acl.foo.bar.Test");
+        revoked.put("someMethod", "admin");
+
+        final KarafMBeanServerGuard guard = new KarafMBeanServerGuard();
+        final List<Dictionary<String, Object>> current = new ArrayList<>(Collections.singletonList(granted));
+        Configuration conf = EasyMock.createMock(Configuration.class);
+        EasyMock.expect(conf.getPid()).andReturn("jmx.acl.foo.bar.Test").anyTimes();
+        EasyMock.expect(conf.getProperties()).andAnswer(() -> {
+            Dictionary<String, Object> properties = current.get(0);
+            if (properties == granted) {
+                // the permission is revoked while the first invocation reads the configuration
+                current.set(0, revoked);
+                guard.invalidateCache();
+            }
+            return properties;
+        }).anyTimes();
+        ConfigurationAdmin ca = EasyMock.createMock(ConfigurationAdmin.class);
+        EasyMock.expect(ca.getConfiguration("jmx.acl.foo.bar.Test", null)).andReturn(conf).anyTimes();
+        EasyMock.expect(ca.listConfigurations("(service.pid=jmx.acl*)")).andReturn(new Configuration[]{conf}).anyTimes();
+        EasyMock.expect(ca.listConfigurations("(service.pid=jmx.acl.whitelist)")).andReturn(null).anyTimes();
+        EasyMock.replay(conf, ca);
+        guard.setConfigAdmin(ca);
+
+        Subject subject = loginWithTestRoles("editor");
+        Subject.doAs(subject, (PrivilegedAction<Void>) () -> {
+            try {
+                Method im = MBeanServer.class.getMethod("invoke", ObjectName.class, String.class, Object[].class, String[].class);
+                ObjectName on = ObjectName.getInstance("foo.bar:type=Test");
+
+                // decided with the configuration read before the change
+                guard.invoke(null, im, new Object[]{on, "someMethod", new Object[]{}, new String[]{}});
+                try {
+                    guard.invoke(null, im, new Object[]{on, "someMethod", new Object[]{}, new String[]{}});
+                    fail("Should not have allowed the invocation with the revoked permission");
+                } catch (SecurityException se) {
+                    // good
+                }
+                assertFalse(guard.canInvoke((MBeanServer) null, on, "someMethod", new String[]{}));
+                return null;
+            } catch (Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
     public void testGetAttributeIs() throws Throwable {
         final ObjectName on = ObjectName.getInstance("foo.bar:type=Test");
 
@@ -17,6 +17,7 @@
 package org.apache.karaf.scheduler;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -54,10 +55,42 @@ public interface ScheduleOptions extends Serializable {
      */
     ScheduleOptions canRunConcurrently(final boolean flag);
 
+    /**
+     * Flag indicating whether the job is run by the scheduler timer instead of Quartz.
+     * The timer is cheaper for short periodic jobs, but keeps its jobs in memory only, even with a persistent job store.
+     * It's ignored for jobs firing only once or with a cron expression.
+     * This defaults to false.
+     *
+     * @param flag Whether this job is run by the timer.
+     * @return The {@code ScheduleOptions}.
+     */
+    ScheduleOptions timer(final boolean flag);
+
+    /**
+     * Sets the period of a periodic job with a millisecond precision, replacing the period in seconds
+     * given when creating the options. The timer runs the job with the precision of its tick.
+     * It's ignored for jobs firing only once or with a cron expression.
+     *
+     * @param period The period, at least one millisecond.
+     * @return The {@code ScheduleOptions}.
+     */
+    default ScheduleOptions period(final Duration period) {
+        throw new UnsupportedOperationException("These options don't support a period in milliseconds");
+    }
+
     String name();
 
     boolean canRunConcurrently();
 
+    boolean timer();
+
+    /**
+     * @return The period of a periodic job, or {@code null} if these options don't define it.
+     */
+    default Duration period() {
+        return null;
+    }
+
     String schedule();
 
 }
\ No newline at end of file
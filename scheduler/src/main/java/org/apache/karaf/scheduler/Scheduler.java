@@ -63,6 +63,9 @@ public interface Scheduler {
     /** Name of the configuration property to define if the job can be run concurrently. */
     String PROPERTY_SCHEDULER_CONCURRENT = "scheduler.concurrent";
 
+    /** Name of the configuration property to define if a periodic job is run by the scheduler timer instead of Quartz. */
+    String PROPERTY_SCHEDULER_TIMER = "scheduler.timer";
+
     /** Name of the configuration property to define the job name. */
     String PROPERTY_SCHEDULER_NAME = "scheduler.name";
 
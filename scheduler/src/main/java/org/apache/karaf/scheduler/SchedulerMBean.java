@@ -23,6 +23,18 @@ public interface SchedulerMBean {
 
     TabularData getJobs() throws MBeanException;
 
+    /**
+     * Get the execution metrics of the jobs: number of runs, average and maximum latency (in milliseconds)
+     * between the scheduled and the actual start of a run, and number of overruns.
+     * For a job run by the timer, an overrun is a skipped fire: a fire of a non concurrent job is dropped while the
+     * previous run is still running. For a job run by Quartz, an overrun is a misfire: a fire of a non concurrent
+     * job is delayed until the previous run completes, and only counted once delayed more than the misfire threshold.
+     *
+     * @return The metrics of the jobs.
+     * @throws MBeanException If the metrics can't be retrieved.
+     */
+    TabularData getJobMetrics() throws MBeanException;
+
     void trigger(String name, boolean background) throws MBeanException;
 
     void unschedule(String name) throws MBeanException;
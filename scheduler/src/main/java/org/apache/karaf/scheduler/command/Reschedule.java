@@ -49,6 +49,9 @@ public class Reschedule implements Action {
     @Option(name = "--period", description = "Time during executions (in seconds)")
     long period;
 
+    @Option(name = "--timer", description = "Run the periodic job with the scheduler timer instead of Quartz (defaults to false)")
+    boolean timer;
+
     @Reference
     Scheduler scheduler;
 
@@ -77,6 +80,9 @@ public class Reschedule implements Action {
         if (concurrent) {
             options.canRunConcurrently(concurrent);
         }
+        if (timer) {
+            options.timer(timer);
+        }
         scheduler.reschedule(name, options);
         return null;
     }
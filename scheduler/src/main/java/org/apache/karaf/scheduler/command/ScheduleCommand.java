@@ -49,6 +49,9 @@ public class ScheduleCommand implements Action {
     @Option(name = "--period", description = "Time during executions (in seconds)")
     long period;
 
+    @Option(name = "--timer", description = "Run the periodic job with the scheduler timer instead of Quartz (defaults to false)")
+    boolean timer;
+
     @Argument(name = "command", required = true, description = "The command to schedule")
     String command;
 
@@ -82,6 +85,9 @@ public class ScheduleCommand implements Action {
         if (concurrent) {
             options.canRunConcurrently(concurrent);
         }
+        if (timer) {
+            options.timer(timer);
+        }
         options.name(command);
         scheduler.schedule(new CommandJob(session, command), options);
         return null;
@@ -55,6 +55,9 @@ public class ScheduleScript implements Action {
     @Option(name = "--period", description = "Time during executions (in seconds)")
     long period;
 
+    @Option(name = "--timer", description = "Run the periodic job with the scheduler timer instead of Quartz (defaults to false)")
+    boolean timer;
+
     @Argument(name = "script", required = true, description = "The script to schedule")
     Function script;
 
@@ -94,6 +97,9 @@ public class ScheduleScript implements Action {
         if (concurrent) {
             options.canRunConcurrently(concurrent);
         }
+        if (timer) {
+            options.timer(timer);
+        }
         scheduler.schedule(new ScriptJob(sessionFactory, session, script), options);
         return null;
     }
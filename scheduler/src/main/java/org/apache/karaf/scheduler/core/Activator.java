@@ -47,7 +47,13 @@ public class Activator extends BaseActivator implements ManagedService {
                 properties.put(key, value);
             }
         }
-        scheduler = new QuartzScheduler(properties);
+        TimerScheduler timerScheduler = new TimerScheduler(
+                getLong("timer.tickDuration", TimerScheduler.DEFAULT_TICK_DURATION),
+                getInt("timer.wheelSize", TimerScheduler.DEFAULT_WHEEL_SIZE),
+                getInt("timer.threadCount", TimerScheduler.DEFAULT_THREAD_COUNT),
+                getInt("timer.queueSize", TimerScheduler.DEFAULT_QUEUE_SIZE));
+        scheduler = new QuartzScheduler(properties, timerScheduler);
+        scheduler.setUnboundJobTimeout(getLong("unboundJobTimeout", QuartzScheduler.DEFAULT_UNBOUND_JOB_TIMEOUT));
         register(Scheduler.class, scheduler);
         whiteboardHandler = new WhiteboardHandler(bundleContext, scheduler);
 
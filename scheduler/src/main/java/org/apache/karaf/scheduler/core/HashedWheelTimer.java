@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.scheduler.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timer keeping its timeouts in a wheel of buckets, each bucket covering one tick.
+ * Adding or cancelling a timeout is constant time, whatever the number of timeouts, at the cost of
+ * a precision of one tick. The tasks are run on the timer thread, so they must not block.
+ */
+class HashedWheelTimer {
+
+    private final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickDuration;
+    private final List<Timeout>[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final String threadName;
+
+    private volatile Thread worker;
+    private volatile boolean stopped;
+    private long start;
+    private long tick;
+
+    /**
+     * @param tickDuration The duration of a tick in milliseconds.
+     * @param wheelSize The number of buckets, rounded up to a power of two.
+     * @param threadName The name of the timer thread.
+     */
+    @SuppressWarnings("unchecked")
+    HashedWheelTimer(long tickDuration, int wheelSize, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Schedule a task.
+     *
+     * @param task The task to run on the timer thread.
+     * @param deadline The {@link System#nanoTime()} at which the task is run.
+     * @return The timeout, which can be used to cancel the task.
+     */
+    Timeout schedule(Runnable task, long deadline) {
+        if (stopped) {
+            throw new IllegalStateException("Timer is stopped");
+        }
+        Timeout timeout = new Timeout(task, deadline);
+        pending.add(timeout);
+        if (worker == null) {
+            startWorker();
+        }
+        return timeout;
+    }
+
+    void stop() {
+        stopped = true;
+        Thread thread = worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        pending.clear();
+    }
+
+    private synchronized void startWorker() {
+        if (worker == null && !stopped) {
+            start = System.nanoTime();
+            Thread thread = new Thread(this::work, threadName);
+            thread.setDaemon(true);
+            worker = thread;
+            thread.start();
+        }
+    }
+
+    private void work() {
+        while (!stopped) {
+            long deadline = start + (tick + 1) * tickDuration;
+            long sleep;
+            while (!stopped && (sleep = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            if (stopped) {
+                break;
+            }
+            transferPending();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+        for (List<Timeout> bucket : wheel) {
+            bucket.clear();
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // the bucket of tick n is expired at start + (n + 1) * tickDuration
+            long ticks = (timeout.deadline - start + tickDuration - 1) / tickDuration - 1;
+            ticks = Math.max(ticks, tick);
+            timeout.rounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        int i = 0;
+        while (i < bucket.size()) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.cancelled || timeout.rounds <= 0) {
+                // swap with the last one to remove in constant time
+                bucket.set(i, bucket.get(bucket.size() - 1));
+                bucket.remove(bucket.size() - 1);
+                if (!timeout.cancelled) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable t) {
+                        logger.warn("Error running timer task " + timeout.task, t);
+                    }
+                }
+            } else {
+                timeout.rounds--;
+                i++;
+            }
+        }
+    }
+
+    static class Timeout {
+
+        final Runnable task;
+        final long deadline;
+        volatile boolean cancelled;
+        long rounds;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+    }
+
+}
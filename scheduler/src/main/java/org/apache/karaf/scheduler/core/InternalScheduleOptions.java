@@ -17,10 +17,13 @@
 package org.apache.karaf.scheduler.core;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Map;
+import java.util.Objects;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -43,6 +46,8 @@ public class InternalScheduleOptions implements ScheduleOptions {
 
     public boolean canRunConcurrently = false;
 
+    public boolean timer = false;
+
     public Map<String, Serializable> configuration;
 
     public String schedule;
@@ -50,6 +55,9 @@ public class InternalScheduleOptions implements ScheduleOptions {
     private Date date;
     private int times;
     private long period;
+    // the period in milliseconds if set with a Duration, it's kept apart from the period in seconds
+    // as the options are serialized in the persistent job stores
+    private long periodMillis;
     private String expression;
 
     public InternalScheduleOptions(Date date) {
@@ -100,6 +108,26 @@ public class InternalScheduleOptions implements ScheduleOptions {
         return this;
     }
 
+    /**
+     * @see org.apache.karaf.scheduler.ScheduleOptions#timer(boolean)
+     */
+    public ScheduleOptions timer(final boolean flag) {
+        this.timer = flag;
+        return this;
+    }
+
+    /**
+     * @see org.apache.karaf.scheduler.ScheduleOptions#period(java.time.Duration)
+     */
+    @Override
+    public ScheduleOptions period(final Duration period) {
+        if (period.toMillis() < 1) {
+            throw new IllegalArgumentException("The period must be at least one millisecond: " + period);
+        }
+        this.periodMillis = period.toMillis();
+        return this;
+    }
+
     @Override
     public String name() {
         return this.name;
@@ -110,11 +138,69 @@ public class InternalScheduleOptions implements ScheduleOptions {
         return this.canRunConcurrently;
     }
 
+    @Override
+    public boolean timer() {
+        return this.timer;
+    }
+
+    @Override
+    public Duration period() {
+        return Duration.ofMillis(getPeriodMillis());
+    }
+
     @Override
     public String schedule() {
         return schedule;
     }
 
+    Date getDate() {
+        return date;
+    }
+
+    int getTimes() {
+        return times;
+    }
+
+    long getPeriodMillis() {
+        return periodMillis > 0 ? periodMillis : period * 1000;
+    }
+
+    /**
+     * Check if the job can be run by the timer, i.e. if it's a periodic job without cron expression.
+     */
+    boolean isTimerCompatible() {
+        return expression == null && date != null && isPeriodic();
+    }
+
+    /**
+     * Check if these options define the same schedule as the given ones.
+     * The start date of periodic jobs is ignored, as it's usually computed from the current time.
+     */
+    public boolean isSameSchedule(InternalScheduleOptions other) {
+        if (canRunConcurrently != other.canRunConcurrently
+                || timer != other.timer
+                || !Objects.equals(configuration, other.configuration)
+                || !Objects.equals(expression, other.expression)) {
+            return false;
+        }
+        if (expression != null) {
+            return true;
+        }
+        return times == other.times && getPeriodMillis() == other.getPeriodMillis()
+                && (isPeriodic() || Objects.equals(date, other.date));
+    }
+
+    private boolean isPeriodic() {
+        return (times >= 2 || times == -1) && getPeriodMillis() >= 1;
+    }
+
+    /**
+     * Format the period in seconds, with the milliseconds if any.
+     */
+    private String formatPeriod() {
+        return BigDecimal.valueOf(getPeriodMillis(), 3).stripTrailingZeros().toPlainString();
+    }
+
     private String formatDate(Date date) {
         if (date == null) {
             return "null";
@@ -124,20 +210,23 @@ public class InternalScheduleOptions implements ScheduleOptions {
         return DatatypeConverter.printDateTime(c);
     }
 
+    /**
+     * Compute the schedule of a job run by the timer.
+     */
+    public void compileTimer() {
+        if (!isTimerCompatible()) {
+            throw new IllegalArgumentException("Only periodic jobs can be run by the timer");
+        }
+        this.schedule = "timer(" + formatDate(date) + ", " + times + ", " + formatPeriod() + ")";
+    }
+
     public TriggerBuilder<? extends Trigger> compile() {
         TriggerBuilder<? extends Trigger> trigger = null;
         if (expression == null) {
             if (date == null) {
                 throw new IllegalArgumentException("Date can't be null");
             } else {
-                boolean dateOnly = false;
-                if (times < 2 && times != -1) {
-                    dateOnly = true;
-                }
-                if (period < 1) {
-                    dateOnly = true;
-                }
-                if (dateOnly) {
+                if (!isPeriodic()) {
                     trigger = TriggerBuilder.newTrigger().startAt(date);
                     this.schedule = "at(" + formatDate(date) + ")";
                 } else {
@@ -149,8 +238,8 @@ public class InternalScheduleOptions implements ScheduleOptions {
                     }
                     trigger = TriggerBuilder.newTrigger()
                             .startAt(date)
-                            .withSchedule(simpleScheduleBuilder.withIntervalInMilliseconds(period * 1000));
-                    this.schedule = "at(" + formatDate(date) + ", " + times + ", " + period + ")";
+                            .withSchedule(simpleScheduleBuilder.withIntervalInMilliseconds(getPeriodMillis()));
+                    this.schedule = "at(" + formatDate(date) + ", " + times + ", " + formatPeriod() + ")";
                 }
             }
         } else {
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.scheduler.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution metrics of a job.
+ * The latency is the delay between the time the job should have been fired and the time it actually started.
+ * <p>
+ * The overruns depend on the engine running the job:
+ * <ul>
+ *     <li>with the timer, an overrun is a fire skipped because the previous run of a non concurrent job was still
+ *     running, or because no thread was available to run it;</li>
+ *     <li>with Quartz, an overrun is a misfire. The fire of a non concurrent job is not skipped but delayed until the
+ *     previous run completes, so it's only counted as an overrun when delayed more than the misfire threshold,
+ *     a shorter delay only shows in the latency.</li>
+ * </ul>
+ */
+public class JobMetrics {
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final LongAdder overruns = new LongAdder();
+
+    /**
+     * Record a run of the job.
+     *
+     * @param latency The delay in milliseconds between the scheduled and the actual start of the run.
+     */
+    void run(long latency) {
+        latency = Math.max(0, latency);
+        runs.increment();
+        totalLatency.add(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+    }
+
+    void overrun() {
+        overruns.increment();
+    }
+
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * @return The average latency in milliseconds.
+     */
+    public long getAverageLatency() {
+        long count = runs.sum();
+        return count > 0 ? totalLatency.sum() / count : 0;
+    }
+
+    /**
+     * @return The maximum latency in milliseconds.
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    public long getOverruns() {
+        return overruns.sum();
+    }
+
+}
@@ -32,6 +32,8 @@ public class KarafStdScheduler extends StdScheduler {
 
     private final QuartzSchedulerStorage storage;
 
+    private volatile long unboundJobTimeout = -1;
+
     public KarafStdScheduler(final org.quartz.core.QuartzScheduler scheduler) {
         super(scheduler);
         this.storage = new QuartzSchedulerStorage();
@@ -41,6 +43,17 @@ public class KarafStdScheduler extends StdScheduler {
         return this.storage;
     }
 
+    /**
+     * @return The time in milliseconds after which a job without bound object is deleted, or -1 to keep it.
+     */
+    long getUnboundJobTimeout() {
+        return this.unboundJobTimeout;
+    }
+
+    void setUnboundJobTimeout(long unboundJobTimeout) {
+        this.unboundJobTimeout = unboundJobTimeout;
+    }
+
     @Override
     public Date scheduleJob(final JobDetail jobDetail, final Trigger trigger) throws SchedulerException {
         JobDataMap context = (JobDataMap) jobDetail.getJobDataMap().get(QuartzScheduler.DATA_MAP_CONTEXT);
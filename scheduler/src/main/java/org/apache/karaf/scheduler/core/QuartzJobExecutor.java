@@ -24,6 +24,7 @@ import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,15 +46,54 @@ public class QuartzJobExecutor implements Job {
         final JobDataMap data = context.getJobDetail().getJobDataMap();
         final String contextKey = (context.getJobDetail().getKey() != null) ? context.getJobDetail().getKey().toString() : null;
         final JobDataMap karafContext = (contextKey != null) ? scheduler.getStorage().get(contextKey) : null;
-        final Object job = (karafContext != null) ? karafContext.get(QuartzScheduler.DATA_MAP_OBJECT) : context.getJobInstance();
-        final Logger logger = (karafContext != null) ? (Logger) karafContext.get(QuartzScheduler.DATA_MAP_LOGGER) : LOGGER;
+        if (karafContext == null) {
+            // with a persistent job store, a trigger may fire before the job is scheduled again after a restart
+            skip(scheduler, context, contextKey);
+            return;
+        }
+        final Object job = karafContext.get(QuartzScheduler.DATA_MAP_OBJECT);
+        final Logger logger = (Logger) karafContext.get(QuartzScheduler.DATA_MAP_LOGGER);
+        final JobMetrics metrics = (JobMetrics) karafContext.get(QuartzScheduler.DATA_MAP_METRICS);
+        if (metrics != null && context.getScheduledFireTime() != null) {
+            metrics.run(System.currentTimeMillis() - context.getScheduledFireTime().getTime());
+        }
+
+        final InternalScheduleOptions options = (InternalScheduleOptions) data.get(QuartzScheduler.DATA_MAP_OPTIONS);
+        final String name = (String) data.get(QuartzScheduler.DATA_MAP_NAME);
+        run(job, name, options, logger);
+    }
 
+    /**
+     * Skip a fire of a job without bound object, logging it once, and delete the job
+     * once it's not bound for longer than the unbound job timeout.
+     */
+    private static void skip(final KarafStdScheduler scheduler, final JobExecutionContext context, final String contextKey)
+            throws JobExecutionException {
+        final Object name = context.getJobDetail().getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME);
+        final long now = System.currentTimeMillis();
+        final long first = scheduler.getStorage().skip(contextKey, now);
+        final long timeout = scheduler.getUnboundJobTimeout();
+        if (first < 0) {
+            LOGGER.warn("No job bound with name {}, skipping execution until the job is scheduled again", name);
+        } else if (timeout >= 0 && now - first >= timeout) {
+            LOGGER.warn("No job bound with name {} for {} seconds, deleting the job", name, (now - first) / 1000);
+            try {
+                scheduler.deleteJob(context.getJobDetail().getKey());
+            } catch (SchedulerException e) {
+                throw new JobExecutionException(e);
+            }
+        } else {
+            LOGGER.debug("No job bound with name {}, skipping execution", name);
+        }
+    }
+
+    /**
+     * Run a {@link org.apache.karaf.scheduler.Job} or {@link Runnable}, logging any error.
+     */
+    static void run(final Object job, final String name, final InternalScheduleOptions options, final Logger logger) {
         try {
-            logger.debug("Executing job {} with name {}", job, data.get(QuartzScheduler.DATA_MAP_NAME));
+            logger.debug("Executing job {} with name {}", job, name);
             if (job instanceof org.apache.karaf.scheduler.Job) {
-                final InternalScheduleOptions options = (InternalScheduleOptions) data.get(QuartzScheduler.DATA_MAP_OPTIONS);
-                final String name = (String) data.get(QuartzScheduler.DATA_MAP_NAME);
-
                 final JobContext jobCtx = new JobContextImpl(name, options.configuration);
                 ((org.apache.karaf.scheduler.Job) job).execute(jobCtx);
             } else if (job instanceof Runnable) {
@@ -24,6 +24,7 @@ import org.apache.karaf.scheduler.Scheduler;
 import org.apache.karaf.scheduler.SchedulerError;
 import org.quartz.*;
 import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.TriggerListenerSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,10 +54,24 @@ public class QuartzScheduler implements Scheduler {
     /** Map key for the logger. */
     static final String DATA_MAP_LOGGER = "QuartzJobScheduler.Logger";
 
+    /** Map key for the job metrics. */
+    static final String DATA_MAP_METRICS = "QuartzJobScheduler.Metrics";
+
+    /** Default time in seconds after which a persisted job without bound object is deleted. */
+    static final long DEFAULT_UNBOUND_JOB_TIMEOUT = 3600;
+
     /** The quartz scheduler. */
     private volatile org.quartz.Scheduler scheduler;
 
+    /** The timer running the periodic jobs scheduled with the timer flag. */
+    private final TimerScheduler timerScheduler;
+
     public QuartzScheduler(Properties configuration) {
+        this(configuration, new TimerScheduler());
+    }
+
+    public QuartzScheduler(Properties configuration, TimerScheduler timerScheduler) {
+        this.timerScheduler = timerScheduler;
         // SLING-2261 Prevent Quartz from checking for updates
         System.setProperty("org.terracotta.quartz.skipUpdateCheck", Boolean.TRUE.toString());
         ClassLoader cl = Thread.currentThread().getContextClassLoader();
@@ -64,6 +79,7 @@ public class QuartzScheduler implements Scheduler {
             Thread.currentThread().setContextClassLoader(QuartzScheduler.class.getClassLoader());
             KarafStdSchedulerFactory factory = new KarafStdSchedulerFactory(configuration);
             scheduler = factory.getScheduler();
+            scheduler.getListenerManager().addTriggerListener(new MisfireListener(((KarafStdScheduler) scheduler).getStorage()));
             scheduler.start();
         } catch (Throwable t) {
             throw new RuntimeException("Unable to create quartz scheduler", t);
@@ -79,6 +95,7 @@ public class QuartzScheduler implements Scheduler {
     public void deactivate() {
         final org.quartz.Scheduler s = this.scheduler;
         this.scheduler = null;
+        this.timerScheduler.stop();
         this.dispose(s);
     }
 
@@ -106,22 +123,46 @@ public class QuartzScheduler implements Scheduler {
                                    final Object  job,
                                    final InternalScheduleOptions options) {
         final JobDataMap jobDataMap = new JobDataMap();
-        final JobDataMap jobContextMap = new JobDataMap();
 
         // serializable data
         jobDataMap.put(DATA_MAP_NAME, jobName);
         jobDataMap.put(DATA_MAP_OPTIONS, options);
 
-        // non serializable data
-        jobContextMap.put(DATA_MAP_OBJECT, job);
-        jobContextMap.put(DATA_MAP_LOGGER, this.logger);
-
         // temporary storage
-        jobDataMap.put(DATA_MAP_CONTEXT, jobContextMap);
+        jobDataMap.put(DATA_MAP_CONTEXT, this.initContextMap(job));
 
         return jobDataMap;
     }
 
+    /**
+     * Initialize the non serializable data of the job, kept in the scheduler storage.
+     */
+    private JobDataMap initContextMap(final Object job) {
+        final JobDataMap jobContextMap = new JobDataMap();
+        jobContextMap.put(DATA_MAP_OBJECT, job);
+        jobContextMap.put(DATA_MAP_LOGGER, this.logger);
+        jobContextMap.put(DATA_MAP_METRICS, new JobMetrics());
+        return jobContextMap;
+    }
+
+    /**
+     * Check if a job scheduled again with the same options can keep its trigger.
+     * This is only the case with a persistent job store, where the trigger survives a restart
+     * but the job object has to be bound again.
+     */
+    private boolean canRebind(final org.quartz.Scheduler s,
+                              final JobKey key,
+                              final JobDetail detail,
+                              final InternalScheduleOptions options) throws SchedulerException {
+        if (!this.isPersistent()) {
+            return false;
+        }
+        final Object existing = detail.getJobDataMap().get(DATA_MAP_OPTIONS);
+        return existing instanceof InternalScheduleOptions
+                && ((InternalScheduleOptions) existing).isSameSchedule(options)
+                && !s.getTriggersOfJob(key).isEmpty();
+    }
+
     /**
      * Create the job detail.
      */
@@ -144,6 +185,47 @@ public class QuartzScheduler implements Scheduler {
         }
     }
 
+    /**
+     * Check if the jobs are kept in a persistent job store.
+     */
+    boolean isPersistent() {
+        final org.quartz.Scheduler s = this.scheduler;
+        try {
+            return s != null && s.getMetaData().isJobStoreSupportsPersistence();
+        } catch (SchedulerException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Release the job object of a job, keeping the job and its trigger in the job store.
+     * The job is skipped when triggered until it is scheduled again.
+     */
+    void unbind(final String jobName) {
+        final org.quartz.Scheduler s = this.scheduler;
+        if (jobName != null && this.timerScheduler.unschedule(jobName)) {
+            // timer jobs are not persisted
+            return;
+        }
+        if (jobName != null && s != null) {
+            ((KarafStdScheduler) s).getStorage().release(JobKey.jobKey(jobName).toString());
+            this.logger.debug("Unbinding job with name {}", jobName);
+        }
+    }
+
+    /**
+     * Set the time after which a job without bound object is deleted from the job store.
+     * Until then, its fires are skipped.
+     *
+     * @param timeout The timeout in seconds, or a negative value to keep the job until it's unscheduled.
+     */
+    void setUnboundJobTimeout(final long timeout) {
+        final org.quartz.Scheduler s = this.scheduler;
+        if (s != null) {
+            ((KarafStdScheduler) s).setUnboundJobTimeout(timeout < 0 ? -1 : timeout * 1000);
+        }
+    }
+
     /** Used by the web console plugin. */
     org.quartz.Scheduler getScheduler() {
         return this.scheduler;
@@ -208,10 +290,17 @@ public class QuartzScheduler implements Scheduler {
         final String name;
         if ( opts.name != null ) {
             // if there is already a job with the name, remove it first
+            this.timerScheduler.unschedule(opts.name);
             try {
                 final JobKey key = JobKey.jobKey(opts.name);
                 final JobDetail jobdetail = s.getJobDetail(key);
                 if (jobdetail != null) {
+                    if (this.canRebind(s, key, jobdetail, opts)) {
+                        // keep the persisted trigger, so the next fire time and the misfire handling survive
+                        ((KarafStdScheduler) s).getStorage().put(key.toString(), this.initContextMap(job));
+                        this.logger.debug("Rebinding job {} with name {}", job, opts.name);
+                        return;
+                    }
                     s.deleteJob(key);
                     this.logger.debug("Unscheduling job with name {}", opts.name);
                 }
@@ -224,6 +313,12 @@ public class QuartzScheduler implements Scheduler {
             opts.name = name;
         }
 
+        if ( opts.timer && opts.isTimerCompatible() ) {
+            opts.compileTimer();
+            this.timerScheduler.schedule(name, job, opts);
+            return;
+        }
+
         final Trigger trigger = opts.compile().withIdentity(name).build();
 
         // create the data map
@@ -245,6 +340,15 @@ public class QuartzScheduler implements Scheduler {
         if (jobName == null) {
             throw new IllegalArgumentException("Job name is mandatory");
         }
+        final InternalScheduleOptions opts = (InternalScheduleOptions)options;
+        final TimerScheduler.TimerJob timerJob = this.timerScheduler.getJob(jobName);
+        if (timerJob != null) {
+            // the job stays on the timer if it's still periodic
+            opts.name = jobName;
+            opts.timer = true;
+            this.schedule(timerJob.job, opts);
+            return;
+        }
         JobKey key = JobKey.jobKey(jobName);
         if (key == null) {
             throw new IllegalStateException("No job found with name " + jobName);
@@ -254,11 +358,19 @@ public class QuartzScheduler implements Scheduler {
 
             final String contextKey = key.toString();
             JobDataMap karafContext = ((KarafStdScheduler) s).getStorage().get(contextKey);
+            if (karafContext == null) {
+                throw new IllegalStateException("No job bound with name " + jobName);
+            }
             Object job = karafContext.get(QuartzScheduler.DATA_MAP_OBJECT);
 
             s.deleteJob(key);
 
-            final InternalScheduleOptions opts = (InternalScheduleOptions)options;
+            if (opts.timer && opts.isTimerCompatible()) {
+                opts.name = jobName;
+                opts.compileTimer();
+                this.timerScheduler.schedule(jobName, job, opts);
+                return;
+            }
             Trigger trigger = opts.compile().withIdentity(jobName).build();
             JobDataMap jobDataMap = this.initDataMap(jobName, job, opts);
             detail = createJobDetail(jobName, jobDataMap, opts.canRunConcurrently);
@@ -275,6 +387,9 @@ public class QuartzScheduler implements Scheduler {
      */
     public boolean unschedule(final String jobName) {
         final org.quartz.Scheduler s = this.scheduler;
+        if (jobName != null && this.timerScheduler.unschedule(jobName)) {
+            return true;
+        }
         if (jobName != null && s != null) {
             try {
                 final JobKey key = JobKey.jobKey(jobName);
@@ -305,6 +420,9 @@ public class QuartzScheduler implements Scheduler {
                     }
                 }
             }
+            for (TimerScheduler.TimerJob job : this.timerScheduler.getJobs().values()) {
+                jobs.put(job.name, job.options);
+            }
             return jobs;
         } catch (SchedulerException ex) {
             throw new SchedulerError(ex);
@@ -314,6 +432,9 @@ public class QuartzScheduler implements Scheduler {
     @Override
     public boolean trigger(String jobName) throws SchedulerError {
         final org.quartz.Scheduler s = this.scheduler;
+        if (jobName != null && this.timerScheduler.trigger(jobName)) {
+            return true;
+        }
         if (jobName != null && s != null) {
             try {
                 final JobKey key = JobKey.jobKey(jobName);
@@ -329,4 +450,57 @@ public class QuartzScheduler implements Scheduler {
         return false;
     }
 
+    /**
+     * Get the execution metrics of the scheduled jobs, run either by Quartz or by the timer.
+     */
+    Map<String, JobMetrics> getJobMetrics() throws SchedulerError {
+        try {
+            Map<String, JobMetrics> metrics = new TreeMap<>();
+            org.quartz.Scheduler s = this.scheduler;
+            if (s != null) {
+                for (String group : s.getJobGroupNames()) {
+                    for (JobKey key : s.getJobKeys(GroupMatcher.jobGroupEquals(group))) {
+                        JobDataMap karafContext = ((KarafStdScheduler) s).getStorage().get(key.toString());
+                        if (karafContext != null && karafContext.get(DATA_MAP_METRICS) != null) {
+                            metrics.put(key.getName(), (JobMetrics) karafContext.get(DATA_MAP_METRICS));
+                        }
+                    }
+                }
+            }
+            for (TimerScheduler.TimerJob job : this.timerScheduler.getJobs().values()) {
+                metrics.put(job.name, job.metrics);
+            }
+            return metrics;
+        } catch (SchedulerException ex) {
+            throw new SchedulerError(ex);
+        }
+    }
+
+    /**
+     * Count the misfires of the Quartz jobs as overruns.
+     * A fire of a non concurrent job is delayed while the previous run is still running, and only counted as a
+     * misfire when it's delayed more than the misfire threshold of the job store.
+     */
+    static class MisfireListener extends TriggerListenerSupport {
+
+        private final QuartzSchedulerStorage storage;
+
+        MisfireListener(QuartzSchedulerStorage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public String getName() {
+            return "KarafMisfireListener";
+        }
+
+        @Override
+        public void triggerMisfired(Trigger trigger) {
+            final JobDataMap karafContext = this.storage.get(trigger.getJobKey().toString());
+            if (karafContext != null && karafContext.get(DATA_MAP_METRICS) != null) {
+                ((JobMetrics) karafContext.get(DATA_MAP_METRICS)).overrun();
+            }
+        }
+    }
+
 }
@@ -19,12 +19,15 @@ package org.apache.karaf.scheduler.core;
 import org.apache.karaf.scheduler.SchedulerStorage;
 
 import java.io.Serializable;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class QuartzSchedulerStorage implements SchedulerStorage {
 
-    private final Map<Serializable, Object> store = new HashMap<>();
+    private final Map<Serializable, Object> store = new ConcurrentHashMap<>();
+
+    /** Time of the first fire skipped since the object of a job has been released. */
+    private final Map<Serializable, Long> skipped = new ConcurrentHashMap<>();
 
     @Override
     public <T> T get(Serializable key) {
@@ -34,6 +37,7 @@ public class QuartzSchedulerStorage implements SchedulerStorage {
     @Override
     public void put(Serializable key, Object value) {
         this.store.put(key, value);
+        this.skipped.remove(key);
     }
 
     @Override
@@ -44,6 +48,17 @@ public class QuartzSchedulerStorage implements SchedulerStorage {
     @Override
     public void release(Serializable key) {
         this.store.remove(key);
+        this.skipped.remove(key);
+    }
+
+    /**
+     * Record a fire skipped because no object is bound to the job.
+     *
+     * @return The time of the first fire skipped since the object has been released, or -1 if this is the first one.
+     */
+    long skip(Serializable key, long time) {
+        final Long first = this.skipped.putIfAbsent(key, time);
+        return first != null ? first : -1;
     }
 
 }
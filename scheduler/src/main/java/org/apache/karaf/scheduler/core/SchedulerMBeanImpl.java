@@ -17,7 +17,6 @@
 package org.apache.karaf.scheduler.core;
 
 import org.apache.karaf.scheduler.ScheduleOptions;
-import org.apache.karaf.scheduler.Scheduler;
 import org.apache.karaf.scheduler.SchedulerMBean;
 import org.apache.karaf.scheduler.command.support.TriggerJob;
 
@@ -29,7 +28,7 @@ import java.util.Map;
 
 public class SchedulerMBeanImpl extends StandardMBean implements SchedulerMBean {
 
-    private Scheduler scheduler;
+    private QuartzScheduler scheduler;
 
     public SchedulerMBeanImpl() throws NotCompliantMBeanException {
         super(SchedulerMBean.class);
@@ -58,6 +57,29 @@ public class SchedulerMBeanImpl extends StandardMBean implements SchedulerMBean
         }
     }
 
+    @Override
+    public TabularData getJobMetrics() throws MBeanException {
+        try {
+            CompositeType metricsType = new CompositeType("JobMetrics", "Scheduler job metrics",
+                    new String[]{ "Job", "Runs", "AverageLatency", "MaxLatency", "Overruns" },
+                    new String[]{ "Job Name", "Number of runs", "Average latency (ms)", "Maximum latency (ms)", "Number of skipped runs" },
+                    new OpenType[]{ SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG });
+            TabularType tableType = new TabularType("JobMetrics", "Table of the job metrics", metricsType, new String[]{ "Job" });
+            TabularData table = new TabularDataSupport(tableType);
+
+            for (Map.Entry<String, JobMetrics> entry : scheduler.getJobMetrics().entrySet()) {
+                JobMetrics metrics = entry.getValue();
+                CompositeData data = new CompositeDataSupport(metricsType,
+                        new String[]{ "Job", "Runs", "AverageLatency", "MaxLatency", "Overruns" },
+                        new Object[]{ entry.getKey(), metrics.getRuns(), metrics.getAverageLatency(), metrics.getMaxLatency(), metrics.getOverruns() });
+                table.put(data);
+            }
+            return table;
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
     @Override
     public void trigger(String name, boolean background) throws MBeanException {
         try {
@@ -80,11 +102,11 @@ public class SchedulerMBeanImpl extends StandardMBean implements SchedulerMBean
         }
     }
 
-    public Scheduler getScheduler() {
+    public QuartzScheduler getScheduler() {
         return scheduler;
     }
 
-    public void setScheduler(Scheduler scheduler) {
+    public void setScheduler(QuartzScheduler scheduler) {
         this.scheduler = scheduler;
     }
 
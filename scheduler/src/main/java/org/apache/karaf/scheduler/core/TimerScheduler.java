@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.scheduler.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs simple periodic jobs with a {@link HashedWheelTimer} instead of Quartz.
+ * A fire only hands the job over to a bounded thread pool, there is no trigger to acquire nor job data to copy.
+ * The jobs are kept in memory only, even when Quartz uses a persistent job store.
+ */
+class TimerScheduler {
+
+    static final long DEFAULT_TICK_DURATION = 10;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+    static final int DEFAULT_THREAD_COUNT = 4;
+    static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(TimerScheduler.class);
+
+    private final HashedWheelTimer timer;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, TimerJob> jobs = new ConcurrentHashMap<>();
+
+    TimerScheduler() {
+        this(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, DEFAULT_THREAD_COUNT, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param tickDuration The precision of the timer in milliseconds.
+     * @param wheelSize The number of buckets of the timer.
+     * @param threadCount The maximum number of jobs running at the same time.
+     * @param queueSize The maximum number of jobs waiting for a thread, further fires are counted as overruns.
+     */
+    TimerScheduler(long tickDuration, int wheelSize, int threadCount, int queueSize) {
+        this.timer = new HashedWheelTimer(tickDuration, wheelSize, "Karaf Scheduler Timer");
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "Karaf Scheduler Timer Worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedule a periodic job, replacing the job with the same name if any.
+     */
+    void schedule(String name, Object job, InternalScheduleOptions options) {
+        TimerJob timerJob = new TimerJob(name, job, options);
+        TimerJob old = jobs.put(name, timerJob);
+        if (old != null) {
+            old.cancel();
+        }
+        timerJob.start();
+        logger.debug("Scheduling job {} with name {} on the timer", job, name);
+    }
+
+    boolean unschedule(String name) {
+        TimerJob job = jobs.remove(name);
+        if (job != null) {
+            job.cancel();
+            logger.debug("Unscheduling job with name {} from the timer", name);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Run a job now, outside of its schedule.
+     */
+    boolean trigger(String name) {
+        TimerJob job = jobs.get(name);
+        if (job != null) {
+            job.submit(System.nanoTime());
+            return true;
+        }
+        return false;
+    }
+
+    TimerJob getJob(String name) {
+        return jobs.get(name);
+    }
+
+    Map<String, TimerJob> getJobs() {
+        return Collections.unmodifiableMap(jobs);
+    }
+
+    void stop() {
+        timer.stop();
+        for (TimerJob job : jobs.values()) {
+            job.cancel();
+        }
+        jobs.clear();
+        executor.shutdownNow();
+    }
+
+    class TimerJob {
+
+        final String name;
+        final Object job;
+        final InternalScheduleOptions options;
+        final JobMetrics metrics = new JobMetrics();
+        private final long period;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicInteger remaining;
+        private volatile HashedWheelTimer.Timeout timeout;
+        private volatile boolean cancelled;
+        private long next;
+
+        TimerJob(String name, Object job, InternalScheduleOptions options) {
+            this.name = name;
+            this.job = job;
+            this.options = options;
+            this.period = TimeUnit.MILLISECONDS.toNanos(options.getPeriodMillis());
+            this.remaining = new AtomicInteger(options.getTimes());
+        }
+
+        void start() {
+            long delay = TimeUnit.MILLISECONDS.toNanos(options.getDate().getTime() - System.currentTimeMillis());
+            next = System.nanoTime() + Math.max(0, delay);
+            timeout = timer.schedule(this::fire, next);
+        }
+
+        void cancel() {
+            cancelled = true;
+            HashedWheelTimer.Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+
+        /**
+         * Called on the timer thread when the job is due. The next fire is computed from the
+         * scheduled time, not from the end of the run, so a slow run does not shift the schedule.
+         */
+        private void fire() {
+            if (cancelled) {
+                return;
+            }
+            long scheduled = next;
+            if (remaining.get() == -1 || remaining.decrementAndGet() > 0) {
+                next = scheduled + period;
+                timeout = timer.schedule(this::fire, next);
+            } else {
+                jobs.remove(name, this);
+            }
+            submit(scheduled);
+        }
+
+        private void submit(long scheduled) {
+            if (!options.canRunConcurrently && !running.compareAndSet(false, true)) {
+                metrics.overrun();
+                logger.debug("Skipping job with name {} as the previous run is still running", name);
+                return;
+            }
+            try {
+                executor.execute(() -> run(scheduled));
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+                metrics.overrun();
+                logger.debug("Skipping job with name {} as no thread is available", name);
+            }
+        }
+
+        private void run(long scheduled) {
+            try {
+                metrics.run(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduled));
+                QuartzJobExecutor.run(job, name, options, logger);
+            } finally {
+                running.set(false);
+            }
+        }
+
+    }
+
+}
@@ -17,9 +17,12 @@
 package org.apache.karaf.scheduler.core;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.karaf.scheduler.Job;
 import org.apache.karaf.scheduler.Scheduler;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
@@ -38,12 +41,21 @@ public class WhiteboardHandler {
     /** Default logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private Scheduler scheduler;
+    private QuartzScheduler scheduler;
+
+    private final BundleContext context;
+
+    private volatile boolean active = true;
 
     private ServiceTracker<?,?> serviceTracker;
 
-    public WhiteboardHandler(final BundleContext context, Scheduler scheduler) throws InvalidSyntaxException {
+    /** Name of the job of each registered service, and service owning each job name, guarded by the tracker. */
+    private final Map<ServiceReference, String> names = new HashMap<>();
+    private final Map<String, ServiceReference> owners = new HashMap<>();
+
+    public WhiteboardHandler(final BundleContext context, QuartzScheduler scheduler) throws InvalidSyntaxException {
         this.scheduler = scheduler;
+        this.context = context;
         this.serviceTracker = new ServiceTracker<>(context,
                 context.createFilter("(|(" + Constants.OBJECTCLASS + "=" + Runnable.class.getName() + ")" +
                         "(" + Constants.OBJECTCLASS + "=" + Job.class.getName() + "))"),
@@ -74,6 +86,7 @@ public class WhiteboardHandler {
      * Deactivate this component.
      */
     public void deactivate() {
+        this.active = false;
         this.serviceTracker.close();
     }
 
@@ -85,9 +98,13 @@ public class WhiteboardHandler {
         String name = (String) ref.getProperty(Scheduler.PROPERTY_SCHEDULER_NAME);
         if ( name == null ) {
             name = (String) ref.getProperty(Constants.SERVICE_PID);
-            if ( name == null ) {
-                name = "Registered Service";
-            }
+        }
+        if ( name != null && this.scheduler.isPersistent() ) {
+            // the service id changes on restart, keep the name stable to bind the persisted job again
+            return name;
+        }
+        if ( name == null ) {
+            name = "Registered Service";
         }
         // now append service id to create a unique identifier
         name = name + "." + ref.getProperty(Constants.SERVICE_ID);
@@ -99,6 +116,14 @@ public class WhiteboardHandler {
      */
     private void register(final ServiceReference ref, final Object job) {
         final String name = getServiceIdentifier(ref);
+        final ServiceReference owner = this.owners.put(name, ref);
+        if (owner != null && !owner.equals(ref)) {
+            // only with a persistent job store, as the name doesn't contain the service id
+            this.logger.warn("Services {} and {} use the same scheduler name {}, the job of the first one is replaced",
+                    owner.getProperty(Constants.SERVICE_ID), ref.getProperty(Constants.SERVICE_ID), name);
+            this.names.remove(owner);
+        }
+        this.names.put(ref, name);
         Boolean concurrent = true;
         if (ref.getProperty(Scheduler.PROPERTY_SCHEDULER_CONCURRENT) != null) {
             if (ref.getProperty(Scheduler.PROPERTY_SCHEDULER_CONCURRENT) instanceof Boolean) {
@@ -154,9 +179,18 @@ public class WhiteboardHandler {
                         if (!immediate) {
                             date.setTime(System.currentTimeMillis() + period * 1000);
                         }
+                        boolean timer = false;
+                        if (ref.getProperty(Scheduler.PROPERTY_SCHEDULER_TIMER) != null) {
+                            if (ref.getProperty(Scheduler.PROPERTY_SCHEDULER_TIMER) instanceof Boolean) {
+                                timer = (Boolean) ref.getProperty(Scheduler.PROPERTY_SCHEDULER_TIMER);
+                            } else {
+                                timer = Boolean.valueOf((String) ref.getProperty(Scheduler.PROPERTY_SCHEDULER_TIMER));
+                            }
+                        }
                         this.scheduler.schedule(job, this.scheduler.AT(date, times, period)
                                 .name(name)
-                                .canRunConcurrently((concurrent != null ? concurrent : true)));
+                                .canRunConcurrently((concurrent != null ? concurrent : true))
+                                .timer(timer));
                     }
                 } else {
                     this.logger.debug("Ignoring service {} : no scheduling property found.", ref);
@@ -171,7 +205,25 @@ public class WhiteboardHandler {
      * Unregister a service.
      */
     private void unregister(final ServiceReference reference, final Object service) {
-        final String name = getServiceIdentifier(reference);
-        this.scheduler.unschedule(name);
+        final String name = this.names.remove(reference);
+        if (name == null || !this.owners.remove(name, reference)) {
+            // the job has been replaced by another service with the same name
+            return;
+        }
+        if (this.scheduler.isPersistent() && (!this.active || isFrameworkStopping())) {
+            // keep the persisted job and its trigger, the job is bound again when the service comes back
+            this.scheduler.unbind(name);
+        } else {
+            this.scheduler.unschedule(name);
+        }
+    }
+
+    private boolean isFrameworkStopping() {
+        try {
+            return this.context.getBundle(0).getState() == Bundle.STOPPING;
+        } catch (IllegalStateException e) {
+            // our bundle context is not valid anymore
+            return true;
+        }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.scheduler.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuartzSchedulerTest {
+
+    private QuartzScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        Properties props = new Properties();
+        props.put("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        props.put("org.quartz.threadPool.threadCount", "2");
+        props.put("org.quartz.jobStore.misfireThreshold", "100");
+        scheduler = new QuartzScheduler(props);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.deactivate();
+    }
+
+    @Test
+    public void testNonConcurrentJobMisfire() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable job = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        scheduler.schedule(job, scheduler.NOW(-1, 1).name("job").canRunConcurrently(false));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the next fire is delayed by the running job, longer than the misfire threshold
+        Thread.sleep(1500);
+        release.countDown();
+
+        JobMetrics metrics = scheduler.getJobMetrics().get("job");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getOverruns() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(metrics.getOverruns() > 0);
+    }
+
+    @Test
+    public void testNoMisfire() throws Exception {
+        CountDownLatch runs = new CountDownLatch(2);
+        scheduler.schedule((Runnable) runs::countDown, scheduler.NOW(-1, 1).name("job").canRunConcurrently(false));
+
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getJobMetrics().get("job").getOverruns());
+    }
+
+    @Test
+    public void testUnboundJobTimeout() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.setUnboundJobTimeout(1);
+        scheduler.schedule((Runnable) runs::incrementAndGet, scheduler.AT(new Date(System.currentTimeMillis() + 500), -1, 1).name("job"));
+        scheduler.unbind("job");
+        assertTrue(scheduler.getJobs().containsKey("job"));
+
+        // the fires are skipped, then the job is deleted
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getJobs().containsKey("job") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(scheduler.getJobs().containsKey("job"));
+        assertEquals(0, runs.get());
+    }
+
+}
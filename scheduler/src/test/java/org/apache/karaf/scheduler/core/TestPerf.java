@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.scheduler.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.quartz.utils.ConnectionProvider;
+
+/**
+ * Measures the trigger dispatch latency with 10k scheduled jobs, with the RAM job store and a JDBC
+ * job store on an embedded Derby database, and the time needed to schedule the jobs again on restart.
+ */
+@Ignore
+public class TestPerf {
+
+    private static final int JOBS = 10000;
+
+    private static final String DERBY_URL = "jdbc:derby:memory:scheduler";
+
+    @Test
+    public void testRamJobStore() throws Exception {
+        Properties props = new Properties();
+        props.put("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        dispatch("ram", props);
+    }
+
+    @Test
+    public void testJdbcJobStore() throws Exception {
+        createTables();
+        dispatch("jdbc", jdbcProperties());
+    }
+
+    @Test
+    public void testJdbcRestart() throws Exception {
+        createTables();
+        QuartzScheduler scheduler = new QuartzScheduler(jdbcProperties());
+        long t0 = System.currentTimeMillis();
+        schedulePeriodic(scheduler);
+        long t1 = System.currentTimeMillis();
+        scheduler.deactivate();
+
+        scheduler = new QuartzScheduler(jdbcProperties());
+        try {
+            long t2 = System.currentTimeMillis();
+            schedulePeriodic(scheduler);
+            long t3 = System.currentTimeMillis();
+            assertEquals(JOBS, scheduler.getJobs().size());
+            System.out.println("jdbc: first scheduling = " + (t1 - t0) + " ms, scheduling on restart = " + (t3 - t2) + " ms");
+        } finally {
+            scheduler.deactivate();
+        }
+    }
+
+    private void schedulePeriodic(QuartzScheduler scheduler) throws Exception {
+        Runnable job = () -> { };
+        for (int i = 0; i < JOBS; i++) {
+            Date start = new Date(System.currentTimeMillis() + 3600000);
+            scheduler.schedule(job, scheduler.AT(start, -1, 3600).name("job-" + i));
+        }
+    }
+
+    private void dispatch(String store, Properties props) throws Exception {
+        props.put("org.quartz.scheduler.instanceName", "bench-" + store);
+        props.put("org.quartz.threadPool.threadCount", "10");
+        QuartzScheduler scheduler = new QuartzScheduler(props);
+        try {
+            long[] latencies = new long[JOBS];
+            CountDownLatch latch = new CountDownLatch(JOBS);
+            long base = System.currentTimeMillis() + 10000;
+            long t0 = System.currentTimeMillis();
+            for (int i = 0; i < JOBS; i++) {
+                int index = i;
+                // spread the fire times over one second
+                long fireTime = base + i % 1000;
+                Runnable job = () -> {
+                    latencies[index] = System.currentTimeMillis() - fireTime;
+                    latch.countDown();
+                };
+                scheduler.schedule(job, scheduler.AT(new Date(fireTime)).name("job-" + i));
+            }
+            long scheduling = System.currentTimeMillis() - t0;
+            assertTrue(latch.await(5, TimeUnit.MINUTES));
+            Arrays.sort(latencies);
+            System.out.println(store + ": scheduling = " + scheduling + " ms"
+                    + ", latency p50 = " + latencies[JOBS / 2] + " ms"
+                    + ", p99 = " + latencies[JOBS * 99 / 100] + " ms"
+                    + ", max = " + latencies[JOBS - 1] + " ms");
+        } finally {
+            scheduler.deactivate();
+        }
+    }
+
+    private Properties jdbcProperties() {
+        Properties props = new Properties();
+        props.put("org.quartz.scheduler.instanceName", "bench-jdbc");
+        props.put("org.quartz.threadPool.threadCount", "10");
+        props.put("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+        props.put("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.StdJDBCDelegate");
+        props.put("org.quartz.jobStore.dataSource", "bench");
+        props.put("org.quartz.dataSource.bench.connectionProvider.class", DerbyConnectionProvider.class.getName());
+        return props;
+    }
+
+    private void createTables() throws Exception {
+        try (
+                Connection connection = DriverManager.getConnection(DERBY_URL + ";create=true");
+                Statement statement = connection.createStatement();
+                InputStream is = getClass().getClassLoader().getResourceAsStream("org/quartz/impl/jdbcjobstore/tables_derby.sql")
+        ) {
+            if (connection.getMetaData().getTables(null, null, "QRTZ_JOB_DETAILS", null).next()) {
+                statement.execute("DELETE FROM QRTZ_FIRED_TRIGGERS");
+                statement.execute("DELETE FROM QRTZ_SIMPLE_TRIGGERS");
+                statement.execute("DELETE FROM QRTZ_TRIGGERS");
+                statement.execute("DELETE FROM QRTZ_JOB_DETAILS");
+                return;
+            }
+            String script = new Scanner(is, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+            for (String sql : script.replaceAll("(?m)^--.*$", "").split(";")) {
+                sql = sql.trim();
+                if (!sql.isEmpty() && !sql.equalsIgnoreCase("commit") && !sql.toLowerCase().startsWith("drop")) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * Connections to the embedded Derby database, created by Quartz from the job store configuration.
+     */
+    public static class DerbyConnectionProvider implements ConnectionProvider {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DriverManager.getConnection(DERBY_URL);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+    }
+
+}
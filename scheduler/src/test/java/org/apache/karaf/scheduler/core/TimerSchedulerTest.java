@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.scheduler.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimerSchedulerTest {
+
+    private TimerScheduler timer;
+
+    @Before
+    public void setUp() {
+        timer = new TimerScheduler(1, 64, 2, 10);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testPeriodicJob() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        timer.schedule("job", (Runnable) latch::countDown, options(new Date(), 2, 1, false));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // the job is removed once it ran the requested number of times
+        long deadline = System.currentTimeMillis() + 1000;
+        while (timer.getJob("job") != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(timer.getJob("job"));
+    }
+
+    @Test
+    public void testPeriodInMilliseconds() throws Exception {
+        CountDownLatch latch = new CountDownLatch(5);
+        InternalScheduleOptions options = options(new Date(), 5, 1, false);
+        options.period(Duration.ofMillis(100));
+        options.compileTimer();
+        assertEquals(Duration.ofMillis(100), options.period());
+        assertTrue(options.schedule().endsWith(", 5, 0.1)"));
+
+        long start = System.nanoTime();
+        timer.schedule("job", (Runnable) latch::countDown, options);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // the runs are 100 ms apart, not one second
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void testNonConcurrentJobOverruns() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Runnable job = () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        timer.schedule("job", job, options(new Date(System.currentTimeMillis() + 3600000), -1, 1, false));
+
+        assertTrue(timer.trigger("job"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the previous run is still running, so this one is skipped
+        assertTrue(timer.trigger("job"));
+        release.countDown();
+
+        JobMetrics metrics = timer.getJob("job").metrics;
+        assertEquals(1, runs.get());
+        assertEquals(1, metrics.getRuns());
+        assertEquals(1, metrics.getOverruns());
+    }
+
+    @Test
+    public void testConcurrentJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable job = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        timer.schedule("job", job, options(new Date(System.currentTimeMillis() + 3600000), -1, 1, true));
+
+        timer.trigger("job");
+        timer.trigger("job");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals(0, timer.getJob("job").metrics.getOverruns());
+    }
+
+    @Test
+    public void testUnschedule() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        timer.schedule("job", (Runnable) runs::incrementAndGet, options(new Date(System.currentTimeMillis() + 500), -1, 1, false));
+
+        assertTrue(timer.unschedule("job"));
+        assertFalse(timer.unschedule("job"));
+        assertFalse(timer.trigger("job"));
+        Thread.sleep(1000);
+        assertEquals(0, runs.get());
+    }
+
+    private static InternalScheduleOptions options(Date date, int times, long period, boolean concurrent) {
+        InternalScheduleOptions options = new InternalScheduleOptions(date, times, period);
+        options.canRunConcurrently(concurrent);
+        options.timer(true);
+        return options;
+    }
+
+}
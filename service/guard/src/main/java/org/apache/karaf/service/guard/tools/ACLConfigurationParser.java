@@ -17,6 +17,8 @@
 package org.apache.karaf.service.guard.tools;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import org.apache.karaf.service.guard.impl.GuardProxyCatalog;
 
@@ -32,6 +34,9 @@ public class ACLConfigurationParser {
     }
 
     static String compulsoryRoles;
+
+    // argument regexes declared in ACL configurations, compiled once
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
     
     static {
         compulsoryRoles = System.getProperty(GuardProxyCatalog.KARAF_SECURED_COMMAND_COMPULSORY_ROLES_PROPERTY);
@@ -352,7 +357,7 @@ public class ACLConfigurationParser {
         for (int i = 0; i < regexArgs.size(); i++) {
             if (params[i] == null)
                 return false;
-            if (!params[i].toString().trim().matches(regexArgs.get(i))) {
+            if (!PATTERNS.computeIfAbsent(regexArgs.get(i), Pattern::compile).matcher(params[i].toString().trim()).matches()) {
                 return false;
             }
         }
@@ -30,6 +30,10 @@ import org.apache.felix.eventadmin.impl.handler.EventAdminImpl;
 import org.apache.felix.eventadmin.impl.security.SecureEventAdminFactory;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
+import org.apache.karaf.services.eventadmin.EventAdminMBean;
+import org.apache.karaf.services.eventadmin.EventAdminStatistics;
+import org.apache.karaf.services.eventadmin.internal.EventAdminMBeanImpl;
+import org.apache.karaf.services.eventadmin.internal.EventAdminStatisticsImpl;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceRegistration;
@@ -151,6 +155,13 @@ public class Configuration
 
     private ServiceRegistration m_managedServiceReg;
 
+    // KARAF: per topic statistics, exposed as a service and a MBean
+    private final EventAdminStatisticsImpl m_statistics = new EventAdminStatisticsImpl();
+
+    private volatile ServiceRegistration m_statisticsReg;
+
+    private volatile ServiceRegistration m_mbeanReg;
+
     public Configuration( BundleContext bundleContext )
     {
         m_bundleContext = bundleContext;
@@ -380,7 +391,8 @@ public class Configuration
                     m_requireTopic,
                     m_ignoreTopics,
                     m_addTimestamp,
-                    m_addSubject);
+                    m_addSubject,
+                    m_statistics);
 
             // Finally, adapt the outside events to our kind of events as per spec
             adaptEvents(m_admin);
@@ -390,6 +402,8 @@ public class Configuration
             // appropriated permissions of each calling bundle
             m_registration = m_bundleContext.registerService(EventAdmin.class.getName(),
                     new SecureEventAdminFactory(m_admin), null);
+
+            registerStatistics();
         }
         else
         {
@@ -421,6 +435,16 @@ public class Configuration
                 m_managedServiceReg.unregister();
                 m_managedServiceReg = null;
             }
+            if ( m_mbeanReg != null )
+            {
+                m_mbeanReg.unregister();
+                m_mbeanReg = null;
+            }
+            if ( m_statisticsReg != null )
+            {
+                m_statisticsReg.unregister();
+                m_statisticsReg = null;
+            }
             // We need to unregister manually
             if ( m_registration != null )
             {
@@ -445,6 +469,25 @@ public class Configuration
         }
     }
 
+    /**
+     * Register the statistics service and MBean. The MBean is exported by the Karaf JMX whiteboard.
+     */
+    private void registerStatistics()
+    {
+        m_statisticsReg = m_bundleContext.registerService(EventAdminStatistics.class.getName(), m_statistics, null);
+        try
+        {
+            final Dictionary<String, Object> props = new Hashtable<>();
+            props.put("jmx.objectname", "org.apache.karaf:type=eventadmin,name=" + System.getProperty("karaf.name"));
+            m_mbeanReg = m_bundleContext.registerService(EventAdminMBean.class.getName(),
+                    new EventAdminMBeanImpl(m_statistics), props);
+        }
+        catch (final Exception e)
+        {
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING, "Unable to register the EventAdmin MBean", e);
+        }
+    }
+
     /**
      * Init the adapters in org.apache.felix.eventadmin.impl.adapter
      */
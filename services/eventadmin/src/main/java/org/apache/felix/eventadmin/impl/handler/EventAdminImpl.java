@@ -19,6 +19,7 @@
 package org.apache.felix.eventadmin.impl.handler;
 
 import java.security.AccessController;
+import java.util.Collection;
 import java.util.HashMap;
 
 import javax.security.auth.Subject;
@@ -27,6 +28,7 @@ import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
 import org.apache.felix.eventadmin.impl.tasks.SyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.util.Matchers;
+import org.apache.karaf.services.eventadmin.internal.EventAdminStatisticsImpl;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
@@ -62,6 +64,9 @@ public class EventAdminImpl implements EventAdmin
     private boolean addTimestamp;
     private boolean addSubject;
 
+    // KARAF: per topic statistics
+    private final EventAdminStatisticsImpl m_statistics;
+
     /**
      * The constructor of the <code>EventAdmin</code> implementation.
      *
@@ -74,6 +79,7 @@ public class EventAdminImpl implements EventAdmin
      * @param ignoreTopics The array of topics to ignore.
      * @param addTimestamp True to add timestamp to the event, false else.
      * @param addSubject True to add subject to the event, false else.
+     * @param statistics The statistics of the published events.
      */
     public EventAdminImpl(
             final BundleContext bundleContext,
@@ -84,17 +90,21 @@ public class EventAdminImpl implements EventAdmin
             final boolean requireTopic,
             final String[] ignoreTopics,
             final boolean addTimestamp,
-            final boolean addSubject)
+            final boolean addSubject,
+            final EventAdminStatisticsImpl statistics)
     {
         checkNull(syncPool, "syncPool");
         checkNull(asyncPool, "asyncPool");
+        checkNull(statistics, "statistics");
 
         this.addTimestamp = addTimestamp;
         this.addSubject = addSubject;
-        this.tracker = new EventHandlerTracker(bundleContext);
+        this.m_statistics = statistics;
+        // KARAF: use a topic index instead of matching the handlers for each event
+        this.tracker = new IndexedEventHandlerTracker(bundleContext);
         this.tracker.update(ignoreTimeout, requireTopic);
         this.tracker.open();
-        m_sendManager = new SyncDeliverTasks(syncPool, timeout);
+        m_sendManager = new StatisticsDeliverTasks(syncPool, timeout, statistics);
         m_postManager = new AsyncDeliverTasks(asyncPool, m_sendManager);
         m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
@@ -178,6 +188,7 @@ public class EventAdminImpl implements EventAdmin
         if ( checkTopic( event ) )
         {
             m_postManager.execute(this.getTracker().getHandlers(event), prepareEvent(event));
+            m_statistics.published(event.getTopic());
         }
     }
 
@@ -194,6 +205,7 @@ public class EventAdminImpl implements EventAdmin
         if ( checkTopic( event ) )
         {
             m_sendManager.execute(this.getTracker().getHandlers(event), prepareEvent(event), false);
+            m_statistics.published(event.getTopic());
         }
     }
 
@@ -232,6 +244,35 @@ public class EventAdminImpl implements EventAdmin
         this.m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
 
+    /**
+     * KARAF: the synchronous dispatcher, also used by the asynchronous dispatcher to deliver
+     * the posted events from its pool, records the deliveries once they are done.
+     */
+    private static class StatisticsDeliverTasks extends SyncDeliverTasks
+    {
+        private final EventAdminStatisticsImpl statistics;
+
+        StatisticsDeliverTasks(final DefaultThreadPool pool, final long timeout, final EventAdminStatisticsImpl statistics)
+        {
+            super(pool, timeout);
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void execute(final Collection<EventHandlerProxy> tasks, final Event event, final boolean isAsync)
+        {
+            final long start = System.nanoTime();
+            try
+            {
+                super.execute(tasks, event, isAsync);
+            }
+            finally
+            {
+                statistics.delivered(event.getTopic(), tasks.size(), System.nanoTime() - start);
+            }
+        }
+    }
+
     /**
      * This is a utility method that will throw a <code>NullPointerException</code>
      * in case that the given object is null. The message will be of the form
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * An <code>EventHandlerTracker</code> that keeps the handlers in a trie of topic segments
+ * and caches the handlers matching the topic of each event. Only the handler filters are
+ * evaluated when an event is delivered. The cache is invalidated when a handler is
+ * registered, modified or unregistered.
+ */
+public class IndexedEventHandlerTracker extends EventHandlerTracker
+{
+    /** The maximum number of topics for which the matching handlers are cached. */
+    static final int MAX_CACHED_TOPICS = 4096;
+
+    private static final EventHandlerProxy[] NO_HANDLERS = new EventHandlerProxy[0];
+
+    private static final String[] ALL_TOPICS = new String[] {"*"};
+
+    private final Map<EventHandlerProxy, ServiceReference<EventHandler>> m_proxies = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, EventHandlerProxy[]> m_cache = new ConcurrentHashMap<>();
+
+    private volatile TopicNode m_index;
+
+    private volatile long m_generation;
+
+    private volatile boolean m_requireTopic;
+
+    public IndexedEventHandlerTracker(final BundleContext context)
+    {
+        super(context);
+    }
+
+    @Override
+    public void update(final String[] ignoreTimeout, final boolean requireTopic)
+    {
+        super.update(ignoreTimeout, requireTopic);
+        m_requireTopic = requireTopic;
+        invalidate();
+    }
+
+    @Override
+    public EventHandlerProxy addingService(final ServiceReference<EventHandler> reference)
+    {
+        final EventHandlerProxy proxy = super.addingService(reference);
+        if ( proxy != null )
+        {
+            m_proxies.put(proxy, reference);
+            invalidate();
+        }
+        return proxy;
+    }
+
+    @Override
+    public void modifiedService(final ServiceReference<EventHandler> reference, final EventHandlerProxy proxy)
+    {
+        super.modifiedService(reference, proxy);
+        invalidate();
+    }
+
+    @Override
+    public void removedService(final ServiceReference<EventHandler> reference, final EventHandlerProxy proxy)
+    {
+        super.removedService(reference, proxy);
+        m_proxies.remove(proxy);
+        invalidate();
+    }
+
+    @Override
+    public Collection<EventHandlerProxy> getHandlers(final Event event)
+    {
+        final EventHandlerProxy[] candidates = getCandidates(event.getTopic());
+        if ( candidates.length == 0 )
+        {
+            return Collections.emptyList();
+        }
+        final List<EventHandlerProxy> handlers = new ArrayList<>(candidates.length);
+        for (final EventHandlerProxy proxy : candidates)
+        {
+            if ( proxy.canDeliver(event) )
+            {
+                handlers.add(proxy);
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * Returns the handlers subscribed to the given topic, regardless of their filter.
+     */
+    EventHandlerProxy[] getCandidates(final String topic)
+    {
+        EventHandlerProxy[] candidates = m_cache.get(topic);
+        if ( candidates == null )
+        {
+            final long generation = m_generation;
+            TopicNode index = m_index;
+            if ( index == null )
+            {
+                index = buildIndex();
+            }
+            final Set<EventHandlerProxy> matching = new LinkedHashSet<>();
+            index.collect(topic, matching);
+            candidates = matching.isEmpty() ? NO_HANDLERS : matching.toArray(new EventHandlerProxy[matching.size()]);
+            synchronized ( this )
+            {
+                if ( generation == m_generation )
+                {
+                    m_index = index;
+                    if ( m_cache.size() >= MAX_CACHED_TOPICS )
+                    {
+                        m_cache.clear();
+                    }
+                    m_cache.put(topic, candidates);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private synchronized void invalidate()
+    {
+        m_generation++;
+        m_index = null;
+        m_cache.clear();
+    }
+
+    private TopicNode buildIndex()
+    {
+        final TopicNode root = new TopicNode();
+        for (final Map.Entry<EventHandlerProxy, ServiceReference<EventHandler>> entry : m_proxies.entrySet())
+        {
+            final String[] topics = getTopics(entry.getValue());
+            if ( topics == null )
+            {
+                continue;
+            }
+            for (final String topic : topics)
+            {
+                root.add(topic, entry.getKey());
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Reads the topics of a handler the same way the <code>EventHandlerProxy</code> does.
+     *
+     * @return the topics or <code>null</code> if the handler is invalid
+     */
+    private String[] getTopics(final ServiceReference<EventHandler> reference)
+    {
+        final Object filter = reference.getProperty(EventConstants.EVENT_FILTER);
+        if ( filter instanceof String )
+        {
+            try
+            {
+                FrameworkUtil.createFilter((String) filter);
+            }
+            catch (final InvalidSyntaxException e)
+            {
+                return null;
+            }
+        }
+        else if ( filter != null )
+        {
+            return null;
+        }
+        final Object topics = reference.getProperty(EventConstants.EVENT_TOPIC);
+        if ( topics instanceof String )
+        {
+            return new String[] {(String) topics};
+        }
+        else if ( topics instanceof String[] )
+        {
+            return (String[]) topics;
+        }
+        else if ( topics instanceof Collection )
+        {
+            final List<String> list = new ArrayList<>();
+            for (final Object topic : (Collection<?>) topics)
+            {
+                if ( !(topic instanceof String) )
+                {
+                    return null;
+                }
+                list.add((String) topic);
+            }
+            return list.toArray(new String[list.size()]);
+        }
+        else if ( topics == null && !m_requireTopic )
+        {
+            return ALL_TOPICS;
+        }
+        return null;
+    }
+
+    /**
+     * A node of the topic trie. The handlers of a topic like <code>a/b</code> are kept
+     * in the <code>exact</code> list of the node <code>a/b</code>, the handlers of
+     * <code>a/b/*</code> in its <code>wildcard</code> list.
+     */
+    private static class TopicNode
+    {
+        final Map<String, TopicNode> children = new HashMap<>();
+        final List<EventHandlerProxy> exact = new ArrayList<>();
+        final List<EventHandlerProxy> wildcard = new ArrayList<>();
+
+        void add(final String topic, final EventHandlerProxy proxy)
+        {
+            TopicNode node = this;
+            final String[] segments = topic.split("/");
+            for (int i = 0; i < segments.length; i++)
+            {
+                if ( i == segments.length - 1 && "*".equals(segments[i]) )
+                {
+                    node.wildcard.add(proxy);
+                    return;
+                }
+                node = node.children.computeIfAbsent(segments[i], s -> new TopicNode());
+            }
+            node.exact.add(proxy);
+        }
+
+        void collect(final String topic, final Set<EventHandlerProxy> handlers)
+        {
+            TopicNode node = this;
+            int start = 0;
+            while ( node != null )
+            {
+                handlers.addAll(node.wildcard);
+                final int end = topic.indexOf('/', start);
+                if ( end < 0 )
+                {
+                    node = node.children.get(topic.substring(start));
+                    if ( node != null )
+                    {
+                        handlers.addAll(node.exact);
+                    }
+                    return;
+                }
+                node = node.children.get(topic.substring(start, end));
+                start = end + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.services.eventadmin;
+
+/**
+ * Counters of the events published on a topic.
+ * The deliveries are counted once the events have been delivered to their handlers, by the publisher for
+ * sendEvent and by the asynchronous delivery thread for postEvent. The time is the delivery time, it
+ * doesn't include the time the posted events wait for the asynchronous delivery.
+ */
+public class TopicStatistics {
+
+    private final String topic;
+    private final long published;
+    private final long deliveredEvents;
+    private final long delivered;
+    private final long totalTime;
+    private final long maxTime;
+
+    public TopicStatistics(String topic, long published, long deliveredEvents, long delivered, long totalTime, long maxTime) {
+        this.topic = topic;
+        this.published = published;
+        this.deliveredEvents = deliveredEvents;
+        this.delivered = delivered;
+        this.totalTime = totalTime;
+        this.maxTime = maxTime;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * The number of events published.
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * The number of events delivered, the posted events waiting for the asynchronous delivery are not counted.
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents;
+    }
+
+    /**
+     * The number of deliveries to event handlers.
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * The total delivery time in nanoseconds.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * The maximum delivery time of an event in nanoseconds.
+     */
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * The average delivery time of an event in nanoseconds.
+     */
+    public long getAverageTime() {
+        return deliveredEvents > 0 ? totalTime / deliveredEvents : 0;
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.services.eventadmin.internal;
+
+import javax.management.MBeanException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.karaf.services.eventadmin.EventAdminMBean;
+import org.apache.karaf.services.eventadmin.EventAdminStatistics;
+import org.apache.karaf.services.eventadmin.TopicStatistics;
+
+/**
+ * Implementation of the EventAdminMBean.
+ */
+public class EventAdminMBeanImpl extends StandardMBean implements EventAdminMBean {
+
+    private final EventAdminStatistics statistics;
+
+    public EventAdminMBeanImpl(EventAdminStatistics statistics) throws NotCompliantMBeanException {
+        super(EventAdminMBean.class);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public TabularData getTopicStatistics() throws MBeanException {
+        try {
+            CompositeType topicType = new CompositeType("Topic", "Event topic statistics",
+                    new String[]{"Topic", "Published", "Delivered Events", "Delivered", "Average Time", "Max Time"},
+                    new String[]{"Event topic", "Number of published events", "Number of events delivered to their handlers",
+                            "Number of deliveries to event handlers", "Average delivery time in nanoseconds",
+                            "Maximum delivery time in nanoseconds"},
+                    new OpenType[]{SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG});
+            TabularType tableType = new TabularType("Topics", "Statistics of the event topics", topicType, new String[]{"Topic"});
+            TabularData table = new TabularDataSupport(tableType);
+            for (TopicStatistics topic : statistics.getTopicStatistics()) {
+                CompositeData data = new CompositeDataSupport(topicType,
+                        new String[]{"Topic", "Published", "Delivered Events", "Delivered", "Average Time", "Max Time"},
+                        new Object[]{topic.getTopic(), topic.getPublished(), topic.getDeliveredEvents(), topic.getDelivered(),
+                                topic.getAverageTime(), topic.getMaxTime()});
+                table.put(data);
+            }
+            return table;
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
+    @Override
+    public void resetStatistics() {
+        statistics.reset();
+    }
+
+}
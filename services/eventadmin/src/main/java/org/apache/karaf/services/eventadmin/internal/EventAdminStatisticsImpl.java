@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.services.eventadmin.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.karaf.services.eventadmin.EventAdminStatistics;
+import org.apache.karaf.services.eventadmin.TopicStatistics;
+
+public class EventAdminStatisticsImpl implements EventAdminStatistics {
+
+    /**
+     * The maximum number of topics with their own counters, the events of other topics are
+     * accounted under {@link #OTHER_TOPICS}.
+     */
+    static final int MAX_TOPICS = 1024;
+    static final String OTHER_TOPICS = "(other)";
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Record an event published on the given topic.
+     *
+     * @param topic the event topic.
+     */
+    public void published(String topic) {
+        getCounters(topic).published.increment();
+    }
+
+    /**
+     * Record the delivery of an event, once it has been delivered to its handlers. The posted events
+     * are recorded by the asynchronous delivery thread.
+     *
+     * @param topic the event topic.
+     * @param handlers the number of handlers the event was delivered to.
+     * @param time the delivery time in nanoseconds.
+     */
+    public void delivered(String topic, int handlers, long time) {
+        Counters c = getCounters(topic);
+        c.deliveredEvents.increment();
+        c.delivered.add(handlers);
+        c.totalTime.add(time);
+        long max = c.maxTime.get();
+        while (time > max && !c.maxTime.compareAndSet(max, time)) {
+            max = c.maxTime.get();
+        }
+    }
+
+    private Counters getCounters(String topic) {
+        Counters c = counters.get(topic);
+        if (c == null) {
+            c = counters.computeIfAbsent(counters.size() < MAX_TOPICS ? topic : OTHER_TOPICS, t -> new Counters());
+        }
+        return c;
+    }
+
+    @Override
+    public List<TopicStatistics> getTopicStatistics() {
+        List<TopicStatistics> statistics = new ArrayList<>(counters.size());
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            Counters c = entry.getValue();
+            statistics.add(new TopicStatistics(entry.getKey(), c.published.sum(), c.deliveredEvents.sum(),
+                    c.delivered.sum(), c.totalTime.sum(), c.maxTime.get()));
+        }
+        statistics.sort(Comparator.comparing(TopicStatistics::getTopic));
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+    }
+
+    private static class Counters {
+        final LongAdder published = new LongAdder();
+        final LongAdder deliveredEvents = new LongAdder();
+        final LongAdder delivered = new LongAdder();
+        final LongAdder totalTime = new LongAdder();
+        final AtomicLong maxTime = new AtomicLong();
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+public class IndexedEventHandlerTrackerTest
+{
+    private IndexedEventHandlerTracker tracker;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final BundleContext context = createNiceMock(BundleContext.class);
+        expect(context.createFilter(anyString())).andAnswer(() -> FrameworkUtil.createFilter((String) getCurrentArguments()[0])).anyTimes();
+        replay(context);
+        tracker = new IndexedEventHandlerTracker(context);
+        tracker.update(new String[0], true);
+    }
+
+    @Test
+    public void testExactAndWildcardTopics()
+    {
+        final EventHandlerProxy exact = add(handler("a/b"));
+        final EventHandlerProxy wildcard = add(handler("a/*"));
+        final EventHandlerProxy all = add(handler("*"));
+        final EventHandlerProxy deep = add(handler("a/b/c"));
+
+        assertHandlers("a/b", exact, wildcard, all);
+        assertHandlers("a/b/c", wildcard, all, deep);
+        assertHandlers("a/c", wildcard, all);
+        // a/* only matches the sub topics of a
+        assertHandlers("a", all);
+        assertHandlers("b", all);
+    }
+
+    @Test
+    public void testFilterAndMultipleTopics()
+    {
+        final Map<String, Object> properties = handler("a/b", "c/*");
+        properties.put(EventConstants.EVENT_FILTER, "(x=1)");
+        final EventHandlerProxy filtered = add(properties);
+        // a handler matching an event with several of its topics is only delivered once
+        final EventHandlerProxy overlapping = add(handler("a/*", "a/b"));
+
+        assertEquals(2, tracker.getCandidates("a/b").length);
+        assertHandlers(event("a/b", 1), filtered, overlapping);
+        assertHandlers(event("a/b", 2), overlapping);
+        assertHandlers(event("c/d", 1), filtered);
+        assertHandlers(event("c/d", 2));
+    }
+
+    @Test
+    public void testInvalidHandlers()
+    {
+        final Map<String, Object> invalidFilter = handler("a/b");
+        invalidFilter.put(EventConstants.EVENT_FILTER, "(x=");
+        add(invalidFilter);
+        // a topic is required by the configuration
+        add(new HashMap<>());
+
+        assertHandlers("a/b");
+    }
+
+    @Test
+    public void testCacheInvalidation()
+    {
+        final Map<String, Object> first = handler("a/b");
+        final ServiceReference<EventHandler> firstReference = reference(first);
+        final EventHandlerProxy firstProxy = tracker.addingService(firstReference);
+        assertHandlers("a/b", firstProxy);
+
+        // added handler
+        final Map<String, Object> second = handler("a/*");
+        final ServiceReference<EventHandler> secondReference = reference(second);
+        final EventHandlerProxy secondProxy = tracker.addingService(secondReference);
+        assertHandlers("a/b", firstProxy, secondProxy);
+        assertHandlers("a/c", secondProxy);
+
+        // modified handler
+        first.put(EventConstants.EVENT_TOPIC, "a/c");
+        tracker.modifiedService(firstReference, firstProxy);
+        assertHandlers("a/b", secondProxy);
+        assertHandlers("a/c", firstProxy, secondProxy);
+
+        // removed handler
+        tracker.removedService(secondReference, secondProxy);
+        assertHandlers("a/b");
+        assertHandlers("a/c", firstProxy);
+    }
+
+    @Test
+    public void testConfigurationUpdate()
+    {
+        final EventHandlerProxy any = add(new HashMap<>());
+        assertHandlers("a/b");
+
+        // the handlers without topic receive all the events when a topic isn't required
+        tracker.update(new String[0], false);
+        assertHandlers("a/b", any);
+    }
+
+    private void assertHandlers(final String topic, final EventHandlerProxy... expected)
+    {
+        assertHandlers(new Event(topic, Collections.<String, Object>emptyMap()), expected);
+        // the candidates are cached
+        assertTrue(tracker.getCandidates(topic) == tracker.getCandidates(topic));
+    }
+
+    private void assertHandlers(final Event event, final EventHandlerProxy... expected)
+    {
+        final Set<EventHandlerProxy> handlers = new HashSet<>(tracker.getHandlers(event));
+        assertEquals(event.getTopic(), new HashSet<>(Arrays.asList(expected)), handlers);
+        assertEquals(handlers.size(), tracker.getHandlers(event).size());
+    }
+
+    private EventHandlerProxy add(final Map<String, Object> properties)
+    {
+        return tracker.addingService(reference(properties));
+    }
+
+    private static Event event(final String topic, final int x)
+    {
+        return new Event(topic, Collections.<String, Object>singletonMap("x", x));
+    }
+
+    private static Map<String, Object> handler(final String... topics)
+    {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(EventConstants.EVENT_TOPIC, topics.length == 1 ? topics[0] : topics);
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ServiceReference<EventHandler> reference(final Map<String, Object> properties)
+    {
+        final Bundle bundle = createNiceMock(Bundle.class);
+        expect(bundle.hasPermission(anyObject())).andReturn(true).anyTimes();
+        final ServiceReference<EventHandler> reference = createNiceMock(ServiceReference.class);
+        expect(reference.getProperty(anyString())).andAnswer(() -> properties.get(getCurrentArguments()[0])).anyTimes();
+        expect(reference.getBundle()).andReturn(bundle).anyTimes();
+        replay(bundle, reference);
+        return reference;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.services.eventadmin.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.karaf.services.eventadmin.TopicStatistics;
+import org.junit.Test;
+
+public class EventAdminStatisticsImplTest {
+
+    @Test
+    public void testPendingDeliveries() {
+        EventAdminStatisticsImpl statistics = new EventAdminStatisticsImpl();
+        statistics.published("a/b");
+        statistics.published("a/b");
+        statistics.published("a/b");
+        // only two of the posted events have been delivered yet
+        statistics.delivered("a/b", 2, 1000);
+        statistics.delivered("a/b", 2, 3000);
+
+        List<TopicStatistics> topics = statistics.getTopicStatistics();
+        assertEquals(1, topics.size());
+        TopicStatistics topic = topics.get(0);
+        assertEquals("a/b", topic.getTopic());
+        assertEquals(3, topic.getPublished());
+        assertEquals(2, topic.getDeliveredEvents());
+        assertEquals(4, topic.getDelivered());
+        assertEquals(4000, topic.getTotalTime());
+        assertEquals(3000, topic.getMaxTime());
+        assertEquals(2000, topic.getAverageTime());
+
+        statistics.reset();
+        assertEquals(0, statistics.getTopicStatistics().size());
+    }
+
+}
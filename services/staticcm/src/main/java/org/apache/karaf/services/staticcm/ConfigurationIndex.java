@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.services.staticcm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+/**
+ * Index of the static configurations.
+ * <p>
+ * The configurations never change, so they are indexed once by <code>service.pid</code> and
+ * <code>service.factoryPid</code>. A filter constraining one of these properties to a value, or to a prefix
+ * such as <code>(service.pid=jmx.acl*)</code>, either alone or in a top level <code>&amp;</code>, is only evaluated
+ * against the configurations of the index matching the constraint. The compiled filters are cached.
+ */
+class ConfigurationIndex {
+
+    private static final int MAX_CACHED_FILTERS = 1024;
+
+    private static final Pattern TERM = Pattern.compile("\\((" + Pattern.quote(Constants.SERVICE_PID) + "|"
+            + Pattern.quote(ConfigurationAdmin.SERVICE_FACTORYPID) + ")=([^()*\\\\\\s]+)(\\*?)\\)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Configuration[] all;
+    private final Map<String, List<Configuration>> byConfigPid = new HashMap<>();
+    private final NavigableMap<String, List<Entry>> byPid = new TreeMap<>();
+    private final NavigableMap<String, List<Entry>> byFactoryPid = new TreeMap<>();
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    ConfigurationIndex(List<Configuration> configurations) {
+        for (Configuration config : configurations) {
+            // the properties of a static configuration never change, so they are only copied once
+            Entry entry = new Entry(entries.size(), config, config.getProperties());
+            entries.add(entry);
+            byConfigPid.computeIfAbsent(config.getPid(), p -> new ArrayList<>()).add(config);
+            index(byPid, entry.properties.get(Constants.SERVICE_PID), entry);
+            index(byFactoryPid, entry.properties.get(ConfigurationAdmin.SERVICE_FACTORYPID), entry);
+        }
+        all = configurations.toArray(new Configuration[0]);
+    }
+
+    private static void index(Map<String, List<Entry>> index, Object key, Entry entry) {
+        if (key instanceof String) {
+            index.computeIfAbsent((String) key, k -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /**
+     * @return The configurations with the given PID, in their original order.
+     */
+    List<Configuration> getConfigurations(String pid) {
+        List<Configuration> configs = byConfigPid.get(pid);
+        return configs != null ? configs : Collections.emptyList();
+    }
+
+    /**
+     * @return The configurations matching the filter, or <code>null</code> if there is none.
+     */
+    Configuration[] listConfigurations(String filter) throws InvalidSyntaxException {
+        if (filter == null) {
+            return all.length > 0 ? all.clone() : null;
+        }
+        Query query = compile(filter);
+        List<Configuration> configs = new ArrayList<>();
+        for (Entry entry : query.candidates()) {
+            if (query.filter.match(entry.properties)) {
+                configs.add(entry.configuration);
+            }
+        }
+        return configs.isEmpty() ? null : configs.toArray(new Configuration[configs.size()]);
+    }
+
+    private Query compile(String filter) throws InvalidSyntaxException {
+        Query query = queries.get(filter);
+        if (query == null) {
+            query = new Query(FrameworkUtil.createFilter(filter), findTerm(filter.trim()));
+            if (queries.size() >= MAX_CACHED_FILTERS) {
+                queries.clear();
+            }
+            queries.put(filter, query);
+        }
+        return query;
+    }
+
+    /**
+     * Find the most selective indexed term of the filter, the filter itself or one of the operands of a top level
+     * <code>&amp;</code>.
+     */
+    private static Matcher findTerm(String filter) {
+        if (!filter.startsWith("(&")) {
+            return term(filter);
+        }
+        Matcher best = null;
+        int i = 2;
+        while (i < filter.length() && filter.charAt(i) == '(') {
+            int end = endOfOperand(filter, i);
+            if (end < 0) {
+                break;
+            }
+            Matcher term = term(filter.substring(i, end + 1));
+            if (term != null && (best == null || score(term) > score(best))) {
+                best = term;
+            }
+            i = end + 1;
+        }
+        return best;
+    }
+
+    private static Matcher term(String operand) {
+        Matcher matcher = TERM.matcher(operand);
+        return matcher.matches() ? matcher : null;
+    }
+
+    private static int score(Matcher term) {
+        // an exact value is more selective than a prefix, and a pid more than a factory pid
+        return (term.group(3).isEmpty() ? 2 : 0) + (Constants.SERVICE_PID.equalsIgnoreCase(term.group(1)) ? 1 : 0);
+    }
+
+    private static int endOfOperand(String filter, int start) {
+        int depth = 0;
+        for (int i = start; i < filter.length(); i++) {
+            char c = filter.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private class Query {
+        final Filter filter;
+        final NavigableMap<String, List<Entry>> index;
+        final String value;
+        final boolean prefix;
+
+        Query(Filter filter, Matcher term) {
+            this.filter = filter;
+            if (term != null) {
+                this.index = Constants.SERVICE_PID.equalsIgnoreCase(term.group(1)) ? byPid : byFactoryPid;
+                this.value = term.group(2);
+                this.prefix = !term.group(3).isEmpty();
+            } else {
+                this.index = null;
+                this.value = null;
+                this.prefix = false;
+            }
+        }
+
+        List<Entry> candidates() {
+            if (index == null) {
+                return entries;
+            }
+            if (!prefix) {
+                List<Entry> candidates = index.get(value);
+                return candidates != null ? candidates : Collections.emptyList();
+            }
+            List<Entry> candidates = new ArrayList<>();
+            int lists = 0;
+            for (Map.Entry<String, List<Entry>> e : index.tailMap(value, true).entrySet()) {
+                if (!e.getKey().startsWith(value)) {
+                    break;
+                }
+                candidates.addAll(e.getValue());
+                lists++;
+            }
+            if (lists > 1) {
+                // keep the original order of the configurations
+                candidates.sort(Comparator.comparingInt(entry -> entry.order));
+            }
+            return candidates;
+        }
+    }
+
+    private static class Entry {
+        final int order;
+        final Configuration configuration;
+        final Dictionary<String, Object> properties;
+
+        Entry(int order, Configuration configuration, Dictionary<String, Object> properties) {
+            this.order = order;
+            this.configuration = configuration;
+            this.properties = properties;
+        }
+    }
+
+}
@@ -19,14 +19,12 @@
 package org.apache.karaf.services.staticcm;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Objects;
 
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
-import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.cm.Configuration;
@@ -37,13 +35,11 @@ import org.osgi.service.cm.ManagedServiceFactory;
 import org.osgi.util.tracker.ServiceTracker;
 
 public class StaticConfigAdminImpl implements ConfigurationAdmin {
-    private final BundleContext context;
-    private final List<Configuration> configurations;
+    private final ConfigurationIndex index;
     
     public StaticConfigAdminImpl(BundleContext context, List<Configuration> configs) throws IOException {
         Objects.requireNonNull(configs, "configs");
-        this.context = context;
-        this.configurations = configs;
+        this.index = new ConfigurationIndex(configs);
         ServiceTracker<ManagedService, ManagedService> serviceTracker = new ServiceTracker<ManagedService, ManagedService>(context, ManagedService.class, null) {
             @Override
             public ManagedService addingService(ServiceReference<ManagedService> reference) {
@@ -55,8 +51,8 @@ public class StaticConfigAdminImpl implements ConfigurationAdmin {
                 if (pidObj instanceof String) {
                     String pid = (String) pidObj;
                     
-                    for (Configuration config : configurations) {
-                        if (config.getPid().equals(pid) && config.getFactoryPid() == null) {
+                    for (Configuration config : index.getConfigurations(pid)) {
+                        if (config.getFactoryPid() == null) {
                         	found = true;
                         	invokeUpdate(service, config);
                         }
@@ -86,8 +82,8 @@ public class StaticConfigAdminImpl implements ConfigurationAdmin {
                 Object pidObj = reference.getProperty(Constants.SERVICE_PID);
                 if (pidObj instanceof String) {
                     String pid = (String) pidObj;
-                    for (Configuration config : configurations) {
-                        if (config.getPid().equals(pid) && config.getFactoryPid() != null) {
+                    for (Configuration config : index.getConfigurations(pid)) {
+                        if (config.getFactoryPid() != null) {
                             try {
                                 factory.updated(config.getFactoryPid(), config.getProperties());
                             } catch (ConfigurationException e) {
@@ -134,8 +130,8 @@ public class StaticConfigAdminImpl implements ConfigurationAdmin {
 
     @Override
     public Configuration getConfiguration(String pid) throws IOException {
-        for (Configuration config : configurations) {
-            if (config.getPid().equals(pid) && config.getFactoryPid() == null) {
+        for (Configuration config : index.getConfigurations(pid)) {
+            if (config.getFactoryPid() == null) {
                 return config;
             }
         }
@@ -146,19 +142,7 @@ public class StaticConfigAdminImpl implements ConfigurationAdmin {
 
     @Override
     public Configuration[] listConfigurations(String filter) throws IOException, InvalidSyntaxException {
-        List<Configuration> configs;
-        if (filter == null) {
-            configs = configurations;
-        } else {
-            configs = new ArrayList<>();
-            Filter flt = context.createFilter(filter);
-            for (Configuration config : configurations) {
-                if (flt.match(config.getProperties())) {
-                    configs.add(config);
-                }
-            }
-        }
-        return configs.isEmpty() ? null : configs.toArray(new Configuration[configs.size()]);
+        return index.listConfigurations(filter);
     }
 
 	@Override
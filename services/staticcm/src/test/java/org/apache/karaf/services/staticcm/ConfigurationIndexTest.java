@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.services.staticcm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.service.cm.Configuration;
+
+public class ConfigurationIndexTest {
+
+    private List<Configuration> configurations;
+    private ConfigurationIndex index;
+
+    @Before
+    public void setUp() {
+        Map<String, Map<String, Object>> configs = new LinkedHashMap<>();
+        configs.put("jmx.acl.cfg", props("a", "1"));
+        configs.put("org.apache.karaf.shell.cfg", props("a", "2"));
+        configs.put("jmx.acl.java.lang.Memory.cfg", props("a", "1"));
+        configs.put("jmx.aclx.cfg", props("a", "3"));
+        configs.put("org.ops4j.datasource-db1.cfg", props("name", "db1"));
+        configs.put("org.ops4j.datasource-db2.cfg", props("name", "db2"));
+        configs.put("jmx.acl.org.apache.karaf.cfg", props("a", "2"));
+        configurations = Configurations.createConfigurations(null, configs);
+        index = new ConfigurationIndex(configurations);
+    }
+
+    @Test
+    public void testListConfigurations() throws Exception {
+        String[] filters = {
+                "(service.pid=jmx.acl)",
+                "(service.pid=jmx.acl*)",
+                "(service.pid=jmx.acl.*)",
+                "(SERVICE.PID=org.apache.karaf.shell)",
+                "(service.pid=unknown)",
+                "(service.pid=unknown*)",
+                "(service.pid=*)",
+                "(service.pid=*acl*)",
+                "(service.factoryPid=org.ops4j.datasource)",
+                "(service.factoryPid=org.ops4j*)",
+                "(&(service.factoryPid=org.ops4j.datasource)(name=db2))",
+                "(&(service.pid=jmx.acl*)(a=1))",
+                "(&(a=2)(service.pid=jmx.acl*)(service.pid=jmx.acl.org.apache.karaf))",
+                "(|(service.pid=jmx.acl)(name=db1))",
+                "(!(service.pid=jmx.acl*))",
+                "(a=2)",
+                "( service.pid=jmx.acl)"
+        };
+        for (String filter : filters) {
+            // twice to use the cached filter
+            for (int i = 0; i < 2; i++) {
+                assertArrayEquals(filter, scan(filter), index.listConfigurations(filter));
+            }
+        }
+        assertEquals(configurations.size(), index.listConfigurations(null).length);
+    }
+
+    @Test
+    public void testGetConfigurations() {
+        assertEquals(1, index.getConfigurations("jmx.acl").size());
+        assertEquals("org.ops4j.datasource", index.getConfigurations("org.ops4j.datasource.db1").get(0).getFactoryPid());
+        assertEquals(0, index.getConfigurations("jmx").size());
+    }
+
+    @Test
+    public void testInvalidFilter() {
+        try {
+            index.listConfigurations("(service.pid=jmx.acl");
+            fail("The filter should be invalid");
+        } catch (InvalidSyntaxException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ConfigurationIndex empty = new ConfigurationIndex(new ArrayList<>());
+        assertNull(empty.listConfigurations(null));
+        assertNull(empty.listConfigurations("(service.pid=jmx.acl*)"));
+    }
+
+    private Configuration[] scan(String filter) throws InvalidSyntaxException {
+        Filter flt = FrameworkUtil.createFilter(filter);
+        List<Configuration> configs = new ArrayList<>();
+        for (Configuration config : configurations) {
+            if (flt.match(config.getProperties())) {
+                configs.add(config);
+            }
+        }
+        return configs.isEmpty() ? null : configs.toArray(new Configuration[configs.size()]);
+    }
+
+    private static Map<String, Object> props(String key, String value) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(key, value);
+        return props;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.services.staticcm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.cm.Configuration;
+
+@Ignore
+public class TestPerf {
+
+    /**
+     * Simulate the lookups done at boot: each bundle looks up its own configurations, the JMX guard
+     * looks up the ACLs.
+     */
+    @Test
+    public void testBootLookups() throws Exception {
+        int pids = 2000;
+        Map<String, Map<String, Object>> configs = new HashMap<>();
+        List<String> filters = new ArrayList<>();
+        for (int i = 0; i < pids; i++) {
+            configs.put("org.apache.karaf.pid" + i + ".cfg", new HashMap<>());
+            configs.put("jmx.acl.domain" + i + ".cfg", new HashMap<>());
+            configs.put("org.ops4j.datasource-ds" + i + ".cfg", new HashMap<>());
+            filters.add("(service.pid=org.apache.karaf.pid" + i + ")");
+            filters.add("(&(service.factoryPid=org.ops4j.datasource)(service.pid=org.ops4j.datasource.ds" + i + "))");
+        }
+        filters.add("(service.pid=jmx.acl*)");
+        filters.add("(service.factoryPid=org.ops4j.datasource)");
+        List<Configuration> configurations = Configurations.createConfigurations(null, configs);
+
+        for (int p = 0; p < 10; p++) {
+            long t0 = measure(() -> {
+                for (String filter : filters) {
+                    scan(configurations, filter);
+                }
+                return null;
+            }, 2);
+            System.out.println("scan = " + t0);
+
+            long t1 = measure(() -> {
+                ConfigurationIndex index = new ConfigurationIndex(configurations);
+                for (String filter : filters) {
+                    index.listConfigurations(filter);
+                }
+                return null;
+            }, 2);
+            System.out.println("index = " + t1);
+        }
+    }
+
+    private static List<Configuration> scan(List<Configuration> configurations, String filter) throws Exception {
+        Filter flt = FrameworkUtil.createFilter(filter);
+        List<Configuration> configs = new ArrayList<>();
+        for (Configuration config : configurations) {
+            if (flt.match(config.getProperties())) {
+                configs.add(config);
+            }
+        }
+        return configs;
+    }
+
+    private <T> long measure(Callable<T> runnable, int runs) throws Exception {
+        System.gc();
+        runnable.call();
+        System.gc();
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < runs; i++) {
+            runnable.call();
+        }
+        long t1 = System.currentTimeMillis();
+        return t1 - t0;
+    }
+
+}
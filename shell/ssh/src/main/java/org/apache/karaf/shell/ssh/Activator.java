@@ -21,7 +21,8 @@ package org.apache.karaf.shell.ssh;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.karaf.shell.api.action.lifecycle.Manager;
 import org.apache.karaf.shell.api.console.CommandLoggingFilter;
@@ -33,8 +34,10 @@ import org.apache.karaf.util.tracker.BaseActivator;
 import org.apache.karaf.util.tracker.annotation.Managed;
 import org.apache.karaf.util.tracker.annotation.RequireService;
 import org.apache.karaf.util.tracker.annotation.Services;
+import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
 import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.server.Command;
 import org.apache.sshd.server.SshServer;
 import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
 import org.apache.sshd.server.scp.ScpCommandFactory;
@@ -169,6 +172,9 @@ public class Activator extends BaseActivator implements ManagedService {
         String welcomeBanner        = getString("welcomeBanner", null);
         String moduliUrl            = getString("moduli-url", null);
         boolean sftpEnabled         = getBoolean("sftpEnabled", true);
+        boolean batchEnabled        = getBoolean("batchEnabled", false);
+        int batchMaxCommandLength   = getInt("batchMaxCommandLength", BatchCommand.DEFAULT_MAX_COMMAND_LENGTH);
+        int batchMaxOutputLength    = getInt("batchMaxOutputLength", BatchCommand.DEFAULT_MAX_OUTPUT_LENGTH);
 
         Path serverPrivateKeyPath = Paths.get(privateHostKey);
         Path serverPublicKeyPath = Paths.get(publicHostKey);
@@ -185,13 +191,20 @@ public class Activator extends BaseActivator implements ManagedService {
         server.setKeyExchangeFactories(SshUtils.buildKexAlgorithms(kexAlgorithms));
         server.setShellFactory(new ShellFactoryImpl(sessionFactory));
 
+        List<NamedFactory<Command>> subsystemFactories = new ArrayList<>();
         if (sftpEnabled) {
             server.setCommandFactory(new ScpCommandFactory.Builder().withDelegate(cmd -> new ShellCommand(sessionFactory, cmd)).build());
-            server.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+            subsystemFactories.add(new SftpSubsystemFactory());
             server.setFileSystemFactory(new VirtualFileSystemFactory(Paths.get(System.getProperty("karaf.base"))));
         } else {
             server.setCommandFactory(cmd -> new ShellCommand(sessionFactory, cmd));
         }
+        if (batchEnabled) {
+            subsystemFactories.add(new BatchCommand.Factory(sessionFactory, batchMaxCommandLength, batchMaxOutputLength));
+        }
+        if (!subsystemFactories.isEmpty()) {
+            server.setSubsystemFactories(subsystemFactories);
+        }
         server.setKeyPairProvider(keyPairProvider);
         server.setPasswordAuthenticator(authenticator);
         server.setPublickeyAuthenticator(authenticator);
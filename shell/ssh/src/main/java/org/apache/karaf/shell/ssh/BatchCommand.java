@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.shell.ssh;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Map;
+
+import javax.security.auth.Subject;
+
+import org.apache.karaf.shell.api.console.Session;
+import org.apache.karaf.shell.api.console.SessionFactory;
+import org.apache.karaf.util.StreamUtils;
+import org.apache.karaf.util.jaas.JaasHelper;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.server.Command;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.SessionAware;
+import org.apache.sshd.server.session.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SSH subsystem executing a stream of commands in a single shell session.
+ * <p>
+ * Each command is either a line of text, or a line <code>@&lt;length&gt;</code> followed by <code>length</code>
+ * bytes of script, which may span several lines. Empty lines are ignored.
+ * For each command, the result is written as a line <code>&lt;exit code&gt; &lt;stdout length&gt; &lt;stderr length&gt;</code>
+ * followed by the bytes written by the command on stdout, then on stderr.
+ * <p>
+ * The shell session, and so the authentication and the initialization script, are shared by all the commands
+ * of the channel. The subsystem ends when the client closes its input.
+ * <p>
+ * A command longer than the maximum command length is skipped and answered with an error, and the output
+ * of a command on stdout and stderr is truncated to the maximum output length.
+ */
+public class BatchCommand implements Command, SessionAware {
+
+    public static final String SUBSYSTEM_NAME = "karaf-batch";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchCommand.class);
+
+    public static final int DEFAULT_MAX_COMMAND_LENGTH = 1024 * 1024;
+    public static final int DEFAULT_MAX_OUTPUT_LENGTH = 16 * 1024 * 1024;
+
+    private final SessionFactory sessionFactory;
+    private final int maxCommandLength;
+    private final int maxOutputLength;
+    private InputStream in;
+    private OutputStream out;
+    private OutputStream err;
+    private ExitCallback callback;
+    private ServerSession session;
+    private Environment env;
+
+    public BatchCommand(SessionFactory sessionFactory) {
+        this(sessionFactory, DEFAULT_MAX_COMMAND_LENGTH, DEFAULT_MAX_OUTPUT_LENGTH);
+    }
+
+    public BatchCommand(SessionFactory sessionFactory, int maxCommandLength, int maxOutputLength) {
+        this.sessionFactory = sessionFactory;
+        this.maxCommandLength = maxCommandLength;
+        this.maxOutputLength = maxOutputLength;
+    }
+
+    public void setInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    public void setOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    public void setErrorStream(OutputStream err) {
+        this.err = err;
+    }
+
+    public void setExitCallback(ExitCallback callback) {
+        this.callback = callback;
+    }
+
+    public void setSession(ServerSession session) {
+        this.session = session;
+    }
+
+    public void start(final Environment env) throws IOException {
+        this.env = env;
+        new Thread(this::run, "Karaf ssh batch").start();
+    }
+
+    public void run() {
+        int exitStatus = 0;
+        try {
+            Subject subject = this.session != null ? this.session.getAttribute(KarafJaasAuthenticator.SUBJECT_ATTRIBUTE_KEY) : null;
+            if (subject != null) {
+                try {
+                    JaasHelper.doAs(subject, (PrivilegedExceptionAction<Object>) () -> {
+                        process(in, out);
+                        return null;
+                    });
+                } catch (PrivilegedActionException e) {
+                    throw e.getException();
+                }
+            } else {
+                process(in, out);
+            }
+        } catch (Exception e) {
+            exitStatus = 1;
+            LOGGER.error("Error in batch session", e);
+        } finally {
+            StreamUtils.close(in, out, err);
+            callback.onExit(exitStatus);
+        }
+    }
+
+    public void destroy() {
+    }
+
+    /**
+     * Execute the commands read from the input until its end, writing the framed results to the output.
+     */
+    void process(InputStream channelIn, OutputStream output) throws IOException {
+        InputStream input = new BufferedInputStream(channelIn);
+        BoundedOutputStream stdout = new BoundedOutputStream(maxOutputLength);
+        BoundedOutputStream stderr = new BoundedOutputStream(maxOutputLength);
+        PrintStream pout = new PrintStream(stdout, true, StandardCharsets.UTF_8.name());
+        PrintStream perr = new PrintStream(stderr, true, StandardCharsets.UTF_8.name());
+        // the channel input carries the commands, so the commands themselves read an empty input
+        Session shell = sessionFactory.create(new ByteArrayInputStream(new byte[0]), pout, perr);
+        try {
+            if (env != null) {
+                for (Map.Entry<String, String> e : env.getEnv().entrySet()) {
+                    shell.put(e.getKey(), e.getValue());
+                }
+            }
+            String scriptFileName = System.getProperty(ShellCommand.EXEC_INIT_SCRIPT);
+            if (scriptFileName == null) {
+                scriptFileName = System.getProperty(ShellCommand.SHELL_INIT_SCRIPT);
+            }
+            ShellCommand.executeScript(scriptFileName, shell);
+
+            while (true) {
+                String command;
+                try {
+                    command = readCommand(input, maxCommandLength);
+                } catch (CommandTooLongException e) {
+                    // the command has been skipped, so the next one can still be read
+                    stderr.reset();
+                    stderr.append(e.getMessage() + System.lineSeparator());
+                    writeResult(output, 1, new ByteArrayOutputStream(), stderr);
+                    continue;
+                }
+                if (command == null) {
+                    break;
+                }
+                stdout.reset();
+                stderr.reset();
+                int exitStatus = execute(shell, command, perr);
+                pout.flush();
+                perr.flush();
+                if (stdout.isTruncated() || stderr.isTruncated()) {
+                    stderr.append("Output truncated to " + maxOutputLength + " bytes" + System.lineSeparator());
+                }
+                writeResult(output, exitStatus, stdout, stderr);
+            }
+        } finally {
+            shell.close();
+        }
+    }
+
+    private int execute(Session shell, String command, PrintStream perr) {
+        try {
+            Object result = shell.execute(command);
+            return result instanceof Integer ? (Integer) result : 0;
+        } catch (Throwable t) {
+            // unlike ShellUtil.logException, report the error on the stderr of the command, not on the console
+            shell.put(Session.LAST_EXCEPTION, t);
+            LOGGER.debug("Error executing batch command {}", command, t);
+            perr.println("Error executing command: " + (t.getMessage() != null ? t.getMessage() : t.getClass().getName()));
+            return 1;
+        }
+    }
+
+    /**
+     * Read the next command.
+     *
+     * @param maxLength The maximum length of a command in bytes.
+     * @return The command, or <code>null</code> at the end of the input.
+     * @throws CommandTooLongException If the command is longer than the maximum length, after skipping it.
+     */
+    static String readCommand(InputStream input, int maxLength) throws IOException {
+        String line;
+        do {
+            line = readLine(input, maxLength);
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+        if (line.startsWith("@")) {
+            int length;
+            try {
+                length = Integer.parseInt(line.substring(1).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid command length: " + line);
+            }
+            if (length < 0) {
+                throw new IOException("Invalid command length: " + line);
+            }
+            if (length > maxLength) {
+                skip(input, length);
+                throw new CommandTooLongException(maxLength);
+            }
+            byte[] buffer = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = input.read(buffer, read, length - read);
+                if (n < 0) {
+                    throw new EOFException("Expected " + length + " bytes but only got " + read);
+                }
+                read += n;
+            }
+            return new String(buffer, StandardCharsets.UTF_8);
+        }
+        return line;
+    }
+
+    private static void skip(InputStream input, long length) throws IOException {
+        long skipped = 0;
+        while (skipped < length) {
+            if (input.read() < 0) {
+                throw new EOFException("Expected " + length + " bytes but only got " + skipped);
+            }
+            skipped += 1 + input.skip(length - skipped - 1);
+        }
+    }
+
+    /**
+     * Read a line, without its end of line.
+     *
+     * @return The line, or <code>null</code> at the end of the input.
+     * @throws CommandTooLongException If the line is longer than the maximum length, after skipping it.
+     */
+    private static String readLine(InputStream input, int maxLength) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        boolean tooLong = false;
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c < 0) {
+                if (tooLong) {
+                    throw new CommandTooLongException(maxLength);
+                }
+                return line.size() > 0 ? line.toString(StandardCharsets.UTF_8.name()) : null;
+            }
+            if (line.size() >= maxLength) {
+                tooLong = true;
+            } else {
+                line.write(c);
+            }
+        }
+        if (tooLong) {
+            throw new CommandTooLongException(maxLength);
+        }
+        String s = line.toString(StandardCharsets.UTF_8.name());
+        return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    static void writeResult(OutputStream output, int exitStatus, ByteArrayOutputStream stdout, ByteArrayOutputStream stderr) throws IOException {
+        String header = exitStatus + " " + stdout.size() + " " + stderr.size() + "\n";
+        output.write(header.getBytes(StandardCharsets.US_ASCII));
+        stdout.writeTo(output);
+        stderr.writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * Command longer than the maximum length, which has been skipped.
+     */
+    static class CommandTooLongException extends IOException {
+
+        CommandTooLongException(int maxLength) {
+            super("Command too long, the maximum length is " + maxLength + " bytes");
+        }
+    }
+
+    /**
+     * Output buffer of a command, which drops the bytes written beyond its maximum length.
+     */
+    static class BoundedOutputStream extends ByteArrayOutputStream {
+
+        private final int maxLength;
+        private boolean truncated;
+
+        BoundedOutputStream(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (count < maxLength) {
+                super.write(b);
+            } else {
+                truncated = true;
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int n = Math.min(len, maxLength - count);
+            if (n > 0) {
+                super.write(b, off, n);
+            }
+            if (n < len) {
+                truncated = true;
+            }
+        }
+
+        @Override
+        public synchronized void reset() {
+            super.reset();
+            truncated = false;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        void append(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            super.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Factory registering the batch command as the <code>karaf-batch</code> subsystem.
+     */
+    public static class Factory implements NamedFactory<Command> {
+
+        private final SessionFactory sessionFactory;
+        private final int maxCommandLength;
+        private final int maxOutputLength;
+
+        public Factory(SessionFactory sessionFactory, int maxCommandLength, int maxOutputLength) {
+            this.sessionFactory = sessionFactory;
+            this.maxCommandLength = maxCommandLength;
+            this.maxOutputLength = maxOutputLength;
+        }
+
+        @Override
+        public String getName() {
+            return SUBSYSTEM_NAME;
+        }
+
+        @Override
+        public Command create() {
+            return new BatchCommand(sessionFactory, maxCommandLength, maxOutputLength);
+        }
+    }
+
+}
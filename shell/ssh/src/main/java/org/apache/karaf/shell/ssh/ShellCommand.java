@@ -153,11 +153,11 @@ public class ShellCommand implements Command, SessionAware {
     public void destroy() {
     }
 
-    private void executeScript(String names, Session session) {
+    static void executeScript(String names, Session session) {
         FilesStream.stream(names).forEach(p -> doExecuteScript(session, p));
     }
 
-    private void doExecuteScript(Session session, Path scriptFileName) {
+    private static void doExecuteScript(Session session, Path scriptFileName) {
         try {
             String script = String.join("\n",
                     Files.readAllLines(scriptFileName));
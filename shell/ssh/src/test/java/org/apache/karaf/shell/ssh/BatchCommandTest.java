@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.shell.ssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.karaf.shell.api.console.Session;
+import org.apache.karaf.shell.api.console.SessionFactory;
+import org.junit.Test;
+
+public class BatchCommandTest {
+
+    @Test
+    public void testReadCommand() throws IOException {
+        String input = "first\r\n\n  \n@11\nline1\nline2last\n";
+        ByteArrayInputStream in = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+        assertEquals("first", BatchCommand.readCommand(in, 1024));
+        assertEquals("line1\nline2", BatchCommand.readCommand(in, 1024));
+        assertEquals("last", BatchCommand.readCommand(in, 1024));
+        assertNull(BatchCommand.readCommand(in, 1024));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedCommand() throws IOException {
+        BatchCommand.readCommand(new ByteArrayInputStream("@10\nshort".getBytes(StandardCharsets.UTF_8)), 1024);
+    }
+
+    @Test
+    public void testCommandTooLong() throws IOException {
+        // the huge length is rejected before allocating anything
+        try {
+            BatchCommand.readCommand(new ByteArrayInputStream("@2000000000\n".getBytes(StandardCharsets.UTF_8)), 1024);
+            fail("The command should be rejected");
+        } catch (EOFException e) {
+            // expected, the rejected command is skipped up to the end of the input
+        }
+
+        StringBuilder input = new StringBuilder("@2000\n");
+        for (int i = 0; i < 2000; i++) {
+            input.append('x');
+        }
+        input.append("next\n");
+        ByteArrayInputStream in = new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            BatchCommand.readCommand(in, 1024);
+            fail("The command should be rejected");
+        } catch (BatchCommand.CommandTooLongException e) {
+            // expected
+        }
+        assertEquals("next", BatchCommand.readCommand(in, 1024));
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        List<Session> sessions = new ArrayList<>();
+        List<String> executed = new ArrayList<>();
+        BatchCommand command = new BatchCommand(sessionFactory(sessions, executed), 16, 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String input = "@20\necho 12345678901234\nthis line is much too long\necho 123456\nexit 2\n";
+        command.process(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+
+        // the long commands are skipped, and the long output is truncated
+        assertEquals(2, executed.size());
+        String tooLong = "Command too long, the maximum length is 16 bytes" + System.lineSeparator();
+        String truncated = "Output truncated to 4 bytes" + System.lineSeparator();
+        String expected = "1 0 " + tooLong.length() + "\n" + tooLong
+                + "1 0 " + tooLong.length() + "\n" + tooLong
+                + "0 4 " + truncated.length() + "\n" + "1234" + truncated
+                + "2 0 0\n";
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess() throws IOException {
+        List<Session> sessions = new ArrayList<>();
+        List<String> executed = new ArrayList<>();
+        SessionFactory factory = sessionFactory(sessions, executed);
+
+        BatchCommand command = new BatchCommand(factory);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        command.process(new ByteArrayInputStream("echo hello\nexit 3\nfail\n".getBytes(StandardCharsets.UTF_8)), out);
+
+        // a single session is used for all the commands
+        assertEquals(1, sessions.size());
+        assertEquals(3, executed.size());
+        String hello = "hello" + System.lineSeparator();
+        String error = "Error executing command: command failed" + System.lineSeparator();
+        String expected = "0 " + hello.length() + " 0\n" + hello
+                + "3 0 0\n"
+                + "1 0 " + error.length() + "\n" + error;
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static SessionFactory sessionFactory(List<Session> sessions, List<String> executed) {
+        return (SessionFactory) Proxy.newProxyInstance(BatchCommandTest.class.getClassLoader(),
+                new Class[] { SessionFactory.class }, (proxy, method, args) -> {
+                    assertTrue(method.getName().equals("create") && args.length == 3);
+                    PrintStream out = (PrintStream) args[1];
+                    Session session = (Session) Proxy.newProxyInstance(BatchCommandTest.class.getClassLoader(),
+                            new Class[] { Session.class }, (p, m, a) -> {
+                                if (!m.getName().equals("execute")) {
+                                    return null;
+                                }
+                                String cmd = a[0].toString();
+                                executed.add(cmd);
+                                if (cmd.startsWith("echo ")) {
+                                    out.println(cmd.substring(5));
+                                    return null;
+                                } else if (cmd.startsWith("exit ")) {
+                                    return Integer.valueOf(cmd.substring(5));
+                                }
+                                throw new IllegalStateException("command failed");
+                            });
+                    sessions.add(session);
+                    return session;
+                });
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On disk cache of the bundles generated by a deployer from a deployed artifact.
+ * <p>
+ * A bundle is cached in a file named after a hash of the artifact URL and a hash of the artifact content,
+ * last modification date and deployer version, so an artifact is only transformed again when it changed,
+ * and the previous bundle generated for the same URL is removed at that time.
+ */
+public class DeployerCache {
+
+    /**
+     * Transformation of an artifact to a bundle.
+     */
+    public interface Transformer {
+
+        void transform(URL url, InputStream is, long lastModified, OutputStream os) throws Exception;
+
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeployerCache.class);
+
+    private static final String EXTENSION = ".jar";
+    private static final int URL_HASH_LENGTH = 16;
+
+    private final File directory;
+    private final String version;
+    private final Transformer transformer;
+
+    /**
+     * @param directory The cache directory, or <code>null</code> to always transform the artifacts.
+     * @param version The version of the transformation, the cached bundles of other versions are ignored.
+     * @param transformer The transformation.
+     */
+    public DeployerCache(File directory, String version, Transformer transformer) {
+        this.directory = directory;
+        this.version = version;
+        this.transformer = transformer;
+    }
+
+    /**
+     * Get the bundle generated from the given artifact, transforming the artifact only if needed.
+     */
+    public InputStream open(URL url) throws Exception {
+        URLConnection connection = url.openConnection();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream is = connection.getInputStream()) {
+            StreamUtils.copy(is, bytes);
+        }
+        byte[] content = bytes.toByteArray();
+        long lastModified = connection.getLastModified();
+        if (directory == null) {
+            return new ByteArrayInputStream(transform(url, content, lastModified));
+        }
+
+        String prefix = hash(url.toExternalForm().getBytes(StandardCharsets.UTF_8)).substring(0, URL_HASH_LENGTH) + "-";
+        MessageDigest digest = digest();
+        digest.update((version + "\n" + lastModified + "\n").getBytes(StandardCharsets.UTF_8));
+        digest.update(content);
+        File file = new File(directory, prefix + toHex(digest.digest()) + EXTENSION);
+        if (file.isFile()) {
+            LOGGER.debug("Using cached bundle {} for {}", file, url);
+            return new FileInputStream(file);
+        }
+
+        byte[] bundle = transform(url, content, lastModified);
+        try {
+            store(file, prefix, bundle);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to cache the bundle generated for {}", url, e);
+        }
+        return new ByteArrayInputStream(bundle);
+    }
+
+    private byte[] transform(URL url, byte[] content, long lastModified) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        transformer.transform(url, new ByteArrayInputStream(content), lastModified, os);
+        return os.toByteArray();
+    }
+
+    private void store(File file, String prefix, byte[] bundle) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File tmp = File.createTempFile(prefix, ".tmp", directory);
+        try {
+            Files.write(tmp.toPath(), bundle);
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+        // remove the bundles previously generated for the same artifact
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File f : files) {
+                if (!f.equals(file)) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    private static String hash(byte[] data) {
+        return toHex(digest().digest(data));
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * SAX filter analyzing a deployed XML descriptor in a single pass.
+ * <p>
+ * The filter collects the packages of the classes referenced by the descriptor, as reported by
+ * {@link #startElement(Element, Attributes)} and {@link #text(Element, String)}, and the headers of the
+ * <code>manifest</code> elements. The other events are forwarded, so the descriptor without its
+ * <code>manifest</code> elements can be serialized at the same time.
+ */
+public abstract class DescriptorFilter extends XMLFilterImpl implements LexicalHandler {
+
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+    private static final String MANIFEST = "manifest";
+
+    private final Set<String> packages = new TreeSet<>();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private final List<String[]> pendingMappings = new ArrayList<>();
+    private Element current;
+    private StringBuilder manifest;
+    private int manifestDepth;
+    private int skippedMappings;
+
+    /**
+     * Parse the descriptor, writing it without its <code>manifest</code> elements to the given stream.
+     *
+     * @param is The descriptor.
+     * @param os The stream receiving the filtered descriptor, or <code>null</code> to only analyze it.
+     */
+    public void parse(InputStream is, OutputStream os) throws Exception {
+        XMLReader reader = XmlUtils.xmlReader();
+        reader.setProperty(LEXICAL_HANDLER, this);
+        setParent(reader);
+        if (os != null) {
+            setContentHandler(XmlUtils.transformerHandler(new StreamResult(os)));
+        }
+        parse(new InputSource(is));
+    }
+
+    /**
+     * Analyze a descriptor already loaded, a DOM document for instance.
+     */
+    public void analyze(Source source) throws TransformerException {
+        SAXResult result = new SAXResult(this);
+        result.setLexicalHandler(this);
+        XmlUtils.transform(source, result);
+    }
+
+    /**
+     * @return The packages referenced by the descriptor, excluding the <code>java.*</code> ones.
+     */
+    public Set<String> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @return The headers defined in the <code>manifest</code> elements of the descriptor.
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Called for each element of the descriptor, out of the <code>manifest</code> elements.
+     *
+     * @return <code>true</code> if the text of the element must be reported to {@link #text(Element, String)}.
+     */
+    protected abstract boolean startElement(Element element, Attributes attributes);
+
+    /**
+     * Called at the end of an element for which {@link #startElement(Element, Attributes)} returned <code>true</code>.
+     */
+    protected void text(Element element, String text) {
+    }
+
+    /**
+     * Add the packages of a class name, or of a list of class names separated by commas or lines.
+     */
+    protected void addClasses(String classes) {
+        if (classes == null) {
+            return;
+        }
+        for (String line : classes.split("[\\r\\n]+")) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            for (String part : line.split("\\s*,\\s*")) {
+                int n = part.lastIndexOf('.');
+                if (n > 0) {
+                    String pkg = part.substring(0, n);
+                    if (!pkg.startsWith("java.")) {
+                        packages.add(pkg);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        // the mappings are reported before their element, which may be a removed manifest element
+        pendingMappings.add(new String[] { prefix, uri });
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        if (skippedMappings > 0) {
+            skippedMappings--;
+        } else {
+            super.endPrefixMapping(prefix);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        if (manifestDepth > 0 || MANIFEST.equals(qName)) {
+            if (manifestDepth++ == 0) {
+                manifest = new StringBuilder();
+            }
+            skippedMappings += pendingMappings.size();
+            pendingMappings.clear();
+            return;
+        }
+        for (String[] mapping : pendingMappings) {
+            super.startPrefixMapping(mapping[0], mapping[1]);
+        }
+        pendingMappings.clear();
+        current = new Element(current, uri, localName, atts);
+        if (startElement(current, atts)) {
+            current.text = new StringBuilder();
+        }
+        super.startElement(uri, localName, qName, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (manifestDepth > 0) {
+            if (--manifestDepth == 0) {
+                loadHeaders(manifest.toString());
+                manifest = null;
+            }
+            return;
+        }
+        if (current.text != null) {
+            text(current, current.text.toString());
+        }
+        current = current.parent;
+        super.endElement(uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (manifestDepth > 0) {
+            manifest.append(ch, start, length);
+            return;
+        }
+        if (current != null && current.text != null) {
+            current.text.append(ch, start, length);
+        }
+        super.characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        if (manifestDepth == 0) {
+            super.ignorableWhitespace(ch, start, length);
+        }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        if (manifestDepth == 0) {
+            super.processingInstruction(target, data);
+        }
+    }
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId) throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.startDTD(name, publicId, systemId);
+        }
+    }
+
+    @Override
+    public void endDTD() throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.endDTD();
+        }
+    }
+
+    @Override
+    public void startEntity(String name) throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.startEntity(name);
+        }
+    }
+
+    @Override
+    public void endEntity(String name) throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.endEntity(name);
+        }
+    }
+
+    @Override
+    public void startCDATA() throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.startCDATA();
+        }
+    }
+
+    @Override
+    public void endCDATA() throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.endCDATA();
+        }
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException {
+        LexicalHandler handler = lexicalHandler();
+        if (handler != null) {
+            handler.comment(ch, start, length);
+        }
+    }
+
+    private LexicalHandler lexicalHandler() {
+        // nothing inside the manifest elements is written
+        if (manifestDepth == 0 && getContentHandler() instanceof LexicalHandler) {
+            return (LexicalHandler) getContentHandler();
+        }
+        return null;
+    }
+
+    private void loadHeaders(String text) throws SAXException {
+        Properties props = new Properties();
+        try {
+            props.load(new StringReader(text.trim()));
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+        for (String name : props.stringPropertyNames()) {
+            headers.put(name, props.getProperty(name));
+        }
+    }
+
+    /**
+     * An element of the descriptor, with its ancestors.
+     */
+    protected static final class Element {
+
+        private final Element parent;
+        private final String namespace;
+        private final String name;
+        private final String classAttribute;
+        private StringBuilder text;
+
+        Element(Element parent, String namespace, String name, Attributes attributes) {
+            this.parent = parent;
+            this.namespace = namespace;
+            this.name = name;
+            this.classAttribute = attributes.getValue("", "class");
+        }
+
+        public Element getParent() {
+            return parent;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The value of the <code>class</code> attribute, which is kept for the nested elements.
+         */
+        public String getClassAttribute() {
+            return classAttribute;
+        }
+
+        public boolean is(String namespace, String name) {
+            return this.namespace.equals(namespace) && this.name.equals(name);
+        }
+    }
+
+}
@@ -31,6 +31,8 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -139,26 +141,23 @@ public class XmlUtils {
     }
 
     public static Transformer transformer() throws TransformerConfigurationException {
-        TransformerFactory tf = TRANSFORMER_FACTORY.get();
-        if (tf == null) {
-            tf = TransformerFactory.newInstance();
-            tf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-            try {
-                tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-            } catch (IllegalArgumentException e) {
-                LOGGER.warn("XSL transformer implementation doesn't support {} feature", XMLConstants.ACCESS_EXTERNAL_DTD);
-            }
-            try {
-                tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-            } catch (IllegalArgumentException e) {
-                LOGGER.warn("XSL transformer implementation doesn't support {} feature", XMLConstants.ACCESS_EXTERNAL_STYLESHEET);
-            }
-            TRANSFORMER_FACTORY.set(tf);
-        }
-        return tf.newTransformer();
+        return transformerFactory().newTransformer();
+    }
+
+    /**
+     * Create a handler serializing the SAX events it receives to the given result, without building any tree.
+     */
+    public static TransformerHandler transformerHandler(Result result) throws TransformerConfigurationException {
+        TransformerHandler handler = ((SAXTransformerFactory) transformerFactory()).newTransformerHandler();
+        handler.setResult(result);
+        return handler;
     }
 
     private static Transformer transformer(Source xsltSource) throws TransformerConfigurationException {
+        return transformerFactory().newTransformer(xsltSource);
+    }
+
+    private static TransformerFactory transformerFactory() throws TransformerConfigurationException {
         TransformerFactory tf = TRANSFORMER_FACTORY.get();
         if (tf == null) {
             tf = TransformerFactory.newInstance();
@@ -175,7 +174,7 @@ public class XmlUtils {
             }
             TRANSFORMER_FACTORY.set(tf);
         }
-        return tf.newTransformer(xsltSource);
+        return tf;
     }
 
 }
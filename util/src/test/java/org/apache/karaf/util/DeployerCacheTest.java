@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class DeployerCacheTest {
+
+    @Test
+    public void testCache() throws Exception {
+        File dir = Files.createTempDirectory("cache").toFile();
+        File artifact = File.createTempFile("artifact", ".xml");
+        try {
+            AtomicInteger transformations = new AtomicInteger();
+            DeployerCache.Transformer transformer = (url, is, lastModified, os) -> {
+                transformations.incrementAndGet();
+                StreamUtils.copy(is, os);
+                os.write('!');
+            };
+            URL url = artifact.toURI().toURL();
+            Files.write(artifact.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+
+            DeployerCache cache = new DeployerCache(dir, "1", transformer);
+            assertEquals("first!", read(cache.open(url)));
+            assertEquals("first!", read(cache.open(url)));
+            assertEquals(1, transformations.get());
+            assertEquals(1, dir.list().length);
+
+            // a new cache on the same directory, after a restart for instance
+            cache = new DeployerCache(dir, "1", transformer);
+            assertEquals("first!", read(cache.open(url)));
+            assertEquals(1, transformations.get());
+
+            // the bundle generated from the previous content is replaced
+            Files.write(artifact.toPath(), "second".getBytes(StandardCharsets.UTF_8));
+            assertEquals("second!", read(cache.open(url)));
+            assertEquals(2, transformations.get());
+            assertEquals(1, dir.list().length);
+
+            // the bundles generated by other versions are not used
+            cache = new DeployerCache(dir, "2", transformer);
+            assertEquals("second!", read(cache.open(url)));
+            assertEquals(3, transformations.get());
+
+            // no caching without directory
+            cache = new DeployerCache(null, "2", transformer);
+            assertEquals("second!", read(cache.open(url)));
+            assertEquals(4, transformations.get());
+        } finally {
+            artifact.delete();
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static String read(InputStream is) throws Exception {
+        try (InputStream in = is) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            StreamUtils.copy(in, os);
+            return new String(os.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+}